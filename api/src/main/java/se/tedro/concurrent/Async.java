@@ -1,11 +1,17 @@
 package se.tedro.concurrent;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -30,6 +36,22 @@ public interface Async {
    */
   <T> Completable<T> completable();
 
+  /**
+   * Build a new resolvable completable for {@code long} results, which does not box its result.
+   *
+   * @return a new completable
+   * @see #completable()
+   */
+  LongCompletable longCompletable();
+
+  /**
+   * Build a new resolvable completable for {@code double} results, which does not box its result.
+   *
+   * @return a new completable
+   * @see #completable()
+   */
+  DoubleCompletable doubleCompletable();
+
   /**
    * Returns an already completed void completable.
    *
@@ -105,6 +127,110 @@ public interface Async {
     Function<? super Collection<T>, ? extends U> collector
   );
 
+  /**
+   * Build a new stage that is the result of collecting a collection of stages with a {@link
+   * Collector}.
+   *
+   * <p>If the collector is {@link Collector.Characteristics#UNORDERED}, results are accumulated as
+   * they arrive, into a small number of partial containers which are combined in no particular
+   * order once all stages are done. Memory therefore scales with the number of threads completing
+   * stages, not with the number of stages. The accumulator is never called concurrently on the same
+   * container, so it doesn't need any synchronization.
+   *
+   * <p>Only unordered collectors are accumulated incrementally. Partial containers can't record
+   * the order in which stages complete across threads, so other collectors are applied to the
+   * results in that order once all stages are done, like {@link #collect(Collection, Function)}.
+   * Every result is then held in memory until the last stage is done, and collectors that don't
+   * depend on the order of results should declare {@link Collector.Characteristics#UNORDERED} to
+   * avoid it.
+   *
+   * <p>Signals like cancellations and failures will be communicated in a similar fashion to {@link
+   * #collect(Collection, Function)}.
+   *
+   * @param stages the collection of stages
+   * @param collector the collector
+   * @param <T> source type of the collected stages
+   * @param <A> type of the partial containers
+   * @param <R> type of the result
+   * @return a stage bound to the collected value of the collector
+   */
+  <T, A, R> Stage<R> collect(
+    Collection<? extends Stage<? extends T>> stages, Collector<? super T, A, R> collector
+  );
+
+  /**
+   * Build a new stage that is the result of reducing a collection of stages.
+   *
+   * <p>Results are reduced as they arrive, in no particular order, so the operator must be
+   * associative and commutative, like {@link Integer#sum(int, int)}. {@code identity} must be an
+   * identity value for it. See {@link #collect(Collection, Collector)} with an
+   * {@link Collector.Characteristics#UNORDERED} collector.
+   *
+   * @param stages the collection of stages
+   * @param identity identity value of the operator
+   * @param op operator to reduce with
+   * @param <T> type of the reduced value
+   * @return a stage bound to the reduced value
+   */
+  <T> Stage<T> reduce(
+    Collection<? extends Stage<? extends T>> stages, T identity, BinaryOperator<T> op
+  );
+
+  /**
+   * Build a new stage that is completed with the value of the first stage to complete.
+   *
+   * <p>Failed and cancelled stages are ignored for as long as any stage could still complete. If
+   * none do, the returned stage is failed with the collected errors, or cancelled if all stages
+   * were cancelled.
+   *
+   * <p>Once the returned stage is done, all other stages are cancelled.
+   *
+   * @param stages the collection of stages, must not be empty
+   * @param <T> type of the stages
+   * @return a stage completed with the first completed value
+   * @throws IllegalArgumentException if {@code stages} is empty
+   * @see #quorum(Collection, int, Function)
+   */
+  <T> Stage<T> firstCompleted(Collection<? extends Stage<? extends T>> stages);
+
+  /**
+   * Build a new stage that is completed as soon as {@code required} of the given stages are
+   * completed.
+   *
+   * <p>The collector is called with the values of the first {@code required} stages to complete,
+   * in the order in which they completed. If so many stages fail or are cancelled that the quorum
+   * can no longer be reached, the returned stage is failed with the collected errors, or cancelled
+   * if there were no errors.
+   *
+   * <p>Once the returned stage is done, all other stages are cancelled.
+   *
+   * @param stages the collection of stages
+   * @param required number of stages that must complete
+   * @param collector the collector
+   * @param <T> source type of the collected stages
+   * @param <U> target type the collected stages are being transformed into
+   * @return a stage bound to the collected value of the collector
+   * @throws IllegalArgumentException if {@code required} is not between one and the number of
+   *     stages
+   */
+  <T, U> Stage<U> quorum(
+    Collection<? extends Stage<? extends T>> stages, int required,
+    Function<? super Collection<T>, ? extends U> collector
+  );
+
+  /**
+   * Build a new stage that is ended like the first of the given stages to be done, whether it is
+   * completed, failed, or cancelled.
+   *
+   * <p>Once the returned stage is done, all other stages are cancelled.
+   *
+   * @param stages the collection of stages, must not be empty
+   * @param <T> type of the stages
+   * @return a stage ended like the first stage to be done
+   * @throws IllegalArgumentException if {@code stages} is empty
+   */
+  <T> Stage<T> race(Collection<? extends Stage<? extends T>> stages);
+
   /**
    * Build a new stage that is the result of applying a computation on a collection of stages.
    *
@@ -141,6 +267,37 @@ public interface Async {
     return collectAndDiscard(stream.collect(Collectors.toList()));
   }
 
+  /**
+   * Reduce the results of a collection of stages, without boxing them.
+   *
+   * <p>Results are reduced in the order in which the stages are completed, so the operator must be
+   * associative and commutative, like {@link Long#sum(long, long)}.
+   *
+   * <p>Signals like cancellations and failures will be communicated in a similar fashion to {@link
+   * #collect(Collection, Function)}.
+   *
+   * @param stages stages to reduce
+   * @param identity identity value of the operator
+   * @param op operator to reduce with
+   * @return a new stage that is completed with the reduced value
+   */
+  LongStage collectLongs(
+    Collection<? extends LongStage> stages, long identity, LongBinaryOperator op
+  );
+
+  /**
+   * Reduce the results of a collection of stages, without boxing them.
+   *
+   * @param stages stages to reduce
+   * @param identity identity value of the operator
+   * @param op operator to reduce with
+   * @return a new stage that is completed with the reduced value
+   * @see #collectLongs(Collection, long, LongBinaryOperator)
+   */
+  DoubleStage collectDoubles(
+    Collection<? extends DoubleStage> stages, double identity, DoubleBinaryOperator op
+  );
+
   /**
    * Collect the results from a collection of stages, then discard them.
    *
@@ -179,6 +336,55 @@ public interface Async {
     Consumer<? super T> consumer, Supplier<? extends U> supplier, int parallelism
   );
 
+  /**
+   * Collect the result from a lazily produced source of operations.
+   *
+   * <p>Behaves like {@link #eventuallyCollect(Collection, Consumer, Supplier, int)}, but the next
+   * operation is only pulled from {@code callables} when a parallelism slot is available. This
+   * makes it possible to collect from sources that are too large to materialize, like a paginated
+   * scan, since at most {@code parallelism} operations are retained at the same time.
+   *
+   * <p>The returned stage is completed once {@code callables} is exhausted, and all pending stages
+   * are done. The iterator may be accessed from different threads, but never concurrently. If the
+   * iterator throws, the returned stage fails with the thrown exception.
+   *
+   * @param callables source of operations
+   * @param consumer value consumer
+   * @param supplier result supplier
+   * @param parallelism number of stages that are allowed to be pending at the same time, must be
+   *     positive
+   * @param <T> source type of the collected stages
+   * @param <U> target type the collected stages are being transformed into
+   * @return a new completable that is completed when all operations are completed
+   */
+  <T, U> Stage<U> eventuallyCollect(
+    Iterator<? extends Callable<? extends Stage<? extends T>>> callables,
+    Consumer<? super T> consumer, Supplier<? extends U> supplier, int parallelism
+  );
+
+  /**
+   * Build a stream which pulls each element from the given callable.
+   *
+   * <p>The callable is invoked once every time an element is requested from the stream, and the
+   * stream ends when the returned stage is completed with {@code null}. Any state needed to produce
+   * the next element, like the cursor of a paginated scan, can be kept by the callable.
+   *
+   * @param next callable producing the next element
+   * @param <T> type of the elements in the stream
+   * @return a new stream
+   */
+  <T> StageStream<T> stream(Callable<? extends Stage<? extends T>> next);
+
+  /**
+   * Build a stream of the elements provided by the given iterator.
+   *
+   * @param values iterator of the elements
+   * @param <T> type of the elements in the stream
+   * @return a new stream
+   * @see #stream(Callable)
+   */
+  <T> StageStream<T> stream(Iterator<? extends T> values);
+
   /**
    * Call the given callable on the default executor and track the result using a completable.
    *
@@ -200,6 +406,34 @@ public interface Async {
    */
   <T> Stage<T> call(Callable<? extends T> callable, ExecutorService executor);
 
+  /**
+   * Build an instance which attaches the given deadline to every stage that it creates.
+   *
+   * <p>Operations of the returned instance respect the deadline: callables submitted through
+   * {@link #call(Callable)} are not called once it has passed, retries give up when their back-off
+   * would overshoot it, and {@link #eventuallyCollect(Collection, Consumer, Supplier, int)} stops
+   * starting new tasks. Such operations fail with a {@link DeadlineExceededException}.
+   *
+   * <p>Stages are not failed just because the deadline passes, use
+   * {@link Stage#withDeadline(Deadline)} for that.
+   *
+   * @param deadline deadline to attach
+   * @return an instance bound to the earliest of the given deadline, and the deadline of this
+   * instance
+   */
+  Async withDeadline(Deadline deadline);
+
+  /**
+   * Build a stage that is completed once the given delay has passed.
+   *
+   * <p>Cancelling the returned stage disarms the delay.
+   *
+   * @param delay delay until the stage is completed
+   * @param unit unit of the delay
+   * @return a stage that will be completed after the delay
+   */
+  Stage<Void> delay(long delay, TimeUnit unit);
+
   /**
    * Setup a managed reference.
    *
@@ -212,6 +446,23 @@ public interface Async {
     Supplier<? extends Stage<T>> setup, Function<? super T, ? extends Stage<Void>> teardown
   );
 
+  /**
+   * Setup a pool of managed references.
+   *
+   * <p>Each instance in the pool is set up and torn down with the given methods, like a reference
+   * set up through {@link #managed(Supplier, Function)}.
+   *
+   * @param size number of instances in the pool
+   * @param setup setup method for each instance
+   * @param teardown teardown method for each instance
+   * @param <T> type of the pooled references
+   * @return a managed pool
+   */
+  <T> ManagedPool<T> managedPool(
+    int size, Supplier<? extends Stage<T>> setup,
+    Function<? super T, ? extends Stage<Void>> teardown
+  );
+
   /**
    * Setup a reloadable, managed reference.
    *
@@ -249,4 +500,23 @@ public interface Async {
   <T> Stage<RetryResult<T>> retryUntilCompleted(
     Callable<? extends Stage<T>> callable, RetryPolicy policy, ClockSource clockSource
   );
+
+  /**
+   * Retry the given action until it has been completed, or the provided {@link RetryPolicy} expire,
+   * and hedge attempts that are slow according to the provided {@link HedgePolicy}.
+   *
+   * <p>If no attempt has completed within the delay decided by the hedge policy, another attempt is
+   * started in parallel, up to {@link HedgePolicy#maxOutstanding()} at a time. The first attempt to
+   * complete completes the returned stage, and all other attempts in flight are cancelled. Only
+   * once all attempts in flight have failed is the retry policy consulted.
+   *
+   * @param callable action to run, which may be called concurrently
+   * @param policy retry policy to use
+   * @param hedgePolicy hedge policy to use
+   * @param <T> the type returned by the action
+   * @return a completable tied to the operation
+   */
+  <T> Stage<RetryResult<T>> retryUntilCompleted(
+    Callable<? extends Stage<T>> callable, RetryPolicy policy, HedgePolicy hedgePolicy
+  );
 }
@@ -0,0 +1,111 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A {@link DoubleStage} that is backed by a boxed stage.
+ *
+ * <p>Used by the default implementation of {@link Stage#thenApplyAsDouble(
+ * java.util.function.ToDoubleFunction)}, for stages which don't provide an unboxed implementation.
+ */
+final class BoxedDoubleStage implements DoubleStage {
+  private final Stage<Double> stage;
+
+  BoxedDoubleStage(final Stage<Double> stage) {
+    this.stage = stage;
+  }
+
+  @Override
+  public boolean cancel() {
+    return stage.cancel();
+  }
+
+  @Override
+  public double join() throws ExecutionException, InterruptedException {
+    return stage.join();
+  }
+
+  @Override
+  public double joinNow() throws ExecutionException {
+    return stage.joinNow();
+  }
+
+  @Override
+  public boolean isDone() {
+    return stage.isDone();
+  }
+
+  @Override
+  public boolean isCompleted() {
+    return stage.isCompleted();
+  }
+
+  @Override
+  public boolean isFailed() {
+    return stage.isFailed();
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return stage.isCancelled();
+  }
+
+  @Override
+  public Throwable cause() {
+    return stage.cause();
+  }
+
+  @Override
+  public DoubleStage whenDone(final Runnable runnable) {
+    stage.whenDone(runnable);
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenComplete(final DoubleConsumer consumer) {
+    stage.whenComplete(consumer::accept);
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenFailed(final Consumer<? super Throwable> consumer) {
+    stage.whenFailed(consumer);
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenCancelled(final Runnable runnable) {
+    stage.whenCancelled(runnable);
+    return this;
+  }
+
+  @Override
+  public DoubleStage thenApplyAsDouble(final DoubleUnaryOperator fn) {
+    return stage.thenApplyAsDouble(fn::applyAsDouble);
+  }
+
+  @Override
+  public LongStage thenApplyAsLong(final DoubleToLongFunction fn) {
+    return stage.thenApplyAsLong(fn::applyAsLong);
+  }
+
+  @Override
+  public <U> Stage<U> thenApply(final DoubleFunction<? extends U> fn) {
+    return stage.thenApply(fn::apply);
+  }
+
+  @Override
+  public Stage<Double> boxed() {
+    return stage;
+  }
+
+  @Override
+  public String toString() {
+    return "BoxedDoubleStage(" + stage + ")";
+  }
+}
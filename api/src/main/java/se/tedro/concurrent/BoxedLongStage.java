@@ -0,0 +1,111 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A {@link LongStage} that is backed by a boxed stage.
+ *
+ * <p>Used by the default implementation of {@link Stage#thenApplyAsLong(
+ * java.util.function.ToLongFunction)}, for stages which don't provide an unboxed implementation.
+ */
+final class BoxedLongStage implements LongStage {
+  private final Stage<Long> stage;
+
+  BoxedLongStage(final Stage<Long> stage) {
+    this.stage = stage;
+  }
+
+  @Override
+  public boolean cancel() {
+    return stage.cancel();
+  }
+
+  @Override
+  public long join() throws ExecutionException, InterruptedException {
+    return stage.join();
+  }
+
+  @Override
+  public long joinNow() throws ExecutionException {
+    return stage.joinNow();
+  }
+
+  @Override
+  public boolean isDone() {
+    return stage.isDone();
+  }
+
+  @Override
+  public boolean isCompleted() {
+    return stage.isCompleted();
+  }
+
+  @Override
+  public boolean isFailed() {
+    return stage.isFailed();
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return stage.isCancelled();
+  }
+
+  @Override
+  public Throwable cause() {
+    return stage.cause();
+  }
+
+  @Override
+  public LongStage whenDone(final Runnable runnable) {
+    stage.whenDone(runnable);
+    return this;
+  }
+
+  @Override
+  public LongStage whenComplete(final LongConsumer consumer) {
+    stage.whenComplete(consumer::accept);
+    return this;
+  }
+
+  @Override
+  public LongStage whenFailed(final Consumer<? super Throwable> consumer) {
+    stage.whenFailed(consumer);
+    return this;
+  }
+
+  @Override
+  public LongStage whenCancelled(final Runnable runnable) {
+    stage.whenCancelled(runnable);
+    return this;
+  }
+
+  @Override
+  public LongStage thenApplyAsLong(final LongUnaryOperator fn) {
+    return stage.thenApplyAsLong(fn::applyAsLong);
+  }
+
+  @Override
+  public DoubleStage thenApplyAsDouble(final LongToDoubleFunction fn) {
+    return stage.thenApplyAsDouble(fn::applyAsDouble);
+  }
+
+  @Override
+  public <U> Stage<U> thenApply(final LongFunction<? extends U> fn) {
+    return stage.thenApply(fn::apply);
+  }
+
+  @Override
+  public Stage<Long> boxed() {
+    return stage;
+  }
+
+  @Override
+  public String toString() {
+    return "BoxedLongStage(" + stage + ")";
+  }
+}
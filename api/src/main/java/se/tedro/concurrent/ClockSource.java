@@ -1,9 +1,13 @@
 package se.tedro.concurrent;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A clock source that gives the current time in milliseconds.
+ *
+ * <p>Clock sources used to measure elapsed time should also provide {@link #nanoTime()}, which
+ * allows for back-offs and timeouts shorter than a millisecond.
  */
 @FunctionalInterface
 public interface ClockSource {
@@ -16,9 +20,129 @@ public interface ClockSource {
    */
   long now();
 
+  /**
+   * Get the current time in nanoseconds, only meaningful when compared to other values returned
+   * by the same clock source.
+   *
+   * <p>Defaults to {@link #now()} converted to nanoseconds.
+   *
+   * @return a timestamp in nanoseconds
+   */
+  default long nanoTime() {
+    return UNIT.toNanos(now());
+  }
+
   ClockSource SYSTEM = System::currentTimeMillis;
 
+  ClockSource MONOTONIC = new Monotonic();
+
   static ClockSource system() {
     return SYSTEM;
   }
+
+  /**
+   * A clock source based on {@link System#nanoTime()}, which doesn't jump when the wall clock is
+   * adjusted.
+   *
+   * <p>Timestamps are only meaningful when compared to each other, and should be used to measure
+   * elapsed time, like the deadlines of {@link RetryPolicy#timed(long, TimeUnit, RetryPolicy)}.
+   *
+   * @return a monotonic clock source
+   */
+  static ClockSource monotonic() {
+    return MONOTONIC;
+  }
+
+  /**
+   * A monotonic clock source which is updated by a background thread once every millisecond.
+   *
+   * <p>Reading the time is a single volatile load, which makes it suitable for hot paths that can
+   * live with a precision of about a millisecond. The background thread is started the first time
+   * this is called.
+   *
+   * @return a coarse clock source
+   */
+  static ClockSource coarse() {
+    return Coarse.Shared.CLOCK;
+  }
+
+  /**
+   * Implementation of the monotonic clock source.
+   */
+  class Monotonic implements ClockSource {
+    Monotonic() {
+    }
+
+    @Override
+    public long now() {
+      return UNIT.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+      return "Monotonic()";
+    }
+  }
+
+  /**
+   * Implementation of the coarse clock source.
+   *
+   * <p>A single daemon thread reads {@link System#nanoTime()} once every tick and publishes it.
+   */
+  class Coarse implements ClockSource {
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long tickNanos;
+    private volatile long nanoTime;
+
+    Coarse(final long tickNanos) {
+      if (tickNanos <= 0) {
+        throw new IllegalArgumentException("tickNanos: must be positive");
+      }
+
+      this.tickNanos = tickNanos;
+      this.nanoTime = System.nanoTime();
+    }
+
+    void start() {
+      final Thread thread = new Thread(this::tick, "async-clock");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    void tick() {
+      while (true) {
+        LockSupport.parkNanos(this, tickNanos);
+        nanoTime = System.nanoTime();
+      }
+    }
+
+    @Override
+    public long now() {
+      return UNIT.convert(nanoTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanoTime;
+    }
+
+    @Override
+    public String toString() {
+      return "Coarse(tickNanos=" + tickNanos + ")";
+    }
+
+    static class Shared {
+      static final Coarse CLOCK = new Coarse(DEFAULT_TICK_NANOS);
+
+      static {
+        CLOCK.start();
+      }
+    }
+  }
 }
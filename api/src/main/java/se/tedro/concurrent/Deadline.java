@@ -0,0 +1,111 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a logical request must be done.
+ *
+ * <p>Deadlines are attached to stages with {@link Stage#withDeadline(Deadline)}, or to every stage
+ * created by an {@link Async} instance returned by {@link Async#withDeadline(Deadline)}. Stages
+ * derived from a stage with a deadline carry the same deadline, and work that would only be
+ * started after the deadline has passed is skipped.
+ *
+ * <p>Deadlines are measured with {@link System#nanoTime()}, and are therefore not affected by
+ * changes to the wall clock.
+ */
+public final class Deadline {
+  /**
+   * Longest duration of a deadline, longer durations are truncated so that they don't overflow.
+   */
+  static final long MAX_NANOS = Long.MAX_VALUE >> 2;
+
+  private static final Deadline NONE = new Deadline(false, 0L);
+
+  private final boolean finite;
+  private final long nanos;
+
+  private Deadline(final boolean finite, final long nanos) {
+    this.finite = finite;
+    this.nanos = nanos;
+  }
+
+  /**
+   * The absence of a deadline, which never expires.
+   *
+   * @return a deadline that never expires
+   */
+  public static Deadline none() {
+    return NONE;
+  }
+
+  /**
+   * Build a deadline which expires once the given duration has passed.
+   *
+   * @param duration duration until the deadline expires
+   * @param unit unit of the duration
+   * @return a new deadline
+   */
+  public static Deadline after(final long duration, final TimeUnit unit) {
+    final long durationNanos = Math.min(Math.max(unit.toNanos(duration), 0L), MAX_NANOS);
+    return new Deadline(true, System.nanoTime() + durationNanos);
+  }
+
+  /**
+   * Check if this deadline ever expires.
+   *
+   * @return {@code true} if this is not {@link #none()}
+   */
+  public boolean isFinite() {
+    return finite;
+  }
+
+  /**
+   * Check if this deadline has passed.
+   *
+   * @return {@code true} if the deadline has passed
+   */
+  public boolean isExpired() {
+    return finite && System.nanoTime() - nanos >= 0;
+  }
+
+  /**
+   * Time remaining until this deadline expires, which is negative if it has already passed.
+   *
+   * @param unit unit of the remaining time
+   * @return remaining time, or {@link Long#MAX_VALUE} if this deadline never expires
+   */
+  public long remaining(final TimeUnit unit) {
+    if (!finite) {
+      return Long.MAX_VALUE;
+    }
+
+    return unit.convert(nanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Pick the deadline which expires first.
+   *
+   * @param other deadline to compare with
+   * @return this deadline, or the other deadline if it expires first
+   */
+  public Deadline earliest(final Deadline other) {
+    if (!other.finite) {
+      return this;
+    }
+
+    if (!finite) {
+      return other;
+    }
+
+    return other.nanos - nanos < 0 ? other : this;
+  }
+
+  @Override
+  public String toString() {
+    if (!finite) {
+      return "Deadline(none)";
+    }
+
+    return "Deadline(remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms)";
+  }
+}
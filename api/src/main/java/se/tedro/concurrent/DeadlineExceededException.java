@@ -0,0 +1,21 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Indicates that a stage failed, or that work was not started, because the {@link Deadline} of the
+ * request it belongs to has passed.
+ *
+ * <p>This exception does not have a stack trace, since it is expected to be thrown in large
+ * numbers when work is shed under overload.
+ */
+public class DeadlineExceededException extends TimeoutException {
+  public DeadlineExceededException() {
+    super("deadline exceeded");
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+}
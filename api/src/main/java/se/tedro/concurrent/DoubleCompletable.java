@@ -0,0 +1,24 @@
+package se.tedro.concurrent;
+
+/**
+ * A {@link DoubleStage} that can be completed.
+ *
+ * @see Completable
+ */
+public interface DoubleCompletable extends DoubleStage {
+  /**
+   * Complete the stage.
+   *
+   * @param result result to complete the stage with
+   * @return {@code true} if the stage was completed by this call
+   */
+  boolean complete(double result);
+
+  /**
+   * Fail the stage.
+   *
+   * @param cause cause of the failure
+   * @return {@code true} if the stage was failed by this call
+   */
+  boolean fail(Throwable cause);
+}
@@ -0,0 +1,145 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A {@link Stage} specialized for {@code double} results, which does not box its result.
+ *
+ * <p>The states and naming conventions are the same as for {@link Stage}.
+ *
+ * @see Async#doubleCompletable()
+ * @see Stage#thenApplyAsDouble(java.util.function.ToDoubleFunction)
+ */
+public interface DoubleStage {
+  /**
+   * Cancel the current stage.
+   *
+   * @return {@code true} if the stage was cancelled by this call
+   */
+  boolean cancel();
+
+  /**
+   * Join the result of the current stage.
+   *
+   * @return the result of the computation
+   * @throws ExecutionException when the underlying computation throws an exception
+   * @throws InterruptedException when this thread is interrupted
+   * @throws java.util.concurrent.CancellationException when the stage is cancelled
+   */
+  double join() throws ExecutionException, InterruptedException;
+
+  /**
+   * Join the result of the current stage, or fail if it's state is still running.
+   *
+   * @return the result of the computation
+   * @throws IllegalStateException if the result is not available
+   * @throws ExecutionException when the underlying computation throws an exception
+   * @throws java.util.concurrent.CancellationException when the stage is cancelled
+   */
+  double joinNow() throws ExecutionException;
+
+  /**
+   * Check if stage is in the completed, failed, or cancelled state.
+   *
+   * @return {@code true} if the stage is done
+   */
+  boolean isDone();
+
+  /**
+   * Check if the stage was completed with a result.
+   *
+   * @return {@code true} if the stage is completed
+   */
+  boolean isCompleted();
+
+  /**
+   * Check if the stage was failed.
+   *
+   * @return {@code true} if the stage is failed
+   */
+  boolean isFailed();
+
+  /**
+   * Check if the stage was cancelled.
+   *
+   * @return {@code true} if the stage is cancelled
+   */
+  boolean isCancelled();
+
+  /**
+   * Get the cause of a failed stage.
+   *
+   * @return the exception that caused the stage to fail
+   * @throws IllegalStateException if the stage is not in the failed state
+   */
+  Throwable cause();
+
+  /**
+   * Register a listener that is called when a stage is done.
+   *
+   * @param runnable listener to register
+   * @return this stage
+   */
+  DoubleStage whenDone(Runnable runnable);
+
+  /**
+   * Register a listener that is called when a stage is completed.
+   *
+   * @param consumer listener to register
+   * @return this stage
+   */
+  DoubleStage whenComplete(DoubleConsumer consumer);
+
+  /**
+   * Register a listener that is called when a stage is failed.
+   *
+   * @param consumer listener to register
+   * @return this stage
+   */
+  DoubleStage whenFailed(Consumer<? super Throwable> consumer);
+
+  /**
+   * Register an listener that is called when a stage is cancelled.
+   *
+   * @param runnable listener to register
+   * @return this stage
+   */
+  DoubleStage whenCancelled(Runnable runnable);
+
+  /**
+   * Transform the result of this stage, without boxing it.
+   *
+   * @param fn transformation to use
+   * @return a stage that will complete with the transformed value
+   */
+  DoubleStage thenApplyAsDouble(DoubleUnaryOperator fn);
+
+  /**
+   * Transform the result of this stage into a {@code long}, without boxing it.
+   *
+   * @param fn transformation to use
+   * @return a stage that will complete with the transformed value
+   */
+  LongStage thenApplyAsLong(DoubleToLongFunction fn);
+
+  /**
+   * Transform the result of this stage into an object.
+   *
+   * @param fn transformation to use
+   * @param <U> type of the transformed value
+   * @return a stage that will complete with the transformed value
+   */
+  <U> Stage<U> thenApply(DoubleFunction<? extends U> fn);
+
+  /**
+   * Convert this stage into a regular stage, which boxes the result.
+   *
+   * @return a boxed stage
+   */
+  Stage<Double> boxed();
+}
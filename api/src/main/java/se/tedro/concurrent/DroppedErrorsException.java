@@ -0,0 +1,53 @@
+package se.tedro.concurrent;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Summary of errors which were dropped instead of being retained as suppressed errors.
+ *
+ * <p>Added as suppressed to the error that fails an operation with too many errors to retain. This
+ * exception does not have a stack trace.
+ */
+public class DroppedErrorsException extends RuntimeException {
+  private final Map<Class<? extends Throwable>, Long> dropped;
+
+  public DroppedErrorsException(final Map<Class<? extends Throwable>, Long> dropped) {
+    super(message(dropped), null, false, false);
+    this.dropped = Collections.unmodifiableMap(dropped);
+  }
+
+  /**
+   * Number of dropped errors for each type of error.
+   *
+   * @return dropped errors by type
+   */
+  public Map<Class<? extends Throwable>, Long> getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Total number of dropped errors.
+   *
+   * @return number of dropped errors
+   */
+  public long getTotal() {
+    long total = 0;
+
+    for (final long count : dropped.values()) {
+      total += count;
+    }
+
+    return total;
+  }
+
+  private static String message(final Map<Class<? extends Throwable>, Long> dropped) {
+    final StringBuilder builder = new StringBuilder("dropped errors:");
+
+    for (final Map.Entry<Class<? extends Throwable>, Long> e : dropped.entrySet()) {
+      builder.append(' ').append(e.getKey().getName()).append('=').append(e.getValue());
+    }
+
+    return builder.toString();
+  }
+}
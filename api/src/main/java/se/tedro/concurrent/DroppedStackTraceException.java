@@ -0,0 +1,27 @@
+package se.tedro.concurrent;
+
+/**
+ * Stand-in for an error whose stack trace was dropped, retained in its place when errors are
+ * aggregated without their stack traces.
+ *
+ * <p>Carries the type and message of the original error, but neither its stack trace nor a
+ * reference to it, so that the original error is left untouched and can be garbage collected. This
+ * exception does not have a stack trace.
+ */
+public class DroppedStackTraceException extends RuntimeException {
+  private final Class<? extends Throwable> type;
+
+  public DroppedStackTraceException(final Throwable error) {
+    super(error.toString(), null, false, false);
+    this.type = error.getClass();
+  }
+
+  /**
+   * Type of the original error.
+   *
+   * @return type of the original error
+   */
+  public Class<? extends Throwable> getType() {
+    return type;
+  }
+}
@@ -0,0 +1,340 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * A policy that governs when a slow operation should be hedged, by starting another attempt of it
+ * in parallel.
+ *
+ * <p>Each instance decides for one round of attempts whether another attempt should be started,
+ * and how long to wait for the attempts in flight before doing so. This is expressed as a
+ * {@link RetryDecision}, where {@link RetryDecision#backoff(TimeUnit)} is the hedging delay.
+ *
+ * <p>Like {@link RetryPolicy}, policies are factories and can be safely re-used. Policies that
+ * track latency are meant to be shared between operations of the same kind:
+ *
+ * <pre>{@code
+ *   public class Main {
+ *     public static final HedgePolicy HEDGE = percentile(0.95, 50, TimeUnit.MILLISECONDS, 1);
+ *   }
+ * }</pre>
+ *
+ * @see Async#retryUntilCompleted(java.util.concurrent.Callable, RetryPolicy, HedgePolicy)
+ */
+public interface HedgePolicy {
+  /**
+   * Create a new instance of the policy, used for one round of attempts.
+   *
+   * <p>The provided instance may only be used by one thread at a time.
+   *
+   * @param clockSource clock source to use in the instance
+   * @return a policy instance
+   */
+  Supplier<RetryDecision> newInstance(ClockSource clockSource);
+
+  /**
+   * Max number of hedged attempts that may be in flight at the same time, in addition to the
+   * first attempt.
+   *
+   * @return max number of outstanding hedges
+   */
+  int maxOutstanding();
+
+  /**
+   * Record the latency of an attempt which completed.
+   *
+   * @param latency latency in nanoseconds
+   */
+  default void record(final long latency) {
+  }
+
+  /**
+   * Record an attempt which was cancelled or still in flight when its round ended, so its latency
+   * is only known to be longer than the time it had been running for.
+   *
+   * <p>Policies which only learn from completed attempts underestimate latency, since the slowest
+   * attempts are the ones that are cancelled once a hedge wins.
+   *
+   * @param elapsed time the attempt had been running for in nanoseconds
+   */
+  default void recordCensored(final long elapsed) {
+  }
+
+  /**
+   * Build a policy which hedges attempts that have not completed within a fixed delay.
+   *
+   * @param delay delay before another attempt is started
+   * @param unit unit of the delay
+   * @param maxOutstanding max number of outstanding hedges
+   * @return a new hedge policy
+   */
+  static HedgePolicy fixed(final long delay, final TimeUnit unit, final int maxOutstanding) {
+    return new Fixed(unit.toNanos(delay), maxOutstanding);
+  }
+
+  /**
+   * Build a policy which hedges attempts that are slower than the given percentile of the latency
+   * of recent attempts.
+   *
+   * <p>Attempts which were cancelled or still in flight when their round ended are taken into
+   * account as lasting at least as long as they had been running for. Until enough latencies have
+   * been recorded, the initial delay is used.
+   *
+   * @param percentile percentile of latency to hedge after, between 0 and 1
+   * @param initialDelay delay to use before enough latencies have been recorded
+   * @param unit unit of the initial delay
+   * @param maxOutstanding max number of outstanding hedges
+   * @return a new hedge policy
+   */
+  static HedgePolicy percentile(
+    final double percentile, final long initialDelay, final TimeUnit unit,
+    final int maxOutstanding
+  ) {
+    return new Percentile(percentile, unit.toNanos(initialDelay), maxOutstanding);
+  }
+
+  /**
+   * Implementation for the fixed hedge policy.
+   */
+  class Fixed implements HedgePolicy {
+    private final long delay;
+    private final int maxOutstanding;
+
+    Fixed(final long delay, final int maxOutstanding) {
+      if (maxOutstanding < 0) {
+        throw new IllegalArgumentException("maxOutstanding: must not be negative");
+      }
+
+      this.delay = delay;
+      this.maxOutstanding = maxOutstanding;
+    }
+
+    @Override
+    public Supplier<RetryDecision> newInstance(final ClockSource clockSource) {
+      final RetryDecision decision = new RetryDecision(true, delay, TimeUnit.NANOSECONDS);
+      return () -> decision;
+    }
+
+    @Override
+    public int maxOutstanding() {
+      return maxOutstanding;
+    }
+
+    @Override
+    public String toString() {
+      return "Fixed(delayNanos=" + delay + ", maxOutstanding=" + maxOutstanding + ")";
+    }
+  }
+
+  /**
+   * Implementation for the percentile hedge policy.
+   *
+   * <p>Latencies are counted in a log-linear histogram, where each power of two is split into
+   * {@link #SUB_BUCKETS} buckets, which bounds the error of the delay to one bucket. The histogram
+   * is striped by thread, and every counter is updated without locking.
+   *
+   * <p>The delay is recomputed once every {@link #RECOMPUTE} records of a stripe, so that deciding
+   * it is only a volatile read. Recomputing merges the stripes and estimates the percentile with
+   * the Kaplan-Meier estimator, which treats censored attempts as being at risk up until the time
+   * they were recorded with. Once more than {@link #SAMPLES} attempts have been counted, all
+   * counters are halved, so that older attempts weigh less than recent ones.
+   */
+  class Percentile implements HedgePolicy {
+    static final int SAMPLES = 1024;
+    static final int RECOMPUTE = 64;
+
+    static final int SUB_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /* buckets covering every non-negative long */
+    static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    /* offsets within a stripe, where the record count is followed by padding to the next stripe */
+    static final int CENSORED = BUCKETS;
+    static final int COUNT = BUCKETS * 2;
+    static final int STRIDE = COUNT + 8;
+
+    static final int STRIPES =
+      Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final double percentile;
+    private final int maxOutstanding;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+
+    private volatile long delay;
+
+    Percentile(final double percentile, final long initialDelay, final int maxOutstanding) {
+      if (percentile < 0D || percentile > 1D) {
+        throw new IllegalArgumentException("percentile: must be between 0 and 1");
+      }
+
+      if (maxOutstanding < 0) {
+        throw new IllegalArgumentException("maxOutstanding: must not be negative");
+      }
+
+      this.percentile = percentile;
+      this.maxOutstanding = maxOutstanding;
+      this.delay = initialDelay;
+    }
+
+    @Override
+    public Supplier<RetryDecision> newInstance(final ClockSource clockSource) {
+      final RetryDecision decision = new RetryDecision(true, delay, TimeUnit.NANOSECONDS);
+      return () -> decision;
+    }
+
+    @Override
+    public int maxOutstanding() {
+      return maxOutstanding;
+    }
+
+    @Override
+    public void record(final long latency) {
+      add(bucket(latency));
+    }
+
+    @Override
+    public void recordCensored(final long elapsed) {
+      add(CENSORED + bucket(elapsed));
+    }
+
+    private void add(final int offset) {
+      final int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+
+      cells.incrementAndGet(stripe + offset);
+
+      if (cells.incrementAndGet(stripe + COUNT) % RECOMPUTE == 0) {
+        recompute();
+      }
+    }
+
+    /**
+     * Recompute the delay, unless another thread is already doing so.
+     */
+    void recompute() {
+      if (!recomputing.compareAndSet(false, true)) {
+        return;
+      }
+
+      try {
+        final long[] merged = new long[COUNT];
+        long total = 0;
+
+        for (int stripe = 0; stripe < STRIPES * STRIDE; stripe += STRIDE) {
+          for (int i = 0; i < COUNT; i++) {
+            final long count = cells.get(stripe + i);
+            merged[i] += count;
+            total += count;
+          }
+        }
+
+        final long estimate = estimate(merged, total);
+
+        if (estimate >= 0) {
+          delay = estimate;
+        }
+
+        if (total > SAMPLES) {
+          decay();
+        }
+      } finally {
+        recomputing.set(false);
+      }
+    }
+
+    /**
+     * Estimate the percentile of latency with the Kaplan-Meier estimator.
+     *
+     * <p>If too many attempts were censored for the survival to drop to the percentile, the
+     * longest recorded time is used instead.
+     *
+     * @return the estimated latency in nanoseconds, or {@code -1} if nothing was recorded
+     */
+    long estimate(final long[] merged, final long total) {
+      long atRisk = total;
+      double survival = 1D;
+      int last = -1;
+
+      for (int i = 0; i < BUCKETS && atRisk > 0; i++) {
+        final long events = merged[i];
+        final long censored = merged[CENSORED + i];
+
+        if (events > 0) {
+          survival *= 1D - (double) events / atRisk;
+
+          if (1D - survival >= percentile) {
+            return upperBound(i);
+          }
+        }
+
+        if (events + censored > 0) {
+          last = i;
+        }
+
+        atRisk -= events + censored;
+      }
+
+      return last < 0 ? -1 : upperBound(last);
+    }
+
+    /**
+     * Halve all counters, increments racing with this are kept.
+     */
+    private void decay() {
+      for (int stripe = 0; stripe < STRIPES * STRIDE; stripe += STRIDE) {
+        for (int i = 0; i < COUNT; i++) {
+          final long count = cells.get(stripe + i);
+
+          if (count > 1) {
+            cells.addAndGet(stripe + i, -(count >>> 1));
+          }
+        }
+      }
+    }
+
+    /**
+     * Bucket of a latency, latencies below {@link #SUB_BUCKETS} have a bucket each.
+     */
+    static int bucket(final long latency) {
+      if (latency < SUB_BUCKETS) {
+        return (int) Math.max(latency, 0L);
+      }
+
+      final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(latency);
+      final int sub = (int) (latency >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest latency that falls into the given bucket.
+     */
+    static long upperBound(final int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+
+      final int shift = bucket / SUB_BUCKETS - 1;
+      final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+      return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * The current hedging delay.
+     *
+     * @return delay in nanoseconds
+     */
+    public long delay() {
+      return delay;
+    }
+
+    @Override
+    public String toString() {
+      return "Percentile(percentile=" + percentile + ", delayNanos=" + delay + ", maxOutstanding="
+        + maxOutstanding + ")";
+    }
+  }
+}
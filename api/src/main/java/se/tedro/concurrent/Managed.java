@@ -66,11 +66,11 @@ import java.util.function.Function;
  * code not having a 1:1 correspondence between each {@link #borrow()} and
  * {@link Borrowed#release()} call.
  *
- * <p>To aid troubleshooting, {@link Borrowed} references have implemented the
- * {@link Object#finalize()} that provides instrumentation through
- * {@link Caller#referenceLeaked(Object, StackTraceElement[])} if the borrowed reference is garbage
- * collected before it has been released. Stack traces are only captured if the system property
- * defined by {@link #CAPTURE_STACK} is set to {@code yes}.
+ * <p>To aid troubleshooting, a sample of {@link Borrowed} references are tracked, and reported
+ * through {@link Caller#referenceLeaked(Object, StackTraceElement[])} if they are garbage
+ * collected before they have been released. One in every 128 borrows is tracked, which can be
+ * changed through the system property defined by {@link #LEAK_DETECTION_RATE}. Stack traces are
+ * only captured if the system property defined by {@link #CAPTURE_STACK} is set to {@code yes}.
  *
  * <p>Additionally, tracing for each managed reference can be enabled by setting the system property
  * defined by {@link #TRACING} to {@code yes}. This causes the managed reference's
@@ -98,6 +98,12 @@ public interface Managed<T> {
    */
   String CAPTURE_STACK = Managed.class.getCanonicalName() + ".captureStack";
 
+  /**
+   * System property with the number of borrowed references for each one that is tracked for
+   * leaks. {@code 1} tracks every borrowed reference, and {@code 0} disables leak detection.
+   */
+  String LEAK_DETECTION_RATE = Managed.class.getCanonicalName() + ".leakDetectionRate";
+
   /**
    * Start the managed reference.
    *
@@ -152,6 +158,29 @@ public interface Managed<T> {
     Function<? super T, ? extends Stage<U>> action
   );
 
+  /**
+   * Borrow a reference and execute the given action, unless the given deadline has passed.
+   *
+   * <p>If the deadline has passed, the reference is not borrowed and the returned stage fails with
+   * a {@link DeadlineExceededException}. Otherwise the returned stage fails the same way if the
+   * action's stage is not done by the deadline. The reference is only released once the action's
+   * stage is done.
+   *
+   * <p>The default implementation borrows the reference through {@link #doto(Function)} even if
+   * the deadline has passed, and binds the action's stage to the deadline.
+   *
+   * @param deadline deadline of the request that the action belongs to
+   * @param action the action to perform on the borrowed reference
+   * @param <U> the type of the return value from the action
+   * @return the stage returned by the action, bound to the deadline
+   * @see Stage#withDeadline(Deadline)
+   */
+  default <U> Stage<U> doto(
+    Deadline deadline, Function<? super T, ? extends Stage<U>> action
+  ) {
+    return doto(action).withDeadline(deadline);
+  }
+
   /**
    * If managed reference is started, but not stopping or stopped.
    *
@@ -0,0 +1,57 @@
+package se.tedro.concurrent;
+
+/**
+ * A pool of managed references, each set up and torn down like a {@link Managed} reference.
+ *
+ * <p>Borrowing from a pool gives exclusive access to one of its instances until the borrowed
+ * reference is released, after which the instance is handed to the next borrower. This suits
+ * connection-like resources that can't be used by more than one operation at a time:
+ *
+ * <pre>{@code
+ *   final ManagedPool<Connection> pool = async.managedPool(8, this::connect, Connection::close);
+ *
+ *   return pool.doto(connection -> {
+ *     return connection.query(...);
+ *   });
+ * }</pre>
+ *
+ * <p>{@link #borrow()} only succeeds if an instance is free right away, while {@link #acquire()}
+ * and {@link #doto(java.util.function.Function)} wait in line for one. Waiters are served in the
+ * order they arrived.
+ *
+ * @param <T> type of the pooled references
+ * @see Async#managedPool(int, java.util.function.Supplier, java.util.function.Function)
+ */
+public interface ManagedPool<T> extends Managed<T> {
+  /**
+   * Acquire an instance from the pool, waiting for one to become free if necessary.
+   *
+   * <p>If too many are already waiting, the returned stage fails with a
+   * {@link java.util.concurrent.RejectedExecutionException}. If the pool is not started, or is
+   * stopped while waiting, the returned stage is cancelled. Cancelling the returned stage gives up
+   * the place in line.
+   *
+   * @return a stage completed with a borrowed reference, which must be released
+   */
+  Stage<Borrowed<T>> acquire();
+
+  /**
+   * Release a borrowed reference, and tear down the instance it belongs to.
+   *
+   * <p>This should be used when the instance is found to be broken. A new instance is set up in
+   * its place once it is needed.
+   *
+   * @param borrowed a reference borrowed from this pool, which has not been released
+   * @throws IllegalArgumentException if the reference was not borrowed from this pool
+   */
+  void discard(Borrowed<T> borrowed);
+
+  /**
+   * Number of instances that are currently free.
+   *
+   * <p><em>Should only be used for diagnostical purposes.</em>
+   *
+   * @return number of free instances
+   */
+  int available();
+}
@@ -0,0 +1,103 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket which limits the number of retries relative to the number of operations.
+ *
+ * <p>Every operation deposits {@code ratio} tokens into the bucket, and every retry withdraws one.
+ * Once the bucket is empty, retries are denied until enough operations have been made to refill
+ * it. This bounds the extra load caused by retries to the given ratio once a dependency starts to
+ * fail, instead of multiplying it by the number of attempts each operation is allowed.
+ *
+ * <p>The bucket starts out full, so that a burst of {@code maxRetries} retries is allowed before
+ * any operations have been made.
+ *
+ * <p>A budget is meant to be shared by all operations towards the same dependency, and is thread
+ * safe. It is applied to a policy through {@link RetryPolicy#budgeted(RetryBudget, RetryPolicy)}.
+ */
+public final class RetryBudget {
+  /**
+   * Tokens are stored in fixed-point, so that fractions of a token can be deposited.
+   */
+  static final long SCALE = 1000L;
+
+  private final long deposit;
+  private final long max;
+  private final AtomicLong tokens;
+
+  RetryBudget(final long deposit, final long max) {
+    this.deposit = deposit;
+    this.max = max;
+    this.tokens = new AtomicLong(max);
+  }
+
+  /**
+   * Create a new retry budget.
+   *
+   * @param ratio ratio of retries to operations that is allowed, must be between 0 and 1
+   * @param maxRetries max number of retries that can be saved up, must not be negative
+   * @return a new retry budget
+   */
+  public static RetryBudget create(final double ratio, final int maxRetries) {
+    if (ratio < 0D || ratio > 1D) {
+      throw new IllegalArgumentException("ratio: must be between 0 and 1");
+    }
+
+    if (maxRetries < 0) {
+      throw new IllegalArgumentException("maxRetries: must not be negative");
+    }
+
+    return new RetryBudget((long) (ratio * SCALE), maxRetries * SCALE);
+  }
+
+  /**
+   * Deposit tokens for a new operation.
+   */
+  public void deposit() {
+    while (true) {
+      final long current = tokens.get();
+
+      if (current >= max) {
+        return;
+      }
+
+      if (tokens.compareAndSet(current, Math.min(current + deposit, max))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Try to withdraw the token for a single retry.
+   *
+   * @return {@code true} if the retry is within the budget
+   */
+  public boolean tryWithdraw() {
+    while (true) {
+      final long current = tokens.get();
+
+      if (current < SCALE) {
+        return false;
+      }
+
+      if (tokens.compareAndSet(current, current - SCALE)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Number of retries that can currently be made.
+   *
+   * @return available retries
+   */
+  public long available() {
+    return tokens.get() / SCALE;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryBudget(deposit=" + deposit + ", max=" + max + ", tokens=" + tokens.get() + ")";
+  }
+}
@@ -1,5 +1,7 @@
 package se.tedro.concurrent;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The decision of an applied retry policy.
  *
@@ -7,11 +9,15 @@ package se.tedro.concurrent;
  */
 public class RetryDecision {
   private final boolean shouldRetry;
-  private final long backoff;
+  private final long backoffNanos;
 
   RetryDecision(final boolean shouldRetry, final long backoff) {
+    this(shouldRetry, backoff, ClockSource.UNIT);
+  }
+
+  RetryDecision(final boolean shouldRetry, final long backoff, final TimeUnit unit) {
     this.shouldRetry = shouldRetry;
-    this.backoff = backoff;
+    this.backoffNanos = unit.toNanos(backoff);
   }
 
   /**
@@ -26,14 +32,27 @@ public class RetryDecision {
   /**
    * How many milliseconds should the retry wait for until it can be retried.
    *
+   * <p>Back-offs shorter than a millisecond are truncated, use {@link #backoff(TimeUnit)} to get
+   * the precise back-off.
+   *
    * @return The number of milliseconds the retry should back off for.
    */
   public long backoff() {
-    return backoff;
+    return backoff(ClockSource.UNIT);
+  }
+
+  /**
+   * How long the retry should wait for until it can be retried.
+   *
+   * @param unit unit to get the back-off in
+   * @return the back-off in the given unit
+   */
+  public long backoff(final TimeUnit unit) {
+    return unit.convert(backoffNanos, TimeUnit.NANOSECONDS);
   }
 
   @Override
   public String toString() {
-    return "RetryDecision(shouldRetry=" + shouldRetry + ", backoff=" + backoff + ")";
+    return "RetryDecision(shouldRetry=" + shouldRetry + ", backoffNanos=" + backoffNanos + ")";
   }
 }
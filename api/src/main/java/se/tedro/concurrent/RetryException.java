@@ -11,6 +11,20 @@ public class RetryException extends RuntimeException {
     this.offset = offset;
   }
 
+  /**
+   * Build a new retry exception.
+   *
+   * @param offset offset from start time in milliseconds that this failure happened
+   * @param cause cause of the failure
+   * @param writableStackTrace {@code false} to not capture a stack trace for this exception
+   */
+  public RetryException(
+    final long offset, final Throwable cause, final boolean writableStackTrace
+  ) {
+    super(cause == null ? null : cause.toString(), cause, true, writableStackTrace);
+    this.offset = offset;
+  }
+
   /**
    * Offset from start time in milliseconds that this failure happened.
    *
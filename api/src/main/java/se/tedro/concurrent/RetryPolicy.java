@@ -1,6 +1,7 @@
 package se.tedro.concurrent;
 
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -39,7 +40,7 @@ public interface RetryPolicy {
    * @return a new retry policy
    */
   static RetryPolicy linear(final long duration, final TimeUnit unit) {
-    return new Linear(ClockSource.UNIT.convert(duration, unit));
+    return new Linear(unit.toNanos(duration));
   }
 
   /**
@@ -50,7 +51,7 @@ public interface RetryPolicy {
    * @return an exponential retry policy
    */
   static ExponentialBuilder exponential(final long duration, final TimeUnit unit) {
-    final long base = ClockSource.UNIT.convert(duration, unit);
+    final long base = unit.toNanos(duration);
     return new ExponentialBuilder(base);
   }
 
@@ -65,7 +66,55 @@ public interface RetryPolicy {
    * @return a timed retry policy
    */
   static RetryPolicy timed(final long duration, final TimeUnit unit, final RetryPolicy policy) {
-    return new Timed(ClockSource.UNIT.convert(duration, unit), policy);
+    return new Timed(unit.toNanos(duration), policy);
+  }
+
+  /**
+   * Wrap an existing retry policy, and pick each back-off uniformly at random between zero and
+   * the back-off of the wrapped policy.
+   *
+   * <p>This spreads out retries of operations that failed at the same time, so that they don't hit
+   * a recovering dependency in lockstep.
+   *
+   * @param policy the policy to wrap
+   * @return a jittered retry policy
+   */
+  static RetryPolicy fullJitter(final RetryPolicy policy) {
+    return new FullJitter(policy);
+  }
+
+  /**
+   * Setup a decorrelated jitter retry policy.
+   *
+   * <p>Each back-off is picked uniformly at random between the base and three times the previous
+   * back-off, up to the given max. This grows about as fast as an exponential back-off, while
+   * keeping retries of different operations spread out.
+   *
+   * @param base the smallest back-off
+   * @param max the largest back-off
+   * @param unit unit of base and max
+   * @return a decorrelated jitter retry policy
+   */
+  static RetryPolicy decorrelatedJitter(final long base, final long max, final TimeUnit unit) {
+    return new DecorrelatedJitter(unit.toNanos(base), unit.toNanos(max));
+  }
+
+  /**
+   * Wrap an existing retry policy, so that retries are only made while the given budget allows.
+   *
+   * <p>Each new instance of the policy deposits into the budget, and each retry that the wrapped
+   * policy allows withdraws from it. Sharing one budget between many operations bounds the ratio
+   * of retries to operations across all of them.
+   *
+   * <p>The budget should be the outermost policy, so that tokens are only withdrawn for retries
+   * that the wrapped policies allow.
+   *
+   * @param budget the budget to draw retries from
+   * @param policy the policy to wrap
+   * @return a budgeted retry policy
+   */
+  static RetryPolicy budgeted(final RetryBudget budget, final RetryPolicy policy) {
+    return new Budgeted(budget, policy);
   }
 
   /**
@@ -82,19 +131,132 @@ public interface RetryPolicy {
 
     @Override
     public Supplier<RetryDecision> newInstance(ClockSource clockSource) {
-      final long deadline = clockSource.now() + duration;
+      final long start = clockSource.nanoTime();
+      final Supplier<RetryDecision> inner = policy.newInstance(clockSource);
+
+      return () -> {
+        final RetryDecision d = inner.get();
+        /* compare elapsed time, so that a monotonic clock source may wrap around */
+        final boolean shouldRetry = clockSource.nanoTime() - start < duration && d.shouldRetry();
+        return new RetryDecision(shouldRetry, d.backoff(TimeUnit.NANOSECONDS),
+          TimeUnit.NANOSECONDS);
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "Timed(durationNanos=" + duration + ", policy=" + policy + ")";
+    }
+  }
+
+  /**
+   * Implementation for the full jitter retry policy.
+   */
+  class FullJitter implements RetryPolicy {
+    private final RetryPolicy policy;
+
+    FullJitter(final RetryPolicy policy) {
+      this.policy = policy;
+    }
+
+    @Override
+    public Supplier<RetryDecision> newInstance(ClockSource clockSource) {
+      final Supplier<RetryDecision> inner = policy.newInstance(clockSource);
+
+      return () -> {
+        final RetryDecision d = inner.get();
+
+        final long upper = d.backoff(TimeUnit.NANOSECONDS);
+
+        if (upper <= 0) {
+          return d;
+        }
+
+        final long bound = upper == Long.MAX_VALUE ? upper : upper + 1;
+        final long backoff = ThreadLocalRandom.current().nextLong(bound);
+        return new RetryDecision(d.shouldRetry(), backoff, TimeUnit.NANOSECONDS);
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "FullJitter(policy=" + policy + ")";
+    }
+  }
+
+  /**
+   * Implementation for the decorrelated jitter retry policy.
+   */
+  class DecorrelatedJitter implements RetryPolicy {
+    private final long base;
+    private final long max;
+
+    DecorrelatedJitter(final long base, final long max) {
+      if (base <= 0) {
+        throw new IllegalArgumentException("base: must be positive");
+      }
+
+      if (max < base) {
+        throw new IllegalArgumentException("max: must not be smaller than base");
+      }
+
+      this.base = base;
+      this.max = max;
+    }
+
+    @Override
+    public Supplier<RetryDecision> newInstance(ClockSource clockSource) {
+      return new DecorrelatedJitterInstance();
+    }
+
+    @Override
+    public String toString() {
+      return "DecorrelatedJitter(baseNanos=" + base + ", maxNanos=" + max + ")";
+    }
+
+    private class DecorrelatedJitterInstance implements Supplier<RetryDecision> {
+      long previous = base;
+
+      @Override
+      public RetryDecision get() {
+        final long upper = previous > max / 3 ? max : previous * 3;
+        previous = ThreadLocalRandom.current().nextLong(base, upper + 1);
+        return new RetryDecision(true, previous, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  /**
+   * Implementation for the budgeted retry policy.
+   */
+  class Budgeted implements RetryPolicy {
+    private final RetryBudget budget;
+    private final RetryPolicy policy;
+
+    Budgeted(final RetryBudget budget, final RetryPolicy policy) {
+      this.budget = budget;
+      this.policy = policy;
+    }
+
+    @Override
+    public Supplier<RetryDecision> newInstance(ClockSource clockSource) {
       final Supplier<RetryDecision> inner = policy.newInstance(clockSource);
+      budget.deposit();
 
       return () -> {
         final RetryDecision d = inner.get();
-        final boolean shouldRetry = clockSource.now() < deadline && d.shouldRetry();
-        return new RetryDecision(shouldRetry, d.backoff());
+
+        if (!d.shouldRetry() || budget.tryWithdraw()) {
+          return d;
+        }
+
+        return new RetryDecision(false, d.backoff(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
       };
     }
 
     @Override
     public String toString() {
-      return "Timed(duration=" + duration + ", policy=" + policy + ")";
+      return "Budgeted(budget=" + budget + ", policy=" + policy + ")";
     }
   }
 
@@ -110,13 +272,13 @@ public interface RetryPolicy {
 
     @Override
     public Supplier<RetryDecision> newInstance(ClockSource clockSource) {
-      final RetryDecision decision = new RetryDecision(true, backoff);
+      final RetryDecision decision = new RetryDecision(true, backoff, TimeUnit.NANOSECONDS);
       return () -> decision;
     }
 
     @Override
     public String toString() {
-      return "Linear(backoff=" + backoff + ")";
+      return "Linear(backoffNanos=" + backoff + ")";
     }
   }
 
@@ -141,7 +303,7 @@ public interface RetryPolicy {
 
     @Override
     public String toString() {
-      return "Exponential(base=" + base + ", base=" + base + ")";
+      return "Exponential(baseNanos=" + base + ", factor=" + factor + ", maxNanos=" + max + ")";
     }
 
     private class ExponentialInstance implements Supplier<RetryDecision> {
@@ -149,7 +311,7 @@ public interface RetryPolicy {
 
       @Override
       public RetryDecision get() {
-        return new RetryDecision(true, calculateBackoff());
+        return new RetryDecision(true, calculateBackoff(), TimeUnit.NANOSECONDS);
       }
 
       private long calculateBackoff() {
@@ -192,7 +354,7 @@ public interface RetryPolicy {
      * @return this builder
      */
     public ExponentialBuilder max(final long duration, final TimeUnit unit) {
-      this.max = Optional.of(ClockSource.UNIT.convert(duration, unit));
+      this.max = Optional.of(unit.toNanos(duration));
       return this;
     }
 
@@ -7,6 +7,8 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * An interface that defines a contract with a computation that could be asynchronous.
@@ -219,6 +221,38 @@ public interface Stage<T> {
    */
   Stage<T> thenApplyFailed(Function<? super Throwable, ? extends T> fn);
 
+  /**
+   * Transform the value of this stage into a {@code long}.
+   *
+   * <p>The returned stage stores the result without boxing it, which is useful for numeric
+   * pipelines.
+   *
+   * <p>The default implementation boxes the result through {@link #thenApply(Function)}.
+   *
+   * @param fn transformation to use
+   * @return a stage that will complete with the transformed value
+   * @see #thenApply(Function)
+   */
+  default LongStage thenApplyAsLong(ToLongFunction<? super T> fn) {
+    return new BoxedLongStage(thenApply(fn::applyAsLong));
+  }
+
+  /**
+   * Transform the value of this stage into a {@code double}.
+   *
+   * <p>The returned stage stores the result without boxing it, which is useful for numeric
+   * pipelines.
+   *
+   * <p>The default implementation boxes the result through {@link #thenApply(Function)}.
+   *
+   * @param fn transformation to use
+   * @return a stage that will complete with the transformed value
+   * @see #thenApply(Function)
+   */
+  default DoubleStage thenApplyAsDouble(ToDoubleFunction<? super T> fn) {
+    return new BoxedDoubleStage(thenApply(fn::applyAsDouble));
+  }
+
   /**
    * Compose a failed stage.
    *
@@ -294,4 +328,59 @@ public interface Stage<T> {
    * @return a stage that depends on the current stage and the supplied stage
    */
   Stage<T> withNotComplete(Supplier<? extends Stage<Void>> supplier);
+
+  /**
+   * Build a stage that fails with a {@link java.util.concurrent.TimeoutException} if the current
+   * stage is not done within the given timeout, in which case the current stage is cancelled.
+   *
+   * <p>The timeout is armed in a timing wheel, and expires with the precision of one tick of that
+   * wheel. If the current stage is done first, the timeout is disarmed in constant time.
+   *
+   * <p>Stages that are already done are returned as they are.
+   *
+   * <p>The default implementation binds the stage to a deadline which passes once the timeout
+   * expires, using {@link #withDeadline(Deadline)}.
+   *
+   * @param timeout time to wait for the current stage to be done
+   * @param unit unit of the timeout
+   * @return a stage that mirrors the current stage, or fails if the timeout expires first
+   * @throws UnsupportedOperationException if the implementation does not support deadlines
+   */
+  default Stage<T> withTimeout(long timeout, TimeUnit unit) {
+    return withDeadline(Deadline.after(timeout, unit));
+  }
+
+  /**
+   * Build a stage that fails with a {@link DeadlineExceededException} if the current stage is not
+   * done before the given deadline, in which case the current stage is cancelled.
+   *
+   * <p>The returned stage, and all stages derived from it, carry the earliest of the given deadline
+   * and the deadline of the current stage. Composing onto a stage whose deadline has passed does
+   * not invoke the composing function.
+   *
+   * <p>Stages that are already done are returned as they are.
+   *
+   * <p>The default implementation has no timer to arm the deadline in, and throws
+   * {@link UnsupportedOperationException} instead of silently ignoring it. Implementations must
+   * override it.
+   *
+   * @param deadline deadline for the current stage to be done by
+   * @return a stage that mirrors the current stage, or fails if the deadline passes first
+   * @throws UnsupportedOperationException if the implementation does not support deadlines
+   * @see #withTimeout(long, TimeUnit)
+   */
+  default Stage<T> withDeadline(Deadline deadline) {
+    throw new UnsupportedOperationException("withDeadline");
+  }
+
+  /**
+   * The deadline carried by this stage.
+   *
+   * <p>The default implementation carries no deadline.
+   *
+   * @return the deadline of this stage, or {@link Deadline#none()}
+   */
+  default Deadline deadline() {
+    return Deadline.none();
+  }
 }
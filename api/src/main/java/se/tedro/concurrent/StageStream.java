@@ -0,0 +1,117 @@
+package se.tedro.concurrent;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * An asynchronous sequence of elements, where each element is pulled on demand.
+ *
+ * <p>Elements are requested one at a time through {@link #next()}, so a stream never produces more
+ * elements than has been asked for. This provides backpressure without any explicit demand
+ * signalling. Operators like {@link #buffer(int)} and {@link #flatMap(Function, int)} may request
+ * elements ahead of time, but never more than their configured limit.
+ *
+ * <p>Elements must not be {@code null}, since {@code null} is used to signal the end of a stream.
+ *
+ * <p>Streams are not thread-safe for concurrent consumers. A single consumer may call {@link
+ * #next()} from any thread, but must wait for the previously returned stage to be done before
+ * calling it again. {@link #cancel()} may be called at any time, from any thread.
+ *
+ * @param <T> type of the elements in the stream
+ * @see Async#stream(java.util.concurrent.Callable)
+ */
+public interface StageStream<T> {
+  /**
+   * Request the next element of the stream.
+   *
+   * <p>If the stream is exhausted, the returned stage is completed with {@code null}. If the stream
+   * failed or was cancelled, the returned stage will be failed or cancelled accordingly.
+   *
+   * @return a stage for the next element
+   */
+  Stage<T> next();
+
+  /**
+   * Cancel the stream.
+   *
+   * <p>Cancellation is propagated to all upstream streams, and to any stages that are pending
+   * because of them.
+   */
+  void cancel();
+
+  /**
+   * Transform each element in the stream.
+   *
+   * @param fn function to apply, must not return {@code null}
+   * @param <U> target type
+   * @return a new stream
+   */
+  <U> StageStream<U> map(Function<? super T, ? extends U> fn);
+
+  /**
+   * Transform each element into an asynchronous operation, allowing up to {@code maxConcurrency}
+   * operations to be pending at the same time.
+   *
+   * <p>Results are provided in the same order as the elements they were created from.
+   *
+   * @param fn function to apply, the returned stage must not be completed with {@code null}
+   * @param maxConcurrency max number of pending operations
+   * @param <U> target type
+   * @return a new stream
+   */
+  <U> StageStream<U> flatMap(
+    Function<? super T, ? extends Stage<? extends U>> fn, int maxConcurrency
+  );
+
+  /**
+   * Only retain the elements matching the given predicate.
+   *
+   * @param predicate predicate to test elements with
+   * @return a new stream
+   */
+  StageStream<T> filter(Predicate<? super T> predicate);
+
+  /**
+   * Request up to {@code size} elements ahead of the consumer.
+   *
+   * @param size number of elements to buffer
+   * @return a new stream
+   */
+  StageStream<T> buffer(int size);
+
+  /**
+   * Group elements into lists of {@code size} elements. The last list might be smaller.
+   *
+   * @param size number of elements in each list
+   * @return a new stream
+   */
+  StageStream<List<T>> batch(int size);
+
+  /**
+   * Consume all elements in the stream.
+   *
+   * <p>Cancelling the returned stage cancels the stream.
+   *
+   * @param consumer consumer to apply to each element
+   * @param supplier supplier of the result, once all elements are consumed
+   * @param <U> type of the result
+   * @return a stage which is completed when all elements are consumed
+   */
+  <U> Stage<U> collect(Consumer<? super T> consumer, Supplier<? extends U> supplier);
+
+  /**
+   * Collect all elements in the stream using the given collector.
+   *
+   * <p>Cancelling the returned stage cancels the stream.
+   *
+   * @param collector collector to use
+   * @param <A> type of the intermediate accumulation
+   * @param <R> type of the result
+   * @return a stage which is completed when all elements are collected
+   */
+  <A, R> Stage<R> collect(Collector<? super T, A, R> collector);
+}
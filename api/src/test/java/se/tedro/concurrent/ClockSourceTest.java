@@ -0,0 +1,48 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ClockSourceTest {
+  @Test
+  public void testDefaultNanoTime() {
+    final ClockSource clockSource = () -> 42L;
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(42), clockSource.nanoTime());
+  }
+
+  @Test
+  public void testMonotonic() {
+    final ClockSource clockSource = ClockSource.monotonic();
+
+    final long before = System.nanoTime();
+    final long now = clockSource.nanoTime();
+
+    assertTrue(now - before >= 0);
+    assertTrue(System.nanoTime() - now >= 0);
+    assertTrue(Math.abs(clockSource.now() - TimeUnit.NANOSECONDS.toMillis(now)) <= 1000);
+  }
+
+  @Test(timeout = 10000)
+  public void testCoarseAdvances() throws Exception {
+    final ClockSource clockSource = ClockSource.coarse();
+    assertSame(clockSource, ClockSource.coarse());
+
+    final long start = clockSource.nanoTime();
+
+    while (clockSource.nanoTime() == start) {
+      Thread.sleep(1);
+    }
+
+    /* the coarse clock never runs ahead of the clock it caches */
+    assertTrue(System.nanoTime() - clockSource.nanoTime() >= 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCoarseTickNotPositive() {
+    new ClockSource.Coarse(0);
+  }
+}
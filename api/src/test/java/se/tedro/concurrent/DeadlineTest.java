@@ -0,0 +1,56 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class DeadlineTest {
+  @Test
+  public void testNone() {
+    final Deadline none = Deadline.none();
+
+    assertFalse(none.isFinite());
+    assertFalse(none.isExpired());
+    assertEquals(Long.MAX_VALUE, none.remaining(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testAfter() {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+
+    assertTrue(deadline.isFinite());
+    assertFalse(deadline.isExpired());
+    assertTrue(deadline.remaining(TimeUnit.MINUTES) > 58);
+  }
+
+  @Test
+  public void testExpired() {
+    final Deadline deadline = Deadline.after(0, TimeUnit.MILLISECONDS);
+
+    assertTrue(deadline.isExpired());
+    assertTrue(deadline.remaining(TimeUnit.NANOSECONDS) <= 0);
+  }
+
+  @Test
+  public void testAfterDoesNotOverflow() {
+    final Deadline deadline = Deadline.after(Long.MAX_VALUE, TimeUnit.DAYS);
+
+    assertFalse(deadline.isExpired());
+    assertTrue(deadline.remaining(TimeUnit.DAYS) > 0);
+  }
+
+  @Test
+  public void testEarliest() {
+    final Deadline soon = Deadline.after(1, TimeUnit.SECONDS);
+    final Deadline later = Deadline.after(1, TimeUnit.HOURS);
+
+    assertSame(soon, soon.earliest(later));
+    assertSame(soon, later.earliest(soon));
+    assertSame(soon, soon.earliest(Deadline.none()));
+    assertSame(soon, Deadline.none().earliest(soon));
+  }
+}
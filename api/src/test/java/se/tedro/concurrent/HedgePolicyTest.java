@@ -0,0 +1,87 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class HedgePolicyTest {
+  private final ClockSource clockSource = () -> 0L;
+
+  @Test
+  public void testFixed() {
+    final HedgePolicy policy = HedgePolicy.fixed(1, TimeUnit.SECONDS, 2);
+    final RetryDecision decision = policy.newInstance(clockSource).get();
+
+    assertTrue(decision.shouldRetry());
+    assertEquals(1000L, decision.backoff());
+    assertEquals(TimeUnit.SECONDS.toNanos(1), decision.backoff(TimeUnit.NANOSECONDS));
+    assertEquals(2, policy.maxOutstanding());
+  }
+
+  @Test
+  public void testPercentile() {
+    final HedgePolicy.Percentile policy =
+      (HedgePolicy.Percentile) HedgePolicy.percentile(0.9, 50, TimeUnit.MILLISECONDS, 1);
+
+    assertEquals(50L, policy.newInstance(clockSource).get().backoff());
+
+    for (int i = 0; i < HedgePolicy.Percentile.RECOMPUTE - 1; i++) {
+      policy.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    /* not recomputed until enough latencies have been recorded */
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.delay());
+
+    policy.record(TimeUnit.MILLISECONDS.toNanos(HedgePolicy.Percentile.RECOMPUTE - 1));
+
+    /* within one bucket of the exact percentile */
+    final long expected = TimeUnit.MILLISECONDS.toNanos(57);
+    assertEquals(expected, policy.delay(), expected / HedgePolicy.Percentile.SUB_BUCKETS);
+    assertEquals(58L, policy.newInstance(clockSource).get().backoff());
+  }
+
+  @Test
+  public void testPercentileCensored() {
+    final HedgePolicy.Percentile policy =
+      (HedgePolicy.Percentile) HedgePolicy.percentile(0.5, 50, TimeUnit.MILLISECONDS, 1);
+
+    /* few fast attempts win, while most of the slow attempts they hedged are cancelled */
+    for (int i = 0; i < HedgePolicy.Percentile.RECOMPUTE; i++) {
+      if (i % 8 < 3) {
+        policy.record(TimeUnit.MILLISECONDS.toNanos(10));
+      } else {
+        policy.recordCensored(TimeUnit.MILLISECONDS.toNanos(100));
+      }
+    }
+
+    /* more than half of the attempts took at least 100 milliseconds */
+    assertTrue(policy.delay() >= TimeUnit.MILLISECONDS.toNanos(100));
+
+    for (int i = 0; i < HedgePolicy.Percentile.RECOMPUTE; i++) {
+      policy.record(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.delay(),
+      TimeUnit.MILLISECONDS.toNanos(10) / HedgePolicy.Percentile.SUB_BUCKETS);
+  }
+
+  @Test
+  public void testPercentileBuckets() {
+    for (long latency = 0; latency < 1 << 16; latency++) {
+      final int bucket = HedgePolicy.Percentile.bucket(latency);
+      assertTrue(latency <= HedgePolicy.Percentile.upperBound(bucket));
+      assertTrue(bucket == 0 || latency > HedgePolicy.Percentile.upperBound(bucket - 1));
+    }
+
+    final int last = HedgePolicy.Percentile.bucket(Long.MAX_VALUE);
+    assertEquals(HedgePolicy.Percentile.BUCKETS - 1, last);
+    assertEquals(Long.MAX_VALUE, HedgePolicy.Percentile.upperBound(last));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPercentileOutOfRange() {
+    HedgePolicy.percentile(1.5, 50, TimeUnit.MILLISECONDS, 1);
+  }
+}
@@ -0,0 +1,132 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+  private final ClockSource clockSource = () -> 0L;
+
+  @Test
+  public void testSubMillisecondBackoff() {
+    final RetryDecision d =
+      RetryPolicy.linear(500, TimeUnit.MICROSECONDS).newInstance(clockSource).get();
+
+    assertEquals(0L, d.backoff());
+    assertEquals(500_000L, d.backoff(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testTimedUsesNanoTime() {
+    final AtomicLong nanos = new AtomicLong(Long.MAX_VALUE - 100);
+    final ClockSource clock = new ClockSource() {
+      @Override
+      public long now() {
+        throw new IllegalStateException("now() should not be used");
+      }
+
+      @Override
+      public long nanoTime() {
+        return nanos.get();
+      }
+    };
+
+    final Supplier<RetryDecision> instance = RetryPolicy
+      .timed(500, TimeUnit.NANOSECONDS, RetryPolicy.linear(1, TimeUnit.MICROSECONDS))
+      .newInstance(clock);
+
+    /* elapsed time is compared, so the clock may wrap around */
+    nanos.addAndGet(400);
+    assertTrue(instance.get().shouldRetry());
+    nanos.addAndGet(100);
+    assertFalse(instance.get().shouldRetry());
+  }
+
+  @Test
+  public void testFullJitter() {
+    final Supplier<RetryDecision> instance =
+      RetryPolicy.fullJitter(RetryPolicy.linear(100, TimeUnit.MILLISECONDS))
+        .newInstance(clockSource);
+
+    for (int i = 0; i < 1000; i++) {
+      final RetryDecision d = instance.get();
+      assertTrue(d.shouldRetry());
+      assertTrue(d.backoff() >= 0 && d.backoff() <= 100);
+    }
+  }
+
+  @Test
+  public void testDecorrelatedJitter() {
+    final Supplier<RetryDecision> instance =
+      RetryPolicy.decorrelatedJitter(10, 1000, TimeUnit.MILLISECONDS).newInstance(clockSource);
+
+    final long base = TimeUnit.MILLISECONDS.toNanos(10);
+    final long max = TimeUnit.MILLISECONDS.toNanos(1000);
+    long previous = base;
+
+    for (int i = 0; i < 1000; i++) {
+      final RetryDecision d = instance.get();
+      final long backoff = d.backoff(TimeUnit.NANOSECONDS);
+      assertTrue(d.shouldRetry());
+      assertTrue(backoff >= base);
+      assertTrue(backoff <= Math.min(max, previous * 3));
+      previous = backoff;
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecorrelatedJitterMaxSmallerThanBase() {
+    RetryPolicy.decorrelatedJitter(10, 5, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testBudget() {
+    final RetryBudget budget = RetryBudget.create(0.5D, 2);
+
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+
+    budget.deposit();
+    assertFalse(budget.tryWithdraw());
+    budget.deposit();
+    assertTrue(budget.tryWithdraw());
+
+    /* deposits are capped at the max */
+    for (int i = 0; i < 10; i++) {
+      budget.deposit();
+    }
+
+    assertEquals(2, budget.available());
+  }
+
+  @Test
+  public void testBudgeted() {
+    final RetryBudget budget = RetryBudget.create(0.1D, 1);
+    final RetryPolicy policy =
+      RetryPolicy.budgeted(budget, RetryPolicy.linear(10, TimeUnit.MILLISECONDS));
+
+    final Supplier<RetryDecision> first = policy.newInstance(clockSource);
+    final Supplier<RetryDecision> second = policy.newInstance(clockSource);
+
+    assertTrue(first.get().shouldRetry());
+    assertFalse(first.get().shouldRetry());
+    assertFalse(second.get().shouldRetry());
+    assertEquals(10L, second.get().backoff());
+  }
+
+  @Test
+  public void testBudgetedDoesNotWithdrawWhenInnerGivesUp() {
+    final RetryBudget budget = RetryBudget.create(0.1D, 1);
+    final RetryPolicy policy = RetryPolicy.budgeted(budget,
+      RetryPolicy.timed(0, TimeUnit.MILLISECONDS, RetryPolicy.linear(10, TimeUnit.MILLISECONDS)));
+
+    assertFalse(policy.newInstance(clockSource).get().shouldRetry());
+    assertEquals(1, budget.available());
+  }
+}
@@ -3,6 +3,8 @@ package se.tedro.concurrent;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -21,6 +23,34 @@ import lombok.RequiredArgsConstructor;
 abstract class AbstractImmediate<T> implements Stage<T> {
   protected final Caller caller;
 
+  /**
+   * The timing wheel that stages derived from this stage arm their timeouts in.
+   */
+  TimingWheel timer() {
+    return TimingWheel.shared();
+  }
+
+  /**
+   * Build a stage which has already been completed, and carries the deadline of this stage.
+   */
+  <U> Stage<U> immediateCompleted(final U result) {
+    return new ImmediateCompleted<>(caller, result, deadline());
+  }
+
+  /**
+   * Build a stage which has already failed, and carries the deadline of this stage.
+   */
+  <U> Stage<U> immediateFailed(final Throwable cause) {
+    return new ImmediateFailed<>(caller, cause, deadline());
+  }
+
+  /**
+   * Build a stage which has already been cancelled, and carries the deadline of this stage.
+   */
+  <U> Stage<U> immediateCancelled() {
+    return new ImmediateCancelled<>(caller, deadline());
+  }
+
   <U> Stage<U> thenApplyCompleted(
     final Function<? super T, ? extends U> fn, final T value
   ) {
@@ -29,10 +59,10 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       result = fn.apply(value);
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
 
-    return new ImmediateCompleted<>(caller, result);
+    return immediateCompleted(result);
   }
 
   <U> Stage<U> thenComposeCompleted(
@@ -41,7 +71,7 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       return fn.apply(value);
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
   }
 
@@ -56,7 +86,7 @@ abstract class AbstractImmediate<T> implements Stage<T> {
       return executionExceptionFailed(e, cause);
     }
 
-    return new ImmediateCompleted<>(caller, value);
+    return immediateCompleted(value);
   }
 
   Stage<T> thenComposeFailedFailed(
@@ -71,9 +101,9 @@ abstract class AbstractImmediate<T> implements Stage<T> {
 
   Stage<T> thenSupplyCancelledCancelled(final Supplier<? extends T> fn) {
     try {
-      return new ImmediateCompleted<>(caller, fn.get());
+      return immediateCompleted(fn.get());
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
   }
 
@@ -83,7 +113,7 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       return fn.get();
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
   }
 
@@ -93,7 +123,7 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       next = notComplete.get();
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
 
     return next.thenCancel();
@@ -136,7 +166,7 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       next = complete.get();
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
 
     return next.thenApply(v -> result);
@@ -162,15 +192,81 @@ abstract class AbstractImmediate<T> implements Stage<T> {
     try {
       next = supplier.get();
     } catch (final Exception e) {
-      return new ImmediateFailed<>(caller, e);
+      return immediateFailed(e);
     }
 
     return next.thenCancel();
   }
 
+  @Override
+  public LongStage thenApplyAsLong(final ToLongFunction<? super T> fn) {
+    final ConcurrentLongCompletable target = new ConcurrentLongCompletable(caller, timer(), deadline(), this);
+
+    handle(new Handle<T>() {
+      @Override
+      public void completed(final T result) {
+        final long value;
+
+        try {
+          value = fn.applyAsLong(result);
+        } catch (final Exception e) {
+          target.fail(e);
+          return;
+        }
+
+        target.complete(value);
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        target.fail(cause);
+      }
+
+      @Override
+      public void cancelled() {
+        target.cancel();
+      }
+    });
+
+    return target;
+  }
+
+  @Override
+  public DoubleStage thenApplyAsDouble(final ToDoubleFunction<? super T> fn) {
+    final ConcurrentDoubleCompletable target = new ConcurrentDoubleCompletable(caller, timer(), deadline(), this);
+
+    handle(new Handle<T>() {
+      @Override
+      public void completed(final T result) {
+        final double value;
+
+        try {
+          value = fn.applyAsDouble(result);
+        } catch (final Exception e) {
+          target.fail(e);
+          return;
+        }
+
+        target.complete(value);
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        target.fail(cause);
+      }
+
+      @Override
+      public void cancelled() {
+        target.cancel();
+      }
+    });
+
+    return target;
+  }
+
   Stage<T> executionExceptionFailed(final Throwable e, final Throwable cause) {
     final ExecutionException ee = new ExecutionException(e);
     ee.addSuppressed(cause);
-    return new ImmediateFailed<>(caller, ee);
+    return immediateFailed(ee);
   }
 }
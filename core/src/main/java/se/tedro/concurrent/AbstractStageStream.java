@@ -0,0 +1,190 @@
+package se.tedro.concurrent;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Base class for stream implementations, providing the operators in terms of {@link #next()}.
+ *
+ * @param <T> type of the elements in the stream
+ */
+abstract class AbstractStageStream<T> implements StageStream<T> {
+  protected final Async async;
+
+  AbstractStageStream(final Async async) {
+    this.async = async;
+  }
+
+  @Override
+  public <U> StageStream<U> map(final Function<? super T, ? extends U> fn) {
+    return new MapStageStream<>(async, this, fn);
+  }
+
+  @Override
+  public <U> StageStream<U> flatMap(
+    final Function<? super T, ? extends Stage<? extends U>> fn, final int maxConcurrency
+  ) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency: must be positive");
+    }
+
+    return new PrefetchStageStream<>(async, this, fn, maxConcurrency);
+  }
+
+  @Override
+  public StageStream<T> filter(final Predicate<? super T> predicate) {
+    return new FilterStageStream<>(async, this, predicate);
+  }
+
+  @Override
+  public StageStream<T> buffer(final int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size: must be positive");
+    }
+
+    return new PrefetchStageStream<T, T>(async, this, async::completed, size);
+  }
+
+  @Override
+  public StageStream<List<T>> batch(final int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size: must be positive");
+    }
+
+    return new BatchStageStream<>(async, this, size);
+  }
+
+  @Override
+  public <U> Stage<U> collect(
+    final Consumer<? super T> consumer, final Supplier<? extends U> supplier
+  ) {
+    final Completable<U> target = async.completable();
+
+    target.whenCancelled(this::cancel);
+
+    pull(this, target, value -> {
+      if (value == null) {
+        target.complete(supplier.get());
+        return false;
+      }
+
+      consumer.accept(value);
+      return true;
+    });
+
+    return target;
+  }
+
+  @Override
+  public <A, R> Stage<R> collect(final Collector<? super T, A, R> collector) {
+    final A container = collector.supplier().get();
+    final BiConsumer<A, ? super T> accumulator = collector.accumulator();
+    return collect(value -> accumulator.accept(container, value),
+      () -> collector.finisher().apply(container));
+  }
+
+  /**
+   * Receiver of elements pulled through {@link #pull(StageStream, Completable, Pull)}.
+   *
+   * @param <T> type of the elements
+   */
+  interface Pull<T> {
+    /**
+     * Receive the next element.
+     *
+     * @param value the next element, or {@code null} if the stream is exhausted
+     * @return {@code true} if another element should be pulled
+     * @throws Exception if the element could not be received, which fails the target
+     */
+    boolean next(T value) throws Exception;
+  }
+
+  /**
+   * Pull elements from the given stream until the receiver is done, or the target is done.
+   *
+   * <p>Elements which are immediately available are pulled in a loop, so that the stack does not
+   * grow with the number of elements. Failures and cancellations are forwarded to the target.
+   *
+   * @param upstream stream to pull from
+   * @param target target that is failed or cancelled if the upstream is
+   * @param pull receiver of elements
+   * @param <T> type of the elements
+   */
+  static <T> void pull(
+    final StageStream<? extends T> upstream, final Completable<?> target, final Pull<T> pull
+  ) {
+    while (!target.isDone()) {
+      final Stage<? extends T> stage;
+
+      try {
+        stage = upstream.next();
+      } catch (final Exception e) {
+        target.fail(e);
+        return;
+      }
+
+      if (!stage.isDone()) {
+        stage.handle(new Handle<T>() {
+          @Override
+          public void completed(final T value) {
+            if (receive(target, pull, value)) {
+              pull(upstream, target, pull);
+            }
+          }
+
+          @Override
+          public void failed(final Throwable cause) {
+            target.fail(cause);
+          }
+
+          @Override
+          public void cancelled() {
+            target.cancel();
+          }
+        });
+
+        return;
+      }
+
+      if (stage.isFailed()) {
+        target.fail(stage.cause());
+        return;
+      }
+
+      if (stage.isCancelled()) {
+        target.cancel();
+        return;
+      }
+
+      final T value;
+
+      try {
+        value = stage.joinNow();
+      } catch (final ExecutionException e) {
+        target.fail(e.getCause());
+        return;
+      }
+
+      if (!receive(target, pull, value)) {
+        return;
+      }
+    }
+  }
+
+  private static <T> boolean receive(
+    final Completable<?> target, final Pull<T> pull, final T value
+  ) {
+    try {
+      return pull.next(value);
+    } catch (final Exception e) {
+      target.fail(e);
+      return false;
+    }
+  }
+}
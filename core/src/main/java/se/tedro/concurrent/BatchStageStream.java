@@ -0,0 +1,49 @@
+package se.tedro.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stream which groups the elements of an upstream stream into lists.
+ *
+ * @param <T> type of the elements in the upstream stream
+ */
+class BatchStageStream<T> extends AbstractStageStream<List<T>> {
+  private final StageStream<T> upstream;
+  private final int size;
+
+  BatchStageStream(final Async async, final StageStream<T> upstream, final int size) {
+    super(async);
+    this.upstream = upstream;
+    this.size = size;
+  }
+
+  @Override
+  public Stage<List<T>> next() {
+    final Completable<List<T>> target = async.completable();
+    final List<T> batch = new ArrayList<>(size);
+
+    pull(upstream, target, value -> {
+      if (value == null) {
+        target.complete(batch.isEmpty() ? null : batch);
+        return false;
+      }
+
+      batch.add(value);
+
+      if (batch.size() >= size) {
+        target.complete(batch);
+        return false;
+      }
+
+      return true;
+    });
+
+    return target;
+  }
+
+  @Override
+  public void cancel() {
+    upstream.cancel();
+  }
+}
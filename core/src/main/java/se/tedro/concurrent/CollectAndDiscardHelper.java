@@ -1,29 +1,51 @@
 package se.tedro.concurrent;
 
-import static se.tedro.concurrent.CoreAsync.buildCollectedException;
-
 import java.util.Collection;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Helper for of {@link Async#collectAndDiscard(Collection)}.
  *
+ * <p>In fail-fast mode the target is failed or cancelled by the first stage that is failed or
+ * cancelled, after which errors are no longer retained.
+ *
  * @author udoprog
  */
 class CollectAndDiscardHelper implements Handle<Object> {
   private final Completable<Void> target;
-  private final AtomicInteger countdown;
+  private final StripedCountdown countdown;
   private final AtomicInteger cancelled = new AtomicInteger();
-  private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+  private final ErrorCollector errors;
+  private final boolean failFast;
+  /* set once the target has been ended early in fail-fast mode */
+  private volatile boolean ended;
 
   CollectAndDiscardHelper(int size, Completable<Void> target) {
+    this(size, target, false, ErrorAggregation.newDefault());
+  }
+
+  CollectAndDiscardHelper(int size, Completable<Void> target, boolean failFast) {
+    this(size, target, failFast, ErrorAggregation.newDefault());
+  }
+
+  CollectAndDiscardHelper(
+    int size, Completable<Void> target, boolean failFast, ErrorAggregation errorAggregation
+  ) {
     this.target = target;
-    this.countdown = new AtomicInteger(size);
+    this.countdown = StripedCountdown.create(size);
+    this.failFast = failFast;
+    this.errors = new ErrorCollector(errorAggregation);
   }
 
   @Override
   public void failed(Throwable e) {
+    if (failFast) {
+      ended = true;
+      target.fail(e);
+      check();
+      return;
+    }
+
     errors.add(e);
     check();
   }
@@ -35,13 +57,22 @@ class CollectAndDiscardHelper implements Handle<Object> {
 
   @Override
   public void cancelled() {
+    if (failFast) {
+      ended = true;
+      target.cancel();
+    }
+
     cancelled.incrementAndGet();
     check();
   }
 
   private void done() {
+    if (ended) {
+      return;
+    }
+
     if (!errors.isEmpty()) {
-      target.fail(buildCollectedException(errors));
+      target.fail(errors.build());
       return;
     }
 
@@ -54,7 +85,7 @@ class CollectAndDiscardHelper implements Handle<Object> {
   }
 
   private void check() {
-    if (countdown.decrementAndGet() == 0) {
+    if (countdown.countDown()) {
       done();
     }
   }
@@ -1,12 +1,12 @@
 package se.tedro.concurrent;
 
-import static se.tedro.concurrent.CoreAsync.buildCollectedException;
-
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 
@@ -18,6 +18,14 @@ import lombok.RequiredArgsConstructor;
  *
  * <p>This is a lock-free implementation capable of writing the results out of order.
  *
+ * <p>In fail-fast mode the target is failed or cancelled by the first stage that is failed or
+ * cancelled. That stage, and any stage that is done after it, only checks in without recording its
+ * value or error, since nothing waits for them.
+ *
+ * <p>If all stages are completed, the collector is handed a read-only view over the collected
+ * values instead of a copy, except for wide collects which are merged into completion order first.
+ * The states are only inspected if a stage failed or was cancelled.
+ *
  * @param <T> the source type being collected
  * @param <U> the collected value
  */
@@ -48,27 +56,58 @@ class CollectHelper<T, U> implements Handle<T> {
   byte[] states;
 
   /**
-   * maintain position separate since the is a potential race condition between getting the
-   * current position and setting the entry. This is avoided by only relying on countdown to trigger
-   * when we are done.
+   * Hands out write positions, and counts down once the write at a position is done. Since
+   * positions might be released out of order, only relying on the countdown to trigger when we are
+   * done causes all threads to synchronize after the write.
+   *
+   * <p>Positions within a stripe are claimed in the order that stages check in. Wide collects have
+   * more than one stripe, see {@link #stamps} for how completion order is rebuilt across them.
    **/
-  final AtomicInteger write;
+  final StripedCountdown countdown;
 
   /**
-   * Maintain a separate countdown since the write position might be out of order, this causes all
-   * threads to synchronize after the write
+   * For wide collects, the time at which the value at each position was written, used to merge the
+   * stripes of the countdown in completion order once all stages are done. Null if the countdown
+   * has a single stripe, whose positions are already in completion order.
    **/
-  final AtomicInteger countdown;
+  long[] stamps;
 
   /**
    * State of the collector.
    **/
   final AtomicBoolean failed;
   final AtomicBoolean done;
+  final boolean failFast;
+
+  /**
+   * Errors of failed stages, which are not stored in {@link #values}.
+   */
+  final ErrorCollector errors;
+
+  /**
+   * If any stage failed or was cancelled, MUST be written before the countdown is decremented to
+   * be visible to the thread that completes the target.
+   */
+  volatile boolean hasFailures;
 
   CollectHelper(
     int size, Function<? super Collection<T>, ? extends U> collector,
     Collection<? extends Stage<?>> sources, Completable<? super U> target
+  ) {
+    this(size, collector, sources, target, false, ErrorAggregation.newDefault());
+  }
+
+  CollectHelper(
+    int size, Function<? super Collection<T>, ? extends U> collector,
+    Collection<? extends Stage<?>> sources, Completable<? super U> target, boolean failFast
+  ) {
+    this(size, collector, sources, target, failFast, ErrorAggregation.newDefault());
+  }
+
+  CollectHelper(
+    int size, Function<? super Collection<T>, ? extends U> collector,
+    Collection<? extends Stage<?>> sources, Completable<? super U> target, boolean failFast,
+    ErrorAggregation errorAggregation
   ) {
     if (size <= 0) {
       throw new IllegalArgumentException("size");
@@ -81,25 +120,46 @@ class CollectHelper<T, U> implements Handle<T> {
 
     this.values = new Object[size];
     this.states = new byte[size];
-    this.write = new AtomicInteger();
-    this.countdown = new AtomicInteger(size);
+    this.countdown = StripedCountdown.create(size);
+    this.stamps = countdown.stripes > 1 ? new long[size] : null;
     this.failed = new AtomicBoolean();
     this.done = new AtomicBoolean();
+    this.failFast = failFast;
+    this.errors = new ErrorCollector(errorAggregation);
   }
 
   @Override
   public void completed(T result) {
+    if (failFast && failed.get()) {
+      checkIn();
+      return;
+    }
+
     add(COMPLETED, result);
   }
 
   @Override
   public void failed(Throwable e) {
+    if (failFast) {
+      target.fail(e);
+      checkFailed();
+      checkIn();
+      return;
+    }
+
     add(FAILED, e);
     checkFailed();
   }
 
   @Override
   public void cancelled() {
+    if (failFast) {
+      target.cancel();
+      checkFailed();
+      checkIn();
+      return;
+    }
+
     add(CANCELLED, null);
     checkFailed();
   }
@@ -118,25 +178,45 @@ class CollectHelper<T, U> implements Handle<T> {
   }
 
   /**
-   * Checks in a doCall back. It also wraps up the group if all the callbacks have checked in.
+   * Records the result of a doCall back and checks it in.
    */
   void add(final byte type, final Object value) {
-    final int w = write.getAndIncrement();
+    // throws if more stages check in than were expected.
+    final int w = countdown.claim();
 
-    if (w < size) {
+    if (type == FAILED) {
+      errors.add((Throwable) value);
+      writeAt(w, type, null);
+    } else {
       writeAt(w, type, value);
     }
 
-    // countdown could wrap around, however we check the state of finished in here.
-    // MUST be called after write to make sure that results and states are synchronized.
-    final int c = countdown.decrementAndGet();
+    if (stamps != null) {
+      stamps[w] = System.nanoTime();
+    }
 
-    if (c < 0) {
-      throw new IllegalStateException("already finished (countdown)");
+    if (type != COMPLETED) {
+      hasFailures = true;
     }
 
+    checkIn(w);
+  }
+
+  /**
+   * Checks in a doCall back without recording anything.
+   */
+  void checkIn() {
+    checkIn(countdown.claim());
+  }
+
+  /**
+   * Checks in a doCall back at a claimed position. It also wraps up the group if all the callbacks
+   * have checked in.
+   */
+  void checkIn(final int position) {
+    // MUST be called after write to make sure that results and states are synchronized.
     // if this thread is not the last thread to check-in, do nothing..
-    if (c != 0) {
+    if (!countdown.release(position)) {
       return;
     }
 
@@ -147,6 +227,14 @@ class CollectHelper<T, U> implements Handle<T> {
       throw new IllegalStateException("already finished");
     }
 
+    if (failFast && failed.get()) {
+      // target has already been failed or cancelled.
+      this.states = null;
+      this.values = null;
+      this.stamps = null;
+      return;
+    }
+
     done(collect());
   }
 
@@ -157,11 +245,10 @@ class CollectHelper<T, U> implements Handle<T> {
 
   void done(Results r) {
     final Collection<T> results = r.results;
-    final Collection<Throwable> errors = r.errors;
     final int cancelled = r.cancelled;
 
     if (!errors.isEmpty()) {
-      target.fail(buildCollectedException(errors));
+      target.fail(errors.build());
       return;
     }
 
@@ -182,10 +269,58 @@ class CollectHelper<T, U> implements Handle<T> {
     target.complete(result);
   }
 
-  @SuppressWarnings("unchecked")
   Results collect() {
-    final List<T> results = new ArrayList<>();
-    final List<Throwable> errors = new ArrayList<>();
+    final Results results;
+
+    if (hasFailures) {
+      results = collectFailures();
+    } else {
+      final Object[] ordered = stamps != null ? inCompletionOrder() : values;
+      results = new Results(new ValuesView<>(ordered, size), 0);
+    }
+
+    // help garbage collector
+    this.states = null;
+    this.values = null;
+    this.stamps = null;
+
+    return results;
+  }
+
+  /**
+   * Merge the stripes of a wide collect into completion order.
+   *
+   * <p>Positions within a stripe are already in completion order, so only the heads of each stripe
+   * need to be compared by the time at which they were written.
+   */
+  Object[] inCompletionOrder() {
+    final PriorityQueue<Cursor> heads = new PriorityQueue<>(countdown.stripes);
+
+    for (int stripe = 0; stripe < countdown.stripes; stripe++) {
+      final int start = stripe * countdown.chunk;
+      heads.add(new Cursor(start, Math.min(start + countdown.chunk, size)));
+    }
+
+    final Object[] ordered = new Object[size];
+    int i = 0;
+
+    while (!heads.isEmpty()) {
+      final Cursor head = heads.poll();
+      ordered[i++] = values[head.position++];
+
+      if (head.position < head.end) {
+        heads.add(head);
+      }
+    }
+
+    return ordered;
+  }
+
+  /**
+   * Count cancellations, the values of completed stages are not needed since the collector won't be
+   * called. Errors are kept separately in {@link #errors}.
+   */
+  Results collectFailures() {
     int cancelled = 0;
 
     for (int i = 0; i < size; i++) {
@@ -193,10 +328,8 @@ class CollectHelper<T, U> implements Handle<T> {
 
       switch (type) {
         case COMPLETED:
-          results.add((T) values[i]);
           break;
         case FAILED:
-          errors.add((Throwable) values[i]);
           break;
         case CANCELLED:
           cancelled++;
@@ -206,17 +339,59 @@ class CollectHelper<T, U> implements Handle<T> {
       }
     }
 
-    // help garbage collector
-    this.states = null;
-    this.values = null;
+    return new Results(Collections.emptyList(), cancelled);
+  }
+
+  /**
+   * Read-only list view over collected values.
+   */
+  static class ValuesView<T> extends AbstractList<T> implements RandomAccess {
+    private final Object[] values;
+    private final int size;
+
+    ValuesView(final Object[] values, final int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(final int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("index: " + index);
+      }
 
-    return new Results(results, errors, cancelled);
+      return (T) values[index];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Position of the next value to merge from a stripe.
+   */
+  class Cursor implements Comparable<Cursor> {
+    private int position;
+    private final int end;
+
+    Cursor(final int position, final int end) {
+      this.position = position;
+      this.end = end;
+    }
+
+    @Override
+    public int compareTo(final Cursor o) {
+      /* nano times must be compared by their difference, since they may overflow */
+      return Long.signum(stamps[position] - stamps[o.position]);
+    }
   }
 
   @RequiredArgsConstructor
   class Results {
     private final List<T> results;
-    private final List<Throwable> errors;
     private final int cancelled;
   }
 }
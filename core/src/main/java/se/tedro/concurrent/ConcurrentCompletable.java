@@ -5,8 +5,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -18,21 +17,14 @@ import lombok.RequiredArgsConstructor;
  * A concurrent implementation of {@link Completable}.
  *
  * <p>The callback uses the calling thread to execute result listeners, see
- * {@link #postComplete()} for details.
+ * {@link #postComplete(Listener)} for details.
  *
  * @param <T> type of the completable stage
  */
 public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   implements Handle<T>, Completable<T> {
   /**
-   * the max number of spins allowed before {@link Thread#yield()}
-   */
-  static final int MAX_SPINS = 4;
-
-  /**
-   * Possible states of the completable. A state being set <em>does not</em> indicate that the
-   * completable is no longer running, but must always be checked in concert with a {@code result !=
-   * null}.
+   * Possible states of the completable, as decoded from {@link #state} by {@link #stateOf(Object)}.
    */
   static final int PENDING = 0;
   static final int COMPLETED = 1;
@@ -45,26 +37,49 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   static final Object NULL = new Object();
   static final Object CANCEL = new Object();
 
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<ConcurrentCompletable, Object> STATE =
+    AtomicReferenceFieldUpdater.newUpdater(ConcurrentCompletable.class, Object.class, "state");
+
   /**
-   * pair to CAS into callbacks when done
+   * Timing wheel used to arm timeouts for {@link #withTimeout(long, TimeUnit)}.
    */
-  static final RunnablePair END = new RunnablePair(null, null);
-
-  private final Caller caller;
+  final TimingWheel timer;
 
   /**
-   * Current state of the completable.
+   * Deadline of the request this completable belongs to, which is inherited by derived stages.
    */
-  final AtomicInteger state = new AtomicInteger();
+  final Deadline deadline;
+
   /**
-   * Result of the completable.
-   * Never stored null, but uses {@link #NULL} as a surrogate instead.
+   * Current state of the completable, this is the only mutable field.
+   *
+   * <p>While pending this is either {@code null}, or the most recently added {@link Listener}. Each
+   * listener links to the one added before it, so the callbacks themselves make up the list and no
+   * separate nodes are allocated. A single CAS replaces it with one of the following end states:
+   * <ul>
+   *
+   * <li>{@link #CANCEL} when cancelled.</li>
+   *
+   * <li>a {@link Throwable} when failed.</li>
+   *
+   * <li>the result when completed, with {@link #NULL} as a surrogate for {@code null}. Results
+   * which could be confused with any of the other states are wrapped in {@link CompletedValue}.</li>
+   *
+   * </ul>
    */
-  volatile Object result = null;
+  volatile Object state;
+
   /**
-   * a linked list of callbacks to execute
+   * The stage this completable is derived from, or the stage it is waiting on to be completed.
+   * Either a {@link Stage}, a {@link ConcurrentPrimitiveCompletable} for completables derived
+   * from primitive stages, or the {@link FusedStage.Chain} of a fused step.
+   *
+   * <p>If this completable is cancelled, so is the source. This is kept as a field instead of as a
+   * cancel listener, so that chaining onto a pending stage only allocates the next stage and the
+   * continuation which completes it.
    */
-  final AtomicReference<RunnablePair> callbacks;
+  volatile Object source;
 
   /**
    * Setup a concurrent completable that uses a custom caller implementation. <p> The provided
@@ -75,21 +90,57 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
    * @param caller The caller implementation to use.
    */
   public ConcurrentCompletable(final Caller caller) {
+    this(caller, TimingWheel.shared(), Deadline.none());
+  }
+
+  /**
+   * Constructor that provides the timing wheel to arm timeouts in, and the deadline to carry.
+   *
+   * @param caller caller implementation to use
+   * @param timer timing wheel to use
+   * @param deadline deadline to carry
+   */
+  ConcurrentCompletable(final Caller caller, final TimingWheel timer, final Deadline deadline) {
+    super(caller);
+    this.timer = timer;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Constructor that provides a source stage, which will be cancelled if this completable is
+   * cancelled.
+   *
+   * @param caller caller implementation to use
+   * @param timer timing wheel to use
+   * @param deadline deadline to carry
+   * @param source source stage
+   */
+  ConcurrentCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline, final Stage<?> source
+  ) {
     super(caller);
-    this.caller = caller;
-    this.callbacks = new AtomicReference<>();
+    this.timer = timer;
+    this.deadline = deadline;
+    this.source = source;
   }
 
   /**
-   * Constructor that provides an initial callback.
+   * Constructor that provides a primitive source completable, which will be cancelled if this
+   * completable is cancelled.
    *
    * @param caller caller implementation to use
-   * @param runnable initial callback
+   * @param timer timing wheel to use
+   * @param deadline deadline to carry
+   * @param source source completable
    */
-  ConcurrentCompletable(final Caller caller, final Runnable runnable) {
+  ConcurrentCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline,
+    final ConcurrentPrimitiveCompletable source
+  ) {
     super(caller);
-    this.caller = caller;
-    this.callbacks = new AtomicReference<>(new RunnablePair(runnable, null));
+    this.timer = timer;
+    this.deadline = deadline;
+    this.source = source;
   }
 
   @Override
@@ -109,13 +160,7 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public boolean complete(final T result) {
-    if (!state.compareAndSet(PENDING, COMPLETED)) {
-      return false;
-    }
-
-    this.result = (result == null ? NULL : result);
-    postComplete();
-    return true;
+    return end(encode(result));
   }
 
   @Override
@@ -124,24 +169,12 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
       throw new NullPointerException("cause");
     }
 
-    if (!state.compareAndSet(PENDING, FAILED)) {
-      return false;
-    }
-
-    this.result = cause;
-    postComplete();
-    return true;
+    return end(cause);
   }
 
   @Override
   public boolean cancel() {
-    if (!state.compareAndSet(PENDING, CANCELLED)) {
-      return false;
-    }
-
-    this.result = CANCEL;
-    postComplete();
-    return true;
+    return end(CANCEL);
   }
 
   @Override
@@ -176,31 +209,33 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public boolean isDone() {
-    return result != null;
+    return !isPending(state);
   }
 
   @Override
   public boolean isCompleted() {
-    return result != null && state.get() == COMPLETED;
+    return stateOf(state) == COMPLETED;
   }
 
   @Override
   public boolean isFailed() {
-    return result != null && state.get() == FAILED;
+    return stateOf(state) == FAILED;
   }
 
   @Override
   public boolean isCancelled() {
-    return result == CANCEL;
+    return state == CANCEL;
   }
 
   @Override
   public Throwable cause() {
-    if (state.get() != FAILED) {
+    final Object s = state;
+
+    if (stateOf(s) != FAILED) {
       throw new IllegalStateException("not in a failed state");
     }
 
-    return throwable(result);
+    return throwable(s);
   }
 
   @SuppressWarnings("unchecked")
@@ -242,50 +277,50 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public <U> Stage<U> thenApply(Function<? super T, ? extends U> fn) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case COMPLETED:
           return thenApplyCompleted(fn, result(r));
         case FAILED:
-          return new ImmediateFailed<>(caller, throwable(r));
+          return immediateFailed(throwable(r));
         default:
-          return new ImmediateCancelled<>(caller);
+          return immediateCancelled();
       }
     }
 
-    final ConcurrentCompletable<U> target = nextStage();
-    whenDone(new ThenApplyRunnable<>(target, fn));
-    return target;
+    return FusedStage.start(this, fn, false);
   }
 
   @Override
   public <U> Stage<U> thenCompose(final Function<? super T, ? extends Stage<U>> fn) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case COMPLETED:
+          if (deadline.isExpired()) {
+            return immediateFailed(new DeadlineExceededException());
+          }
+
           return thenComposeCompleted(fn, result(r));
         case FAILED:
-          return new ImmediateFailed<>(caller, throwable(r));
+          return immediateFailed(throwable(r));
         default:
-          return new ImmediateCancelled<>(caller);
+          return immediateCancelled();
       }
     }
 
-    final ConcurrentCompletable<U> target = nextStage();
-    whenDone(new ThenComposeRunnable<>(target, fn));
-    return target;
+    return FusedStage.start(this, fn, true);
   }
 
   @Override
   public Stage<T> thenApplyFailed(final Function<? super Throwable, ? extends T> fn) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      if (state.get() == FAILED) {
+    if (!isPending(r)) {
+      if (stateOf(r) == FAILED) {
         return thenApplyCaughtFailed(fn, throwable(r));
       }
 
@@ -299,10 +334,10 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public Stage<T> thenComposeCaught(final Function<? super Throwable, ? extends Stage<T>> fn) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      if (state.get() == FAILED) {
+    if (!isPending(r)) {
+      if (stateOf(r) == FAILED) {
         return thenComposeFailedFailed(fn, throwable(r));
       }
 
@@ -319,14 +354,14 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
     final Supplier<? extends Stage<Void>> complete,
     final Supplier<? extends Stage<Void>> notComplete
   ) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case COMPLETED:
-          return withCloserCompleted(result(result), complete, notComplete);
+          return withCloserCompleted(result(r), complete, notComplete);
         case FAILED:
-          return withCloserFailed(throwable(result), notComplete);
+          return withCloserFailed(throwable(r), notComplete);
         default:
           return withCloserCancelled(notComplete);
       }
@@ -339,16 +374,16 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public Stage<T> withComplete(final Supplier<? extends Stage<Void>> supplier) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case COMPLETED:
-          return withCompleteCompleted(result(result), supplier);
+          return withCompleteCompleted(result(r), supplier);
         case FAILED:
-          return new ImmediateFailed<>(caller, throwable(result));
+          return immediateFailed(throwable(r));
         default:
-          return new ImmediateCancelled<>(caller);
+          return immediateCancelled();
       }
     }
 
@@ -361,14 +396,14 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   public Stage<T> withNotComplete(
     final Supplier<? extends Stage<Void>> supplier
   ) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case COMPLETED:
-          return new ImmediateCompleted<>(caller, result(result));
+          return immediateCompleted(result(r));
         case FAILED:
-          return withNotCompleteFailed(throwable(result), supplier);
+          return withNotCompleteFailed(throwable(r), supplier);
         default:
           return withNotCompleteCancelled(supplier);
       }
@@ -381,16 +416,16 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public <U> Stage<U> thenFail(final Throwable cause) {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      switch (state.get()) {
+    if (!isPending(r)) {
+      switch (stateOf(r)) {
         case FAILED:
           final ExecutionException c = new ExecutionException(cause);
           c.addSuppressed(throwable(r));
-          return new ImmediateFailed<>(caller, c);
+          return immediateFailed(c);
         default:
-          return new ImmediateFailed<>(caller, cause);
+          return immediateFailed(cause);
       }
     }
 
@@ -406,10 +441,10 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
 
   @Override
   public <U> Stage<U> thenCancel() {
-    final Object r = result;
+    final Object r = state;
 
-    if (r != null) {
-      return new ImmediateCancelled<>(caller);
+    if (!isPending(r)) {
+      return immediateCancelled();
     }
 
     final ConcurrentCompletable<U> target = nextStage();
@@ -417,68 +452,172 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
     return target;
   }
 
+  @Override
+  public Stage<T> withTimeout(final long timeout, final TimeUnit unit) {
+    if (!isPending(state)) {
+      return this;
+    }
+
+    return armTimeout(nextStage(), unit.toNanos(timeout), TimeoutException::new);
+  }
+
+  @Override
+  public Stage<T> withDeadline(final Deadline deadline) {
+    if (!isPending(state) || !deadline.isFinite()) {
+      return this;
+    }
+
+    final Deadline earliest = this.deadline.earliest(deadline);
+    final ConcurrentCompletable<T> target =
+      new ConcurrentCompletable<>(caller, timer, earliest, this);
+    return armTimeout(target, earliest.remaining(TimeUnit.NANOSECONDS),
+      DeadlineExceededException::new);
+  }
+
+  @Override
+  public Deadline deadline() {
+    return deadline;
+  }
+
+  @Override
+  TimingWheel timer() {
+    return timer;
+  }
+
+  /**
+   * Arm a timeout which fails the target, and cancels this completable, unless this completable is
+   * done first.
+   *
+   * @param target stage derived from this completable
+   * @param nanos nanoseconds until the timeout expires
+   * @param error supplier of the error to fail the target with
+   * @return the target
+   */
+  ConcurrentCompletable<T> armTimeout(
+    final ConcurrentCompletable<T> target, final long nanos,
+    final Supplier<? extends Throwable> error
+  ) {
+    final TimingWheel.Timeout t = timer.schedule(() -> {
+      if (target.fail(error.get())) {
+        cancel();
+      }
+    }, nanos, TimeUnit.NANOSECONDS);
+
+    whenDone(new WithTimeoutRunnable(target, t));
+    return target;
+  }
+
   <U> ConcurrentCompletable<U> nextStage() {
-    return new ConcurrentCompletable<>(caller, this::cancel);
+    return new ConcurrentCompletable<>(caller, timer, deadline, this);
   }
 
-  void postComplete() {
-    RunnablePair entries = takeAndClear();
+  /**
+   * Replace the source of this completable, which will be cancelled if this completable is
+   * cancelled.
+   *
+   * <p>The previous source is expected to be done.
+   *
+   * @param source the new source
+   */
+  void source(final Stage<?> source) {
+    this.source = source;
+
+    final Object s = state;
 
-    while (entries != null) {
-      caller.execute(entries.runnable);
-      entries = entries.next;
+    if (isPending(s)) {
+      return;
+    }
+
+    /* this ended concurrently, and end() might not have seen the source */
+    this.source = null;
+
+    if (s == CANCEL) {
+      source.cancel();
     }
   }
 
   /**
-   * Take and reset all callbacks in an atomic fashion.
+   * Attempt to move the completable into the given end state.
+   *
+   * <p>The transition is a single CAS on {@link #state}, which also takes ownership of all the
+   * callbacks that were registered up until that point.
+   *
+   * @param end the encoded end state
+   * @return {@code true} if the completable was moved into the end state by this call
    */
-  RunnablePair takeAndClear() {
-    RunnablePair entries;
+  boolean end(final Object end) {
+    Object s;
+
+    while (isPending(s = state)) {
+      if (STATE.compareAndSet(this, s, end)) {
+        final Object source = this.source;
+
+        if (source != null) {
+          // help garbage collection.
+          this.source = null;
+        }
 
-    while ((entries = callbacks.get()) != END) {
-      if (callbacks.compareAndSet(entries, END)) {
-        return entries;
+        postComplete((Listener) s);
+
+        if (end == CANCEL && source != null) {
+          ConcurrentPrimitiveCompletable.cancelSource(source);
+        }
+
+        return true;
       }
     }
 
-    return null;
+    return false;
+  }
+
+  void postComplete(Listener entries) {
+    if (entries != null && entries.next != null && caller instanceof ExecutorCaller) {
+      ((ExecutorCaller) caller).executeBatch(entries);
+      return;
+    }
+
+    while (entries != null) {
+      final Listener next = entries.next;
+      // help garbage collection.
+      entries.next = null;
+      caller.execute(entries);
+      entries = next;
+    }
   }
 
   /**
    * Attempt to add an event listener to the list of listeners.
    *
-   * This implementation uses a spin-lock, where the loop copies the entire list of listeners.
+   * <p>Internal callbacks are already listeners and are linked in as they are, other runnables
+   * are wrapped.
    *
    * @return {@code true} if a task has been queued up, {@code false} otherwise.
    */
-  boolean add(Runnable runnable) {
-    int spins = 0;
+  boolean add(final Runnable runnable) {
+    final Listener listener = listener(runnable);
 
-    RunnablePair entries;
+    Object s;
 
-    while ((entries = callbacks.get()) != END) {
-      if (callbacks.compareAndSet(entries, new RunnablePair(runnable, entries))) {
-        return true;
-      }
+    while (isPending(s = state)) {
+      listener.next = (Listener) s;
 
-      if (spins++ > MAX_SPINS) {
-        Thread.yield();
-        spins = 0;
+      if (STATE.compareAndSet(this, s, listener)) {
+        return true;
       }
     }
 
+    listener.next = null;
     return false;
   }
 
   T doJoin() throws ExecutionException {
-    final Object r = this.result;
+    final Object r = this.state;
 
-    if (r == null) {
+    if (isPending(r)) {
       throw new IllegalStateException("result is not available");
     }
 
-    switch (state.get()) {
+    switch (stateOf(r)) {
       case COMPLETED:
         return result(r);
       case FAILED:
@@ -491,23 +630,72 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   @Override
   public String toString() {
     final String name = getClass().getSimpleName();
+    final Object r = this.state;
 
-    if (this.result == null) {
-      return MessageFormat.format("{0}({1})", name, Stage.PENDING);
-    }
-
-    switch (state.get()) {
+    switch (stateOf(r)) {
+      case PENDING:
+        return MessageFormat.format("{0}({1})", name, Stage.PENDING);
       case COMPLETED:
-        return MessageFormat.format("{0}({1}: result={2})", name, Stage.COMPLETED,
-          result(this.result));
+        return MessageFormat.format("{0}({1}: result={2})", name, Stage.COMPLETED, result(r));
       case FAILED:
-        return MessageFormat.format("{0}({1}: cause={2})", name, Stage.FAILED,
-          throwable(this.result));
+        return MessageFormat.format("{0}({1}: cause={2})", name, Stage.FAILED, throwable(r));
       default:
         return MessageFormat.format("{0}({1})", name, Stage.CANCELLED);
     }
   }
 
+  /**
+   * Check if the given state object indicates a pending completable.
+   *
+   * @param s the state object
+   * @return {@code true} if pending
+   */
+  static boolean isPending(final Object s) {
+    return s == null || s instanceof Listener;
+  }
+
+  /**
+   * Decode the given state object into one of {@link #PENDING}, {@link #COMPLETED},
+   * {@link #FAILED}, or {@link #CANCELLED}.
+   *
+   * @param s the state object
+   * @return the decoded state
+   */
+  static int stateOf(final Object s) {
+    if (isPending(s)) {
+      return PENDING;
+    }
+
+    if (s == CANCEL) {
+      return CANCELLED;
+    }
+
+    if (s instanceof Throwable) {
+      return FAILED;
+    }
+
+    return COMPLETED;
+  }
+
+  /**
+   * Encode a result into a state object.
+   *
+   * @param result the result to encode
+   * @return the state object
+   */
+  static Object encode(final Object result) {
+    if (result == null) {
+      return NULL;
+    }
+
+    if (result instanceof Throwable || result instanceof Listener
+      || result instanceof CompletedValue) {
+      return new CompletedValue(result);
+    }
+
+    return result;
+  }
+
   /**
    * Convert the result object to a result.
    *
@@ -518,7 +706,25 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
    */
   @SuppressWarnings("unchecked")
   T result(final Object r) {
-    return (T) (r == NULL ? null : r);
+    return (T) value(r);
+  }
+
+  /**
+   * Convert the result object to a result, without a type.
+   *
+   * @param r the result object
+   * @return result
+   */
+  static Object value(final Object r) {
+    if (r == NULL) {
+      return null;
+    }
+
+    if (r instanceof CompletedValue) {
+      return ((CompletedValue) r).value;
+    }
+
+    return r;
   }
 
   /**
@@ -532,16 +738,49 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   /**
-   * A single node in a list of runnables that should be executed when done.
+   * Convert the given runnable into a listener.
+   *
+   * @param runnable runnable to convert
+   * @return a listener
+   */
+  static Listener listener(final Runnable runnable) {
+    if (runnable instanceof Listener) {
+      return (Listener) runnable;
+    }
+
+    return new RunnableListener(runnable);
+  }
+
+  /**
+   * A callback that should be executed when done, and a node in the list of such callbacks.
+   */
+  abstract static class Listener implements Runnable {
+    /**
+     * The listener which was added before this one.
+     */
+    Listener next;
+  }
+
+  @RequiredArgsConstructor
+  static class RunnableListener extends Listener {
+    private final Runnable runnable;
+
+    @Override
+    public void run() {
+      runnable.run();
+    }
+  }
+
+  /**
+   * Wraps completed values that would otherwise be confused with a different state.
    */
   @AllArgsConstructor
-  static class RunnablePair {
-    final Runnable runnable;
-    final RunnablePair next;
+  static class CompletedValue {
+    final Object value;
   }
 
   @AllArgsConstructor
-  class Parker implements Runnable {
+  class Parker extends Listener {
     /**
      * Thread to unpark.
      *
@@ -562,7 +801,7 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
     void parkNanos(final long nanos) throws InterruptedException, TimeoutException {
       final long deadline = System.nanoTime() + nanos;
 
-      while (result == null) {
+      while (isPending(state)) {
         if (Thread.interrupted()) {
           thread = null;
           throw new InterruptedException();
@@ -580,7 +819,7 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
     }
 
     void park() throws InterruptedException {
-      while (result == null) {
+      while (isPending(state)) {
         if (Thread.interrupted()) {
           thread = null;
           throw new InterruptedException();
@@ -603,22 +842,23 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
       return;
     }
 
-    final Stage<U> n = next.handle(target);
-    target.whenCancelled(n::cancel);
+    target.source(next.handle(target));
   }
 
   @RequiredArgsConstructor
-  class HandleRunnable implements Runnable {
+  class HandleRunnable extends Listener {
     private final Handle<? super T> handle;
 
     @Override
     public void run() {
-      switch (state.get()) {
+      final Object r = state;
+
+      switch (stateOf(r)) {
         case COMPLETED:
-          handle.completed(result(result));
+          handle.completed(result(r));
           break;
         case FAILED:
-          handle.failed(throwable(result));
+          handle.failed(throwable(r));
           break;
         default:
           handle.cancelled();
@@ -628,114 +868,69 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class CancelledRunnable implements Runnable {
+  class CancelledRunnable extends Listener {
     private final Runnable runnable;
 
     @Override
     public void run() {
-      if (state.get() == CANCELLED) {
+      if (state == CANCEL) {
         runnable.run();
       }
     }
   }
 
   @RequiredArgsConstructor
-  class CompletedRunnable implements Runnable {
+  class CompletedRunnable extends Listener {
     private final Consumer<? super T> consumer;
 
     @Override
     public void run() {
-      if (state.get() == COMPLETED) {
-        consumer.accept(result(result));
-      }
-    }
-  }
-
-  @RequiredArgsConstructor
-  class FailedRunnable implements Runnable {
-    private final Consumer<? super Throwable> consumer;
+      final Object r = state;
 
-    @Override
-    public void run() {
-      if (state.get() == FAILED) {
-        consumer.accept(throwable(result));
+      if (stateOf(r) == COMPLETED) {
+        consumer.accept(result(r));
       }
     }
   }
 
   @RequiredArgsConstructor
-  class ThenApplyRunnable<U> implements Runnable {
-    private final ConcurrentCompletable<U> target;
-    private final Function<? super T, ? extends U> fn;
+  class FailedRunnable extends Listener {
+    private final Consumer<? super Throwable> consumer;
 
     @Override
     public void run() {
-      switch (state.get()) {
-        case COMPLETED:
-          final U r;
-
-          try {
-            r = fn.apply(result(result));
-          } catch (final Exception e) {
-            target.fail(e);
-            return;
-          }
+      final Object r = state;
 
-          target.complete(r);
-          break;
-        case FAILED:
-          target.fail(throwable(result));
-          break;
-        default:
-          target.cancel();
-          break;
-      }
-    }
-  }
-
-  @RequiredArgsConstructor
-  class ThenComposeRunnable<U> implements Runnable {
-    private final ConcurrentCompletable<U> target;
-    private final Function<? super T, ? extends Stage<U>> fn;
-
-    @Override
-    public void run() {
-      switch (state.get()) {
-        case COMPLETED:
-          handleStage(() -> fn.apply(result(result)), target);
-          break;
-        case FAILED:
-          target.fail(throwable(result));
-          break;
-        default:
-          target.cancel();
-          break;
+      if (stateOf(r) == FAILED) {
+        consumer.accept(throwable(r));
       }
     }
   }
 
   @RequiredArgsConstructor
-  class ThenApplyFailedRunnable implements Runnable {
+  class ThenApplyFailedRunnable extends Listener {
     private final ConcurrentCompletable<T> target;
     private final Function<? super Throwable, ? extends T> fn;
 
     @Override
     public void run() {
-      switch (state.get()) {
+      final Object r = state;
+
+      switch (stateOf(r)) {
         case COMPLETED:
-          target.complete(result(result));
+          target.complete(result(r));
           break;
         case FAILED:
-          final T r;
+          final T value;
 
           try {
-            r = fn.apply(throwable(result));
+            value = fn.apply(throwable(r));
           } catch (final Exception e) {
             target.fail(e);
             return;
           }
 
-          target.complete(r);
+          target.complete(value);
           break;
         default:
           target.cancel();
@@ -745,18 +940,20 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class ThenComposeFailedRunnable implements Runnable {
+  class ThenComposeFailedRunnable extends Listener {
     private final ConcurrentCompletable<T> target;
     private final Function<? super Throwable, ? extends Stage<T>> fn;
 
     @Override
     public void run() {
-      switch (state.get()) {
+      final Object r = state;
+
+      switch (stateOf(r)) {
         case COMPLETED:
-          target.complete(result(result));
+          target.complete(result(r));
           break;
         case FAILED:
-          handleStage(() -> fn.apply(throwable(result)), target);
+          handleStage(() -> fn.apply(throwable(r)), target);
           break;
         default:
           target.cancel();
@@ -766,16 +963,17 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class WithCloserRunnable implements Runnable {
+  class WithCloserRunnable extends Listener {
     private final ConcurrentCompletable<T> target;
     private final Supplier<? extends Stage<Void>> complete;
     private final Supplier<? extends Stage<Void>> notComplete;
 
     @Override
     public void run() {
+      final Object r = state;
       final Stage<Void> next;
 
-      switch (state.get()) {
+      switch (stateOf(r)) {
         case COMPLETED:
           try {
             next = complete.get();
@@ -784,21 +982,21 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
             return;
           }
 
-          target.whenCancelled(next::cancel);
-          next.thenApply(v -> result(result)).handle(target);
+          target.source(next);
+          next.thenApply(v -> result(r)).handle(target);
           break;
         case FAILED:
           try {
             next = notComplete.get();
           } catch (final Exception e) {
             final ExecutionException ee = new ExecutionException(e);
-            ee.addSuppressed(throwable(result));
+            ee.addSuppressed(throwable(r));
             target.fail(ee);
             return;
           }
 
-          target.whenCancelled(next::cancel);
-          next.<T>thenFail(throwable(result)).handle(target);
+          target.source(next);
+          next.<T>thenFail(throwable(r)).handle(target);
           break;
         default:
           try {
@@ -808,7 +1006,7 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
             return;
           }
 
-          target.whenCancelled(next::cancel);
+          target.source(next);
           next.<T>thenCancel().handle(target);
           break;
       }
@@ -816,15 +1014,16 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class WithCompleteRunnable implements Runnable {
+  class WithCompleteRunnable extends Listener {
     private final ConcurrentCompletable<T> target;
     private final Supplier<? extends Stage<Void>> complete;
 
     @Override
     public void run() {
+      final Object r = state;
       final Stage<Void> next;
 
-      switch (state.get()) {
+      switch (stateOf(r)) {
         case COMPLETED:
           try {
             next = complete.get();
@@ -833,11 +1032,11 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
             return;
           }
 
-          target.whenCancelled(next::cancel);
-          next.thenApply(v -> result(result)).handle(target);
+          target.source(next);
+          next.thenApply(v -> result(r)).handle(target);
           break;
         case FAILED:
-          target.fail(throwable(result));
+          target.fail(throwable(r));
           break;
         default:
           target.cancel();
@@ -847,30 +1046,31 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class WithNotCompleteRunnable implements Runnable {
+  class WithNotCompleteRunnable extends Listener {
     private final ConcurrentCompletable<T> target;
     private final Supplier<? extends Stage<Void>> notComplete;
 
     @Override
     public void run() {
+      final Object r = state;
       final Stage<Void> next;
 
-      switch (state.get()) {
+      switch (stateOf(r)) {
         case COMPLETED:
-          target.complete(result(result));
+          target.complete(result(r));
           break;
         case FAILED:
           try {
             next = notComplete.get();
           } catch (final Exception e) {
             final ExecutionException ee = new ExecutionException(e);
-            ee.addSuppressed(throwable(result));
+            ee.addSuppressed(throwable(r));
             target.fail(ee);
             return;
           }
 
-          target.whenCancelled(next::cancel);
-          next.<T>thenFail(throwable(result)).handle(target);
+          target.source(next);
+          next.<T>thenFail(throwable(r)).handle(target);
           break;
         default:
           try {
@@ -880,7 +1080,7 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
             return;
           }
 
-          target.whenCancelled(next::cancel);
+          target.source(next);
           next.<T>thenCancel().handle(target);
           break;
       }
@@ -888,16 +1088,43 @@ public class ConcurrentCompletable<T> extends AbstractImmediate<T>
   }
 
   @RequiredArgsConstructor
-  class ThenFailRunnable<U> implements Runnable {
+  class WithTimeoutRunnable extends Listener {
+    private final ConcurrentCompletable<T> target;
+    private final TimingWheel.Timeout timeout;
+
+    @Override
+    public void run() {
+      timeout.cancel();
+
+      final Object r = state;
+
+      switch (stateOf(r)) {
+        case COMPLETED:
+          target.complete(result(r));
+          break;
+        case FAILED:
+          target.fail(throwable(r));
+          break;
+        default:
+          target.cancel();
+          break;
+      }
+    }
+  }
+
+  @RequiredArgsConstructor
+  class ThenFailRunnable<U> extends Listener {
     private final ConcurrentCompletable<U> target;
     private final Throwable cause;
 
     @Override
     public void run() {
-      switch (state.get()) {
+      final Object r = state;
+
+      switch (stateOf(r)) {
         case FAILED:
           final ExecutionException c = new ExecutionException(cause);
-          c.addSuppressed(throwable(result));
+          c.addSuppressed(throwable(r));
           target.fail(cause);
           break;
         default:
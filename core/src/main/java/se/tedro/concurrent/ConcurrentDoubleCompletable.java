@@ -0,0 +1,142 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A concurrent implementation of {@link DoubleCompletable}.
+ */
+public class ConcurrentDoubleCompletable extends ConcurrentPrimitiveCompletable
+  implements DoubleCompletable {
+  public ConcurrentDoubleCompletable(final Caller caller) {
+    this(caller, TimingWheel.shared(), Deadline.none());
+  }
+
+  ConcurrentDoubleCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline
+  ) {
+    super(caller, timer, deadline);
+  }
+
+  ConcurrentDoubleCompletable(final Caller caller, final ConcurrentPrimitiveCompletable source) {
+    super(caller, source);
+  }
+
+  ConcurrentDoubleCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline, final Stage<?> source
+  ) {
+    super(caller, timer, deadline, source);
+  }
+
+  @Override
+  public boolean complete(final double result) {
+    return completeBits(Double.doubleToRawLongBits(result));
+  }
+
+  @Override
+  public double join() throws ExecutionException, InterruptedException {
+    return value(joinBits());
+  }
+
+  @Override
+  public double joinNow() throws ExecutionException {
+    return value(joinNowBits());
+  }
+
+  @Override
+  public DoubleStage whenDone(final Runnable runnable) {
+    onDone(runnable);
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenComplete(final DoubleConsumer consumer) {
+    onDone(() -> {
+      if (isCompleted()) {
+        consumer.accept(value(bits));
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenFailed(final Consumer<? super Throwable> consumer) {
+    onDone(() -> {
+      if (isFailed()) {
+        consumer.accept(cause());
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public DoubleStage whenCancelled(final Runnable runnable) {
+    onDone(() -> {
+      if (isCancelled()) {
+        runnable.run();
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public DoubleStage thenApplyAsDouble(final DoubleUnaryOperator fn) {
+    final ConcurrentDoubleCompletable target = new ConcurrentDoubleCompletable(caller, this);
+    forward(target, value -> Double.doubleToRawLongBits(fn.applyAsDouble(value(value))));
+    return target;
+  }
+
+  @Override
+  public LongStage thenApplyAsLong(final DoubleToLongFunction fn) {
+    final ConcurrentLongCompletable target = new ConcurrentLongCompletable(caller, this);
+    forward(target, value -> fn.applyAsLong(value(value)));
+    return target;
+  }
+
+  @Override
+  public <U> Stage<U> thenApply(final DoubleFunction<? extends U> fn) {
+    final ConcurrentCompletable<U> target =
+      new ConcurrentCompletable<>(caller, timer, deadline, this);
+
+    onDone(() -> {
+      if (isCompleted()) {
+        final U result;
+
+        try {
+          result = fn.apply(value(bits));
+        } catch (final Exception e) {
+          target.fail(e);
+          return;
+        }
+
+        target.complete(result);
+        return;
+      }
+
+      if (isFailed()) {
+        target.fail(cause());
+        return;
+      }
+
+      target.cancel();
+    });
+
+    return target;
+  }
+
+  @Override
+  public Stage<Double> boxed() {
+    return thenApply(Double::valueOf);
+  }
+
+  static double value(final long bits) {
+    return Double.longBitsToDouble(bits);
+  }
+}
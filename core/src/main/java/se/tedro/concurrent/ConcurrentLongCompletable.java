@@ -0,0 +1,138 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A concurrent implementation of {@link LongCompletable}.
+ */
+public class ConcurrentLongCompletable extends ConcurrentPrimitiveCompletable
+  implements LongCompletable {
+  public ConcurrentLongCompletable(final Caller caller) {
+    this(caller, TimingWheel.shared(), Deadline.none());
+  }
+
+  ConcurrentLongCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline
+  ) {
+    super(caller, timer, deadline);
+  }
+
+  ConcurrentLongCompletable(final Caller caller, final ConcurrentPrimitiveCompletable source) {
+    super(caller, source);
+  }
+
+  ConcurrentLongCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline, final Stage<?> source
+  ) {
+    super(caller, timer, deadline, source);
+  }
+
+  @Override
+  public boolean complete(final long result) {
+    return completeBits(result);
+  }
+
+  @Override
+  public long join() throws ExecutionException, InterruptedException {
+    return joinBits();
+  }
+
+  @Override
+  public long joinNow() throws ExecutionException {
+    return joinNowBits();
+  }
+
+  @Override
+  public LongStage whenDone(final Runnable runnable) {
+    onDone(runnable);
+    return this;
+  }
+
+  @Override
+  public LongStage whenComplete(final LongConsumer consumer) {
+    onDone(() -> {
+      if (isCompleted()) {
+        consumer.accept(bits);
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public LongStage whenFailed(final Consumer<? super Throwable> consumer) {
+    onDone(() -> {
+      if (isFailed()) {
+        consumer.accept(cause());
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public LongStage whenCancelled(final Runnable runnable) {
+    onDone(() -> {
+      if (isCancelled()) {
+        runnable.run();
+      }
+    });
+
+    return this;
+  }
+
+  @Override
+  public LongStage thenApplyAsLong(final LongUnaryOperator fn) {
+    final ConcurrentLongCompletable target = new ConcurrentLongCompletable(caller, this);
+    forward(target, fn);
+    return target;
+  }
+
+  @Override
+  public DoubleStage thenApplyAsDouble(final LongToDoubleFunction fn) {
+    final ConcurrentDoubleCompletable target = new ConcurrentDoubleCompletable(caller, this);
+    forward(target, value -> Double.doubleToRawLongBits(fn.applyAsDouble(value)));
+    return target;
+  }
+
+  @Override
+  public <U> Stage<U> thenApply(final LongFunction<? extends U> fn) {
+    final ConcurrentCompletable<U> target =
+      new ConcurrentCompletable<>(caller, timer, deadline, this);
+
+    onDone(() -> {
+      if (isCompleted()) {
+        final U result;
+
+        try {
+          result = fn.apply(bits);
+        } catch (final Exception e) {
+          target.fail(e);
+          return;
+        }
+
+        target.complete(result);
+        return;
+      }
+
+      if (isFailed()) {
+        target.fail(cause());
+        return;
+      }
+
+      target.cancel();
+    });
+
+    return target;
+  }
+
+  @Override
+  public Stage<Long> boxed() {
+    return thenApply(Long::valueOf);
+  }
+}
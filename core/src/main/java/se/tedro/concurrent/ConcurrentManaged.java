@@ -9,11 +9,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import lombok.RequiredArgsConstructor;
 
 /**
  * A thread-safe implementation of {@link Managed}.
@@ -38,14 +36,16 @@ public class ConcurrentManaged<T> implements Managed<T> {
   // composite completable that depends on zero-lease, and stop-reference.
   private final Stage<Void> stopFuture;
   private final boolean captureStack;
+  final LeakDetector leakDetector;
   final Set<ValidBorrowed> traces;
 
   final AtomicReference<ManagedState> state = new AtomicReference<>(ManagedState.INITIALIZED);
 
   /**
-   * The number of borrowed references that are out in the wild.
+   * The number of borrowed references that are out in the wild, plus one held by the managed
+   * reference itself until it is stopped.
    */
-  final AtomicInteger leases = new AtomicInteger(1);
+  final StripedLeases leases = StripedLeases.create(1);
 
   public static <T> ConcurrentManaged<T> newManaged(
     final Async async, final Caller caller, final ManagedOptions options,
@@ -76,6 +76,7 @@ public class ConcurrentManaged<T> implements Managed<T> {
     this.stopReferenceFuture = stopReferenceFuture;
     this.stopFuture = stopFuture;
     this.captureStack = options.isCaptureStack();
+    this.leakDetector = new LeakDetector(caller, options.getLeakDetectionRate());
 
     if (options.isTracing()) {
       traces = Collections.newSetFromMap(new ConcurrentHashMap<ValidBorrowed, Boolean>());
@@ -108,6 +109,17 @@ public class ConcurrentManaged<T> implements Managed<T> {
     return f.whenDone(b::release);
   }
 
+  @Override
+  public <R> Stage<R> doto(
+    final Deadline deadline, final Function<? super T, ? extends Stage<R>> action
+  ) {
+    if (deadline.isExpired()) {
+      return new ImmediateFailed<>(caller, new DeadlineExceededException(), deadline);
+    }
+
+    return doto(action).withDeadline(deadline);
+  }
+
   @Override
   public Borrowed<T> borrow() {
     /* pre-emptively increase the number of leases in order to prevent the underlying object
@@ -121,7 +133,9 @@ public class ConcurrentManaged<T> implements Managed<T> {
       return invalid();
     }
 
-    final ValidBorrowed b = new ValidBorrowed(value, getStackTrace());
+    final StackTraceElement[] stack = getStackTrace();
+    final ValidBorrowed b = new ValidBorrowed(value, stack);
+    b.leak = leakDetector.track(b, value, stack);
 
     if (traces != null) {
       traces.add(b);
@@ -186,19 +200,24 @@ public class ConcurrentManaged<T> implements Managed<T> {
 
     stopReferenceFuture.complete(this.reference.getAndSet(null));
 
+    /* leases are only checked for zero once reconciled, which must happen before the
+     * self-reference is released */
+    leases.reconcile();
+
     // release self-reference.
     release();
+
+    /* report borrows which have already leaked, instead of waiting for the next drain */
+    leakDetector.reportLeaks();
     return stopFuture;
   }
 
   void retain() {
-    leases.incrementAndGet();
+    leases.retain();
   }
 
   void release() {
-    final int lease = leases.decrementAndGet();
-
-    if (lease == 0) {
+    if (leases.release()) {
       zeroLeaseFuture.complete(null);
     }
   }
@@ -264,13 +283,22 @@ public class ConcurrentManaged<T> implements Managed<T> {
   /**
    * Wraps returned references that are taken from this SetupOnce instance.
    */
-  @RequiredArgsConstructor
   class ValidBorrowed implements Borrowed<T> {
     final T reference;
     final StackTraceElement[] stack;
 
     final AtomicBoolean released = new AtomicBoolean(false);
 
+    /**
+     * Set if this borrow was sampled for leak detection.
+     */
+    LeakDetector.Tracker leak;
+
+    ValidBorrowed(final T reference, final StackTraceElement[] stack) {
+      this.reference = reference;
+      this.stack = stack;
+    }
+
     @Override
     public T get() {
       return reference;
@@ -282,6 +310,10 @@ public class ConcurrentManaged<T> implements Managed<T> {
         return;
       }
 
+      if (leak != null) {
+        leak.close();
+      }
+
       if (traces != null) {
         traces.remove(this);
       }
@@ -294,20 +326,6 @@ public class ConcurrentManaged<T> implements Managed<T> {
       release();
     }
 
-    /**
-     * Implement to log errors on release errors.
-     */
-    @Override
-    protected void finalize() throws Throwable {
-      super.finalize();
-
-      if (released.get()) {
-        return;
-      }
-
-      caller.referenceLeaked(reference, stack);
-    }
-
     @Override
     public boolean isValid() {
       return true;
@@ -0,0 +1,695 @@
+package se.tedro.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe implementation of {@link ManagedPool}.
+ *
+ * <p>The pool has a fixed number of slots, each of which holds at most one
+ * {@link ConcurrentManaged} instance. A slot is owned by whoever took it off the free list, until
+ * it is put back. Instances are set up for all slots when the pool is started, and again on
+ * demand for slots that have been emptied by failed setups, {@link #discard(Borrowed)} or idle
+ * eviction.
+ *
+ * <p>Both the free list and the waiters are lock-free queues. Slots are handed to waiters by
+ * {@link #dispatch()}, which is called both after a slot has been freed and after a waiter has
+ * been added, so that a slot and a waiter which are added concurrently are always matched. Only
+ * one thread dispatches at a time, and dispatches requested meanwhile are run by that thread.
+ *
+ * <p>Every setup and teardown is tracked while in flight, and the pool is only stopped once all
+ * of them are done, including instances which were still being set up when it was stopped.
+ *
+ * @param <T> type of pooled references
+ */
+class ConcurrentManagedPool<T> implements ManagedPool<T> {
+  private final Async async;
+  private final Caller caller;
+  private final ManagedOptions options;
+  private final Supplier<? extends Stage<T>> setup;
+  private final Function<? super T, ? extends Stage<Void>> teardown;
+
+  final List<Slot> slots;
+
+  /**
+   * Free slots. Slots with an instance are added to the front and empty slots to the back, so that
+   * instances which are already set up are preferred, and unused instances sink to the back.
+   */
+  final ConcurrentLinkedDeque<Slot> free = new ConcurrentLinkedDeque<>();
+
+  /**
+   * Number of free slots, since the size of the free list is not known in constant time. It is
+   * incremented after a slot is added and decremented after one is removed, so it lags behind
+   * while a slot is being added or removed.
+   */
+  final AtomicInteger freeSlots = new AtomicInteger();
+
+  /**
+   * Waiters for a free slot, in the order they arrived. Waiters which are cancelled remove
+   * themselves.
+   */
+  final Queue<Completable<Borrowed<T>>> waiters = new ConcurrentLinkedQueue<>();
+  final AtomicInteger waiting = new AtomicInteger();
+
+  /**
+   * Requests to dispatch, so that only one thread dispatches at a time. Waiters which are served
+   * synchronously release their slot from within the dispatch, which then only bumps this instead
+   * of recursing.
+   */
+  final AtomicInteger dispatches = new AtomicInteger();
+
+  final AtomicReference<ConcurrentManaged.ManagedState> state =
+    new AtomicReference<>(ConcurrentManaged.ManagedState.INITIALIZED);
+
+  private final Completable<Void> startFuture;
+  private final Completable<Void> stopFuture;
+
+  /**
+   * Setups and teardowns in flight, plus one held by the pool until it is stopped. Once this
+   * reaches zero the pool has been stopped, and nothing more is tracked.
+   */
+  final AtomicInteger pending = new AtomicInteger(1);
+
+  /**
+   * The first teardown which failed after the pool was stopped, which fails the stop.
+   */
+  final AtomicReference<Throwable> stopError = new AtomicReference<>();
+
+  /**
+   * The next idle eviction, if enabled.
+   */
+  private volatile Stage<Void> eviction;
+
+  ConcurrentManagedPool(
+    final Async async, final Caller caller, final ManagedOptions options, final int size,
+    final Supplier<? extends Stage<T>> setup,
+    final Function<? super T, ? extends Stage<Void>> teardown
+  ) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size: must be positive");
+    }
+
+    this.async = async;
+    this.caller = caller;
+    this.options = options;
+    this.setup = setup;
+    this.teardown = teardown;
+
+    this.slots = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      slots.add(new Slot());
+    }
+
+    this.startFuture = async.completable();
+    this.stopFuture = async.completable();
+  }
+
+  @Override
+  public Stage<Borrowed<T>> acquire() {
+    if (state.get() != ConcurrentManaged.ManagedState.STARTED) {
+      return async.cancelled();
+    }
+
+    final Completable<Borrowed<T>> waiter = async.completable();
+
+    /* only take a slot directly if no one is already waiting, to keep waiters fair */
+    if (waiters.isEmpty()) {
+      final Slot slot = poll();
+
+      if (slot != null) {
+        serve(slot, waiter);
+        return waiter;
+      }
+    }
+
+    if (waiting.incrementAndGet() > options.getPoolMaxWaiters()) {
+      waiting.decrementAndGet();
+      return async.failed(new RejectedExecutionException("too many waiting for an instance"));
+    }
+
+    waiters.add(waiter);
+
+    /* give up the place in line, unless a dispatch already took it */
+    waiter.whenCancelled(() -> {
+      if (waiters.remove(waiter)) {
+        waiting.decrementAndGet();
+      }
+    });
+
+    dispatch();
+    return waiter;
+  }
+
+  @Override
+  public Borrowed<T> borrow() {
+    if (state.get() != ConcurrentManaged.ManagedState.STARTED || !waiters.isEmpty()) {
+      return ConcurrentManaged.invalid();
+    }
+
+    final Slot slot = poll();
+
+    if (slot == null) {
+      return ConcurrentManaged.invalid();
+    }
+
+    final ConcurrentManaged<T> managed = slot.managed;
+
+    if (managed != null) {
+      final Borrowed<T> b = managed.borrow();
+
+      if (b.isValid()) {
+        return new PooledBorrowed(slot, b);
+      }
+    }
+
+    /* empty slots are at the back, so no other instance is set up either */
+    release(slot);
+    return ConcurrentManaged.invalid();
+  }
+
+  @Override
+  public <U> Stage<U> doto(final Function<? super T, ? extends Stage<U>> action) {
+    return acquire().thenCompose(b -> {
+      final Stage<U> f;
+
+      try {
+        f = action.apply(b.get());
+      } catch (final Exception e) {
+        b.release();
+        return async.failed(e);
+      }
+
+      return f.whenDone(b::release);
+    });
+  }
+
+  @Override
+  public <U> Stage<U> doto(
+    final Deadline deadline, final Function<? super T, ? extends Stage<U>> action
+  ) {
+    if (deadline.isExpired()) {
+      return async.failed(new DeadlineExceededException());
+    }
+
+    return doto(action).withDeadline(deadline);
+  }
+
+  @Override
+  public void discard(final Borrowed<T> borrowed) {
+    if (!(borrowed instanceof ConcurrentManagedPool.PooledBorrowed)) {
+      throw new IllegalArgumentException("not borrowed from a pool: " + borrowed);
+    }
+
+    @SuppressWarnings("unchecked")
+    final PooledBorrowed b = (PooledBorrowed) borrowed;
+
+    if (b.pool() != this) {
+      throw new IllegalArgumentException("borrowed from another pool: " + borrowed);
+    }
+
+    b.discard();
+  }
+
+  @Override
+  public int available() {
+    return freeSlots.get();
+  }
+
+  @Override
+  public boolean isReady() {
+    return state.get() == ConcurrentManaged.ManagedState.STARTED && startFuture.isDone();
+  }
+
+  @Override
+  public Stage<Void> start() {
+    if (!state.compareAndSet(ConcurrentManaged.ManagedState.INITIALIZED,
+      ConcurrentManaged.ManagedState.STARTED)) {
+      return startFuture;
+    }
+
+    final List<Stage<Void>> started = new ArrayList<>(slots.size());
+
+    for (final Slot slot : slots) {
+      started.add(setup(slot).whenDone(() -> release(slot)).<Void>thenApply(managed -> null));
+    }
+
+    async.collectAndDiscard(started).handle(new Handle<Void>() {
+      @Override
+      public void failed(final Throwable cause) {
+        startFuture.fail(cause);
+      }
+
+      @Override
+      public void completed(final Void result) {
+        startFuture.complete(null);
+      }
+
+      @Override
+      public void cancelled() {
+        startFuture.cancel();
+      }
+    });
+
+    if (options.getPoolIdleTimeout() > 0) {
+      scheduleEviction();
+    }
+
+    return startFuture;
+  }
+
+  @Override
+  public Stage<Void> stop() {
+    if (!state.compareAndSet(ConcurrentManaged.ManagedState.STARTED,
+      ConcurrentManaged.ManagedState.STOPPED)) {
+      return stopFuture;
+    }
+
+    final Stage<Void> eviction = this.eviction;
+
+    if (eviction != null) {
+      eviction.cancel();
+    }
+
+    Completable<Borrowed<T>> waiter;
+
+    while ((waiter = waiters.poll()) != null) {
+      waiting.decrementAndGet();
+      waiter.cancel();
+    }
+
+    for (final Slot slot : slots) {
+      final ConcurrentManaged<T> managed = slot.managed;
+
+      /* instances which are being set up are stopped once they are, see setup() */
+      if (managed != null && managed.isReady()) {
+        teardown(managed);
+      }
+    }
+
+    /* release the hold of the pool, so that the last setup or teardown in flight stops it */
+    untrack();
+    return stopFuture;
+  }
+
+  /**
+   * Hand free slots to waiters, until either runs out.
+   */
+  void dispatch() {
+    if (dispatches.getAndIncrement() != 0) {
+      return;
+    }
+
+    int missed = 1;
+
+    do {
+      drain();
+      missed = dispatches.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drain() {
+    while (!waiters.isEmpty() && freeSlots.get() > 0) {
+      final Slot slot = poll();
+
+      /* a slot being taken concurrently is either served or released, which dispatches again */
+      if (slot == null) {
+        return;
+      }
+
+      final Completable<Borrowed<T>> waiter = waiters.poll();
+
+      if (waiter == null) {
+        /* a concurrent dispatch took the waiter, the loop re-checks for new ones */
+        push(slot);
+        continue;
+      }
+
+      waiting.decrementAndGet();
+
+      /* the waiter gave up its place in line */
+      if (waiter.isDone()) {
+        push(slot);
+        continue;
+      }
+
+      serve(slot, waiter);
+    }
+  }
+
+  /**
+   * Borrow the instance of an owned slot for the given waiter, setting one up if needed.
+   */
+  void serve(final Slot slot, final Completable<Borrowed<T>> waiter) {
+    final ConcurrentManaged<T> managed = slot.managed;
+
+    if (managed != null) {
+      final Borrowed<T> b = managed.borrow();
+
+      if (b.isValid()) {
+        hand(slot, b, waiter);
+        return;
+      }
+    }
+
+    if (state.get() != ConcurrentManaged.ManagedState.STARTED) {
+      waiter.cancel();
+      release(slot);
+      return;
+    }
+
+    setup(slot).handle(new Handle<ConcurrentManaged<T>>() {
+      @Override
+      public void completed(final ConcurrentManaged<T> result) {
+        final Borrowed<T> b = result.borrow();
+
+        if (!b.isValid()) {
+          waiter.cancel();
+          release(slot);
+          return;
+        }
+
+        hand(slot, b, waiter);
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        waiter.fail(cause);
+        release(slot);
+      }
+
+      @Override
+      public void cancelled() {
+        waiter.cancel();
+        release(slot);
+      }
+    });
+  }
+
+  void hand(final Slot slot, final Borrowed<T> b, final Completable<Borrowed<T>> waiter) {
+    final PooledBorrowed pooled = new PooledBorrowed(slot, b);
+
+    /* the waiter was cancelled in the meantime */
+    if (!waiter.complete(pooled)) {
+      pooled.release();
+    }
+  }
+
+  /**
+   * Set up a new instance in an owned slot.
+   *
+   * @return a stage completed with the started instance
+   */
+  Stage<ConcurrentManaged<T>> setup(final Slot slot) {
+    if (!track()) {
+      return async.cancelled();
+    }
+
+    final ConcurrentManaged<T> managed =
+      ConcurrentManaged.newManaged(async, caller, options, setup, teardown);
+    final Completable<ConcurrentManaged<T>> done = async.completable();
+
+    slot.managed = managed;
+
+    managed.start().handle(new Handle<Void>() {
+      @Override
+      public void completed(final Void result) {
+        /* the pool was stopped while setting up, and might not have seen this instance */
+        if (state.get() == ConcurrentManaged.ManagedState.STOPPED) {
+          slot.managed = null;
+          teardown(managed);
+          done.cancel();
+          return;
+        }
+
+        slot.lastUsed = System.nanoTime();
+        done.complete(managed);
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        slot.managed = null;
+        done.fail(cause);
+      }
+
+      @Override
+      public void cancelled() {
+        slot.managed = null;
+        done.cancel();
+      }
+    });
+
+    return done.whenDone(this::untrack);
+  }
+
+  /**
+   * Tear down an instance, which stopping the pool waits for.
+   */
+  void teardown(final ConcurrentManaged<T> managed) {
+    if (!track()) {
+      managed.stop();
+      return;
+    }
+
+    managed.stop().handle(new Handle<Void>() {
+      @Override
+      public void completed(final Void result) {
+        untrack();
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        if (state.get() == ConcurrentManaged.ManagedState.STOPPED) {
+          stopFailed(cause);
+        }
+
+        untrack();
+      }
+
+      @Override
+      public void cancelled() {
+        untrack();
+      }
+    });
+  }
+
+  /**
+   * Track a setup or teardown which is about to start.
+   *
+   * @return {@code true} if tracked, {@code false} if the pool has already been stopped
+   */
+  boolean track() {
+    while (true) {
+      final int p = pending.get();
+
+      if (p == 0) {
+        return false;
+      }
+
+      if (pending.compareAndSet(p, p + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Mark a tracked setup or teardown as done, which stops the pool if it was the last one.
+   */
+  void untrack() {
+    if (pending.decrementAndGet() != 0) {
+      return;
+    }
+
+    final Throwable cause = stopError.get();
+
+    if (cause != null) {
+      stopFuture.fail(cause);
+    } else {
+      stopFuture.complete(null);
+    }
+  }
+
+  private void stopFailed(final Throwable cause) {
+    if (!stopError.compareAndSet(null, cause)) {
+      stopError.get().addSuppressed(cause);
+    }
+  }
+
+  /**
+   * Put back an owned slot, and hand it to the next waiter if there is one.
+   */
+  void release(final Slot slot) {
+    push(slot);
+    dispatch();
+  }
+
+  private void push(final Slot slot) {
+    if (slot.managed != null) {
+      free.addFirst(slot);
+    } else {
+      free.addLast(slot);
+    }
+
+    freeSlots.incrementAndGet();
+  }
+
+  /**
+   * Take a free slot, preferring slots with an instance.
+   *
+   * @return an owned slot, or {@code null} if there are no free slots
+   */
+  private Slot poll() {
+    final Slot slot = free.pollFirst();
+
+    if (slot != null) {
+      freeSlots.decrementAndGet();
+    }
+
+    return slot;
+  }
+
+  void scheduleEviction() {
+    if (state.get() != ConcurrentManaged.ManagedState.STARTED) {
+      return;
+    }
+
+    final Stage<Void> next = async.delay(options.getPoolIdleTimeout(), TimeUnit.MILLISECONDS);
+    eviction = next;
+
+    /* the delay completes on the timer thread, which must not run teardowns */
+    next.whenComplete(v -> caller.execute(() -> {
+      evictIdle();
+      scheduleEviction();
+    }));
+  }
+
+  /**
+   * Tear down instances that have been free for longer than the idle timeout.
+   */
+  void evictIdle() {
+    final long idleNanos = TimeUnit.MILLISECONDS.toNanos(options.getPoolIdleTimeout());
+    final long now = System.nanoTime();
+
+    for (final Slot slot : free) {
+      if (slot.managed == null || now - slot.lastUsed < idleNanos) {
+        continue;
+      }
+
+      /* only evict slots that are still free, which makes them owned by this thread */
+      if (!free.remove(slot)) {
+        continue;
+      }
+
+      freeSlots.decrementAndGet();
+
+      final ConcurrentManaged<T> managed = slot.managed;
+
+      if (managed == null || state.get() != ConcurrentManaged.ManagedState.STARTED) {
+        push(slot);
+        continue;
+      }
+
+      /* the slot is free again before the teardown, so it never reads as borrowed */
+      slot.managed = null;
+      push(slot);
+      teardown(managed);
+    }
+
+    dispatch();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ManagedPool(%s, available=%d, size=%d, waiting=%d)", state.get(),
+      available(), slots.size(), waiting.get());
+  }
+
+  /**
+   * A slot of the pool, holding at most one instance.
+   */
+  class Slot {
+    volatile ConcurrentManaged<T> managed;
+
+    /**
+     * When the slot was last released, in nanoseconds.
+     */
+    volatile long lastUsed;
+  }
+
+  /**
+   * A reference borrowed from the instance of a slot, which puts back the slot when released.
+   */
+  class PooledBorrowed implements Borrowed<T> {
+    final Slot slot;
+    final Borrowed<T> borrowed;
+
+    final AtomicBoolean released = new AtomicBoolean(false);
+
+    PooledBorrowed(final Slot slot, final Borrowed<T> borrowed) {
+      this.slot = slot;
+      this.borrowed = borrowed;
+    }
+
+    @Override
+    public boolean isValid() {
+      return true;
+    }
+
+    @Override
+    public T get() {
+      return borrowed.get();
+    }
+
+    @Override
+    public void release() {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+
+      borrowed.release();
+      slot.lastUsed = System.nanoTime();
+      ConcurrentManagedPool.this.release(slot);
+    }
+
+    @Override
+    public void close() {
+      release();
+    }
+
+    void discard() {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+
+      borrowed.release();
+
+      final ConcurrentManaged<T> managed = slot.managed;
+      slot.managed = null;
+
+      if (managed != null) {
+        teardown(managed);
+      }
+
+      ConcurrentManagedPool.this.release(slot);
+    }
+
+    ConcurrentManagedPool<T> pool() {
+      return ConcurrentManagedPool.this;
+    }
+
+    @Override
+    public String toString() {
+      return "PooledBorrowed(" + borrowed + ")";
+    }
+  }
+}
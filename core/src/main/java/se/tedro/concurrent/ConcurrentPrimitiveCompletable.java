@@ -0,0 +1,327 @@
+package se.tedro.concurrent;
+
+import static se.tedro.concurrent.ConcurrentCompletable.CANCEL;
+import static se.tedro.concurrent.ConcurrentCompletable.isPending;
+import static se.tedro.concurrent.ConcurrentCompletable.listener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongUnaryOperator;
+import se.tedro.concurrent.ConcurrentCompletable.Listener;
+
+/**
+ * Base class for completables of primitive results, which stores the result in a {@code long}
+ * field instead of boxing it.
+ *
+ * <p>{@code double} results are stored as their raw long bits.
+ *
+ * <p>The state is kept like in {@link ConcurrentCompletable}, except that a completed result is
+ * represented by {@link #COMPLETED} and read from {@link #bits}. Since the result can't be
+ * published with the same CAS as the state, a completable must first be claimed through
+ * {@link #claimed} by the thread that will end it.
+ */
+abstract class ConcurrentPrimitiveCompletable {
+  /**
+   * Indicates that the result is available in {@link #bits}.
+   */
+  static final Object COMPLETED = new Object();
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<ConcurrentPrimitiveCompletable, Object> STATE =
+    AtomicReferenceFieldUpdater.newUpdater(ConcurrentPrimitiveCompletable.class, Object.class,
+      "state");
+
+  static final AtomicIntegerFieldUpdater<ConcurrentPrimitiveCompletable> CLAIMED =
+    AtomicIntegerFieldUpdater.newUpdater(ConcurrentPrimitiveCompletable.class, "claimed");
+
+  final Caller caller;
+  /* timing wheel and deadline, inherited by derived stages */
+  final TimingWheel timer;
+  final Deadline deadline;
+
+  /**
+   * Either {@code null} or a {@link Listener} while pending, otherwise {@link #COMPLETED},
+   * {@link ConcurrentCompletable#CANCEL}, or a {@link Throwable}.
+   */
+  volatile Object state;
+
+  /**
+   * Set to one by the thread which gets to end this completable.
+   */
+  volatile int claimed;
+
+  /**
+   * The result, written before {@link #state} is set to {@link #COMPLETED}.
+   */
+  long bits;
+
+  /**
+   * The completable or {@link Stage} this was derived from, which is cancelled if this is
+   * cancelled.
+   */
+  volatile Object source;
+
+  ConcurrentPrimitiveCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline
+  ) {
+    this.caller = caller;
+    this.timer = timer;
+    this.deadline = deadline;
+  }
+
+  ConcurrentPrimitiveCompletable(final Caller caller, final ConcurrentPrimitiveCompletable source) {
+    this.caller = caller;
+    this.timer = source.timer;
+    this.deadline = source.deadline;
+    this.source = source;
+  }
+
+  ConcurrentPrimitiveCompletable(
+    final Caller caller, final TimingWheel timer, final Deadline deadline, final Stage<?> source
+  ) {
+    this.caller = caller;
+    this.timer = timer;
+    this.deadline = deadline;
+    this.source = source;
+  }
+
+  /**
+   * Cancel a source, which is either a {@link ConcurrentPrimitiveCompletable}, a
+   * {@link FusedStage.Chain}, or a {@link Stage}.
+   *
+   * @param source source to cancel
+   */
+  static void cancelSource(final Object source) {
+    if (source instanceof ConcurrentPrimitiveCompletable) {
+      ((ConcurrentPrimitiveCompletable) source).cancel();
+    } else if (source instanceof FusedStage.Chain) {
+      ((FusedStage.Chain) source).cancel();
+    } else {
+      ((Stage<?>) source).cancel();
+    }
+  }
+
+  boolean completeBits(final long bits) {
+    if (!CLAIMED.compareAndSet(this, 0, 1)) {
+      return false;
+    }
+
+    this.bits = bits;
+    end(COMPLETED);
+    return true;
+  }
+
+  public boolean fail(final Throwable cause) {
+    if (cause == null) {
+      throw new NullPointerException("cause");
+    }
+
+    if (!CLAIMED.compareAndSet(this, 0, 1)) {
+      return false;
+    }
+
+    end(cause);
+    return true;
+  }
+
+  public boolean cancel() {
+    if (!CLAIMED.compareAndSet(this, 0, 1)) {
+      return false;
+    }
+
+    end(CANCEL);
+    return true;
+  }
+
+  public boolean isDone() {
+    return !isPending(state);
+  }
+
+  public boolean isCompleted() {
+    return state == COMPLETED;
+  }
+
+  public boolean isFailed() {
+    return state instanceof Throwable;
+  }
+
+  public boolean isCancelled() {
+    return state == CANCEL;
+  }
+
+  public Throwable cause() {
+    final Object s = state;
+
+    if (!(s instanceof Throwable)) {
+      throw new IllegalStateException("not in a failed state");
+    }
+
+    return (Throwable) s;
+  }
+
+  long joinBits() throws InterruptedException, ExecutionException {
+    final Parker parker = new Parker(Thread.currentThread());
+
+    if (add(parker)) {
+      parker.park();
+    }
+
+    return joinNowBits();
+  }
+
+  long joinNowBits() throws ExecutionException {
+    final Object s = state;
+
+    if (s == COMPLETED) {
+      return bits;
+    }
+
+    if (s instanceof Throwable) {
+      throw new ExecutionException((Throwable) s);
+    }
+
+    if (s == CANCEL) {
+      throw new CancellationException();
+    }
+
+    throw new IllegalStateException("result is not available");
+  }
+
+  void onDone(final Runnable runnable) {
+    if (!add(runnable)) {
+      caller.execute(runnable);
+    }
+  }
+
+  /**
+   * Complete the target with the result of this completable once it's done, transformed by the
+   * given function.
+   *
+   * @param target target to complete
+   * @param fn transformation of the raw bits of the result
+   */
+  void forward(final ConcurrentPrimitiveCompletable target, final LongUnaryOperator fn) {
+    onDone(new ForwardRunnable(target, fn));
+  }
+
+  private void end(final Object end) {
+    Object s;
+
+    do {
+      s = state;
+    } while (!STATE.compareAndSet(this, s, end));
+
+    final Object source = this.source;
+
+    if (source != null) {
+      // help garbage collection.
+      this.source = null;
+    }
+
+    postComplete((Listener) s);
+
+    if (end == CANCEL && source != null) {
+      cancelSource(source);
+    }
+  }
+
+  private void postComplete(Listener entries) {
+    if (entries != null && entries.next != null && caller instanceof ExecutorCaller) {
+      ((ExecutorCaller) caller).executeBatch(entries);
+      return;
+    }
+
+    while (entries != null) {
+      final Listener next = entries.next;
+      // help garbage collection.
+      entries.next = null;
+      caller.execute(entries);
+      entries = next;
+    }
+  }
+
+  private boolean add(final Runnable runnable) {
+    final Listener listener = listener(runnable);
+
+    Object s;
+
+    while (isPending(s = state)) {
+      listener.next = (Listener) s;
+
+      if (STATE.compareAndSet(this, s, listener)) {
+        return true;
+      }
+    }
+
+    listener.next = null;
+    return false;
+  }
+
+  class ForwardRunnable extends Listener {
+    private final ConcurrentPrimitiveCompletable target;
+    private final LongUnaryOperator fn;
+
+    ForwardRunnable(final ConcurrentPrimitiveCompletable target, final LongUnaryOperator fn) {
+      this.target = target;
+      this.fn = fn;
+    }
+
+    @Override
+    public void run() {
+      final Object s = state;
+
+      if (s == COMPLETED) {
+        final long result;
+
+        try {
+          result = fn.applyAsLong(bits);
+        } catch (final Exception e) {
+          target.fail(e);
+          return;
+        }
+
+        target.completeBits(result);
+        return;
+      }
+
+      if (s instanceof Throwable) {
+        target.fail((Throwable) s);
+        return;
+      }
+
+      target.cancel();
+    }
+  }
+
+  class Parker extends Listener {
+    volatile Thread thread;
+
+    Parker(final Thread thread) {
+      this.thread = thread;
+    }
+
+    @Override
+    public void run() {
+      final Thread t = thread;
+
+      if (t != null) {
+        thread = null;
+        LockSupport.unpark(t);
+      }
+    }
+
+    void park() throws InterruptedException {
+      while (isPending(state)) {
+        if (Thread.interrupted()) {
+          thread = null;
+          throw new InterruptedException();
+        }
+
+        LockSupport.park(this);
+      }
+    }
+  }
+}
@@ -56,6 +56,17 @@ class ConcurrentReloadableManaged<T> implements ReloadableManaged<T> {
     return f.whenDone(b::release);
   }
 
+  @Override
+  public <U> Stage<U> doto(
+    final Deadline deadline, final Function<? super T, ? extends Stage<U>> action
+  ) {
+    if (deadline.isExpired()) {
+      return async.failed(new DeadlineExceededException());
+    }
+
+    return doto(action).withDeadline(deadline);
+  }
+
   @Override
   public Borrowed<T> borrow() {
     Managed<T> previous = null;
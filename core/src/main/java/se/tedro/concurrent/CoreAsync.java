@@ -3,20 +3,29 @@ package se.tedro.concurrent;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 /**
  * Entry point to the async framework.
@@ -27,7 +36,6 @@ import lombok.RequiredArgsConstructor;
  *   final Async async = CoreAsync.builder().build();
  * }</pre>
  */
-@RequiredArgsConstructor
 public class CoreAsync implements Async {
   private static final Collection<Object> EMPTY_RESULTS = Collections.emptyList();
 
@@ -39,12 +47,56 @@ public class CoreAsync implements Async {
   /**
    * Default set of helper functions for calling callbacks.
    */
-  @NonNull
   private final Caller caller;
-  @NonNull
   private final ClockSource clockSource;
-  @NonNull
   private final ManagedOptions managedOptions;
+  /**
+   * If collect operations should end as soon as the first stage fails or is cancelled.
+   */
+  private final boolean failFast;
+  /**
+   * How the errors of failed operations are aggregated.
+   */
+  private final ErrorAggregation errorAggregation;
+  /**
+   * Timing wheel used to arm timeouts and delays.
+   */
+  private final TimingWheel timer;
+  /**
+   * Deadline attached to every stage created by this instance.
+   */
+  private final Deadline deadline;
+
+  /**
+   * Setup an instance which uses the timing wheel shared by all instances with default timer
+   * settings.
+   */
+  public CoreAsync(
+    final ExecutorService executor, final ScheduledExecutorService scheduler,
+    @NonNull final Caller caller, @NonNull final ClockSource clockSource,
+    @NonNull final ManagedOptions managedOptions
+  ) {
+    this(executor, scheduler, caller, clockSource, managedOptions, false,
+      ErrorAggregation.newDefault(), TimingWheel.shared(), Deadline.none());
+  }
+
+  CoreAsync(
+    final ExecutorService executor, final ScheduledExecutorService scheduler,
+    @NonNull final Caller caller, @NonNull final ClockSource clockSource,
+    @NonNull final ManagedOptions managedOptions, final boolean failFast,
+    @NonNull final ErrorAggregation errorAggregation, @NonNull final TimingWheel timer,
+    @NonNull final Deadline deadline
+  ) {
+    this.executor = executor;
+    this.scheduler = scheduler;
+    this.caller = caller;
+    this.clockSource = clockSource;
+    this.managedOptions = managedOptions;
+    this.failFast = failFast;
+    this.errorAggregation = errorAggregation;
+    this.timer = timer;
+    this.deadline = deadline;
+  }
 
   /**
    * Fetch the configured primary executor (if any).
@@ -64,6 +116,10 @@ public class CoreAsync implements Async {
     return caller;
   }
 
+  TimingWheel timer() {
+    return timer;
+  }
+
   @Override
   public <C> Stage<C> call(final Callable<? extends C> callable) {
     return doCall(callable, executor(), this.completable());
@@ -79,12 +135,23 @@ public class CoreAsync implements Async {
   public <C> Stage<C> doCall(
     final Callable<? extends C> callable, final ExecutorService executor, final Completable<C> stage
   ) {
+    if (deadline.isExpired()) {
+      stage.fail(new DeadlineExceededException());
+      return stage;
+    }
+
     final Runnable runnable = () -> {
       // completable is already done, do not perform potentially expensive operation.
       if (stage.isDone()) {
         return;
       }
 
+      // the deadline passed while queued up, the result would not be used.
+      if (deadline.isExpired()) {
+        stage.fail(new DeadlineExceededException());
+        return;
+      }
+
       final C result;
 
       try {
@@ -116,7 +183,17 @@ public class CoreAsync implements Async {
 
   @Override
   public <T> Completable<T> completable() {
-    return new ConcurrentCompletable<>(caller);
+    return new ConcurrentCompletable<>(caller, timer, deadline);
+  }
+
+  @Override
+  public LongCompletable longCompletable() {
+    return new ConcurrentLongCompletable(caller, timer, deadline);
+  }
+
+  @Override
+  public DoubleCompletable doubleCompletable() {
+    return new ConcurrentDoubleCompletable(caller, timer, deadline);
   }
 
   @Override
@@ -126,17 +203,52 @@ public class CoreAsync implements Async {
 
   @Override
   public <T> Stage<T> completed(T value) {
-    return new ImmediateCompleted<>(caller, value);
+    return new ImmediateCompleted<>(caller, value, deadline);
   }
 
   @Override
   public <T> Stage<T> failed(Throwable e) {
-    return new ImmediateFailed<>(caller, e);
+    return new ImmediateFailed<>(caller, e, deadline);
   }
 
   @Override
   public <T> Stage<T> cancelled() {
-    return new ImmediateCancelled<T>(caller);
+    return new ImmediateCancelled<T>(caller, deadline);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Async withDeadline(final Deadline deadline) {
+    final Deadline earliest = this.deadline.earliest(deadline);
+
+    if (earliest == this.deadline) {
+      return this;
+    }
+
+    return bindDeadline(earliest);
+  }
+
+  /**
+   * Build a copy of this instance which is bound to the given deadline.
+   */
+  CoreAsync bindDeadline(final Deadline deadline) {
+    return new CoreAsync(executor, scheduler, caller, clockSource, managedOptions, failFast,
+      errorAggregation, timer, deadline);
+  }
+
+  /**
+   * An instance without a deadline, for long-lived stages that don't belong to a request.
+   */
+  CoreAsync unbound() {
+    return deadline.isFinite() ? bindDeadline(Deadline.none()) : this;
+  }
+
+  @Override
+  public Stage<Void> delay(final long delay, final TimeUnit unit) {
+    final Completable<Void> target = completable();
+    final TimingWheel.Timeout timeout = timer.schedule(() -> target.complete(null), delay, unit);
+    target.whenCancelled(timeout::cancel);
+    return target;
   }
 
   @SuppressWarnings("unchecked")
@@ -168,18 +280,129 @@ public class CoreAsync implements Async {
     final Function<? super Collection<C>, ? extends T> collector
   ) {
     final Completable<T> target = completable();
+    final SourceLinks<C> sources = new SourceLinks<>(stages);
+
+    final CollectHelper<C, ? extends T> done =
+      new CollectHelper<>(stages.size(), collector, sources, target, failFast, errorAggregation);
+
+    sources.bind(done);
+    bindSignals(target, sources);
+    return target;
+  }
+
+  @Override
+  public <T, A, R> Stage<R> collect(
+    final Collection<? extends Stage<? extends T>> stages, final Collector<? super T, A, R> collector
+  ) {
+    if (stages.isEmpty()) {
+      try {
+        return completed(collector.finisher().apply(collector.supplier().get()));
+      } catch (final Exception e) {
+        return failed(e);
+      }
+    }
+
+    if (!collector.characteristics().contains(Collector.Characteristics.UNORDERED)) {
+      /* combining the stripes would not keep the order in which stages complete, so the results
+       * are retained and accumulated in that order instead */
+      return doCollect(stages, values -> collectInOrder(values, collector));
+    }
+
+    final Completable<R> target = completable();
+    final SourceLinks<T> sources = new SourceLinks<>(stages);
+
+    final StripedCollectHelper<T, A, R> done =
+      new StripedCollectHelper<>(stages.size(), collector, sources, target, failFast,
+        errorAggregation);
+
+    sources.bind(done);
+    bindSignals(target, sources);
+    return target;
+  }
+
+  @Override
+  public <T> Stage<T> firstCompleted(final Collection<? extends Stage<? extends T>> stages) {
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("stages");
+    }
+
+    return quorum(stages, 1, values -> values.iterator().next());
+  }
+
+  @Override
+  public <T, U> Stage<U> quorum(
+    final Collection<? extends Stage<? extends T>> stages, final int required,
+    final Function<? super Collection<T>, ? extends U> collector
+  ) {
+    final Completable<U> target = completable();
+    final SourceLinks<T> sources = new SourceLinks<>(stages);
+
+    final QuorumHelper<T, U> done =
+      new QuorumHelper<>(stages.size(), required, collector, sources, target, errorAggregation);
 
-    final CollectHelper<? super C, ? extends T> done =
-      new CollectHelper<>(stages.size(), collector, stages, target);
+    sources.bind(done);
+    bindSignals(target, sources);
+    return target;
+  }
 
-    for (final Stage<? extends C> q : stages) {
-      q.handle(done);
+  @Override
+  public <T> Stage<T> race(final Collection<? extends Stage<? extends T>> stages) {
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("stages");
     }
 
-    bindSignals(target, stages);
+    final Completable<T> target = completable();
+    final SourceLinks<T> sources = new SourceLinks<>(stages);
+    final RaceHelper<T> done = new RaceHelper<>(sources, target);
+
+    sources.bind(done);
+    bindSignals(target, sources);
     return target;
   }
 
+  @Override
+  public <T> Stage<T> reduce(
+    final Collection<? extends Stage<? extends T>> stages, final T identity,
+    final BinaryOperator<T> op
+  ) {
+    return collect(stages, unordered(Collectors.reducing(identity, op)));
+  }
+
+  /**
+   * Apply a collector to values, in order.
+   *
+   * @param values values to collect
+   * @param collector collector to apply
+   * @return the collected value
+   */
+  static <T, A, R> R collectInOrder(
+    final Collection<T> values, final Collector<? super T, A, R> collector
+  ) {
+    final A container = collector.supplier().get();
+    final BiConsumer<A, ? super T> accumulator = collector.accumulator();
+
+    for (final T value : values) {
+      accumulator.accept(container, value);
+    }
+
+    return collector.finisher().apply(container);
+  }
+
+  /**
+   * Mark a collector as unordered, for collectors that are known to be commutative.
+   *
+   * @param collector collector to mark
+   * @return an unordered collector
+   */
+  static <T, A, R> Collector<T, A, R> unordered(final Collector<T, A, R> collector) {
+    final Set<Collector.Characteristics> characteristics =
+      EnumSet.of(Collector.Characteristics.UNORDERED);
+    characteristics.addAll(collector.characteristics());
+
+    return Collector.of(collector.supplier(), collector.accumulator(), collector.combiner(),
+      collector.finisher(), characteristics.toArray(new Collector.Characteristics[0]));
+  }
+
   /**
    * Shortcut for when the list of stages is empty.
    *
@@ -240,15 +463,14 @@ public class CoreAsync implements Async {
     final Supplier<? extends U> supplier
   ) {
     final Completable<U> target = completable();
+    final SourceLinks<T> sources = new SourceLinks<>(stages);
 
     final StreamCollectHelper<? super T, ? extends U> done =
-      new StreamCollectHelper<>(caller, stages.size(), consumer, supplier, target);
-
-    for (final Stage<? extends T> q : stages) {
-      q.handle(done);
-    }
+      new StreamCollectHelper<>(caller, stages.size(), consumer, supplier, target,
+        errorAggregation);
 
-    bindSignals(target, stages);
+    sources.bind(done);
+    bindSignals(target, sources);
     return target;
   }
 
@@ -257,6 +479,10 @@ public class CoreAsync implements Async {
     final Collection<? extends Callable<? extends Stage<? extends C>>> callables,
     final Consumer<? super C> consumer, Supplier<? extends T> supplier, int parallelism
   ) {
+    if (deadline.isExpired()) {
+      return failed(new DeadlineExceededException());
+    }
+
     if (callables.isEmpty()) {
       return doEventuallyCollectEmpty(consumer, supplier);
     }
@@ -269,6 +495,35 @@ public class CoreAsync implements Async {
     return doEventuallyCollect(callables, consumer, supplier, parallelism);
   }
 
+  @Override
+  public <T> StageStream<T> stream(final Callable<? extends Stage<? extends T>> next) {
+    return new SourceStageStream<>(this, next);
+  }
+
+  @Override
+  public <T> StageStream<T> stream(final Iterator<? extends T> values) {
+    return new SourceStageStream<T>(this, () -> completed(values.hasNext() ? values.next() : null));
+  }
+
+  @Override
+  public <C, T> Stage<T> eventuallyCollect(
+    final Iterator<? extends Callable<? extends Stage<? extends C>>> callables,
+    final Consumer<? super C> consumer, Supplier<? extends T> supplier, int parallelism
+  ) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism: must be positive");
+    }
+
+    if (deadline.isExpired()) {
+      return failed(new DeadlineExceededException());
+    }
+
+    final Completable<T> stage = completable();
+    new DelayedCollectCoordinator<>(caller, callables, consumer, supplier, stage, parallelism,
+      deadline).run();
+    return stage;
+  }
+
   <T, C> Stage<T> doEventuallyCollectEmpty(
     final Consumer<? super C> consumer, Supplier<? extends T> supplier
   ) {
@@ -308,6 +563,8 @@ public class CoreAsync implements Async {
   /**
    * Perform an eventual collection.
    *
+   * <p>The initial tasks are started in the calling thread.
+   *
    * @param tasks tasks to invoke for stages
    * @param consumer consumer to apply
    * @param supplier supplier to provide result
@@ -320,13 +577,64 @@ public class CoreAsync implements Async {
     final Collection<? extends Callable<? extends Stage<? extends T>>> tasks,
     final Consumer<? super T> consumer, Supplier<? extends U> supplier, int parallelism
   ) {
-    final ExecutorService executor = executor();
     final Completable<U> stage = completable();
-    executor.execute(
-      new DelayedCollectCoordinator<>(caller, tasks, consumer, supplier, stage, parallelism));
+    new DelayedCollectCoordinator<>(caller, tasks, consumer, supplier, stage, parallelism,
+      deadline).run();
     return stage;
   }
 
+  @Override
+  public LongStage collectLongs(
+    final Collection<? extends LongStage> stages, final long identity, final LongBinaryOperator op
+  ) {
+    final ConcurrentLongCompletable target =
+      new ConcurrentLongCompletable(caller, timer, deadline);
+
+    if (stages.isEmpty()) {
+      target.complete(identity);
+      return target;
+    }
+
+    final PrimitiveCollectHelper helper =
+      new PrimitiveCollectHelper(stages.size(), identity, op, target,
+        () -> stages.forEach(LongStage::cancel), errorAggregation);
+
+    for (final LongStage s : stages) {
+      s.whenDone(helper.new LongEntry(s));
+    }
+
+    target.whenCancelled(() -> stages.forEach(LongStage::cancel));
+    return target;
+  }
+
+  @Override
+  public DoubleStage collectDoubles(
+    final Collection<? extends DoubleStage> stages, final double identity,
+    final DoubleBinaryOperator op
+  ) {
+    final ConcurrentDoubleCompletable target =
+      new ConcurrentDoubleCompletable(caller, timer, deadline);
+
+    if (stages.isEmpty()) {
+      target.complete(identity);
+      return target;
+    }
+
+    final LongBinaryOperator bitsOp = (a, b) -> Double.doubleToRawLongBits(
+      op.applyAsDouble(Double.longBitsToDouble(a), Double.longBitsToDouble(b)));
+
+    final PrimitiveCollectHelper helper =
+      new PrimitiveCollectHelper(stages.size(), Double.doubleToRawLongBits(identity), bitsOp,
+        target, () -> stages.forEach(DoubleStage::cancel), errorAggregation);
+
+    for (final DoubleStage s : stages) {
+      s.whenDone(helper.new DoubleEntry(s));
+    }
+
+    target.whenCancelled(() -> stages.forEach(DoubleStage::cancel));
+    return target;
+  }
+
   @Override
   public Stage<Void> collectAndDiscard(
     Collection<? extends Stage<?>> stages
@@ -348,14 +656,22 @@ public class CoreAsync implements Async {
     Collection<? extends Stage<?>> stages
   ) {
     final Completable<Void> target = completable();
+    final SourceLinks<Object> sources = new SourceLinks<>(stages);
+
+    final CollectAndDiscardHelper done =
+      new CollectAndDiscardHelper(stages.size(), target, failFast, errorAggregation);
 
-    final CollectAndDiscardHelper done = new CollectAndDiscardHelper(stages.size(), target);
+    sources.bind(done);
 
-    for (final Stage<?> q : stages) {
-      q.handle(done);
+    if (failFast) {
+      target.whenFailed(cause -> {
+        for (final Stage<?> f : sources) {
+          f.cancel();
+        }
+      });
     }
 
-    bindSignals(target, stages);
+    bindSignals(target, sources);
     return target;
   }
 
@@ -363,7 +679,16 @@ public class CoreAsync implements Async {
   public <C> Managed<C> managed(
     Supplier<? extends Stage<C>> setup, Function<? super C, ? extends Stage<Void>> teardown
   ) {
-    return ConcurrentManaged.newManaged(this, caller(), managedOptions, setup, teardown);
+    return ConcurrentManaged.newManaged(unbound(), caller(), managedOptions, setup, teardown);
+  }
+
+  @Override
+  public <C> ManagedPool<C> managedPool(
+    final int size, final Supplier<? extends Stage<C>> setup,
+    final Function<? super C, ? extends Stage<Void>> teardown
+  ) {
+    return new ConcurrentManagedPool<>(unbound(), caller(), managedOptions, size, setup,
+      teardown);
   }
 
   @Override
@@ -371,7 +696,8 @@ public class CoreAsync implements Async {
     final Supplier<? extends Stage<C>> setup,
     final Function<? super C, ? extends Stage<Void>> teardown
   ) {
-    return new ConcurrentReloadableManaged<>(this, caller(), managedOptions, setup, teardown);
+    return new ConcurrentReloadableManaged<>(unbound(), caller(), managedOptions, setup,
+      teardown);
   }
 
   /**
@@ -414,7 +740,33 @@ public class CoreAsync implements Async {
     final long start = clockSource.now();
 
     final RetryCallHelper<T> helper =
-      new RetryCallHelper<>(start, scheduler, callable, policyInstance, stage, clockSource);
+      new RetryCallHelper<>(start, scheduler, callable, policyInstance, stage, clockSource,
+        errorAggregation, deadline);
+
+    stage.whenDone(helper::finished);
+
+    helper.next();
+    return stage.thenApply(result -> new RetryResult<>(result, helper.getErrors()));
+  }
+
+  @Override
+  public <T> Stage<RetryResult<T>> retryUntilCompleted(
+    final Callable<? extends Stage<T>> callable, final RetryPolicy policy,
+    final HedgePolicy hedgePolicy
+  ) {
+    if (scheduler == null) {
+      throw new IllegalStateException("no scheduler configured");
+    }
+
+    final Completable<T> stage = completable();
+
+    final Supplier<RetryDecision> policyInstance = policy.newInstance(clockSource);
+
+    final long start = clockSource.now();
+
+    final HedgedRetryCallHelper<T> helper =
+      new HedgedRetryCallHelper<>(start, scheduler, timer, callable, policyInstance, hedgePolicy,
+        stage, clockSource, errorAggregation, deadline);
 
     stage.whenDone(helper::finished);
 
@@ -428,17 +780,6 @@ public class CoreAsync implements Async {
     return joiner.toString();
   }
 
-  static Throwable buildCollectedException(Collection<Throwable> errors) {
-    final Iterator<Throwable> it = errors.iterator();
-    final Throwable first = it.next();
-
-    while (it.hasNext()) {
-      first.addSuppressed(it.next());
-    }
-
-    return first;
-  }
-
   /**
    * Build a new CoreAsync instance.
    *
@@ -456,11 +797,19 @@ public class CoreAsync implements Async {
     private boolean threaded;
     private boolean recursionSafe;
     private long maxRecursionDepth = 100;
+    private boolean batched;
+    private int maxBatchSize = Integer.MAX_VALUE;
+    private int batchFairnessLimit = 1024;
+    private boolean virtualThreads;
     private ExecutorService executor;
     private ExecutorService callerExecutor;
     private ScheduledExecutorService scheduler;
-    private ClockSource clockSource = ClockSource.system();
+    private ClockSource clockSource = ClockSource.monotonic();
     private ManagedOptions managedOptions = ManagedOptions.builder().build();
+    private boolean failFast;
+    private ErrorAggregation errorAggregation = ErrorAggregation.newDefault();
+    private long timerTickNanos = TimingWheel.DEFAULT_TICK_NANOS;
+    private int timerWheelSize = TimingWheel.DEFAULT_WHEEL_SIZE;
 
     Builder() {
     }
@@ -482,12 +831,11 @@ public class CoreAsync implements Async {
     /**
      * Configure that all caller invocations should use a recursion safe mechanism. In the normal
      * case this doesn't change the behaviour of caller and threadedCaller, but when deep recursion
-     * is detected in the current thread the next recursive doCall is deferred to a separate thread.
+     * is detected in the current thread the next recursive doCall is queued up, and run by the
+     * outermost call in the same thread once the stack has unwound.
      *
      * <p>Recursion is tracked for all threads that doCall the AsyncCallers.
      *
-     * <p>This will make even the non-threaded caller use a thread in the case of deep recursion.
-     *
      * @param recursionSafe {@code true} if all caller invocations should be done with a recursion
      * safe mechanism.
      * @return this builder
@@ -512,6 +860,78 @@ public class CoreAsync implements Async {
       return this;
     }
 
+    /**
+     * Configure that when a stage is done, all its callbacks should be submitted to the caller
+     * executor as a single task, instead of as one task per callback.
+     *
+     * <p>This only has an effect if {@link #threaded(boolean)} is enabled.
+     *
+     * @param batched {@code true} if callbacks should be submitted in batches
+     * @return this builder
+     */
+    public Builder batched(final boolean batched) {
+      this.batched = batched;
+      return this;
+    }
+
+    /**
+     * Configure the max number of callbacks that are submitted as a single task, if a stage has
+     * more callbacks than this they are split into multiple tasks.
+     *
+     * <p>This implies enabling {@link #batched(boolean)}.
+     *
+     * @param maxBatchSize max number of callbacks in a single task
+     * @return this builder
+     */
+    public Builder maxBatchSize(final int maxBatchSize) {
+      if (maxBatchSize < 1) {
+        throw new IllegalArgumentException("maxBatchSize: must be positive");
+      }
+
+      this.maxBatchSize = maxBatchSize;
+      this.batched = true;
+      return this;
+    }
+
+    /**
+     * Configure how many callbacks a batch may run before it is re-submitted to the back of the
+     * caller executor's queue, to allow other tasks to run.
+     *
+     * <p>This implies enabling {@link #batched(boolean)}.
+     *
+     * @param batchFairnessLimit number of callbacks to run before re-submitting a batch
+     * @return this builder
+     */
+    public Builder batchFairnessLimit(final int batchFairnessLimit) {
+      if (batchFairnessLimit < 1) {
+        throw new IllegalArgumentException("batchFairnessLimit: must be positive");
+      }
+
+      this.batchFairnessLimit = batchFairnessLimit;
+      this.batched = true;
+      return this;
+    }
+
+    /**
+     * Configure that tasks submitted through {@link Async#call(Callable)} should each run on a new
+     * virtual thread, which makes it cheap to have a large number of blocking calls in flight.
+     *
+     * <p>Virtual threads require Java 21 or later, {@link #build()} throws an
+     * {@link IllegalStateException} on older runtimes.
+     *
+     * <p>Unless {@link #threaded(boolean)} is enabled, callbacks are invoked directly on the thread
+     * that completes a stage. If it is enabled without a {@link #callerExecutor(ExecutorService)},
+     * callbacks are invoked on the {@link ForkJoinPool#commonPool()} instead of on a new virtual
+     * thread each. This can not be combined with a custom {@link #executor(ExecutorService)}.
+     *
+     * @param virtualThreads {@code true} if tasks should run on a virtual thread per task
+     * @return this builder
+     */
+    public Builder virtualThreads(final boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
     /**
      * Specify an asynchronous caller implementation.
      *
@@ -576,6 +996,9 @@ public class CoreAsync implements Async {
      * <p>A clock source is used to determine what the current time is in order to do timing-related
      * tasks like retrying an action until it has been completed with a back-off.
      *
+     * <p>Defaults to {@link ClockSource#monotonic()}, so that the wall clock being adjusted doesn't
+     * affect for how long operations are retried.
+     *
      * @param clockSource clock source to configure
      * @return this builder
      * @see Async#retryUntilCompleted(java.util.concurrent.Callable, RetryPolicy)
@@ -594,12 +1017,121 @@ public class CoreAsync implements Async {
       return this;
     }
 
+    /**
+     * Configure that collect operations should fail, or be cancelled, as soon as the first stage
+     * they are collecting fails or is cancelled. The remaining stages are cancelled, but are not
+     * waited for.
+     *
+     * <p>By default, a collect operation waits for all stages to be done, so that every error can
+     * be reported.
+     *
+     * @param failFast {@code true} if collect operations should fail fast
+     * @return this builder
+     * @see Async#collect(Collection, Function)
+     * @see Async#collectAndDiscard(Collection)
+     */
+    public Builder failFast(final boolean failFast) {
+      this.failFast = failFast;
+      return this;
+    }
+
+    /**
+     * Configure how the errors of operations with many failures are aggregated.
+     *
+     * <p>By default, at most {@value ErrorAggregation#DEFAULT_MAX_SUPPRESSED} errors are retained
+     * as suppressed by the error that fails the operation, any other errors are only counted.
+     *
+     * @param errorAggregation error aggregation options
+     * @return this builder
+     */
+    public Builder errorAggregation(final ErrorAggregation errorAggregation) {
+      Objects.requireNonNull(errorAggregation, "errorAggregation");
+
+      this.errorAggregation = errorAggregation;
+      return this;
+    }
+
+    /**
+     * Configure the duration of a tick of the timing wheel used for timeouts and delays, which is
+     * the precision with which they expire.
+     *
+     * <p>Defaults to 10 milliseconds. Instances which keep the default timer settings share a
+     * single timing wheel, and the thread driving it.
+     *
+     * @param tick duration of a tick
+     * @param unit unit of the tick
+     * @return this builder
+     * @see Stage#withTimeout(long, TimeUnit)
+     * @see Async#delay(long, TimeUnit)
+     */
+    public Builder timerTick(final long tick, final TimeUnit unit) {
+      final long tickNanos = unit.toNanos(tick);
+
+      if (tickNanos <= 0) {
+        throw new IllegalArgumentException("tick: must be positive");
+      }
+
+      this.timerTickNanos = tickNanos;
+      return this;
+    }
+
+    /**
+     * Configure the number of buckets in the timing wheel used for timeouts and delays.
+     *
+     * <p>Timeouts that expire more than this many ticks into the future share buckets with timeouts
+     * that expire sooner, and are visited once per revolution of the wheel. Defaults to
+     * {@value TimingWheel#DEFAULT_WHEEL_SIZE}.
+     *
+     * @param timerWheelSize number of buckets, must be a power of two
+     * @return this builder
+     */
+    public Builder timerWheelSize(final int timerWheelSize) {
+      if (timerWheelSize <= 0 || Integer.bitCount(timerWheelSize) != 1) {
+        throw new IllegalArgumentException("timerWheelSize: must be a positive power of two");
+      }
+
+      this.timerWheelSize = timerWheelSize;
+      return this;
+    }
+
     public CoreAsync build() {
-      final ExecutorService defaultExecutor = this.executor;
+      final ExecutorService defaultExecutor = setupExecutor();
       final ExecutorService callerExecutor = setupCallerExecutor(defaultExecutor);
       final Caller caller = setupCaller(callerExecutor);
 
-      return new CoreAsync(defaultExecutor, scheduler, caller, clockSource, managedOptions);
+      return new CoreAsync(defaultExecutor, scheduler, caller, clockSource, managedOptions,
+        failFast, errorAggregation, setupTimer(), Deadline.none());
+    }
+
+    /**
+     * Setup the timing wheel, which is shared between instances unless the timer is configured.
+     *
+     * @return timing wheel
+     */
+    private TimingWheel setupTimer() {
+      if (timerTickNanos == TimingWheel.DEFAULT_TICK_NANOS
+        && timerWheelSize == TimingWheel.DEFAULT_WHEEL_SIZE) {
+        return TimingWheel.shared();
+      }
+
+      return new TimingWheel(timerTickNanos, timerWheelSize);
+    }
+
+    /**
+     * Setup the default executor.
+     *
+     * @return default executor
+     */
+    private ExecutorService setupExecutor() {
+      if (!virtualThreads) {
+        return executor;
+      }
+
+      if (executor != null) {
+        throw new IllegalStateException("#virtualThreads enabled, but an executor is configured");
+      }
+
+      return VirtualThreads.newVirtualThreadPerTaskExecutor();
     }
 
     /**
@@ -613,6 +1145,11 @@ public class CoreAsync implements Async {
         return callerExecutor;
       }
 
+      if (virtualThreads) {
+        /* don't start a new thread per callback */
+        return ForkJoinPool.commonPool();
+      }
+
       if (defaultExecutor != null) {
         return defaultExecutor;
       }
@@ -640,16 +1177,15 @@ public class CoreAsync implements Async {
           throw new IllegalStateException("#threaded enabled, but no caller executor configured");
         }
 
-        caller = new ExecutorCaller(callerExecutor, caller);
+        if (batched) {
+          caller = new ExecutorCaller(callerExecutor, caller, maxBatchSize, batchFairnessLimit);
+        } else {
+          caller = new ExecutorCaller(callerExecutor, caller);
+        }
       }
 
       if (recursionSafe) {
-        if (callerExecutor == null) {
-          throw new IllegalStateException(
-            "#recursionSafe enabled, but no caller executor configured");
-        }
-
-        caller = new RecursionSafeCaller(callerExecutor, caller, maxRecursionDepth);
+        caller = new RecursionSafeCaller(caller, maxRecursionDepth);
       }
 
       return caller;
@@ -1,105 +1,208 @@
 package se.tedro.concurrent;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * Coordinator thread for handling delayed callables executing with a given parallelism.
+ * Coordinator for handling delayed callables executing with a given parallelism.
+ *
+ * <p>The coordinator is lock-free. Tasks are claimed through an atomic index over a snapshot of
+ * the provided callables, and the number of tasks in flight is tracked in a single counter. When a
+ * task is done, the slot it occupied is handed over to the next unclaimed task, so the counter is
+ * only modified when a slot is opened or closed.
+ *
+ * <p>If the coordinator is created from an {@link Iterator}, tasks are instead pulled from it one at
+ * a time when a slot is available, so at most {@code parallelism} tasks are retained. If the
+ * iterator throws, the target future is failed and no more tasks are started.
+ *
+ * <p>The counter starts at one, which is a slot held by {@link #run()} while it is starting the
+ * initial tasks. This guarantees that the counter can only reach zero once, after which the
+ * target future is completed.
+ *
+ * <p>Once the {@link Deadline} of the collect has passed, no more tasks are started and the target
+ * future fails with a {@link DeadlineExceededException} when the tasks in flight are done.
  *
  * @param <S> The source type being collected.
  * @param <T> The target type the source type is being collected into.
  */
 public class DelayedCollectCoordinator<S, T> implements Handle<S>, Runnable {
-  /* lock that must be acquired before using {@link callables} */
-  private final Object lock = new Object();
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<DelayedCollectCoordinator> INDEX =
+    AtomicIntegerFieldUpdater.newUpdater(DelayedCollectCoordinator.class, "index");
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<DelayedCollectCoordinator> PENDING =
+    AtomicIntegerFieldUpdater.newUpdater(DelayedCollectCoordinator.class, "pending");
 
   private final Caller caller;
-  private final Iterator<? extends Callable<? extends Stage<? extends S>>> tasks;
+  /* snapshot of tasks, or null if pulling tasks from {@link #iterator} */
+  private final Callable<? extends Stage<? extends S>>[] tasks;
+  /* lazy source of tasks, must be synchronized on when used */
+  private final Iterator<? extends Callable<? extends Stage<? extends S>>> iterator;
   private final Consumer<? super S> consumer;
   private final Supplier<? extends T> supplier;
   private final Completable<? super T> future;
   private final int parallelism;
+  private final Deadline deadline;
 
   volatile boolean cancel = false;
-  volatile boolean done = false;
-  volatile int pending = 0;
+  volatile boolean expired = false;
+  /* index of the next task to claim */
+  volatile int index = 0;
+  /* number of open slots, including the one held by {@link #run()} */
+  volatile int pending = 1;
 
   public DelayedCollectCoordinator(
     final Caller caller, final Collection<? extends Callable<? extends Stage<? extends S>>> tasks,
     final Consumer<S> consumer, Supplier<T> supplier, final Completable<? super T> future,
     int parallelism
+  ) {
+    this(caller, tasks, consumer, supplier, future, parallelism, Deadline.none());
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public DelayedCollectCoordinator(
+    final Caller caller, final Collection<? extends Callable<? extends Stage<? extends S>>> tasks,
+    final Consumer<S> consumer, Supplier<T> supplier, final Completable<? super T> future,
+    int parallelism, final Deadline deadline
   ) {
     this.caller = caller;
-    this.tasks = tasks.iterator();
+    this.tasks = tasks.toArray(new Callable[0]);
+    this.iterator = null;
     this.consumer = consumer;
     this.supplier = supplier;
     this.future = future;
     this.parallelism = parallelism;
+    this.deadline = deadline;
+  }
+
+  public DelayedCollectCoordinator(
+    final Caller caller, final Iterator<? extends Callable<? extends Stage<? extends S>>> tasks,
+    final Consumer<S> consumer, Supplier<T> supplier, final Completable<? super T> future,
+    int parallelism
+  ) {
+    this(caller, tasks, consumer, supplier, future, parallelism, Deadline.none());
+  }
+
+  public DelayedCollectCoordinator(
+    final Caller caller, final Iterator<? extends Callable<? extends Stage<? extends S>>> tasks,
+    final Consumer<S> consumer, Supplier<T> supplier, final Completable<? super T> future,
+    int parallelism, final Deadline deadline
+  ) {
+    this.caller = caller;
+    this.tasks = null;
+    this.iterator = tasks;
+    this.consumer = consumer;
+    this.supplier = supplier;
+    this.future = future;
+    this.parallelism = parallelism;
+    this.deadline = deadline;
   }
 
   @Override
   public void failed(Throwable cause) {
-    next(() -> {
-      pending--;
-      cancel = true;
-    });
+    cancel = true;
+    close();
   }
 
   @Override
   public void completed(S result) {
     caller.execute(() -> consumer.accept(result));
-    next(() -> pending--);
+    next();
   }
 
   @Override
   public void cancelled() {
-    next(() -> {
-      pending--;
-      cancel = true;
-    });
+    cancel = true;
+    close();
   }
 
-  // coordinate thread.
+  /**
+   * Start the initial tasks in the current thread.
+   */
   @Override
   public void run() {
-    final List<Callable<? extends Stage<? extends S>>> initial = new ArrayList<>();
+    future.whenCancelled(() -> cancel = true);
+
+    for (int i = 0; i < parallelism && !cancel; i++) {
+      final Callable<? extends Stage<? extends S>> task = claim();
 
-    synchronized (lock) {
-      for (int i = 0; i < parallelism && tasks.hasNext(); i++) {
-        initial.add(tasks.next());
+      if (task == null) {
+        break;
       }
 
-      pending += initial.size();
+      PENDING.incrementAndGet(this);
+      call(task);
     }
 
-    initial.forEach(this::call);
+    close();
+  }
+
+  /**
+   * Hand over the slot of a task that is done to the next unclaimed task, or close it if there are
+   * no more tasks.
+   */
+  private void next() {
+    final Callable<? extends Stage<? extends S>> task = cancel ? null : claim();
 
-    future.whenCancelled(() -> {
-      next(() -> cancel = true);
-    });
+    if (task == null) {
+      close();
+      return;
+    }
+
+    call(task);
   }
 
-  private void next(final Runnable effect) {
-    final Callable<? extends Stage<? extends S>> next;
+  private Callable<? extends Stage<? extends S>> claim() {
+    final Callable<? extends Stage<? extends S>> task = tasks == null ? pull() : take();
 
-    synchronized (lock) {
-      effect.run();
+    /* only tasks that would be started are shed, a collect which is done is not failed */
+    if (task != null && deadline.isExpired()) {
+      expired = true;
+      cancel = true;
+      return null;
+    }
 
-      if (cancel || !tasks.hasNext()) {
-        end();
-        return;
-      }
+    return task;
+  }
 
-      pending++;
-      next = tasks.next();
+  private Callable<? extends Stage<? extends S>> take() {
+    if (index >= tasks.length) {
+      return null;
     }
 
-    call(next);
+    final int i = INDEX.getAndIncrement(this);
+
+    if (i >= tasks.length) {
+      return null;
+    }
+
+    final Callable<? extends Stage<? extends S>> task = tasks[i];
+    /* allow the task to be garbage collected */
+    tasks[i] = null;
+    return task;
+  }
+
+  private Callable<? extends Stage<? extends S>> pull() {
+    /* iterators are not thread-safe, so pulling the next task must be guarded */
+    synchronized (iterator) {
+      try {
+        if (!iterator.hasNext()) {
+          return null;
+        }
+
+        return iterator.next();
+      } catch (final Exception e) {
+        /* the slot of the caller is closed since no task is returned */
+        cancel = true;
+        future.fail(e);
+        return null;
+      }
+    }
   }
 
   private void call(final Callable<? extends Stage<? extends S>> next) {
@@ -115,12 +218,19 @@ public class DelayedCollectCoordinator<S, T> implements Handle<S>, Runnable {
     f.handle(this);
   }
 
-  private void end() {
-    if (pending > 0 || done) {
+  private void close() {
+    if (PENDING.decrementAndGet(this) != 0) {
+      return;
+    }
+
+    if (future.isDone()) {
       return;
     }
 
-    done = true;
+    if (expired) {
+      future.fail(new DeadlineExceededException());
+      return;
+    }
 
     final T result;
 
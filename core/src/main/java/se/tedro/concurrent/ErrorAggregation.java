@@ -0,0 +1,82 @@
+package se.tedro.concurrent;
+
+import java.util.Optional;
+import lombok.Data;
+
+/**
+ * Options for how errors are aggregated when many stages fail, like in {@link
+ * Async#collect(java.util.Collection)} or {@link Async#retryUntilCompleted(
+ * java.util.concurrent.Callable, RetryPolicy)}.
+ *
+ * <p>The first error is the one that fails the operation, and up to {@link #getMaxSuppressed()}
+ * other errors are added to it as suppressed. Any errors after that are not retained, instead the
+ * number of dropped errors of each type is reported through a {@link DroppedErrorsException} which
+ * is suppressed by the first error.
+ */
+@Data
+public class ErrorAggregation {
+  public static final int DEFAULT_MAX_SUPPRESSED = 100;
+
+  private final int maxSuppressed;
+  private final boolean dropStackTraces;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static ErrorAggregation newDefault() {
+    return builder().build();
+  }
+
+  /**
+   * Options builder.
+   */
+  public static class Builder {
+    private Optional<Integer> maxSuppressed = Optional.empty();
+    private Optional<Boolean> dropStackTraces = Optional.empty();
+
+    Builder() {
+    }
+
+    /**
+     * Configure the maximum number of errors that are retained as suppressed by the error that
+     * fails an operation.
+     *
+     * <p>Defaults to {@value ErrorAggregation#DEFAULT_MAX_SUPPRESSED}.
+     *
+     * @param maxSuppressed maximum number of suppressed errors
+     * @return this builder
+     * @throws IllegalArgumentException if {@code maxSuppressed} is negative
+     */
+    public Builder maxSuppressed(final int maxSuppressed) {
+      if (maxSuppressed < 0) {
+        throw new IllegalArgumentException("maxSuppressed must be non-negative");
+      }
+
+      this.maxSuppressed = Optional.of(maxSuppressed);
+      return this;
+    }
+
+    /**
+     * Configure if the stack traces of suppressed errors should be discarded as they are
+     * retained.
+     *
+     * <p>Suppressed errors are replaced by a {@link DroppedStackTraceException} which only carries
+     * their type and message. The errors themselves are not modified, and are no longer kept
+     * reachable, which reduces the memory used by errors during a failure storm.
+     *
+     * @param dropStackTraces {@code true} to discard the stack traces of suppressed errors
+     * @return this builder
+     */
+    public Builder dropStackTraces(final boolean dropStackTraces) {
+      this.dropStackTraces = Optional.of(dropStackTraces);
+      return this;
+    }
+
+    public ErrorAggregation build() {
+      final int maxSuppressed = this.maxSuppressed.orElse(DEFAULT_MAX_SUPPRESSED);
+      final boolean dropStackTraces = this.dropStackTraces.orElse(false);
+      return new ErrorAggregation(maxSuppressed, dropStackTraces);
+    }
+  }
+}
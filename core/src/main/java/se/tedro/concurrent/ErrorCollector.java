@@ -0,0 +1,145 @@
+package se.tedro.concurrent;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Thread-safe collector of the errors of a single operation, bounded by an {@link
+ * ErrorAggregation}.
+ *
+ * <p>Nothing but this object is allocated unless an error is added.
+ */
+class ErrorCollector {
+  static final AtomicIntegerFieldUpdater<ErrorCollector> COUNT =
+    AtomicIntegerFieldUpdater.newUpdater(ErrorCollector.class, "count");
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<ErrorCollector, Queue> RETAINED =
+    AtomicReferenceFieldUpdater.newUpdater(ErrorCollector.class, Queue.class, "retained");
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<ErrorCollector, ConcurrentMap> DROPPED =
+    AtomicReferenceFieldUpdater.newUpdater(ErrorCollector.class, ConcurrentMap.class, "dropped");
+
+  private final ErrorAggregation aggregation;
+
+  /**
+   * Number of errors added.
+   */
+  volatile int count;
+
+  /**
+   * The first error, followed by at most {@code maxSuppressed} suppressed errors.
+   */
+  volatile Queue<Throwable> retained;
+
+  /**
+   * Number of errors not retained, by type.
+   */
+  volatile ConcurrentMap<Class<? extends Throwable>, AtomicLong> dropped;
+
+  ErrorCollector(final ErrorAggregation aggregation) {
+    this.aggregation = aggregation;
+  }
+
+  /**
+   * Add an error.
+   *
+   * @param error error to add
+   */
+  void add(final Throwable error) {
+    final int c = COUNT.getAndIncrement(this);
+
+    if (c >= 0 && c <= aggregation.getMaxSuppressed()) {
+      if (c > 0 && aggregation.isDropStackTraces()) {
+        retained().add(new DroppedStackTraceException(error));
+        return;
+      }
+
+      retained().add(error);
+      return;
+    }
+
+    dropped().computeIfAbsent(error.getClass(), k -> new AtomicLong()).incrementAndGet();
+  }
+
+  /**
+   * Check if no errors have been added.
+   *
+   * @return {@code true} if no errors have been added
+   */
+  boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Build the error to fail an operation with.
+   *
+   * <p>Errors which have been added concurrently with this call might not be included.
+   *
+   * @return the first error, with all other retained errors as suppressed, or {@code null} if no
+   *     errors have been added before this call
+   */
+  Throwable build() {
+    final Queue<Throwable> retained = this.retained;
+    final ConcurrentMap<Class<? extends Throwable>, AtomicLong> dropped = this.dropped;
+
+    Throwable first = null;
+
+    if (retained != null) {
+      final Iterator<Throwable> it = retained.iterator();
+
+      if (it.hasNext()) {
+        first = it.next();
+
+        while (it.hasNext()) {
+          first.addSuppressed(it.next());
+        }
+      }
+    }
+
+    if (dropped != null) {
+      final Map<Class<? extends Throwable>, Long> counts = new HashMap<>();
+
+      for (final Map.Entry<Class<? extends Throwable>, AtomicLong> e : dropped.entrySet()) {
+        counts.put(e.getKey(), e.getValue().get());
+      }
+
+      final DroppedErrorsException summary = new DroppedErrorsException(counts);
+
+      if (first == null) {
+        return summary;
+      }
+
+      first.addSuppressed(summary);
+    }
+
+    return first;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Queue<Throwable> retained() {
+    if (retained == null) {
+      RETAINED.compareAndSet(this, null, new ConcurrentLinkedQueue<>());
+    }
+
+    return retained;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentMap<Class<? extends Throwable>, AtomicLong> dropped() {
+    if (dropped == null) {
+      DROPPED.compareAndSet(this, null, new ConcurrentHashMap<>());
+    }
+
+    return dropped;
+  }
+}
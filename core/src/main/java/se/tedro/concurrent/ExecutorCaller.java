@@ -1,24 +1,142 @@
 package se.tedro.concurrent;
 
 import java.util.concurrent.ExecutorService;
-import lombok.RequiredArgsConstructor;
+import se.tedro.concurrent.ConcurrentCompletable.Listener;
 
 /**
  * A {@link Caller} implementation that defers all execution to a
  * {@link java.util.concurrent.ExecutorService}.
+ *
+ * <p>If batching is enabled, all listeners of a completed stage are submitted to the executor as a
+ * single task instead of one task each. A task contains at most {@code maxBatchSize} listeners, any
+ * remaining listeners are split into further tasks. After having run {@code fairnessLimit}
+ * listeners, a task re-submits itself to the back of the executor queue to give other tasks a
+ * chance to run.
+ *
+ * <p>Listeners of a batch are run directly by the task, like single listeners are run directly by
+ * the executor. A listener that throws is reported to the uncaught exception handler of the
+ * current thread, which is where the executor would have reported it, and the rest of the batch
+ * keeps running.
  */
-@RequiredArgsConstructor
 public final class ExecutorCaller implements Caller {
   private final ExecutorService executor;
   private final Caller caller;
+  private final int maxBatchSize;
+  private final int fairnessLimit;
+
+  public ExecutorCaller(final ExecutorService executor, final Caller caller) {
+    this(executor, caller, 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Setup a batching executor caller.
+   *
+   * @param executor executor to execute on
+   * @param caller caller used to report leaked references
+   * @param maxBatchSize the max number of listeners to submit in a single task, {@code 1} disables
+   * batching
+   * @param fairnessLimit the number of listeners a task may run before it re-submits itself
+   */
+  public ExecutorCaller(
+    final ExecutorService executor, final Caller caller, final int maxBatchSize,
+    final int fairnessLimit
+  ) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize: must be positive");
+    }
+
+    if (fairnessLimit < 1) {
+      throw new IllegalArgumentException("fairnessLimit: must be positive");
+    }
+
+    this.executor = executor;
+    this.caller = caller;
+    this.maxBatchSize = maxBatchSize;
+    this.fairnessLimit = fairnessLimit;
+  }
 
   @Override
   public void execute(final Runnable runnable) {
     executor.execute(runnable);
   }
 
+  /**
+   * Execute all the listeners of a completed stage.
+   *
+   * <p>This is used by {@link ConcurrentCompletable#postComplete(Listener)} to avoid invoking the
+   * caller once for every listener. The caller takes ownership of the list, and is responsible for
+   * clearing the links between the listeners.
+   *
+   * @param listeners head of the list of listeners to execute
+   */
+  void executeBatch(Listener listeners) {
+    if (maxBatchSize == 1) {
+      while (listeners != null) {
+        final Listener next = listeners.next;
+        listeners.next = null;
+        executor.execute(listeners);
+        listeners = next;
+      }
+
+      return;
+    }
+
+    while (listeners != null) {
+      final Listener head = listeners;
+      Listener tail = head;
+
+      for (int i = 1; i < maxBatchSize && tail.next != null; i++) {
+        tail = tail.next;
+      }
+
+      listeners = tail.next;
+      tail.next = null;
+      executor.execute(new Batch(head));
+    }
+  }
+
   @Override
   public void referenceLeaked(final Object reference, final StackTraceElement[] stack) {
     executor.execute(() -> caller.referenceLeaked(reference, stack));
   }
+
+  private static void runListener(final Listener listener) {
+    try {
+      listener.run();
+    } catch (final Throwable e) {
+      final Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+
+  /**
+   * A task running a list of listeners.
+   */
+  class Batch implements Runnable {
+    private Listener listeners;
+
+    Batch(final Listener listeners) {
+      this.listeners = listeners;
+    }
+
+    @Override
+    public void run() {
+      Listener l = listeners;
+
+      for (int i = 0; l != null; i++) {
+        if (i >= fairnessLimit) {
+          listeners = l;
+          executor.execute(this);
+          return;
+        }
+
+        final Listener next = l.next;
+        l.next = null;
+        runListener(l);
+        l = next;
+      }
+
+      listeners = null;
+    }
+  }
 }
@@ -0,0 +1,42 @@
+package se.tedro.concurrent;
+
+import java.util.function.Predicate;
+
+/**
+ * A stream which only retains the elements of an upstream stream that match a predicate.
+ *
+ * @param <T> type of the elements in the stream
+ */
+class FilterStageStream<T> extends AbstractStageStream<T> {
+  private final StageStream<T> upstream;
+  private final Predicate<? super T> predicate;
+
+  FilterStageStream(
+    final Async async, final StageStream<T> upstream, final Predicate<? super T> predicate
+  ) {
+    super(async);
+    this.upstream = upstream;
+    this.predicate = predicate;
+  }
+
+  @Override
+  public Stage<T> next() {
+    final Completable<T> target = async.completable();
+
+    pull(upstream, target, value -> {
+      if (value == null || predicate.test(value)) {
+        target.complete(value);
+        return false;
+      }
+
+      return true;
+    });
+
+    return target;
+  }
+
+  @Override
+  public void cancel() {
+    upstream.cancel();
+  }
+}
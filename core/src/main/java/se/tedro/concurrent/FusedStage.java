@@ -0,0 +1,537 @@
+package se.tedro.concurrent;
+
+import static se.tedro.concurrent.ConcurrentCompletable.CANCEL;
+import static se.tedro.concurrent.ConcurrentCompletable.encode;
+import static se.tedro.concurrent.ConcurrentCompletable.isPending;
+import static se.tedro.concurrent.ConcurrentCompletable.stateOf;
+import static se.tedro.concurrent.ConcurrentCompletable.throwable;
+import static se.tedro.concurrent.ConcurrentCompletable.value;
+
+import java.text.MessageFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A step of a chain of {@link Stage#thenApply(Function)} and {@link Stage#thenCompose(Function)}
+ * operations on a pending {@link ConcurrentCompletable}, which are fused into one continuation.
+ *
+ * <p>All steps of a chain are run in order by a single {@link Chain}, which is the only listener
+ * added to the completable that the chain is derived from. A step records its outcome as the
+ * chain passes it, and a completable is only built for a step once it is observed, which is
+ * typically only the tail of the chain.
+ *
+ * <p>A step is appended to the chain for as long as the chain has not passed the step it is
+ * derived from, and no other step has been derived from it. Otherwise it is derived from the
+ * completable of the step instead, which starts a new chain.
+ *
+ * @param <T> type of the stage
+ */
+class FusedStage<T> extends AbstractImmediate<T> {
+  /**
+   * Marks the last step of a chain which has been passed.
+   */
+  static final Object SEALED = new Object();
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<FusedStage, Object> NEXT =
+    AtomicReferenceFieldUpdater.newUpdater(FusedStage.class, Object.class, "next");
+
+  @SuppressWarnings("rawtypes")
+  static final AtomicReferenceFieldUpdater<FusedStage, ConcurrentCompletable> TARGET =
+    AtomicReferenceFieldUpdater.newUpdater(FusedStage.class, ConcurrentCompletable.class,
+      "target");
+
+  final Chain chain;
+  final boolean compose;
+
+  /**
+   * The operation of this step, cleared once it has been run.
+   */
+  Function<Object, ?> fn;
+
+  /**
+   * The next step, or {@link #SEALED} if the chain passed this step without there being one.
+   */
+  volatile Object next;
+
+  /**
+   * Outcome of this step once the chain has passed it, encoded like
+   * {@link ConcurrentCompletable#state}.
+   */
+  volatile Object outcome;
+
+  /**
+   * Completable of this step, which is built once the step is observed.
+   */
+  volatile ConcurrentCompletable<T> target;
+
+  @SuppressWarnings("unchecked")
+  FusedStage(final Chain chain, final Function<?, ?> fn, final boolean compose) {
+    super(chain.caller);
+    this.chain = chain;
+    this.fn = (Function<Object, ?>) fn;
+    this.compose = compose;
+  }
+
+  /**
+   * Start a new chain on a pending completable.
+   *
+   * @param source completable to derive the chain from
+   * @param fn operation of the first step
+   * @param compose {@code true} if the operation returns a stage to compose
+   * @param <U> type of the first step
+   * @return the first step
+   */
+  static <U> FusedStage<U> start(
+    final ConcurrentCompletable<?> source, final Function<?, ?> fn, final boolean compose
+  ) {
+    final Chain chain = new Chain(source);
+    final FusedStage<U> head = new FusedStage<>(chain, fn, compose);
+    chain.head = head;
+    source.whenDone(chain);
+    return head;
+  }
+
+  @Override
+  public <U> Stage<U> thenApply(final Function<? super T, ? extends U> fn) {
+    if (next == null) {
+      final FusedStage<U> step = new FusedStage<>(chain, fn, false);
+
+      if (NEXT.compareAndSet(this, null, step)) {
+        return step;
+      }
+    }
+
+    return stage().thenApply(fn);
+  }
+
+  @Override
+  public <U> Stage<U> thenCompose(final Function<? super T, ? extends Stage<U>> fn) {
+    if (next == null) {
+      final FusedStage<U> step = new FusedStage<>(chain, fn, true);
+
+      if (NEXT.compareAndSet(this, null, step)) {
+        return step;
+      }
+    }
+
+    return stage().thenCompose(fn);
+  }
+
+  @Override
+  public <U> Stage<U> thenComplete(final U result) {
+    return thenApply(v -> result);
+  }
+
+  @Override
+  public boolean cancel() {
+    if (target == null && outcome != null) {
+      return false;
+    }
+
+    return stage().cancel();
+  }
+
+  @Override
+  public boolean isDone() {
+    return !isPending(state());
+  }
+
+  @Override
+  public boolean isCompleted() {
+    return stateOf(state()) == ConcurrentCompletable.COMPLETED;
+  }
+
+  @Override
+  public boolean isFailed() {
+    return stateOf(state()) == ConcurrentCompletable.FAILED;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return state() == CANCEL;
+  }
+
+  @Override
+  public Throwable cause() {
+    final Object s = state();
+
+    if (stateOf(s) != ConcurrentCompletable.FAILED) {
+      throw new IllegalStateException("not in a failed state");
+    }
+
+    return throwable(s);
+  }
+
+  @Override
+  public T join() throws InterruptedException, ExecutionException {
+    return stage().join();
+  }
+
+  @Override
+  public T join(final long timeout, final TimeUnit unit)
+    throws InterruptedException, ExecutionException, TimeoutException {
+    return stage().join(timeout, unit);
+  }
+
+  @Override
+  public T joinNow() throws ExecutionException {
+    return stage().joinNow();
+  }
+
+  @Override
+  public Stage<T> handle(final Handle<? super T> handle) {
+    stage().handle(handle);
+    return this;
+  }
+
+  @Override
+  public Stage<T> whenDone(final Runnable runnable) {
+    stage().whenDone(runnable);
+    return this;
+  }
+
+  @Override
+  public Stage<T> whenComplete(final Consumer<? super T> consumer) {
+    stage().whenComplete(consumer);
+    return this;
+  }
+
+  @Override
+  public Stage<T> whenFailed(final Consumer<? super Throwable> consumer) {
+    stage().whenFailed(consumer);
+    return this;
+  }
+
+  @Override
+  public Stage<T> whenCancelled(final Runnable runnable) {
+    stage().whenCancelled(runnable);
+    return this;
+  }
+
+  @Override
+  public Stage<T> thenApplyFailed(final Function<? super Throwable, ? extends T> fn) {
+    return stage().thenApplyFailed(fn);
+  }
+
+  @Override
+  public Stage<T> thenComposeCaught(final Function<? super Throwable, ? extends Stage<T>> fn) {
+    return stage().thenComposeCaught(fn);
+  }
+
+  @Override
+  public <U> Stage<U> thenFail(final Throwable cause) {
+    return stage().thenFail(cause);
+  }
+
+  @Override
+  public <U> Stage<U> thenCancel() {
+    return stage().thenCancel();
+  }
+
+  @Override
+  public Stage<T> withCloser(
+    final Supplier<? extends Stage<Void>> complete,
+    final Supplier<? extends Stage<Void>> notComplete
+  ) {
+    return stage().withCloser(complete, notComplete);
+  }
+
+  @Override
+  public Stage<T> withComplete(final Supplier<? extends Stage<Void>> supplier) {
+    return stage().withComplete(supplier);
+  }
+
+  @Override
+  public Stage<T> withNotComplete(final Supplier<? extends Stage<Void>> supplier) {
+    return stage().withNotComplete(supplier);
+  }
+
+  @Override
+  public Stage<T> withTimeout(final long timeout, final TimeUnit unit) {
+    return stage().withTimeout(timeout, unit);
+  }
+
+  @Override
+  public Stage<T> withDeadline(final Deadline deadline) {
+    return stage().withDeadline(deadline);
+  }
+
+  @Override
+  public Deadline deadline() {
+    return chain.deadline;
+  }
+
+  @Override
+  TimingWheel timer() {
+    return chain.timer;
+  }
+
+  /**
+   * The current state of this step, encoded like {@link ConcurrentCompletable#state}.
+   */
+  Object state() {
+    final ConcurrentCompletable<T> target = this.target;
+    return target != null ? target.state : outcome;
+  }
+
+  /**
+   * The completable of this step, which is built the first time that the step is observed.
+   *
+   * <p>Cancelling the completable before the chain has passed this step cancels the chain.
+   */
+  ConcurrentCompletable<T> stage() {
+    final ConcurrentCompletable<T> target = this.target;
+
+    if (target != null) {
+      return target;
+    }
+
+    final ConcurrentCompletable<T> c =
+      new ConcurrentCompletable<>(caller, chain.timer, chain.deadline);
+
+    final Object r = outcome;
+
+    if (r != null) {
+      c.state = r;
+    } else {
+      c.source = chain;
+    }
+
+    if (!TARGET.compareAndSet(this, null, c)) {
+      return this.target;
+    }
+
+    /* the chain might have passed this step before it could see the completable */
+    if (r == null) {
+      final Object o = outcome;
+
+      if (o != null) {
+        c.end(o);
+      }
+    }
+
+    return c;
+  }
+
+  /**
+   * Record the outcome of this step as the chain passes it.
+   *
+   * @param r the encoded outcome
+   * @return the outcome to pass on to the next step, which differs from the given outcome if the
+   *     completable of this step has been cancelled
+   */
+  Object pass(final Object r) {
+    outcome = r;
+
+    final ConcurrentCompletable<T> target = this.target;
+
+    if (target == null) {
+      return r;
+    }
+
+    target.end(r);
+    return target.state;
+  }
+
+  /**
+   * Get the next step, or mark this as the last step if there is none.
+   *
+   * @return the next step, or {@code null} if this is the last step
+   */
+  FusedStage<?> seal() {
+    if (next == null && NEXT.compareAndSet(this, null, SEALED)) {
+      return null;
+    }
+
+    return (FusedStage<?>) next;
+  }
+
+  @Override
+  public String toString() {
+    final String name = getClass().getSimpleName();
+    final Object r = state();
+
+    switch (stateOf(r)) {
+      case ConcurrentCompletable.PENDING:
+        return MessageFormat.format("{0}({1})", name, Stage.PENDING);
+      case ConcurrentCompletable.COMPLETED:
+        return MessageFormat.format("{0}({1}: result={2})", name, Stage.COMPLETED, value(r));
+      case ConcurrentCompletable.FAILED:
+        return MessageFormat.format("{0}({1}: cause={2})", name, Stage.FAILED, throwable(r));
+      default:
+        return MessageFormat.format("{0}({1})", name, Stage.CANCELLED);
+    }
+  }
+
+  /**
+   * The continuation which runs all steps of a chain, once the completable it is derived from is
+   * done.
+   */
+  static class Chain extends ConcurrentCompletable.Listener {
+    final Caller caller;
+    final TimingWheel timer;
+    final Deadline deadline;
+
+    /**
+     * The completable this chain is derived from, until the chain is run.
+     */
+    volatile ConcurrentCompletable<?> source;
+
+    /**
+     * The first step, until the chain is run.
+     */
+    FusedStage<?> head;
+
+    /**
+     * The stage returned by a compose step, while the chain is waiting for it.
+     */
+    volatile Stage<?> waiting;
+
+    /**
+     * Set once a step which has not been passed is cancelled, after which all remaining steps are
+     * cancelled.
+     */
+    volatile boolean cancelled;
+
+    Chain(final ConcurrentCompletable<?> source) {
+      this.caller = source.caller;
+      this.timer = source.timer;
+      this.deadline = source.deadline;
+      this.source = source;
+    }
+
+    @Override
+    public void run() {
+      final ConcurrentCompletable<?> source = this.source;
+      final FusedStage<?> head = this.head;
+
+      // help garbage collection, steps only link forward so passed steps can now be collected.
+      this.source = null;
+      this.head = null;
+
+      run(head, source.state);
+    }
+
+    /**
+     * Cancel the chain, which cancels whatever the chain is waiting for, and all steps which have
+     * not been passed.
+     */
+    void cancel() {
+      cancelled = true;
+
+      final ConcurrentCompletable<?> source = this.source;
+
+      if (source != null) {
+        source.cancel();
+      }
+
+      final Stage<?> waiting = this.waiting;
+
+      if (waiting != null) {
+        waiting.cancel();
+      }
+    }
+
+    /**
+     * Run the chain starting at the given step.
+     *
+     * @param step the step to start at, or {@code null} if there are no more steps
+     * @param r the encoded outcome of the step before
+     */
+    void run(FusedStage<?> step, Object r) {
+      while (step != null) {
+        final Function<Object, ?> fn = step.fn;
+        // help garbage collection.
+        step.fn = null;
+
+        if (!cancelled && stateOf(r) == ConcurrentCompletable.COMPLETED) {
+          if (step.compose) {
+            r = compose(step, fn, value(r));
+
+            /* the chain continues once the composed stage is done */
+            if (r == null) {
+              return;
+            }
+          } else {
+            try {
+              r = encode(fn.apply(value(r)));
+            } catch (final Exception e) {
+              r = e;
+            }
+          }
+        }
+
+        r = step.pass(cancelled ? CANCEL : r);
+        step = step.seal();
+      }
+    }
+
+    /**
+     * Run a compose step, and continue the chain once the composed stage is done.
+     *
+     * @return {@code null} if the chain is waiting for the composed stage, otherwise the outcome of
+     *     the step
+     */
+    Object compose(final FusedStage<?> step, final Function<Object, ?> fn, final Object value) {
+      if (deadline.isExpired()) {
+        return new DeadlineExceededException();
+      }
+
+      final Stage<?> next;
+
+      try {
+        next = (Stage<?>) fn.apply(value);
+      } catch (final Exception e) {
+        return e;
+      }
+
+      waiting = next;
+
+      if (cancelled) {
+        next.cancel();
+      }
+
+      next.handle(new Resume(step));
+      return null;
+    }
+
+    /**
+     * Continues the chain after the given compose step once its stage is done.
+     */
+    class Resume implements Handle<Object> {
+      private final FusedStage<?> step;
+
+      Resume(final FusedStage<?> step) {
+        this.step = step;
+      }
+
+      @Override
+      public void completed(final Object result) {
+        resume(encode(result));
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        resume(cause);
+      }
+
+      @Override
+      public void cancelled() {
+        resume(CANCEL);
+      }
+
+      private void resume(final Object r) {
+        waiting = null;
+
+        final Object o = step.pass(cancelled ? CANCEL : r);
+        run(step.seal(), o);
+      }
+    }
+  }
+}
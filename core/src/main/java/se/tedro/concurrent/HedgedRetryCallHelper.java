@@ -0,0 +1,353 @@
+package se.tedro.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Helper class for
+ * {@link CoreAsync#retryUntilCompleted(Callable, RetryPolicy, HedgePolicy)}.
+ *
+ * <p>Attempts are made in rounds. A round starts with a single attempt, and whenever the hedge
+ * policy decides so, another attempt is started in parallel while the ones in flight are still
+ * pending, up to {@link HedgePolicy#maxOutstanding()} hedges at a time. Hedges are armed in the
+ * timing wheel, since almost all of them are expected to be cancelled, and are started on the
+ * scheduler.
+ *
+ * <p>The first attempt to complete completes the target, after which all other attempts are
+ * cancelled. A round only fails once every attempt in it has failed, at which point the retry
+ * policy decides if another round should be started after a back-off.
+ *
+ * <p>All mutable state is guarded by synchronizing on the helper, but the target and attempts are
+ * only ended or cancelled outside of the lock.
+ *
+ * @param <T> result type of the retried operation
+ */
+class HedgedRetryCallHelper<T> {
+  private final long start;
+  private final ScheduledExecutorService scheduler;
+  private final TimingWheel timer;
+  private final Callable<? extends Stage<? extends T>> action;
+  private final Supplier<RetryDecision> policyInstance;
+  private final HedgePolicy hedgePolicy;
+  private final Completable<T> future;
+  private final ClockSource clockSource;
+  private final Deadline deadline;
+
+  /* fields guarded by this */
+  private final RetryErrors errors;
+  private final List<Attempt> outstanding = new ArrayList<>();
+  private Supplier<RetryDecision> hedges;
+  private TimingWheel.Timeout hedge;
+  private ScheduledFuture<?> nextCall;
+  private boolean finished;
+
+  HedgedRetryCallHelper(
+    final long start, final ScheduledExecutorService scheduler, final TimingWheel timer,
+    final Callable<? extends Stage<? extends T>> action,
+    final Supplier<RetryDecision> policyInstance, final HedgePolicy hedgePolicy,
+    final Completable<T> future, final ClockSource clockSource,
+    final ErrorAggregation errorAggregation, final Deadline deadline
+  ) {
+    this.start = start;
+    this.scheduler = scheduler;
+    this.timer = timer;
+    this.action = action;
+    this.policyInstance = policyInstance;
+    this.hedgePolicy = hedgePolicy;
+    this.future = future;
+    this.clockSource = clockSource;
+    this.deadline = deadline;
+    this.errors = new RetryErrors(errorAggregation);
+  }
+
+  /**
+   * Errors of previous attempts, may only be accessed once the target is done.
+   *
+   * @return errors of previous attempts
+   */
+  synchronized List<RetryException> getErrors() {
+    return errors.list();
+  }
+
+  /**
+   * Start a new round of attempts.
+   */
+  void next() {
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      nextCall = null;
+      hedges = hedgePolicy.newInstance(clockSource);
+    }
+
+    if (deadline.isExpired()) {
+      giveUp(new DeadlineExceededException());
+      return;
+    }
+
+    launch();
+  }
+
+  /**
+   * Start a hedged attempt, unless the round is over.
+   */
+  void hedge() {
+    synchronized (this) {
+      hedge = null;
+
+      if (finished || outstanding.isEmpty()) {
+        return;
+      }
+    }
+
+    /* a hedge started after the deadline could not be used */
+    if (deadline.isExpired()) {
+      return;
+    }
+
+    launch();
+  }
+
+  void launch() {
+    final Attempt attempt = new Attempt(clockSource.nanoTime());
+
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      outstanding.add(attempt);
+    }
+
+    final Stage<? extends T> stage;
+
+    try {
+      stage = action.call();
+    } catch (final Exception e) {
+      attempt.failed(e);
+      return;
+    }
+
+    if (stage == null) {
+      attempt.failed(new IllegalStateException("Retry action returned null"));
+      return;
+    }
+
+    attempt.stage = stage;
+    armHedge();
+    stage.handle(attempt);
+
+    /* the helper might have finished before the stage was known to it */
+    final boolean finished;
+
+    synchronized (this) {
+      finished = this.finished;
+    }
+
+    if (finished) {
+      stage.cancel();
+    }
+  }
+
+  void armHedge() {
+    synchronized (this) {
+      if (finished || hedge != null || outstanding.size() > hedgePolicy.maxOutstanding()) {
+        return;
+      }
+
+      final RetryDecision decision = hedges.get();
+
+      if (!decision.shouldRetry()) {
+        return;
+      }
+
+      /* the action is not called on the timer thread, so that it can't hold up other timeouts */
+      hedge = timer.schedule(() -> scheduler.execute(this::hedge),
+        decision.backoff(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Consult the retry policy once every attempt of a round has failed.
+   */
+  void retry(final Throwable cause) {
+    final long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+
+    /* don't spend a retry from the policy if no round could be started anyway */
+    if (remaining <= 0) {
+      deadlineExceeded(cause);
+      return;
+    }
+
+    final RetryDecision decision = policyInstance.get();
+
+    if (!decision.shouldRetry()) {
+      giveUp(cause);
+      return;
+    }
+
+    final long backoff = decision.backoff(TimeUnit.NANOSECONDS);
+
+    /* the next round would be started after the deadline */
+    if (remaining <= backoff) {
+      deadlineExceeded(cause);
+      return;
+    }
+
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      errors.add(cause, clockSource.now() - start);
+
+      if (backoff > 0) {
+        nextCall = scheduler.schedule(this::next, backoff, TimeUnit.NANOSECONDS);
+        return;
+      }
+    }
+
+    next();
+  }
+
+  void giveUp(final Throwable cause) {
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      errors.suppressInto(cause);
+    }
+
+    future.fail(cause);
+  }
+
+  /**
+   * Fail with a {@link DeadlineExceededException}, with the errors of all attempts attached to it.
+   */
+  void deadlineExceeded(final Throwable cause) {
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      errors.add(cause, clockSource.now() - start);
+    }
+
+    giveUp(new DeadlineExceededException());
+  }
+
+  /**
+   * Must be called when the target completable is done, to cancel any attempts or scheduled
+   * events.
+   */
+  void finished() {
+    final List<Attempt> attempts;
+    final TimingWheel.Timeout hedge;
+    final ScheduledFuture<?> nextCall;
+
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+
+      finished = true;
+      attempts = new ArrayList<>(outstanding);
+      outstanding.clear();
+      hedge = this.hedge;
+      this.hedge = null;
+      nextCall = this.nextCall;
+      this.nextCall = null;
+    }
+
+    if (hedge != null) {
+      hedge.cancel();
+    }
+
+    if (nextCall != null) {
+      nextCall.cancel(false);
+    }
+
+    final long now = clockSource.nanoTime();
+
+    for (final Attempt attempt : attempts) {
+      final Stage<? extends T> stage = attempt.stage;
+
+      if (stage != null) {
+        /* the attempt lost the round, so it would have taken at least this long */
+        hedgePolicy.recordCensored(now - attempt.started);
+        stage.cancel();
+      }
+    }
+  }
+
+  class Attempt implements Handle<T> {
+    private final long started;
+    volatile Stage<? extends T> stage;
+
+    Attempt(final long started) {
+      this.started = started;
+    }
+
+    @Override
+    public void completed(final T result) {
+      synchronized (HedgedRetryCallHelper.this) {
+        if (finished) {
+          return;
+        }
+
+        outstanding.remove(this);
+      }
+
+      hedgePolicy.record(clockSource.nanoTime() - started);
+      /* ends the target first, then cancels and censors the other attempts through finished() */
+      future.complete(result);
+    }
+
+    @Override
+    public void failed(final Throwable cause) {
+      final TimingWheel.Timeout hedge;
+
+      synchronized (HedgedRetryCallHelper.this) {
+        if (finished) {
+          return;
+        }
+
+        outstanding.remove(this);
+
+        if (!outstanding.isEmpty()) {
+          /* other attempts of this round might still complete */
+          errors.add(cause, clockSource.now() - start);
+          return;
+        }
+
+        hedge = HedgedRetryCallHelper.this.hedge;
+        HedgedRetryCallHelper.this.hedge = null;
+      }
+
+      if (hedge != null) {
+        hedge.cancel();
+      }
+
+      retry(cause);
+    }
+
+    @Override
+    public void cancelled() {
+      synchronized (HedgedRetryCallHelper.this) {
+        if (finished) {
+          return;
+        }
+      }
+
+      future.cancel();
+    }
+  }
+}
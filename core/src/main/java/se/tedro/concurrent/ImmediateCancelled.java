@@ -15,8 +15,21 @@ import lombok.EqualsAndHashCode;
  */
 @EqualsAndHashCode(of = {}, doNotUseGetters = true, callSuper = false)
 public class ImmediateCancelled<T> extends AbstractImmediate<T> implements Stage<T> {
+  private final Deadline deadline;
+
   public ImmediateCancelled(final Caller caller) {
+    this(caller, Deadline.none());
+  }
+
+  /**
+   * Constructor that provides the deadline to carry, which is inherited by derived stages.
+   *
+   * @param caller caller to invoke listeners through
+   * @param deadline deadline to carry
+   */
+  public ImmediateCancelled(final Caller caller, final Deadline deadline) {
     super(caller);
+    this.deadline = deadline;
   }
 
   @Override
@@ -94,14 +107,14 @@ public class ImmediateCancelled<T> extends AbstractImmediate<T> implements Stage
 
   @Override
   public <U> Stage<U> thenApply(Function<? super T, ? extends U> fn) {
-    return new ImmediateCancelled<>(caller);
+    return immediateCancelled();
   }
 
   @Override
   public <U> Stage<U> thenCompose(
     Function<? super T, ? extends Stage<U>> fn
   ) {
-    return new ImmediateCancelled<>(caller);
+    return immediateCancelled();
   }
 
   @Override
@@ -138,19 +151,34 @@ public class ImmediateCancelled<T> extends AbstractImmediate<T> implements Stage
     return withNotCompleteCancelled(supplier);
   }
 
+  @Override
+  public Stage<T> withTimeout(final long timeout, final TimeUnit unit) {
+    return this;
+  }
+
+  @Override
+  public Stage<T> withDeadline(final Deadline deadline) {
+    return this;
+  }
+
+  @Override
+  public Deadline deadline() {
+    return deadline;
+  }
+
   @Override
   public <U> Stage<U> thenFail(final Throwable cause) {
-    return new ImmediateFailed<>(caller, cause);
+    return immediateFailed(cause);
   }
 
   @Override
   public <U> Stage<U> thenCancel() {
-    return new ImmediateCancelled<>(caller);
+    return immediateCancelled();
   }
 
   @Override
   public <U> Stage<U> thenComplete(final U result) {
-    return new ImmediateCompleted<>(caller, result);
+    return immediateCompleted(result);
   }
 
   @Override
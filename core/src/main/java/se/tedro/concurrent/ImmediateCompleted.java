@@ -15,12 +15,27 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode(of = {"result"}, doNotUseGetters = true, callSuper = false)
 public class ImmediateCompleted<T> extends AbstractImmediate<T> implements Stage<T> {
   private final T result;
+  private final Deadline deadline;
 
   public ImmediateCompleted(
     final Caller caller, final T result
+  ) {
+    this(caller, result, Deadline.none());
+  }
+
+  /**
+   * Constructor that provides the deadline to carry, which is inherited by derived stages.
+   *
+   * @param caller caller to invoke listeners through
+   * @param result result of the stage
+   * @param deadline deadline to carry
+   */
+  public ImmediateCompleted(
+    final Caller caller, final T result, final Deadline deadline
   ) {
     super(caller);
     this.result = result;
+    this.deadline = deadline;
   }
 
   @Override
@@ -142,19 +157,34 @@ public class ImmediateCompleted<T> extends AbstractImmediate<T> implements Stage
     return this;
   }
 
+  @Override
+  public Stage<T> withTimeout(final long timeout, final TimeUnit unit) {
+    return this;
+  }
+
+  @Override
+  public Stage<T> withDeadline(final Deadline deadline) {
+    return this;
+  }
+
+  @Override
+  public Deadline deadline() {
+    return deadline;
+  }
+
   @Override
   public <U> Stage<U> thenFail(final Throwable cause) {
-    return new ImmediateFailed<>(caller, cause);
+    return immediateFailed(cause);
   }
 
   @Override
   public <U> Stage<U> thenCancel() {
-    return new ImmediateCancelled<>(caller);
+    return immediateCancelled();
   }
 
   @Override
   public <U> Stage<U> thenComplete(final U result) {
-    return new ImmediateCompleted<>(caller, result);
+    return immediateCompleted(result);
   }
 
   @Override
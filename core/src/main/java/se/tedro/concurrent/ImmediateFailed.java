@@ -16,12 +16,27 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode(of = {"cause"}, doNotUseGetters = true, callSuper = false)
 public class ImmediateFailed<T> extends AbstractImmediate<T> implements Stage<T> {
   private final Throwable cause;
+  private final Deadline deadline;
 
   public ImmediateFailed(
     Caller caller, Throwable cause
+  ) {
+    this(caller, cause, Deadline.none());
+  }
+
+  /**
+   * Constructor that provides the deadline to carry, which is inherited by derived stages.
+   *
+   * @param caller caller to invoke listeners through
+   * @param cause cause of the failure
+   * @param deadline deadline to carry
+   */
+  public ImmediateFailed(
+    final Caller caller, final Throwable cause, final Deadline deadline
   ) {
     super(caller);
     this.cause = cause;
+    this.deadline = deadline;
   }
 
   @Override
@@ -100,7 +115,7 @@ public class ImmediateFailed<T> extends AbstractImmediate<T> implements Stage<T>
   @SuppressWarnings("unchecked")
   @Override
   public <U> Stage<U> thenApply(Function<? super T, ? extends U> fn) {
-    return new ImmediateFailed<>(caller, cause);
+    return immediateFailed(cause);
   }
 
   @SuppressWarnings("unchecked")
@@ -108,7 +123,7 @@ public class ImmediateFailed<T> extends AbstractImmediate<T> implements Stage<T>
   public <U> Stage<U> thenCompose(
     Function<? super T, ? extends Stage<U>> fn
   ) {
-    return new ImmediateFailed<>(caller, cause);
+    return immediateFailed(cause);
   }
 
   @Override
@@ -145,21 +160,36 @@ public class ImmediateFailed<T> extends AbstractImmediate<T> implements Stage<T>
     return withNotCompleteFailed(cause, supplier);
   }
 
+  @Override
+  public Stage<T> withTimeout(final long timeout, final TimeUnit unit) {
+    return this;
+  }
+
+  @Override
+  public Stage<T> withDeadline(final Deadline deadline) {
+    return this;
+  }
+
+  @Override
+  public Deadline deadline() {
+    return deadline;
+  }
+
   @Override
   public <U> Stage<U> thenFail(final Throwable cause) {
     final ExecutionException c = new ExecutionException(cause);
     c.addSuppressed(this.cause);
-    return new ImmediateFailed<>(caller, c);
+    return immediateFailed(c);
   }
 
   @Override
   public <U> Stage<U> thenCancel() {
-    return new ImmediateCancelled<>(caller);
+    return immediateCancelled();
   }
 
   @Override
   public <U> Stage<U> thenComplete(final U result) {
-    return new ImmediateCompleted<>(caller, result);
+    return immediateCompleted(result);
   }
 
   @Override
@@ -0,0 +1,161 @@
+package se.tedro.concurrent;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detects borrowed references that are garbage collected without being released.
+ *
+ * <p>Only one in {@code rate} borrows is tracked, through a {@link PhantomReference} to the
+ * borrowed reference. Borrows which are not sampled cost nothing beyond picking a random number,
+ * unlike finalizable objects which all need an extra garbage collection cycle to be reclaimed.
+ *
+ * <p>Leaked references are reported to the caller whenever a borrow is sampled or a sampled borrow
+ * is released, so that no thread is needed to wait for the reference queue. While borrows are
+ * tracked, the queue is also drained periodically from the timing wheel, which bounds the time it
+ * takes for a leak to be reported once the borrowed reference has been garbage collected.
+ */
+class LeakDetector {
+  /**
+   * Default interval between draining the reference queue, in milliseconds.
+   */
+  static final long DRAIN_INTERVAL = 1000L;
+
+  private final Caller caller;
+  private final int rate;
+  private final TimingWheel timer;
+  private final long drainInterval;
+
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+  /**
+   * Set while a drain of the reference queue is armed in the timing wheel.
+   */
+  private final AtomicBoolean armed = new AtomicBoolean();
+
+  /**
+   * Trackers must be strongly reachable for them to be enqueued.
+   */
+  final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Create a new leak detector.
+   *
+   * @param caller caller to report leaks to
+   * @param rate track one in this number of borrows, {@code 0} disables tracking
+   */
+  LeakDetector(final Caller caller, final int rate) {
+    this(caller, rate, TimingWheel.shared(), DRAIN_INTERVAL);
+  }
+
+  /**
+   * Create a new leak detector which drains the reference queue in the given timing wheel.
+   *
+   * @param caller caller to report leaks to
+   * @param rate track one in this number of borrows, {@code 0} disables tracking
+   * @param timer timing wheel to drain the reference queue in
+   * @param drainInterval interval between drains in milliseconds
+   */
+  LeakDetector(
+    final Caller caller, final int rate, final TimingWheel timer, final long drainInterval
+  ) {
+    if (rate < 0) {
+      throw new IllegalArgumentException("rate: must not be negative");
+    }
+
+    this.caller = caller;
+    this.rate = rate;
+    this.timer = timer;
+    this.drainInterval = drainInterval;
+  }
+
+  /**
+   * Maybe track the given borrowed reference.
+   *
+   * @param borrowed borrowed reference to track
+   * @param reference the reference which was borrowed
+   * @param stack stack trace of where the reference was borrowed
+   * @return a tracker which must be closed when the borrowed reference is released, or {@code null}
+   *     if the borrow was not sampled
+   */
+  Tracker track(
+    final Object borrowed, final Object reference, final StackTraceElement[] stack
+  ) {
+    if (rate == 0 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0)) {
+      return null;
+    }
+
+    reportLeaks();
+
+    final Tracker tracker = new Tracker(borrowed, reference, stack);
+    trackers.add(tracker);
+    arm();
+    return tracker;
+  }
+
+  /**
+   * Arm a drain of the reference queue, unless one is already armed.
+   */
+  void arm() {
+    if (!armed.get() && armed.compareAndSet(false, true)) {
+      timer.schedule(this::drain, drainInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Report leaks through the caller, since the timer thread must not be held up, and re-arm for as
+   * long as borrows are tracked.
+   */
+  void drain() {
+    caller.execute(() -> {
+      reportLeaks();
+      armed.set(false);
+
+      /* a borrow tracked before the flag was cleared might not have been able to arm */
+      if (!trackers.isEmpty()) {
+        arm();
+      }
+    });
+  }
+
+  /**
+   * Report all tracked references that have been garbage collected without being released.
+   */
+  void reportLeaks() {
+    Tracker tracker;
+
+    while ((tracker = (Tracker) queue.poll()) != null) {
+      /* a tracker that was closed concurrently with being enqueued was not leaked */
+      if (trackers.remove(tracker)) {
+        caller.referenceLeaked(tracker.reference, tracker.stack);
+      }
+    }
+  }
+
+  class Tracker extends PhantomReference<Object> {
+    final Object reference;
+    final StackTraceElement[] stack;
+
+    Tracker(final Object borrowed, final Object reference, final StackTraceElement[] stack) {
+      super(borrowed, queue);
+      this.reference = reference;
+      this.stack = stack;
+    }
+
+    /**
+     * Stop tracking, must be called when the borrowed reference is released.
+     */
+    void close() {
+      if (trackers.remove(this)) {
+        clear();
+      }
+
+      reportLeaks();
+    }
+  }
+}
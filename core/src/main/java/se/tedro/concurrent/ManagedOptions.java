@@ -1,6 +1,7 @@
 package se.tedro.concurrent;
 
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import lombok.Data;
 
 /**
@@ -10,15 +11,36 @@ import lombok.Data;
 public class ManagedOptions {
   private static final boolean TRACING;
   private static final boolean CAPTURE_STACK;
+  private static final int LEAK_DETECTION_RATE;
+
+  /**
+   * Default number of borrows for each one that is tracked for leaks.
+   */
+  static final int DEFAULT_LEAK_DETECTION_RATE = 128;
+
+  /**
+   * Default max number of waiters in line for an instance of a pool.
+   */
+  static final int DEFAULT_POOL_MAX_WAITERS = 1024;
 
   // fetch and compare the value of properties that modifies runtime behaviour of this class.
   static {
     TRACING = "on".equals(System.getProperty(Managed.TRACING, "off"));
     CAPTURE_STACK = "on".equals(System.getProperty(Managed.CAPTURE_STACK, "off"));
+    LEAK_DETECTION_RATE =
+      Integer.getInteger(Managed.LEAK_DETECTION_RATE, DEFAULT_LEAK_DETECTION_RATE);
   }
 
   private final boolean tracing;
   private final boolean captureStack;
+  private final int leakDetectionRate;
+  private final int poolMaxWaiters;
+
+  /**
+   * Time in milliseconds after which free instances of a pool are torn down, {@code 0} if they
+   * never are.
+   */
+  private final long poolIdleTimeout;
 
   public static Builder builder() {
     return new Builder();
@@ -34,6 +56,9 @@ public class ManagedOptions {
   public static class Builder {
     private Optional<Boolean> captureStack = Optional.empty();
     private Optional<Boolean> tracing = Optional.empty();
+    private Optional<Integer> leakDetectionRate = Optional.empty();
+    private Optional<Integer> poolMaxWaiters = Optional.empty();
+    private Optional<Long> poolIdleTimeout = Optional.empty();
 
     Builder() {
     }
@@ -64,10 +89,69 @@ public class ManagedOptions {
       return this;
     }
 
+    /**
+     * Configure how many borrowed references there are for each one that is tracked for leaks.
+     *
+     * <p>Tracked references that are garbage collected without being released are reported through
+     * {@link Caller#referenceLeaked(Object, StackTraceElement[])}. Tracking every borrow is
+     * expensive, so only a sample is tracked by default.
+     *
+     * @param leakDetectionRate track one in this number of borrows, {@code 1} tracks all borrows
+     *     and {@code 0} disables leak detection
+     * @return this builder
+     */
+    public Builder leakDetectionRate(final int leakDetectionRate) {
+      if (leakDetectionRate < 0) {
+        throw new IllegalArgumentException("leakDetectionRate: must not be negative");
+      }
+
+      this.leakDetectionRate = Optional.of(leakDetectionRate);
+      return this;
+    }
+
+    /**
+     * Configure how many may wait in line for an instance of a {@link ManagedPool}, before
+     * further attempts are rejected.
+     *
+     * @param poolMaxWaiters max number of waiters
+     * @return this builder
+     */
+    public Builder poolMaxWaiters(final int poolMaxWaiters) {
+      if (poolMaxWaiters < 0) {
+        throw new IllegalArgumentException("poolMaxWaiters: must not be negative");
+      }
+
+      this.poolMaxWaiters = Optional.of(poolMaxWaiters);
+      return this;
+    }
+
+    /**
+     * Configure for how long instances of a {@link ManagedPool} may be free before they are torn
+     * down. They are set up again once they are needed.
+     *
+     * <p>By default, instances are never torn down for being idle.
+     *
+     * @param duration idle duration, {@code 0} to never tear down idle instances
+     * @param unit unit of the duration
+     * @return this builder
+     */
+    public Builder poolIdleTimeout(final long duration, final TimeUnit unit) {
+      if (duration < 0) {
+        throw new IllegalArgumentException("duration: must not be negative");
+      }
+
+      this.poolIdleTimeout = Optional.of(TimeUnit.MILLISECONDS.convert(duration, unit));
+      return this;
+    }
+
     public ManagedOptions build() {
       final boolean captureStack = this.captureStack.orElse(CAPTURE_STACK);
       final boolean tracing = this.tracing.orElse(TRACING);
-      return new ManagedOptions(captureStack, tracing);
+      final int leakDetectionRate = this.leakDetectionRate.orElse(LEAK_DETECTION_RATE);
+      final int poolMaxWaiters = this.poolMaxWaiters.orElse(DEFAULT_POOL_MAX_WAITERS);
+      final long poolIdleTimeout = this.poolIdleTimeout.orElse(0L);
+      return new ManagedOptions(tracing, captureStack, leakDetectionRate, poolMaxWaiters,
+        poolIdleTimeout);
     }
   }
 }
@@ -0,0 +1,39 @@
+package se.tedro.concurrent;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A stream which transforms each element of an upstream stream.
+ *
+ * @param <S> type of the elements in the upstream stream
+ * @param <T> type of the elements in the stream
+ */
+class MapStageStream<S, T> extends AbstractStageStream<T> {
+  private final StageStream<S> upstream;
+  private final Function<? super S, ? extends T> fn;
+
+  MapStageStream(
+    final Async async, final StageStream<S> upstream, final Function<? super S, ? extends T> fn
+  ) {
+    super(async);
+    this.upstream = upstream;
+    this.fn = fn;
+  }
+
+  @Override
+  public Stage<T> next() {
+    return upstream.next().thenApply(value -> {
+      if (value == null) {
+        return null;
+      }
+
+      return Objects.requireNonNull(fn.apply(value), "mapped value");
+    });
+  }
+
+  @Override
+  public void cancel() {
+    upstream.cancel();
+  }
+}
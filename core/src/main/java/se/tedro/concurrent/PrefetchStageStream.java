@@ -0,0 +1,352 @@
+package se.tedro.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A stream which requests elements from an upstream stream ahead of the consumer, and transforms
+ * each of them into a stage.
+ *
+ * <p>At most {@code capacity} transformed stages are pending or retained at the same time,
+ * including pending stages which have already been handed to the consumer. This is used to
+ * implement both {@link StageStream#buffer(int)} and {@link StageStream#flatMap(Function, int)}.
+ *
+ * <p>If the consumer cancels a stage it is waiting for, the cancel is propagated to the element
+ * requested from upstream for it, like it is to the transformed stage once the element exists. As
+ * with any cancelled upstream element, this cancels the stream.
+ *
+ * <p>All state is guarded by synchronizing on this stream, but no callbacks are invoked while
+ * holding the lock.
+ *
+ * @param <S> type of the elements in the upstream stream
+ * @param <T> type of the elements in the stream
+ */
+class PrefetchStageStream<S, T> extends AbstractStageStream<T> {
+  private final StageStream<S> upstream;
+  private final Function<? super S, ? extends Stage<? extends T>> fn;
+  private final int capacity;
+
+  /* transformed stages, in the order of the elements they were created from */
+  private final ArrayDeque<Stage<? extends T>> queue = new ArrayDeque<>();
+  /* consumer waiting for the next stage, only set if the queue is empty */
+  private Completable<T> waiting;
+  /* if an element is currently requested from upstream */
+  private boolean pulling;
+  /* the element requested from upstream, only set while it is pending */
+  private Stage<? extends S> pull;
+  /* if the element requested from upstream should be cancelled as soon as it is known */
+  private boolean abandoned;
+  /* number of pending stages which have been handed to the consumer */
+  private int handedOut;
+  private boolean exhausted;
+  private boolean cancelled;
+  private Throwable error;
+
+  PrefetchStageStream(
+    final Async async, final StageStream<S> upstream,
+    final Function<? super S, ? extends Stage<? extends T>> fn, final int capacity
+  ) {
+    super(async);
+    this.upstream = upstream;
+    this.fn = fn;
+    this.capacity = capacity;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Stage<T> next() {
+    final Stage<? extends T> head;
+    Completable<T> waiting = null;
+
+    synchronized (this) {
+      head = queue.poll();
+
+      if (head == null) {
+        if (error != null) {
+          return async.failed(error);
+        }
+
+        if (cancelled) {
+          return async.cancelled();
+        }
+
+        if (exhausted) {
+          return async.completed(null);
+        }
+
+        waiting = async.completable();
+        this.waiting = waiting;
+      }
+    }
+
+    if (head == null) {
+      final Completable<T> w = waiting;
+      w.whenCancelled(() -> abandon(w));
+      pump();
+      return waiting;
+    }
+
+    handOut(head);
+    pump();
+    return (Stage<T>) head;
+  }
+
+  @Override
+  public void cancel() {
+    final List<Stage<? extends T>> queued;
+    final Completable<T> waiting;
+
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+
+      cancelled = true;
+      queued = new ArrayList<>(queue);
+      queue.clear();
+      waiting = this.waiting;
+      this.waiting = null;
+    }
+
+    for (final Stage<? extends T> stage : queued) {
+      stage.cancel();
+    }
+
+    if (waiting != null) {
+      waiting.cancel();
+    }
+
+    upstream.cancel();
+  }
+
+  /**
+   * Request elements from upstream until the queue is full. Elements which are immediately
+   * available are handled in a loop, so that the stack does not grow with the number of elements.
+   */
+  private void pump() {
+    while (true) {
+      synchronized (this) {
+        if (pulling || exhausted || cancelled || error != null
+          || queue.size() + handedOut >= capacity) {
+          return;
+        }
+
+        pulling = true;
+      }
+
+      final Stage<? extends S> stage;
+
+      try {
+        stage = upstream.next();
+      } catch (final Exception e) {
+        synchronized (this) {
+          this.abandoned = false;
+        }
+
+        failed(e);
+        return;
+      }
+
+      final boolean abandoned;
+
+      synchronized (this) {
+        abandoned = this.abandoned;
+        this.abandoned = false;
+
+        if (!abandoned) {
+          pull = stage;
+        }
+      }
+
+      if (abandoned) {
+        stage.cancel();
+      }
+
+      if (!stage.isDone()) {
+        stage.handle(new Handle<S>() {
+          @Override
+          public void completed(final S value) {
+            PrefetchStageStream.this.completed(value);
+            pump();
+          }
+
+          @Override
+          public void failed(final Throwable cause) {
+            PrefetchStageStream.this.failed(cause);
+          }
+
+          @Override
+          public void cancelled() {
+            PrefetchStageStream.this.cancelled();
+          }
+        });
+
+        return;
+      }
+
+      if (stage.isFailed()) {
+        failed(stage.cause());
+        return;
+      }
+
+      if (stage.isCancelled()) {
+        cancelled();
+        return;
+      }
+
+      try {
+        completed(stage.joinNow());
+      } catch (final ExecutionException e) {
+        failed(e.getCause());
+        return;
+      }
+    }
+  }
+
+  private void completed(final S value) {
+    if (value == null) {
+      final Completable<T> waiting;
+
+      synchronized (this) {
+        pulling = false;
+        pull = null;
+        exhausted = true;
+        waiting = this.waiting;
+        this.waiting = null;
+      }
+
+      if (waiting != null) {
+        waiting.complete(null);
+      }
+
+      return;
+    }
+
+    Stage<? extends T> next;
+
+    try {
+      next = fn.apply(value);
+    } catch (final Exception e) {
+      next = async.failed(e);
+    }
+
+    final Completable<T> waiting;
+    final boolean cancelled;
+
+    synchronized (this) {
+      pulling = false;
+      pull = null;
+      cancelled = this.cancelled;
+      waiting = this.waiting;
+      this.waiting = null;
+
+      if (!cancelled && waiting == null) {
+        queue.add(next);
+      }
+    }
+
+    if (cancelled) {
+      next.cancel();
+      return;
+    }
+
+    if (waiting != null) {
+      forward(next, waiting);
+    }
+  }
+
+  private void failed(final Throwable cause) {
+    final Completable<T> waiting;
+
+    synchronized (this) {
+      pulling = false;
+      pull = null;
+      error = cause;
+      waiting = this.waiting;
+      this.waiting = null;
+    }
+
+    if (waiting != null) {
+      waiting.fail(cause);
+    }
+  }
+
+  private void cancelled() {
+    cancel();
+  }
+
+  /**
+   * Cancel the element requested from upstream for a consumer that is no longer waiting for it.
+   *
+   * @param waiting the cancelled stage the consumer was waiting for
+   */
+  private void abandon(final Completable<T> waiting) {
+    final Stage<? extends S> pull;
+
+    synchronized (this) {
+      /* the element has already been forwarded, which propagates the cancel by itself */
+      if (this.waiting != waiting) {
+        return;
+      }
+
+      this.waiting = null;
+
+      if (!pulling) {
+        return;
+      }
+
+      pull = this.pull;
+
+      if (pull == null) {
+        /* the request to upstream is still being made */
+        abandoned = true;
+        return;
+      }
+    }
+
+    pull.cancel();
+  }
+
+  private void handOut(final Stage<? extends T> stage) {
+    if (stage.isDone()) {
+      return;
+    }
+
+    synchronized (this) {
+      handedOut++;
+    }
+
+    stage.whenDone(() -> {
+      synchronized (this) {
+        handedOut--;
+      }
+
+      pump();
+    });
+  }
+
+  private void forward(final Stage<? extends T> from, final Completable<T> to) {
+    handOut(from);
+    to.whenCancelled(from::cancel);
+
+    from.handle(new Handle<T>() {
+      @Override
+      public void completed(final T result) {
+        to.complete(result);
+      }
+
+      @Override
+      public void failed(final Throwable cause) {
+        to.fail(cause);
+      }
+
+      @Override
+      public void cancelled() {
+        to.cancel();
+      }
+    });
+  }
+}
@@ -0,0 +1,189 @@
+package se.tedro.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongBinaryOperator;
+import se.tedro.concurrent.ConcurrentCompletable.Listener;
+
+/**
+ * Helper class for {@link CoreAsync#collectLongs(Collection, long, LongBinaryOperator)} and
+ * {@link CoreAsync#collectDoubles(Collection, double, java.util.function.DoubleBinaryOperator)}.
+ *
+ * <p>Results are reduced into a single {@code long} as they arrive, so no per-result storage is
+ * needed. {@code double} results are reduced on their raw long bits, with an operator that converts
+ * them.
+ *
+ * <p>Failures and cancellations are handled like in {@link CollectHelper}, all other sources are
+ * cancelled and the target is failed or cancelled once all sources have checked in.
+ */
+class PrimitiveCollectHelper {
+  static final AtomicLongFieldUpdater<PrimitiveCollectHelper> VALUE =
+    AtomicLongFieldUpdater.newUpdater(PrimitiveCollectHelper.class, "value");
+
+  static final AtomicIntegerFieldUpdater<PrimitiveCollectHelper> COUNTDOWN =
+    AtomicIntegerFieldUpdater.newUpdater(PrimitiveCollectHelper.class, "countdown");
+
+  static final AtomicIntegerFieldUpdater<PrimitiveCollectHelper> FAILED =
+    AtomicIntegerFieldUpdater.newUpdater(PrimitiveCollectHelper.class, "failed");
+
+  static final AtomicReferenceFieldUpdater<PrimitiveCollectHelper, ErrorCollector> ERRORS =
+    AtomicReferenceFieldUpdater.newUpdater(PrimitiveCollectHelper.class, ErrorCollector.class,
+      "errors");
+
+  private final LongBinaryOperator op;
+  private final ConcurrentPrimitiveCompletable target;
+  private final ErrorAggregation errorAggregation;
+
+  /**
+   * Sources to cancel on failure, set to null once cancelled.
+   */
+  Runnable cancelSources;
+
+  volatile long value;
+  volatile int countdown;
+  volatile int failed;
+  volatile int cancelled;
+
+  /**
+   * Errors of failed sources, only allocated if a source fails.
+   */
+  volatile ErrorCollector errors;
+
+  PrimitiveCollectHelper(
+    final int size, final long identity, final LongBinaryOperator op,
+    final ConcurrentPrimitiveCompletable target, final Runnable cancelSources,
+    final ErrorAggregation errorAggregation
+  ) {
+    this.value = identity;
+    this.countdown = size;
+    this.op = op;
+    this.target = target;
+    this.cancelSources = cancelSources;
+    this.errorAggregation = errorAggregation;
+  }
+
+  void completed(final long bits) {
+    try {
+      VALUE.accumulateAndGet(this, bits, op);
+    } catch (final Exception e) {
+      failed(e);
+      return;
+    }
+
+    checkIn();
+  }
+
+  void failed(final Throwable cause) {
+    if (errors == null) {
+      ERRORS.compareAndSet(this, null, new ErrorCollector(errorAggregation));
+    }
+
+    errors.add(cause);
+    checkFailed();
+    checkIn();
+  }
+
+  void cancelled() {
+    cancelled = 1;
+    checkFailed();
+    checkIn();
+  }
+
+  private void checkFailed() {
+    if (!FAILED.compareAndSet(this, 0, 1)) {
+      return;
+    }
+
+    final Runnable cancelSources = this.cancelSources;
+    // help garbage collection.
+    this.cancelSources = null;
+    cancelSources.run();
+  }
+
+  private void checkIn() {
+    if (COUNTDOWN.decrementAndGet(this) != 0) {
+      return;
+    }
+
+    final ErrorCollector errors = this.errors;
+
+    if (errors != null) {
+      target.fail(errors.build());
+      return;
+    }
+
+    if (cancelled != 0) {
+      target.cancel();
+      return;
+    }
+
+    target.completeBits(value);
+  }
+
+  class LongEntry extends Listener {
+    private final LongStage source;
+
+    LongEntry(final LongStage source) {
+      this.source = source;
+    }
+
+    @Override
+    public void run() {
+      if (source.isCompleted()) {
+        final long result;
+
+        try {
+          result = source.joinNow();
+        } catch (final ExecutionException e) {
+          failed(e.getCause());
+          return;
+        }
+
+        completed(result);
+        return;
+      }
+
+      if (source.isFailed()) {
+        failed(source.cause());
+        return;
+      }
+
+      cancelled();
+    }
+  }
+
+  class DoubleEntry extends Listener {
+    private final DoubleStage source;
+
+    DoubleEntry(final DoubleStage source) {
+      this.source = source;
+    }
+
+    @Override
+    public void run() {
+      if (source.isCompleted()) {
+        final double result;
+
+        try {
+          result = source.joinNow();
+        } catch (final ExecutionException e) {
+          failed(e.getCause());
+          return;
+        }
+
+        completed(Double.doubleToRawLongBits(result));
+        return;
+      }
+
+      if (source.isFailed()) {
+        failed(source.cause());
+        return;
+      }
+
+      cancelled();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package se.tedro.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import se.tedro.concurrent.CollectHelper.ValuesView;
+
+/**
+ * Helper class for {@link CoreAsync#quorum(Collection, int, Function)}.
+ *
+ * <p>The target is completed as soon as {@code required} stages are completed, and is failed (or
+ * cancelled) as soon as so many stages are failed or cancelled that this is no longer possible.
+ * The target is always ended before the remaining sources are cancelled, so that cancellations
+ * caused by this helper are ignored.
+ *
+ * <p>Only the values needed to reach the quorum are retained, and at most enough errors to show
+ * why it can't be reached.
+ *
+ * @param <T> the source type being collected
+ * @param <U> the collected value
+ */
+class QuorumHelper<T, U> implements Handle<T> {
+  final int required;
+  final int maxMisses;
+  final Function<? super Collection<T>, ? extends U> collector;
+  final Completable<? super U> target;
+
+  /**
+   * A collection of all source stages, set to null once the target is ended.
+   */
+  volatile Collection<? extends Stage<?>> sources;
+
+  /**
+   * The first {@code required} completed values.
+   */
+  final Object[] values;
+
+  /**
+   * Position to write the next completed value at.
+   */
+  final AtomicInteger write = new AtomicInteger();
+
+  /**
+   * Number of values written, which synchronizes the writes with the thread that completes the
+   * target.
+   */
+  final AtomicInteger written = new AtomicInteger();
+
+  /**
+   * Number of stages which have failed or been cancelled.
+   */
+  final AtomicInteger misses = new AtomicInteger();
+  final ErrorCollector errors;
+
+  QuorumHelper(
+    final int size, final int required,
+    final Function<? super Collection<T>, ? extends U> collector,
+    final Collection<? extends Stage<?>> sources, final Completable<? super U> target,
+    final ErrorAggregation errorAggregation
+  ) {
+    if (required <= 0 || required > size) {
+      throw new IllegalArgumentException("required");
+    }
+
+    this.required = required;
+    this.maxMisses = size - required;
+    this.collector = collector;
+    this.sources = sources;
+    this.target = target;
+    this.values = new Object[required];
+    this.errors = new ErrorCollector(errorAggregation);
+  }
+
+  @Override
+  public void completed(final T result) {
+    final int w = write.getAndIncrement();
+
+    if (w >= required) {
+      return;
+    }
+
+    values[w] = result;
+
+    if (written.incrementAndGet() != required) {
+      return;
+    }
+
+    final U value;
+
+    try {
+      value = collector.apply(new ValuesView<>(values, required));
+    } catch (final Exception e) {
+      target.fail(e);
+      cancelSources();
+      return;
+    }
+
+    target.complete(value);
+    cancelSources();
+  }
+
+  @Override
+  public void failed(final Throwable cause) {
+    /* the error is added before the miss is counted, so that the final miss sees it */
+    if (misses.get() <= maxMisses) {
+      errors.add(cause);
+    }
+
+    missed();
+  }
+
+  @Override
+  public void cancelled() {
+    missed();
+  }
+
+  /**
+   * Count a miss, and end the target if the quorum can no longer be reached.
+   */
+  void missed() {
+    if (misses.incrementAndGet() != maxMisses + 1) {
+      return;
+    }
+
+    final Throwable error = errors.build();
+
+    if (error == null) {
+      target.cancel();
+    } else {
+      target.fail(error);
+    }
+
+    cancelSources();
+  }
+
+  void cancelSources() {
+    final Collection<? extends Stage<?>> sources = this.sources;
+
+    if (sources == null) {
+      return;
+    }
+
+    // help garbage collection.
+    this.sources = null;
+
+    for (final Stage<?> source : sources) {
+      source.cancel();
+    }
+  }
+}
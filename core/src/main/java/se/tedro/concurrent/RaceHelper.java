@@ -0,0 +1,61 @@
+package se.tedro.concurrent;
+
+import java.util.Collection;
+
+/**
+ * Helper class for {@link CoreAsync#race(Collection)}.
+ *
+ * <p>The first stage to be done decides the outcome of the target, after which all other sources
+ * are cancelled. Since the target is ended first, the cancellations of the losers are ignored.
+ *
+ * @param <T> the source type
+ */
+class RaceHelper<T> implements Handle<T> {
+  final Completable<? super T> target;
+
+  /**
+   * A collection of all source stages, set to null once the target is ended.
+   */
+  volatile Collection<? extends Stage<?>> sources;
+
+  RaceHelper(final Collection<? extends Stage<?>> sources, final Completable<? super T> target) {
+    this.sources = sources;
+    this.target = target;
+  }
+
+  @Override
+  public void completed(final T result) {
+    if (target.complete(result)) {
+      cancelSources();
+    }
+  }
+
+  @Override
+  public void failed(final Throwable cause) {
+    if (target.fail(cause)) {
+      cancelSources();
+    }
+  }
+
+  @Override
+  public void cancelled() {
+    if (target.cancel()) {
+      cancelSources();
+    }
+  }
+
+  void cancelSources() {
+    final Collection<? extends Stage<?>> sources = this.sources;
+
+    if (sources == null) {
+      return;
+    }
+
+    // help garbage collection.
+    this.sources = null;
+
+    for (final Stage<?> source : sources) {
+      source.cancel();
+    }
+  }
+}
@@ -1,42 +1,61 @@
 /*
  * An AsyncCaller implementation that will try to run the call in the current thread as much as
  * possible, while keeping track of recursion to avoid StackOverflowException in the thread. If
- * recursion becomes too deep, the next call is deferred to a separate thread (normal thread pool).
+ * recursion becomes too deep, the next call is queued up and run by the outermost call once it
+ * returns, which unwinds the stack without handing the call to a different thread.
  * State is kept per-thread - stack overflow will be avoided for any thread that passes this code.
  * It is vital to choose a suitable maximum recursion depth.
  */
 package se.tedro.concurrent;
 
+import java.util.ArrayDeque;
 import java.util.concurrent.ExecutorService;
 
 /**
  * A {@link Caller} implementation that implements immediate calling, and provides a fallback to
  * avoid blowing up the stack when operations are recursively called.
  *
- * This implementation maintains a thread-local storage that gives a rough estimate of how deep a
- * given stack is.
+ * This implementation maintains a thread-local trampoline that keeps track of how deep a given
+ * stack is. Calls beyond the maximum depth are queued on the trampoline and drained in order by the
+ * outermost call on the same thread.
  */
 public final class RecursionSafeCaller implements Caller {
-  private final ExecutorService executorService;
   private final Caller caller;
   private final long maxRecursionDepth;
 
-  private final ThreadLocal<Integer> recursionDepthPerThread = new ThreadLocal<Integer>() {
-    protected Integer initialValue() {
-      return 0;
+  private final ThreadLocal<Trampoline> trampolinePerThread = new ThreadLocal<Trampoline>() {
+    protected Trampoline initialValue() {
+      return new Trampoline();
     }
   };
 
+  public RecursionSafeCaller(Caller caller, long maxRecursionDepth) {
+    this.caller = caller;
+    this.maxRecursionDepth = maxRecursionDepth;
+  }
+
+  public RecursionSafeCaller(Caller caller) {
+    this(caller, 100);
+  }
+
+  /**
+   * @deprecated deep recursion is no longer deferred to an executor, use
+   * {@link #RecursionSafeCaller(Caller, long)}.
+   */
+  @Deprecated
   public RecursionSafeCaller(
     ExecutorService executorService, Caller caller, long maxRecursionDepth
   ) {
-    this.executorService = executorService;
-    this.caller = caller;
-    this.maxRecursionDepth = maxRecursionDepth;
+    this(caller, maxRecursionDepth);
   }
 
+  /**
+   * @deprecated deep recursion is no longer deferred to an executor, use
+   * {@link #RecursionSafeCaller(Caller)}.
+   */
+  @Deprecated
   public RecursionSafeCaller(ExecutorService executorService, Caller caller) {
-    this(executorService, caller, 100);
+    this(caller);
   }
 
   @Override
@@ -46,22 +65,88 @@ public final class RecursionSafeCaller implements Caller {
 
   @Override
   public void execute(final Runnable runnable) {
-    // Use thread local counter for recursionDepth.
-    final Integer recursionDepth = recursionDepthPerThread.get();
-    // ++
-    recursionDepthPerThread.set(recursionDepth + 1);
-
-    if (recursionDepth + 1 <= maxRecursionDepth) {
-      /* Case A: Call immediately, this is default until we've reached deep recursion. */
-      runnable.run();
-    } else {
-      /* Case B: Defer to a separate thread.
+    final Trampoline trampoline = trampolinePerThread.get();
+
+    if (trampoline.depth > 0 && trampoline.depth >= maxRecursionDepth) {
+      /* Case B: Queue up for the outermost call in this thread.
        * This happens when recursion depth of the current thread is larger than limit, to avoid
        * stack overflow. */
-      executorService.submit(runnable);
+      trampoline.queue.add(runnable);
+      return;
+    }
+
+    /* Case A: Call immediately, this is default until we've reached deep recursion. */
+    Throwable error = null;
+
+    try {
+      trampoline.run(runnable);
+    } catch (final Throwable e) {
+      error = e;
+    }
+
+    if (trampoline.depth == 0) {
+      error = trampoline.drain(error);
+    }
+
+    if (error != null) {
+      throw unchecked(error);
+    }
+  }
+
+  private static RuntimeException unchecked(final Throwable error) {
+    if (error instanceof Error) {
+      throw (Error) error;
     }
 
-    // --
-    recursionDepthPerThread.set(recursionDepth);
+    if (error instanceof RuntimeException) {
+      return (RuntimeException) error;
+    }
+
+    return new RuntimeException(error);
+  }
+
+  /**
+   * Per-thread recursion state.
+   */
+  static class Trampoline {
+    final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    int depth = 0;
+
+    void run(final Runnable runnable) {
+      depth++;
+
+      try {
+        runnable.run();
+      } finally {
+        depth--;
+      }
+    }
+
+    /**
+     * Run all queued up calls, in the order that they were queued.
+     *
+     * <p>A call that throws does not stop the remaining calls from being run, since they would
+     * otherwise be stranded in the queue until the next time this thread is used.
+     *
+     * @param error error thrown so far, or {@code null}
+     * @return the first error thrown, with any later errors added as suppressed
+     */
+    Throwable drain(Throwable error) {
+      Runnable next;
+
+      while ((next = queue.poll()) != null) {
+        try {
+          run(next);
+        } catch (final Throwable e) {
+          if (error == null) {
+            error = e;
+          } else {
+            error.addSuppressed(e);
+          }
+        }
+      }
+
+      return error;
+    }
   }
 }
@@ -1,6 +1,5 @@
 package se.tedro.concurrent;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
@@ -15,6 +14,9 @@ import java.util.function.Supplier;
  * <p>retry-until-completed is provided by
  * {@link Async#retryUntilCompleted(java.util.concurrent.Callable, RetryPolicy)}.
  *
+ * <p>Retries give up early if their back-off would overshoot the {@link Deadline} of the request,
+ * and no attempt is started once it has passed.
+ *
  * @param <T> result type of the retried operation
  */
 public class RetryCallHelper<T> implements Handle<T> {
@@ -24,12 +26,13 @@ public class RetryCallHelper<T> implements Handle<T> {
   private final Supplier<RetryDecision> policyInstance;
   private final Completable<T> future;
   private final ClockSource clockSource;
+  private final Deadline deadline;
 
   /*
    * Does not require synchronization since the behaviour of this helper guarantees that only
    * one thread at a time accesses it
    */
-  private final ArrayList<RetryException> errors = new ArrayList<>();
+  private final RetryErrors errors;
   private final AtomicReference<ScheduledFuture<?>> nextCall = new AtomicReference<>();
 
   public RetryCallHelper(
@@ -37,6 +40,27 @@ public class RetryCallHelper<T> implements Handle<T> {
     final Callable<? extends Stage<? extends T>> callable,
     final Supplier<RetryDecision> policyInstance, final Completable<T> future,
     final ClockSource clockSource
+  ) {
+    this(start, scheduler, callable, policyInstance, future, clockSource,
+      ErrorAggregation.newDefault());
+  }
+
+  public RetryCallHelper(
+    final long start, final ScheduledExecutorService scheduler,
+    final Callable<? extends Stage<? extends T>> callable,
+    final Supplier<RetryDecision> policyInstance, final Completable<T> future,
+    final ClockSource clockSource, final ErrorAggregation errorAggregation
+  ) {
+    this(start, scheduler, callable, policyInstance, future, clockSource, errorAggregation,
+      Deadline.none());
+  }
+
+  public RetryCallHelper(
+    final long start, final ScheduledExecutorService scheduler,
+    final Callable<? extends Stage<? extends T>> callable,
+    final Supplier<RetryDecision> policyInstance, final Completable<T> future,
+    final ClockSource clockSource, final ErrorAggregation errorAggregation,
+    final Deadline deadline
   ) {
     this.start = start;
     this.scheduler = scheduler;
@@ -44,34 +68,53 @@ public class RetryCallHelper<T> implements Handle<T> {
     this.policyInstance = policyInstance;
     this.future = future;
     this.clockSource = clockSource;
+    this.deadline = deadline;
+    this.errors = new RetryErrors(errorAggregation);
   }
 
+  /**
+   * Errors of previous attempts, bounded by {@link ErrorAggregation#getMaxSuppressed()}.
+   *
+   * @return errors of previous attempts
+   */
   public List<RetryException> getErrors() {
-    return errors;
+    return errors.list();
   }
 
   @Override
   public void failed(final Throwable cause) {
+    final long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+
+    /* don't spend a retry from the policy if no attempt could be started anyway */
+    if (remaining <= 0) {
+      deadlineExceeded(cause);
+      return;
+    }
+
     final RetryDecision decision = policyInstance.get();
 
     if (!decision.shouldRetry()) {
-      for (final Throwable suppressed : errors) {
-        cause.addSuppressed(suppressed);
-      }
+      giveUp(cause);
+      return;
+    }
 
-      future.fail(cause);
+    final long backoff = decision.backoff(TimeUnit.NANOSECONDS);
+
+    /* the next attempt would be started after the deadline */
+    if (remaining <= backoff) {
+      deadlineExceeded(cause);
       return;
     }
 
-    errors.add(new RetryException(clockSource.now() - start, cause));
+    errors.add(cause, clockSource.now() - start);
 
-    if (decision.backoff() <= 0) {
+    if (backoff <= 0) {
       next();
     } else {
       nextCall.set(scheduler.schedule(() -> {
         nextCall.set(null);
         next();
-      }, decision.backoff(), TimeUnit.MILLISECONDS));
+      }, backoff, TimeUnit.NANOSECONDS));
     }
   }
 
@@ -85,11 +128,25 @@ public class RetryCallHelper<T> implements Handle<T> {
     future.cancel();
   }
 
+  private void giveUp(final Throwable cause) {
+    future.fail(errors.suppressInto(cause));
+  }
+
+  private void deadlineExceeded(final Throwable cause) {
+    errors.add(cause, clockSource.now() - start);
+    giveUp(new DeadlineExceededException());
+  }
+
   public void next() {
     if (future.isDone()) {
       throw new IllegalStateException("Target completable is done");
     }
 
+    if (deadline.isExpired()) {
+      giveUp(new DeadlineExceededException());
+      return;
+    }
+
     final Stage<? extends T> result;
 
     try {
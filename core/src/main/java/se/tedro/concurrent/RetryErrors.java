@@ -0,0 +1,68 @@
+package se.tedro.concurrent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Errors of the failed attempts of a retried operation, bounded by
+ * {@link ErrorAggregation#getMaxSuppressed()}.
+ *
+ * <p>This is not thread-safe, callers must make sure that only one thread at a time accesses it.
+ */
+class RetryErrors {
+  private final ErrorAggregation errorAggregation;
+  private final ArrayList<RetryException> errors = new ArrayList<>();
+  /* number of errors by type that were not retained in errors, only allocated when needed */
+  private Map<Class<? extends Throwable>, Long> dropped;
+
+  RetryErrors(final ErrorAggregation errorAggregation) {
+    this.errorAggregation = errorAggregation;
+  }
+
+  List<RetryException> list() {
+    return errors;
+  }
+
+  /**
+   * Add the error of a failed attempt.
+   *
+   * @param cause error of the attempt
+   * @param offset milliseconds since the operation was started
+   */
+  void add(final Throwable cause, final long offset) {
+    if (errors.size() >= errorAggregation.getMaxSuppressed()) {
+      if (dropped == null) {
+        dropped = new HashMap<>();
+      }
+
+      dropped.merge(cause.getClass(), 1L, Long::sum);
+      return;
+    }
+
+    if (errorAggregation.isDropStackTraces()) {
+      errors.add(new RetryException(offset, new DroppedStackTraceException(cause), false));
+    } else {
+      errors.add(new RetryException(offset, cause));
+    }
+  }
+
+  /**
+   * Add all errors as suppressed by the error that fails the operation.
+   *
+   * @param cause error that fails the operation
+   * @return the given error
+   */
+  Throwable suppressInto(final Throwable cause) {
+    for (final Throwable suppressed : errors) {
+      cause.addSuppressed(suppressed);
+    }
+
+    if (dropped != null) {
+      cause.addSuppressed(new DroppedErrorsException(dropped));
+    }
+
+    return cause;
+  }
+}
@@ -0,0 +1,147 @@
+package se.tedro.concurrent;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import se.tedro.concurrent.ConcurrentCompletable.Listener;
+
+/**
+ * Links to a collection of source stages, which are dropped as soon as each source is done.
+ *
+ * <p>Operations that combine many sources must be able to cancel the ones that are still pending,
+ * but should not keep the ones that are done, or their results, reachable for as long as the
+ * operation is pending. This copies the sources into an array where each slot is cleared when
+ * the corresponding source is done, and iterating over it only visits the sources that are still
+ * pending.
+ *
+ * <p>Slots are read and cleared without synchronization, a racing reader either sees the source
+ * or {@code null}, and cancelling a source that is already done has no effect.
+ *
+ * @param <T> type of the sources
+ */
+class SourceLinks<T> extends AbstractCollection<Stage<? extends T>> {
+  final Stage<? extends T>[] sources;
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  SourceLinks(final Collection<? extends Stage<? extends T>> sources) {
+    this.sources = sources.toArray(new Stage[0]);
+  }
+
+  /**
+   * Bind the given handle to all sources.
+   *
+   * <p>This must be called once, after the handle is ready to receive results.
+   *
+   * @param handle handle to bind
+   */
+  void bind(final Handle<? super T> handle) {
+    final Stage<? extends T>[] sources = this.sources;
+
+    for (int i = 0; i < sources.length; i++) {
+      final Stage<? extends T> source = sources[i];
+
+      if (source != null) {
+        source.whenDone(new Link(i, source, handle));
+      }
+    }
+  }
+
+  @Override
+  public Iterator<Stage<? extends T>> iterator() {
+    return new Iterator<Stage<? extends T>>() {
+      private int index;
+      private Stage<? extends T> next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Stage<? extends T> next() {
+        final Stage<? extends T> next = this.next;
+
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+
+        this.next = advance();
+        return next;
+      }
+
+      private Stage<? extends T> advance() {
+        while (index < sources.length) {
+          final Stage<? extends T> source = sources[index++];
+
+          if (source != null) {
+            return source;
+          }
+        }
+
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Number of sources which are still linked.
+   */
+  @Override
+  public int size() {
+    int size = 0;
+
+    for (final Stage<? extends T> source : sources) {
+      if (source != null) {
+        size++;
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Clears the slot of a source once it is done, then forwards its outcome.
+   */
+  class Link extends Listener {
+    private final int index;
+    private final Handle<? super T> handle;
+    private Stage<? extends T> source;
+
+    Link(final int index, final Stage<? extends T> source, final Handle<? super T> handle) {
+      this.index = index;
+      this.source = source;
+      this.handle = handle;
+    }
+
+    @Override
+    public void run() {
+      final Stage<? extends T> source = this.source;
+      // help garbage collection.
+      this.source = null;
+      sources[index] = null;
+
+      if (source.isCompleted()) {
+        final T result;
+
+        try {
+          result = source.joinNow();
+        } catch (final ExecutionException e) {
+          handle.failed(e.getCause());
+          return;
+        }
+
+        handle.completed(result);
+        return;
+      }
+
+      if (source.isFailed()) {
+        handle.failed(source.cause());
+        return;
+      }
+
+      handle.cancelled();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A stream which pulls each element from a callable.
+ *
+ * @param <T> type of the elements in the stream
+ */
+class SourceStageStream<T> extends AbstractStageStream<T> {
+  private final Callable<? extends Stage<? extends T>> source;
+
+  volatile boolean cancel = false;
+  /* the last stage requested from the source, cancelled with the stream */
+  volatile Stage<? extends T> current;
+
+  SourceStageStream(final Async async, final Callable<? extends Stage<? extends T>> source) {
+    super(async);
+    this.source = source;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Stage<T> next() {
+    if (cancel) {
+      return async.cancelled();
+    }
+
+    final Stage<? extends T> next;
+
+    try {
+      next = source.call();
+    } catch (final Exception e) {
+      return async.failed(e);
+    }
+
+    current = next;
+
+    if (cancel) {
+      next.cancel();
+    }
+
+    return (Stage<T>) next;
+  }
+
+  @Override
+  public void cancel() {
+    cancel = true;
+
+    final Stage<? extends T> current = this.current;
+
+    if (current != null) {
+      current.cancel();
+    }
+  }
+}
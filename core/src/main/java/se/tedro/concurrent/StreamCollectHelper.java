@@ -1,8 +1,5 @@
 package se.tedro.concurrent;
 
-import java.util.Iterator;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -19,18 +16,22 @@ class StreamCollectHelper<S, T> implements Handle<S> {
   private final Supplier<T> supplier;
   private final Completable<? super T> target;
 
-  private final AtomicInteger countdown;
-  private final AtomicInteger successful;
-  private final AtomicInteger failed;
-  private final AtomicInteger cancelled;
+  private final StripedCountdown countdown;
 
   private volatile boolean cancel;
 
-  private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+  private final ErrorCollector errors;
 
   StreamCollectHelper(
     final Caller caller, final int size, final Consumer<S> consumer, final Supplier<T> supplier,
     final Completable<? super T> target
+  ) {
+    this(caller, size, consumer, supplier, target, ErrorAggregation.newDefault());
+  }
+
+  StreamCollectHelper(
+    final Caller caller, final int size, final Consumer<S> consumer, final Supplier<T> supplier,
+    final Completable<? super T> target, final ErrorAggregation errorAggregation
   ) {
     if (size <= 0) {
       throw new IllegalArgumentException("size");
@@ -41,49 +42,37 @@ class StreamCollectHelper<S, T> implements Handle<S> {
     this.supplier = supplier;
     this.target = target;
 
-    this.countdown = new AtomicInteger(size);
-    this.successful = new AtomicInteger();
-    this.failed = new AtomicInteger();
-    this.cancelled = new AtomicInteger();
+    this.countdown = StripedCountdown.create(size);
+    this.errors = new ErrorCollector(errorAggregation);
   }
 
   @Override
   public void failed(Throwable e) {
-    failed.incrementAndGet();
     errors.add(e);
     check();
   }
 
   @Override
   public void completed(S result) {
-    successful.incrementAndGet();
     caller.execute(() -> consumer.accept(result));
     check();
   }
 
   @Override
   public void cancelled() {
-    cancelled.incrementAndGet();
     cancel = true;
     check();
   }
 
   private void check() {
-    if (countdown.decrementAndGet() == 0) {
+    if (countdown.countDown()) {
       if (cancel) {
         target.cancel();
         return;
       }
 
-      if (errors.size() > 0) {
-        final Iterator<Throwable> it = errors.iterator();
-        final Throwable first = it.next();
-
-        while (it.hasNext()) {
-          first.addSuppressed(it.next());
-        }
-
-        target.fail(first);
+      if (!errors.isEmpty()) {
+        target.fail(errors.build());
         return;
       }
 
@@ -0,0 +1,196 @@
+package se.tedro.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collector;
+
+/**
+ * Helper class for {@link CoreAsync#collect(Collection, Collector)} with unordered collectors.
+ *
+ * <p>Results are accumulated as they arrive into one of a fixed number of stripes, each holding a
+ * partial container. The stripe is picked from the completing thread, so threads rarely contend
+ * on the same stripe. Once all stages have checked in, the partial containers are combined in
+ * stripe order and finished, which is why the collector must not depend on the order of results.
+ *
+ * <p>Failures and cancellations are handled like in {@link CollectHelper}, including fail-fast
+ * mode.
+ *
+ * @param <T> the source type being collected
+ * @param <A> the type of the partial containers
+ * @param <R> the collected value
+ */
+class StripedCollectHelper<T, A, R> implements Handle<T> {
+  static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+  final Collector<? super T, A, R> collector;
+  final BiConsumer<A, ? super T> accumulator;
+  final Completable<? super R> target;
+
+  /**
+   * A collection of all source stages, set to null once cancelled.
+   */
+  Collection<? extends Stage<?>> sources;
+
+  /**
+   * Partial containers, each guarded by synchronizing on its stripe.
+   */
+  final Stripe<A>[] stripes;
+
+  final StripedCountdown countdown;
+  final AtomicBoolean failed = new AtomicBoolean();
+
+  /**
+   * Errors of failed sources, or of the accumulator.
+   */
+  final ErrorCollector errors;
+  volatile boolean cancelled;
+  final boolean failFast;
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  StripedCollectHelper(
+    final int size, final Collector<? super T, A, R> collector,
+    final Collection<? extends Stage<?>> sources, final Completable<? super R> target,
+    final boolean failFast, final ErrorAggregation errorAggregation
+  ) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size");
+    }
+
+    this.collector = collector;
+    this.accumulator = collector.accumulator();
+    this.sources = sources;
+    this.target = target;
+    this.countdown = StripedCountdown.create(size);
+    this.failFast = failFast;
+    this.errors = new ErrorCollector(errorAggregation);
+    this.stripes = new Stripe[Math.min(STRIPES, stripes(size))];
+
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe<>(collector.supplier().get());
+    }
+  }
+
+  @Override
+  public void completed(final T result) {
+    if (!failed.get()) {
+      final Stripe<A> stripe =
+        stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+
+      try {
+        synchronized (stripe) {
+          accumulator.accept(stripe.container, result);
+        }
+      } catch (final Exception e) {
+        fail(e);
+      }
+    }
+
+    checkIn();
+  }
+
+  @Override
+  public void failed(final Throwable cause) {
+    fail(cause);
+    checkIn();
+  }
+
+  @Override
+  public void cancelled() {
+    if (failFast) {
+      target.cancel();
+    }
+
+    cancelled = true;
+    checkFailed();
+    checkIn();
+  }
+
+  /**
+   * Record a failure, in fail-fast mode the target is failed immediately and no errors are
+   * retained.
+   */
+  void fail(final Throwable cause) {
+    if (failFast) {
+      target.fail(cause);
+    } else {
+      errors.add(cause);
+    }
+
+    checkFailed();
+  }
+
+  void checkFailed() {
+    if (!failed.compareAndSet(false, true)) {
+      return;
+    }
+
+    for (final Stage<?> source : sources) {
+      source.cancel();
+    }
+
+    // help garbage collection.
+    sources = null;
+  }
+
+  void checkIn() {
+    if (!countdown.countDown()) {
+      return;
+    }
+
+    if (failFast && failed.get()) {
+      // target has already been failed or cancelled.
+      return;
+    }
+
+    if (!errors.isEmpty()) {
+      target.fail(errors.build());
+      return;
+    }
+
+    if (cancelled) {
+      target.cancel();
+      return;
+    }
+
+    final R result;
+
+    try {
+      result = finish();
+    } catch (final Exception e) {
+      target.fail(e);
+      return;
+    }
+
+    target.complete(result);
+  }
+
+  R finish() {
+    final BinaryOperator<A> combiner = collector.combiner();
+
+    /* the countdown guarantees that all accumulations are visible */
+    A container = stripes[0].container;
+
+    for (int i = 1; i < stripes.length; i++) {
+      container = combiner.apply(container, stripes[i].container);
+    }
+
+    return collector.finisher().apply(container);
+  }
+
+  /**
+   * Smallest power of two that is greater than or equal to the given value.
+   */
+  static int stripes(final int n) {
+    return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  static class Stripe<A> {
+    final A container;
+
+    Stripe(final A container) {
+      this.container = container;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A countdown of a fixed number of arrivals, striped so that threads arriving at the same time
+ * rarely touch the same cache line.
+ *
+ * <p>The arrivals are split into equally sized ranges, one per stripe. An arriving thread claims a
+ * position in the range of the stripe picked from its thread id, or in the next stripe with
+ * positions left if that one is exhausted. Once every position of a stripe has been released, the
+ * root counter is decremented. Only the thread which releases the very last position observes the
+ * root reaching zero, and everything written before each release is visible to it.
+ *
+ * <p>Claimed positions are unique and cover {@code [0, size)}, but are grouped by stripe rather than
+ * ordered by arrival. Positions of the same stripe are claimed in arrival order, so writes that
+ * must be kept in order have to be merged across stripes, see {@link CollectHelper}.
+ *
+ * <p>Narrow countdowns use a single stripe, which costs about the same as two plain atomic
+ * counters.
+ */
+class StripedCountdown {
+  /**
+   * Minimum number of arrivals for a countdown to be striped.
+   */
+  static final int WIDE = 1024;
+
+  /**
+   * Number of int cells between two stripes, to keep them on separate cache lines.
+   */
+  static final int PAD = 16;
+
+  static final int CLAIMED = 0;
+  static final int RELEASED = 1;
+
+  final int size;
+  final int stripes;
+
+  /**
+   * Number of positions in each stripe, the last stripe might have less.
+   */
+  final int chunk;
+
+  /**
+   * For each stripe, the number of claimed and released positions.
+   */
+  final AtomicIntegerArray cells;
+
+  /**
+   * Number of stripes that have not been fully released.
+   */
+  final AtomicInteger root;
+
+  StripedCountdown(final int size, final int stripes) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size");
+    }
+
+    final int chunk = (size + stripes - 1) / stripes;
+
+    this.size = size;
+    this.chunk = chunk;
+    /* avoid trailing stripes without any positions */
+    this.stripes = (size + chunk - 1) / chunk;
+    this.cells = new AtomicIntegerArray(this.stripes * PAD);
+    this.root = new AtomicInteger(this.stripes);
+  }
+
+  /**
+   * Build a countdown for the given number of arrivals, striped if it is wide.
+   *
+   * @param size number of arrivals
+   * @return a new countdown
+   */
+  static StripedCountdown create(final int size) {
+    return new StripedCountdown(size, size < WIDE ? 1 : StripedCollectHelper.STRIPES);
+  }
+
+  /**
+   * Claim a unique position.
+   *
+   * @return the claimed position
+   * @throws IllegalStateException if all positions have already been claimed
+   */
+  int claim() {
+    final int home = (int) Thread.currentThread().getId() % stripes;
+
+    for (int i = 0; i < stripes; i++) {
+      final int stripe = (home + i) % stripes;
+      final int quota = quota(stripe);
+      final int index = stripe * PAD + CLAIMED;
+
+      /* check first, so that exhausted stripes are not written to */
+      if (cells.get(index) >= quota) {
+        continue;
+      }
+
+      final int c = cells.getAndIncrement(index);
+
+      if (c < quota) {
+        return stripe * chunk + c;
+      }
+    }
+
+    throw new IllegalStateException("already finished");
+  }
+
+  /**
+   * Release a claimed position.
+   *
+   * @param position position to release
+   * @return {@code true} if this was the last position to be released
+   */
+  boolean release(final int position) {
+    final int stripe = position / chunk;
+
+    if (cells.incrementAndGet(stripe * PAD + RELEASED) != quota(stripe)) {
+      return false;
+    }
+
+    return root.decrementAndGet() == 0;
+  }
+
+  /**
+   * Count down one arrival.
+   *
+   * @return {@code true} if this was the last arrival
+   */
+  boolean countDown() {
+    return release(claim());
+  }
+
+  private int quota(final int stripe) {
+    return Math.min(chunk, size - stripe * chunk);
+  }
+}
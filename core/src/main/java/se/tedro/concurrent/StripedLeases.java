@@ -0,0 +1,125 @@
+package se.tedro.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lease counter, striped so that threads retaining and releasing leases at the same time rarely
+ * touch the same cache line.
+ *
+ * <p>While open, each thread counts on the stripe picked from its thread id. Since a lease might
+ * be released on another stripe than it was retained on, stripes can go negative, and only the sum
+ * of all stripes is meaningful. Checking for zero would require summing every stripe, which can't
+ * be done atomically, so no zero check is made until the counter has been reconciled.
+ *
+ * <p>Reconciling closes each stripe in turn, folding its count into an exact counter. Updates that
+ * find their stripe closed go to the exact counter instead, so every update is counted exactly
+ * once. The exact counter might pass through zero while stripes are still being folded into it,
+ * which is why zero is only reported once all stripes have been closed.
+ *
+ * <p>The owner must hold a lease of its own until the counter has been reconciled, so that the
+ * last release is guaranteed to happen after reconciling has finished.
+ */
+class StripedLeases {
+  /**
+   * Number of long cells between two stripes, to keep them on separate cache lines.
+   */
+  static final int PAD = 8;
+
+  /**
+   * Marker of a stripe that has been folded into the exact counter.
+   */
+  static final long CLOSED = Long.MIN_VALUE;
+
+  final int stripes;
+  final AtomicLongArray cells;
+  final AtomicLong exact;
+
+  volatile boolean reconciled;
+
+  StripedLeases(final long initial, final int stripes) {
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("stripes");
+    }
+
+    this.stripes = stripes;
+    this.cells = new AtomicLongArray(stripes * PAD);
+    this.exact = new AtomicLong(initial);
+  }
+
+  /**
+   * Build a lease counter with one stripe per processor.
+   *
+   * @param initial initial number of leases
+   * @return a new lease counter
+   */
+  static StripedLeases create(final long initial) {
+    return new StripedLeases(initial, StripedCollectHelper.STRIPES);
+  }
+
+  /**
+   * Retain a lease.
+   */
+  void retain() {
+    add(1L);
+  }
+
+  /**
+   * Release a lease.
+   *
+   * @return {@code true} if the counter has been reconciled, and this released the last lease
+   */
+  boolean release() {
+    return add(-1L);
+  }
+
+  /**
+   * Fold all stripes into the exact counter, after which releases check for zero.
+   *
+   * <p>Must only be called once.
+   */
+  void reconcile() {
+    for (int i = 0; i < stripes; i++) {
+      exact.addAndGet(cells.getAndSet(i * PAD, CLOSED));
+    }
+
+    reconciled = true;
+  }
+
+  /**
+   * Current number of leases, only exact once the counter has been reconciled.
+   *
+   * @return number of leases
+   */
+  long get() {
+    long sum = exact.get();
+
+    for (int i = 0; i < stripes; i++) {
+      final long c = cells.get(i * PAD);
+
+      if (c != CLOSED) {
+        sum += c;
+      }
+    }
+
+    return sum;
+  }
+
+  private boolean add(final long delta) {
+    final int index = (int) (Thread.currentThread().getId() % stripes) * PAD;
+
+    while (true) {
+      final long c = cells.get(index);
+
+      if (c == CLOSED) {
+        break;
+      }
+
+      if (cells.compareAndSet(index, c, c + delta)) {
+        return false;
+      }
+    }
+
+    return exact.addAndGet(delta) == 0 && reconciled;
+  }
+}
@@ -0,0 +1,339 @@
+package se.tedro.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel, used to arm a large number of timeouts which are expected to be cancelled
+ * before they expire.
+ *
+ * <p>Timeouts are hashed into a fixed number of buckets by the tick at which they expire, and a
+ * single worker thread visits one bucket per tick, expiring the timeouts that are due. Arming a
+ * timeout and cancelling it are both O(1), at the cost of timeouts expiring with a precision of
+ * one tick.
+ *
+ * <p>Only the worker thread touches the buckets. New and cancelled timeouts are handed to it
+ * through queues, and are moved into or unlinked from their bucket on the next tick.
+ *
+ * <p>The worker thread is started when the first timeout is armed, and exits again once no
+ * timeouts have been pending for {@link #IDLE_TICKS} ticks. A wheel that is no longer used
+ * therefore doesn't have to be stopped.
+ */
+class TimingWheel {
+  static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  static final int DEFAULT_WHEEL_SIZE = 512;
+
+  /**
+   * Number of ticks without any pending timeouts before the worker thread exits.
+   */
+  static final int IDLE_TICKS = 100;
+
+  /**
+   * Longest delay that can be armed, longer delays are truncated so that deadlines don't
+   * overflow.
+   */
+  static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+  final long tickNanos;
+  final int mask;
+  final Bucket[] wheel;
+
+  final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+  final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+  /**
+   * If a worker thread is running, or is about to be started.
+   */
+  final AtomicBoolean running = new AtomicBoolean();
+
+  /* state owned by the worker thread */
+  long startTime;
+  long tick;
+  int pending;
+
+  TimingWheel() {
+    this(DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+  }
+
+  TimingWheel(final long tickNanos, final int wheelSize) {
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("tickNanos: must be positive");
+    }
+
+    if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("wheelSize: must be a positive power of two");
+    }
+
+    this.tickNanos = tickNanos;
+    this.mask = wheelSize - 1;
+    this.wheel = new Bucket[wheelSize];
+
+    for (int i = 0; i < wheelSize; i++) {
+      wheel[i] = new Bucket();
+    }
+  }
+
+  /**
+   * The wheel used by stages which are not created through a {@link CoreAsync} instance.
+   *
+   * @return the shared timing wheel
+   */
+  static TimingWheel shared() {
+    return Shared.WHEEL;
+  }
+
+  /**
+   * Arm a timeout which runs the given task on the worker thread once the delay has passed.
+   *
+   * @param task task to run
+   * @param delay delay until the task is run
+   * @param unit unit of the delay
+   * @return the armed timeout
+   */
+  Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+    final long delayNanos = Math.min(Math.max(unit.toNanos(delay), 0L), MAX_DELAY_NANOS);
+    final Timeout timeout = new Timeout(this, task, System.nanoTime() + delayNanos);
+
+    added.add(timeout);
+
+    if (!running.get() && running.compareAndSet(false, true)) {
+      start();
+    }
+
+    return timeout;
+  }
+
+  void start() {
+    final Thread thread = new Thread(this::work, "async-timer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  void work() {
+    startTime = System.nanoTime();
+    tick = 0;
+
+    int idle = 0;
+
+    while (true) {
+      waitForNextTick();
+      processCancelled();
+      transferAdded();
+      wheel[(int) (tick & mask)].expire();
+      tick++;
+
+      if (pending > 0 || !added.isEmpty()) {
+        idle = 0;
+        continue;
+      }
+
+      if (++idle < IDLE_TICKS) {
+        continue;
+      }
+
+      /* nothing is left in the buckets, only drop the references held by the queue */
+      cancelled.clear();
+      running.set(false);
+
+      /* a timeout might have been added after the check above, without starting a new worker */
+      if (added.isEmpty() || !running.compareAndSet(false, true)) {
+        return;
+      }
+
+      idle = 0;
+    }
+  }
+
+  /**
+   * Wait until the current tick has passed.
+   */
+  void waitForNextTick() {
+    final long deadline = tickNanos * (tick + 1);
+
+    while (true) {
+      final long current = System.nanoTime() - startTime;
+      final long sleepNanos = deadline - current;
+
+      if (sleepNanos <= 0) {
+        return;
+      }
+
+      LockSupport.parkNanos(this, sleepNanos);
+    }
+  }
+
+  void processCancelled() {
+    Timeout timeout;
+
+    while ((timeout = cancelled.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+        pending--;
+      }
+    }
+  }
+
+  void transferAdded() {
+    Timeout timeout;
+
+    while ((timeout = added.poll()) != null) {
+      if (timeout.state != Timeout.INIT) {
+        continue;
+      }
+
+      final long calculated = (timeout.deadline - startTime) / tickNanos;
+      timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+      /* deadlines which have already passed are expired on this tick */
+      final long ticks = Math.max(calculated, tick);
+      wheel[(int) (ticks & mask)].add(timeout);
+      pending++;
+    }
+  }
+
+  /**
+   * A timeout armed in a {@link TimingWheel}.
+   */
+  static class Timeout {
+    static final int INIT = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    static final AtomicIntegerFieldUpdater<Timeout> STATE =
+      AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    final TimingWheel wheel;
+    final long deadline;
+    volatile int state;
+
+    /**
+     * Task to run, set to null once the timeout is cancelled.
+     */
+    Runnable task;
+
+    /* fields owned by the worker thread */
+    long remainingRounds;
+    Bucket bucket;
+    Timeout next;
+    Timeout prev;
+
+    Timeout(final TimingWheel wheel, final Runnable task, final long deadline) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancel the timeout, the task will not be run unless it already has been.
+     *
+     * <p>The timeout is unlinked from its bucket by the worker thread on its next tick.
+     *
+     * @return {@code true} if the timeout was cancelled by this call
+     */
+    boolean cancel() {
+      if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+        return false;
+      }
+
+      // help garbage collection.
+      task = null;
+      wheel.cancelled.add(this);
+      return true;
+    }
+
+    boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    void expire() {
+      if (!STATE.compareAndSet(this, INIT, EXPIRED)) {
+        return;
+      }
+
+      final Runnable task = this.task;
+      this.task = null;
+
+      try {
+        task.run();
+      } catch (final Throwable e) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      }
+    }
+  }
+
+  /**
+   * A doubly-linked list of timeouts, only accessed by the worker thread.
+   */
+  class Bucket {
+    Timeout head;
+    Timeout tail;
+
+    void add(final Timeout timeout) {
+      timeout.bucket = this;
+
+      if (head == null) {
+        head = tail = timeout;
+        return;
+      }
+
+      tail.next = timeout;
+      timeout.prev = tail;
+      tail = timeout;
+    }
+
+    void expire() {
+      Timeout timeout = head;
+
+      while (timeout != null) {
+        final Timeout next = timeout.next;
+
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          pending--;
+          timeout.expire();
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+          pending--;
+        } else {
+          timeout.remainingRounds--;
+        }
+
+        timeout = next;
+      }
+    }
+
+    void remove(final Timeout timeout) {
+      final Timeout next = timeout.next;
+      final Timeout prev = timeout.prev;
+
+      if (prev != null) {
+        prev.next = next;
+      } else {
+        head = next;
+      }
+
+      if (next != null) {
+        next.prev = prev;
+      } else {
+        tail = prev;
+      }
+
+      timeout.bucket = null;
+      timeout.next = null;
+      timeout.prev = null;
+    }
+  }
+
+  private static class Shared {
+    static final TimingWheel WHEEL = new TimingWheel();
+  }
+}
@@ -0,0 +1,61 @@
+package se.tedro.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, without requiring a runtime that supports them.
+ *
+ * <p>The library targets Java 8, so the virtual thread executor is looked up reflectively. There is
+ * no fallback on runtimes without virtual threads, since starting a platform thread per task would
+ * put no bound on the number of threads.
+ */
+final class VirtualThreads {
+  private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR =
+    lookupVirtualThreadPerTaskExecutor();
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * Check if the current runtime supports virtual threads.
+   *
+   * @return {@code true} if virtual threads are supported
+   */
+  static boolean isSupported() {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * Create a new executor that starts a new virtual thread for each task.
+   *
+   * @return a new executor
+   * @throws IllegalStateException if the runtime doesn't support virtual threads
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+      throw new IllegalStateException(
+        "Virtual threads are not supported by this runtime, Java 21 or later is required");
+    }
+
+    try {
+      return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke();
+    } catch (final Throwable e) {
+      throw new IllegalStateException("Failed to create virtual thread executor", e);
+    }
+  }
+
+  private static MethodHandle lookupVirtualThreadPerTaskExecutor() {
+    try {
+      return MethodHandles
+        .publicLookup()
+        .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+          MethodType.methodType(ExecutorService.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
@@ -3,19 +3,25 @@ package se.tedro.concurrent;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +38,8 @@ public class CollectHelperTest {
   @Mock
   private Completable<To> target;
   @Mock
+  private Completable<Collection<From>> collected;
+  @Mock
   private From result;
   @Mock
   private Throwable e;
@@ -140,6 +148,121 @@ public class CollectHelperTest {
     helper.add(CollectHelper.COMPLETED, null);
   }
 
+  @Test
+  public void testCollectView() {
+    final From other = mock(From.class);
+    final CollectHelper<From, Collection<From>> helper =
+      new CollectHelper<>(2, c -> c, sources, collected);
+
+    helper.completed(result);
+    helper.completed(other);
+
+    verify(collected).complete(ImmutableList.of(result, other));
+    assertTrue(helper.values == null && helper.states == null);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testCollectWideInCompletionOrder() {
+    final int size = StripedCountdown.WIDE * 2;
+    final Completable<Collection<Integer>> target = mock(Completable.class);
+    final CollectHelper<Integer, Collection<Integer>> helper =
+      new CollectHelper<>(size, c -> new ArrayList<>(c), sources, target);
+
+    final List<Integer> expected = new ArrayList<>();
+
+    for (int i = size - 1; i >= 0; i--) {
+      helper.completed(i);
+      expected.add(i);
+    }
+
+    verify(target).complete(expected);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testCollectWideAcrossThreadsInCompletionOrder() throws Exception {
+    final int size = StripedCountdown.WIDE * 4;
+    final Completable<Collection<Integer>> target = mock(Completable.class);
+    final CollectHelper<Integer, Collection<Integer>> helper =
+      new CollectHelper<>(size, c -> new ArrayList<>(c), sources, target);
+
+    final ExecutorService a = Executors.newSingleThreadExecutor();
+    final ExecutorService b = Executors.newSingleThreadExecutor();
+    final List<Integer> expected = new ArrayList<>();
+
+    try {
+      /* alternate between threads in batches, so that values land in different stripes */
+      for (int batch = 0; batch < size / 64; batch++) {
+        final int first = batch * 64;
+        final ExecutorService executor = batch % 2 == 0 ? a : b;
+
+        executor.submit(() -> {
+          for (int i = first; i < first + 64; i++) {
+            helper.completed(i);
+          }
+        }).get();
+
+        for (int i = first; i < first + 64; i++) {
+          expected.add(i);
+        }
+      }
+    } finally {
+      a.shutdown();
+      b.shutdown();
+    }
+
+    verify(target).complete(expected);
+  }
+
+  @Test
+  public void testCollectFailures() {
+    final CollectHelper<From, To> helper = new CollectHelper<>(2, collector, sources, target);
+
+    doReturn(ImmutableList.<Stage<?>>of().iterator()).when(sources).iterator();
+
+    helper.completed(result);
+    helper.failed(e);
+
+    verify(target).fail(any(Throwable.class));
+    verify(collector, never()).apply(any());
+  }
+
+  @Test
+  public void testFailFast() {
+    final CollectHelper<From, To> helper =
+      new CollectHelper<>(2, collector, sources, target, true);
+
+    doReturn(ImmutableList.<Stage<?>>of().iterator()).when(sources).iterator();
+
+    helper.failed(e);
+    verify(target).fail(e);
+
+    helper.completed(result);
+    verify(collector, never()).apply(any());
+  }
+
+  @Test
+  public void testFailFastSkipsRecording() {
+    final CollectHelper<From, To> helper =
+      spy(new CollectHelper<>(3, collector, sources, target, true));
+
+    doReturn(ImmutableList.<Stage<?>>of().iterator()).when(sources).iterator();
+
+    helper.completed(result);
+    helper.failed(e);
+    helper.cancelled();
+
+    verify(target).fail(e);
+    verify(helper).add(CollectHelper.COMPLETED, result);
+    verify(helper, never()).add(CollectHelper.FAILED, e);
+    verify(helper, never()).add(CollectHelper.CANCELLED, null);
+    verify(helper, times(3)).checkIn(anyInt());
+    assertTrue(helper.errors.isEmpty());
+    assertTrue(helper.done.get());
+    verify(collector, never()).apply(any());
+  }
+
   interface From {
   }
 
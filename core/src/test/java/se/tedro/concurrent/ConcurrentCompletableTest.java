@@ -10,9 +10,11 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -83,30 +85,40 @@ public class ConcurrentCompletableTest {
 
   @Test
   public void testComplete() {
-    assertEquals(ConcurrentCompletable.PENDING, c.completable.state.get());
+    assertEquals(ConcurrentCompletable.PENDING, ConcurrentCompletable.stateOf(c.completable.state));
     assertTrue(c.completable.complete(result));
-    assertEquals(ConcurrentCompletable.COMPLETED, c.completable.state.get());
-    assertEquals(result, c.completable.result);
+    assertEquals(ConcurrentCompletable.COMPLETED, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(result, c.completable.state);
 
     verifyFinalized();
   }
 
   @Test
   public void testCompleteNull() {
-    assertEquals(ConcurrentCompletable.PENDING, c.completable.state.get());
+    assertEquals(ConcurrentCompletable.PENDING, ConcurrentCompletable.stateOf(c.completable.state));
     assertTrue(c.completable.complete(null));
-    assertEquals(ConcurrentCompletable.COMPLETED, c.completable.state.get());
-    assertEquals(ConcurrentCompletable.NULL, c.completable.result);
+    assertEquals(ConcurrentCompletable.COMPLETED, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(ConcurrentCompletable.NULL, c.completable.state);
 
     verifyFinalized();
   }
 
+  @Test
+  public void testCompleteThrowable() throws Exception {
+    final ConcurrentCompletable<Throwable> completable = new ConcurrentCompletable<>(caller);
+
+    assertTrue(completable.complete(cause));
+    assertEquals(ConcurrentCompletable.COMPLETED, ConcurrentCompletable.stateOf(completable.state));
+    assertTrue(completable.isCompleted());
+    assertEquals(cause, completable.joinNow());
+  }
+
   @Test
   public void testFail() {
-    assertEquals(ConcurrentCompletable.PENDING, c.completable.state.get());
+    assertEquals(ConcurrentCompletable.PENDING, ConcurrentCompletable.stateOf(c.completable.state));
     assertTrue(c.completable.fail(cause));
-    assertEquals(ConcurrentCompletable.FAILED, c.completable.state.get());
-    assertEquals(cause, c.completable.result);
+    assertEquals(ConcurrentCompletable.FAILED, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(cause, c.completable.state);
 
     verifyFinalized();
   }
@@ -116,16 +128,16 @@ public class ConcurrentCompletableTest {
     expected.expect(NullPointerException.class);
     expected.expectMessage("cause");
 
-    assertEquals(ConcurrentCompletable.PENDING, c.completable.state.get());
+    assertEquals(ConcurrentCompletable.PENDING, ConcurrentCompletable.stateOf(c.completable.state));
     assertTrue(c.completable.fail(null));
   }
 
   @Test
   public void testCancel() {
-    assertEquals(ConcurrentCompletable.PENDING, c.completable.state.get());
+    assertEquals(ConcurrentCompletable.PENDING, ConcurrentCompletable.stateOf(c.completable.state));
     assertTrue(c.completable.cancel());
-    assertEquals(ConcurrentCompletable.CANCELLED, c.completable.state.get());
-    assertEquals(ConcurrentCompletable.CANCEL, c.completable.result);
+    assertEquals(ConcurrentCompletable.CANCELLED, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(ConcurrentCompletable.CANCEL, c.completable.state);
 
     verifyFinalized();
   }
@@ -148,6 +160,58 @@ public class ConcurrentCompletableTest {
     order.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void testAddLinksListeners() {
+    final ConcurrentCompletable<From> completable = new ConcurrentCompletable<>(caller);
+    final Runnable first = mock(Runnable.class);
+    final Runnable second = mock(Runnable.class);
+
+    assertTrue(completable.add(first));
+    final ConcurrentCompletable.Listener head = (ConcurrentCompletable.Listener) completable.state;
+    assertEquals(null, head.next);
+
+    assertTrue(completable.add(second));
+    assertEquals(head, ((ConcurrentCompletable.Listener) completable.state).next);
+
+    assertTrue(completable.complete(result));
+    assertFalse(completable.add(first));
+
+    verify(caller, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void testNextStageCancelsSource() {
+    final ConcurrentCompletable<From> source = new ConcurrentCompletable<>(caller);
+    final ConcurrentCompletable<To> next = source.nextStage();
+
+    assertEquals(source, next.source);
+    assertTrue(next.cancel());
+    assertEquals(null, next.source);
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void testSourceOnCancelled() {
+    final ConcurrentCompletable<From> target = new ConcurrentCompletable<>(caller);
+    final Stage<From> next = mock(Stage.class);
+
+    assertTrue(target.cancel());
+    target.source(next);
+    verify(next).cancel();
+    assertEquals(null, target.source);
+  }
+
+  @Test
+  public void testSourceOnDone() {
+    final ConcurrentCompletable<From> target = new ConcurrentCompletable<>(caller);
+    final Stage<From> next = mock(Stage.class);
+
+    assertTrue(target.complete(result));
+    target.source(next);
+    verify(next, never()).cancel();
+    assertEquals(null, target.source);
+  }
+
   @Test
   public void testWhenComplete() {
     final Stage<From> stage = mock(Stage.class);
@@ -184,84 +248,78 @@ public class ConcurrentCompletableTest {
     verify(c.completable).whenDone(captor.getValue());
   }
 
-  /* verify that the state of a completable cannot be changed */
-  private void verifyFinalized() {
-    final int state = c.completable.state.get();
-    final Object result = c.completable.result;
-
-    assertFalse(c.completable.complete(this.result));
-    assertEquals(state, c.completable.state.get());
-    assertEquals(result, c.completable.result);
-    assertFalse(c.completable.fail(cause));
-    assertEquals(state, c.completable.state.get());
-    assertEquals(result, c.completable.result);
-    assertFalse(c.completable.cancel());
-    assertEquals(state, c.completable.state.get());
-    assertEquals(result, c.completable.result);
+  @Test
+  public void testNextStageInheritsDeadline() {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    final ConcurrentCompletable<From> completable =
+      new ConcurrentCompletable<>(caller, TimingWheel.shared(), deadline);
+
+    assertEquals(deadline, completable.deadline());
+    assertEquals(deadline, completable.nextStage().deadline());
+    assertEquals(Deadline.none(), new ConcurrentCompletable<>(caller).deadline());
   }
 
   @Test
-  public void testThenApplyRunnable() {
-    final ConcurrentCompletable<To> target = Mockito.mock(ConcurrentCompletable.class);
-    final Function<From, To> fn = Mockito.mock(Function.class);
-
-    final Completable c = new Completable();
-
-    final ConcurrentCompletable.ThenApplyRunnable helper =
-      c.completable.new ThenApplyRunnable<To>(target, fn);
-
-    doReturn(to).when(fn).apply(result);
+  public void testDoneStageInheritsDeadline() {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    final ConcurrentCompletable<From> completable =
+      new ConcurrentCompletable<>(caller, TimingWheel.shared(), deadline);
+
+    completable.complete(result);
+
+    final Stage<To> applied = completable.thenApply(v -> to);
+    assertEquals(deadline, applied.deadline());
+    assertEquals(deadline, applied.thenApply(v -> result).deadline());
+    assertEquals(deadline, completable.thenFail(cause).deadline());
+    assertEquals(deadline, completable.thenFail(cause).thenApply(v -> to).deadline());
+    assertEquals(deadline, completable.thenCancel().thenApply(v -> to).deadline());
+  }
 
+  @Test
+  public void testWithTimeoutDone() {
     c.complete(result);
-    helper.run();
-
-    doThrow(cause).when(fn).apply(result);
-    helper.run();
-
-    c.cancel();
-    helper.run();
-
-    c.fail(cause);
-    helper.run();
-
-    final InOrder order = inOrder(fn, target);
-    order.verify(fn).apply(result);
-    order.verify(target).complete(to);
-    order.verify(fn).apply(result);
-    order.verify(target).fail(cause);
-    order.verify(target).cancel();
-    order.verify(target).fail(cause);
-    order.verifyNoMoreInteractions();
+    assertEquals(c.completable, c.completable.withTimeout(1, TimeUnit.SECONDS));
   }
 
   @Test
-  public void testThenComposeRunnable() {
-    final ConcurrentCompletable<To> target = Mockito.mock(ConcurrentCompletable.class);
-    final Function<From, Stage<To>> fn = Mockito.mock(Function.class);
+  public void testWithTimeoutRunnable() {
+    final ConcurrentCompletable<From> target = Mockito.mock(ConcurrentCompletable.class);
+    final TimingWheel.Timeout timeout = Mockito.mock(TimingWheel.Timeout.class);
 
     final Completable c = new Completable();
 
-    final ConcurrentCompletable.ThenComposeRunnable helper =
-      c.completable.new ThenComposeRunnable<To>(target, fn);
-
-    doNothing().when(c.completable).handleStage(any(), eq(target));
+    final ConcurrentCompletable.WithTimeoutRunnable helper =
+      c.completable.new WithTimeoutRunnable(target, timeout);
 
     c.complete(result);
     helper.run();
-
-    c.cancel();
-    helper.run();
+    verify(timeout).cancel();
+    verify(target).complete(result);
 
     c.fail(cause);
     helper.run();
+    verify(target).fail(cause);
 
-    final InOrder order = inOrder(fn, target, c.completable);
+    c.cancel();
+    helper.run();
+    verify(target).cancel();
+    verify(timeout, times(3)).cancel();
+  }
 
-    order.verify(c.completable).handleStage(any(), eq(target));
-    order.verify(target).cancel();
-    order.verify(target).fail(cause);
+  /* verify that the state of a completable cannot be changed */
+  private void verifyFinalized() {
+    final int state = ConcurrentCompletable.stateOf(c.completable.state);
+    final Object result = c.completable.state;
 
-    order.verifyNoMoreInteractions();
+    assertFalse(c.completable.complete(this.result));
+    assertEquals(state, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(result, c.completable.state);
+    assertFalse(c.completable.fail(cause));
+    assertEquals(state, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(result, c.completable.state);
+    assertFalse(c.completable.cancel());
+    assertEquals(state, ConcurrentCompletable.stateOf(c.completable.state));
+    assertEquals(result, c.completable.state);
   }
 
   @Test
@@ -373,7 +431,7 @@ public class ConcurrentCompletableTest {
 
     /* completed */
     order.verify(complete).get();
-    order.verify(target).whenCancelled(any());
+    order.verify(target).source(any());
     order.verify(completeStage).thenApply(any());
     order.verify(next).handle(target);
 
@@ -418,7 +476,7 @@ public class ConcurrentCompletableTest {
 
     /* completed */
     order.verify(complete).get();
-    order.verify(target).whenCancelled(any());
+    order.verify(target).source(any());
     order.verify(completeStage).thenApply(any());
     order.verify(next).handle(target);
 
@@ -505,7 +563,7 @@ public class ConcurrentCompletableTest {
   ) {
     /* cancelled */
     order.verify(notComplete).get();
-    order.verify(target).whenCancelled(any());
+    order.verify(target).source(any());
     order.verify(notCompleteStage).thenCancel();
     order.verify(next).handle(target);
 
@@ -514,7 +572,7 @@ public class ConcurrentCompletableTest {
 
     /* failed */
     order.verify(notComplete).get();
-    order.verify(target).whenCancelled(any());
+    order.verify(target).source(any());
     order.verify(notCompleteStage).thenFail(any());
     order.verify(next).handle(target);
 
@@ -527,18 +585,15 @@ public class ConcurrentCompletableTest {
       Mockito.spy(new ConcurrentCompletable<>(caller));
 
     public void complete(final From result) {
-      completable.state.set(ConcurrentCompletable.COMPLETED);
-      completable.result = result;
+      completable.state = result;
     }
 
     public void cancel() {
-      completable.state.set(ConcurrentCompletable.CANCELLED);
-      completable.result = ConcurrentCompletable.CANCEL;
+      completable.state = ConcurrentCompletable.CANCEL;
     }
 
     public void fail(final Exception cause) {
-      completable.state.set(ConcurrentCompletable.FAILED);
-      completable.result = cause;
+      completable.state = cause;
     }
   }
 
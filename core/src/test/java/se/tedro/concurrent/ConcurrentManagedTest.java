@@ -361,6 +361,25 @@ public class ConcurrentManagedTest {
     verify(underTest).release();
   }
 
+  @Test
+  public void testZeroLeaseOnlyAfterStop() {
+    underTest.state.set(ConcurrentManaged.ManagedState.STARTED);
+    underTest.reference.set(reference);
+
+    final Borrowed<Object> b = underTest.borrow();
+
+    /* the lease count passes through zero while running, without being checked */
+    underTest.release();
+    verify(zeroLeaseFuture, never()).complete(null);
+    underTest.retain();
+
+    underTest.stop();
+    verify(zeroLeaseFuture, never()).complete(null);
+
+    b.release();
+    verify(zeroLeaseFuture).complete(null);
+  }
+
   @Test
   public void testRetainRelease() {
     assertEquals(1, underTest.leases.get());
@@ -374,6 +393,7 @@ public class ConcurrentManagedTest {
   public void testZeroLeaseFutureResolve() {
     assertEquals(1, underTest.leases.get());
     verify(zeroLeaseFuture, never()).complete(null);
+    underTest.leases.reconcile();
     underTest.release();
     verify(zeroLeaseFuture, times(1)).complete(null);
     underTest.retain();
@@ -446,25 +466,35 @@ public class ConcurrentManagedTest {
     verify(valid).release();
   }
 
-  @SuppressWarnings("unchecked")
   @Test
-  public void testFinalizeDoNothing() throws Throwable {
-    final ConcurrentManaged.ValidBorrowed valid =
-      spy(underTest.new ValidBorrowed(reference, stack));
+  public void testLeakTrackerClosedOnRelease() throws Exception {
+    final ManagedOptions options = ManagedOptions.builder().leakDetectionRate(1).build();
+    final ConcurrentManaged<Object> managed = new ConcurrentManaged<>(caller, options, setup,
+      startFuture, zeroLeaseFuture, stopReferenceFuture, stopFuture);
+
+    managed.reference.set(reference);
 
-    valid.released.set(true);
-    valid.finalize();
+    final Borrowed<Object> b = managed.borrow();
+    assertEquals(1, managed.leakDetector.trackers.size());
+
+    b.release();
+    assertTrue(managed.leakDetector.trackers.isEmpty());
     verify(caller, never()).referenceLeaked(reference, stack);
   }
 
-  @SuppressWarnings("unchecked")
   @Test
-  public void testFinalizeReportLeak() throws Throwable {
-    final ConcurrentManaged.ValidBorrowed valid =
-      spy(underTest.new ValidBorrowed(reference, stack));
+  public void testLeakDetectionDisabled() throws Exception {
+    final ManagedOptions options = ManagedOptions.builder().leakDetectionRate(0).build();
+    final ConcurrentManaged<Object> managed = new ConcurrentManaged<>(caller, options, setup,
+      startFuture, zeroLeaseFuture, stopReferenceFuture, stopFuture);
+
+    managed.reference.set(reference);
+
+    final ConcurrentManaged<Object>.ValidBorrowed b =
+      (ConcurrentManaged<Object>.ValidBorrowed) managed.borrow();
 
-    valid.finalize();
-    verify(caller).referenceLeaked(reference, stack);
+    assertNull(b.leak);
+    assertTrue(managed.leakDetector.trackers.isEmpty());
   }
 
   @Test
@@ -1,10 +1,17 @@
 package se.tedro.concurrent;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
 
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -82,6 +89,72 @@ public class CoreAsyncBuilderTest {
     builder().callerExecutor(executor).threaded(true).caller(caller).build();
   }
 
+  @Test
+  public void testBuilderVirtualThreads() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    final CoreAsync async = builder().virtualThreads(true).build();
+
+    try {
+      assertEquals(42, (int) async.call(() -> 42).join());
+      assertTrue(async.caller() instanceof PrintStreamCaller);
+    } finally {
+      async.executor().shutdown();
+    }
+  }
+
+  @Test
+  public void testBuilderVirtualThreadsThreaded() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    final CoreAsync async = builder().virtualThreads(true).threaded(true).build();
+
+    try {
+      final Thread thread = async.call(() -> 42).thenApply(v -> Thread.currentThread()).join();
+      assertTrue(thread instanceof ForkJoinWorkerThread);
+    } finally {
+      async.executor().shutdown();
+    }
+  }
+
+  @Test
+  public void testBuilderVirtualThreadsUnsupported() {
+    assumeFalse(VirtualThreads.isSupported());
+    except.expect(IllegalStateException.class);
+    except.expectMessage("Virtual threads are not supported by this runtime");
+    builder().virtualThreads(true).build();
+  }
+
+  @Test
+  public void testBuilderVirtualThreadsWithExecutor() {
+    except.expect(IllegalStateException.class);
+    except.expectMessage("#virtualThreads enabled, but an executor is configured");
+    builder().virtualThreads(true).executor(executor).build();
+  }
+
+  @Test
+  public void testBuilderSharesDefaultTimer() {
+    assertSame(TimingWheel.shared(), builder().build().timer());
+    assertSame(TimingWheel.shared(), new CoreAsync(null, null, caller, ClockSource.system(),
+      ManagedOptions.newDefault()).timer());
+
+    final TimingWheel custom = builder().timerWheelSize(64).build().timer();
+    assertNotSame(TimingWheel.shared(), custom);
+  }
+
+  @Test
+  public void testBuilderFailFast() {
+    final CoreAsync async = builder().failFast(true).build();
+
+    final Completable<Integer> a = async.completable();
+    final Completable<Integer> b = async.completable();
+
+    final Stage<Collection<Integer>> collected = async.collect(ImmutableList.of(a, b));
+
+    a.fail(new RuntimeException());
+
+    assertTrue(collected.isFailed());
+    assertTrue(b.isCancelled());
+  }
+
   private CoreAsync.Builder builder() {
     return CoreAsync.builder();
   }
@@ -17,11 +17,11 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static se.tedro.concurrent.CoreAsync.buildCollectedException;
 
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -271,6 +271,13 @@ public class CoreAsyncTest {
     runEventuallyCollectTest(20, 10);
   }
 
+  @Test
+  public void testEventuallyCollectIteratorParallelism() throws Exception {
+    except.expect(IllegalArgumentException.class);
+    except.expectMessage("parallelism: must be positive");
+    underTest.eventuallyCollect(Collections.emptyIterator(), consumer, supplier, 0);
+  }
+
   @Test
   public void testDoEventuallyCollectEmptyThrows() throws Exception {
     doThrow(e).when(supplier).get();
@@ -319,13 +326,17 @@ public class CoreAsyncTest {
   public void testDoEventuallyCollect() throws Exception {
     final List<Callable<Stage<Object>>> callables = ImmutableList.of(c, c2);
 
-    doReturn(executor).when(underTest).executor();
     doReturn(completable).when(underTest).completable();
+    doReturn(f1).when(c).call();
+    doReturn(f2).when(c2).call();
 
     assertEquals(completable, underTest.doEventuallyCollect(callables, consumer, supplier, 10));
 
-    verify(executor).execute(any(DelayedCollectCoordinator.class));
-    verify(underTest).executor();
+    verify(c).call();
+    verify(c2).call();
+    verify(f1).handle(any(DelayedCollectCoordinator.class));
+    verify(f2).handle(any(DelayedCollectCoordinator.class));
+    verify(underTest, never()).executor();
   }
 
   @Test
@@ -390,14 +401,14 @@ public class CoreAsyncTest {
     final Collection<Stage<Object>> futures = ImmutableList.of(f1, f2);
 
     doReturn(completable).when(underTest).completable();
-    doNothing().when(underTest).bindSignals(completable, futures);
+    doNothing().when(underTest).bindSignals(eq(completable), any(SourceLinks.class));
 
     assertEquals(completable, underTest.doCollect(futures, collector));
 
     verify(underTest).completable();
-    verify(underTest).bindSignals(completable, futures);
-    verify(f1).handle(any(CollectHelper.class));
-    verify(f2).handle(any(CollectHelper.class));
+    verify(underTest).bindSignals(eq(completable), any(SourceLinks.class));
+    verify(f1).whenDone(any(SourceLinks.Link.class));
+    verify(f2).whenDone(any(SourceLinks.Link.class));
   }
 
   @SuppressWarnings("unchecked")
@@ -458,14 +469,14 @@ public class CoreAsyncTest {
     final Collection<Stage<Object>> futures = ImmutableList.of(f1, f2);
 
     doReturn(completable).when(underTest).completable();
-    doNothing().when(underTest).bindSignals(completable, futures);
+    doNothing().when(underTest).bindSignals(eq(completable), any(SourceLinks.class));
 
     assertEquals(completable, underTest.doStreamCollect(futures, consumer, supplier));
 
     verify(underTest).completable();
-    verify(underTest).bindSignals(completable, futures);
-    verify(f1).handle(any(CollectHelper.class));
-    verify(f2).handle(any(CollectHelper.class));
+    verify(underTest).bindSignals(eq(completable), any(SourceLinks.class));
+    verify(f1).whenDone(any(SourceLinks.Link.class));
+    verify(f2).whenDone(any(SourceLinks.Link.class));
   }
 
   @Test
@@ -522,14 +533,14 @@ public class CoreAsyncTest {
     final Collection<Stage<Object>> futures = ImmutableList.of(f1, f2);
 
     doReturn(completable).when(underTest).completable();
-    doNothing().when(underTest).bindSignals(completable, futures);
+    doNothing().when(underTest).bindSignals(eq(completable), any(SourceLinks.class));
 
     assertEquals(completable, underTest.doCollectAndDiscard(futures));
 
     verify(underTest).completable();
-    verify(underTest).bindSignals(completable, futures);
-    verify(f1).handle(any(CollectAndDiscardHelper.class));
-    verify(f2).handle(any(CollectAndDiscardHelper.class));
+    verify(underTest).bindSignals(eq(completable), any(SourceLinks.class));
+    verify(f1).whenDone(any(SourceLinks.Link.class));
+    verify(f2).whenDone(any(SourceLinks.Link.class));
   }
 
   @Test
@@ -585,17 +596,4 @@ public class CoreAsyncTest {
     verify(f1).cancel();
     verify(f2).cancel();
   }
-
-  @Test
-  public void testBuildCollectedException() {
-    final List<Throwable> errors = new ArrayList<>();
-    final Exception a = new Exception("foo");
-    final Exception b = new Exception("bar");
-
-    errors.add(a);
-    errors.add(b);
-
-    final Throwable e = buildCollectedException(errors);
-    assertEquals(b, e.getSuppressed()[0]);
-  }
 }
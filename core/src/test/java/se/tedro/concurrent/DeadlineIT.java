@@ -0,0 +1,215 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeadlineIT {
+  private ScheduledExecutorService executor;
+  private Async async;
+
+  @Before
+  public void setup() {
+    executor = Executors.newScheduledThreadPool(2);
+    async = CoreAsync
+      .builder()
+      .executor(executor)
+      .scheduler(executor)
+      .timerTick(1, TimeUnit.MILLISECONDS)
+      .build();
+  }
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testCompletableCarriesDeadline() {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    final Completable<Integer> source = async.withDeadline(deadline).completable();
+
+    assertSame(deadline, source.deadline());
+    assertSame(deadline, source.thenApply(v -> v + 1).deadline());
+    assertSame(Deadline.none(), async.completable().deadline());
+  }
+
+  @Test
+  public void testDoneStageCarriesDeadline() {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    final Async bound = async.withDeadline(deadline);
+    final Completable<Integer> source = bound.completable();
+    source.complete(1);
+
+    assertSame(deadline, source.thenApply(v -> v + 1).deadline());
+    assertSame(deadline, bound.completed(1).thenApply(v -> v + 1).deadline());
+    assertSame(deadline, bound.failed(new RuntimeException()).thenApply(v -> v).deadline());
+  }
+
+  @Test
+  public void testWithDeadlineExpires() throws Exception {
+    final Completable<Integer> source = async.completable();
+    final Stage<Integer> stage = source.withDeadline(Deadline.after(10, TimeUnit.MILLISECONDS));
+
+    assertDeadlineExceeded(stage);
+  }
+
+  @Test
+  public void testComposeSkippedAfterDeadline() throws Exception {
+    final Completable<Integer> source =
+      async.withDeadline(Deadline.after(0, TimeUnit.MILLISECONDS)).completable();
+    final AtomicInteger called = new AtomicInteger();
+
+    final Stage<Integer> stage = source.thenCompose(v -> {
+      called.incrementAndGet();
+      return async.completed(v);
+    });
+
+    source.complete(42);
+
+    assertDeadlineExceeded(stage);
+    assertEquals(0, called.get());
+  }
+
+  @Test
+  public void testCallSkippedAfterDeadline() throws Exception {
+    final AtomicInteger called = new AtomicInteger();
+
+    final Stage<Integer> stage = async
+      .withDeadline(Deadline.after(0, TimeUnit.MILLISECONDS))
+      .call(called::incrementAndGet);
+
+    assertDeadlineExceeded(stage);
+    assertEquals(0, called.get());
+  }
+
+  @Test
+  public void testRetryGivesUpBeforeOvershooting() throws Exception {
+    final AtomicInteger attempts = new AtomicInteger();
+    final RuntimeException error = new RuntimeException("fail");
+
+    final Stage<RetryResult<Integer>> stage = async
+      .withDeadline(Deadline.after(1, TimeUnit.SECONDS))
+      .retryUntilCompleted(() -> {
+        attempts.incrementAndGet();
+        return async.failed(error);
+      }, RetryPolicy.linear(10, TimeUnit.SECONDS));
+
+    try {
+      stage.join(5, TimeUnit.SECONDS);
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof DeadlineExceededException);
+      assertSame(error, e.getCause().getSuppressed()[0].getCause());
+    }
+
+    assertTrue(stage.isFailed());
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void testRetryDoesNotConsultPolicyAfterDeadline() throws Exception {
+    final AtomicInteger decisions = new AtomicInteger();
+    final RuntimeException error = new RuntimeException("fail");
+    final RetryPolicy linear = RetryPolicy.linear(0, TimeUnit.SECONDS);
+
+    final Stage<RetryResult<Integer>> stage = async
+      .withDeadline(Deadline.after(100, TimeUnit.MILLISECONDS))
+      .retryUntilCompleted(() -> async.delay(200, TimeUnit.MILLISECONDS).thenFail(error),
+        clockSource -> {
+          final Supplier<RetryDecision> decision = linear.newInstance(clockSource);
+
+          return () -> {
+            decisions.incrementAndGet();
+            return decision.get();
+          };
+        });
+
+    try {
+      stage.join(5, TimeUnit.SECONDS);
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof DeadlineExceededException);
+      assertSame(error, e.getCause().getSuppressed()[0].getCause());
+    }
+
+    assertTrue(stage.isFailed());
+    assertEquals(0, decisions.get());
+  }
+
+  @Test
+  public void testEventuallyCollectStopsAfterDeadline() throws Exception {
+    final Async bound = async.withDeadline(Deadline.after(50, TimeUnit.MILLISECONDS));
+    final List<Callable<Stage<Integer>>> callables = new ArrayList<>();
+    final AtomicInteger started = new AtomicInteger();
+
+    for (int i = 0; i < 100; i++) {
+      callables.add(() -> {
+        started.incrementAndGet();
+        return async.delay(10, TimeUnit.MILLISECONDS).thenApply(v -> 1);
+      });
+    }
+
+    final Stage<Integer> stage =
+      bound.eventuallyCollect(callables, v -> { }, () -> started.get(), 1);
+
+    assertDeadlineExceeded(stage);
+    assertTrue(started.get() < 100);
+  }
+
+  @Test
+  public void testDotoSkippedAfterDeadline() throws Exception {
+    final Managed<Object> managed =
+      async.managed(() -> async.completed(new Object()), v -> async.completed());
+    managed.start().join();
+
+    final AtomicInteger called = new AtomicInteger();
+
+    final Stage<Integer> stage =
+      managed.doto(Deadline.after(0, TimeUnit.MILLISECONDS), v -> {
+        called.incrementAndGet();
+        return async.completed(1);
+      });
+
+    assertDeadlineExceeded(stage);
+    assertEquals(0, called.get());
+
+    final Stage<Integer> ok = managed.doto(Deadline.after(1, TimeUnit.HOURS),
+      v -> async.completed(1));
+    assertEquals(Integer.valueOf(1), ok.join());
+    managed.stop().join();
+  }
+
+  @Test
+  public void testManagedIsNotBoundToDeadline() throws Exception {
+    final Managed<Object> managed = async
+      .withDeadline(Deadline.after(0, TimeUnit.MILLISECONDS))
+      .managed(() -> async.completed(new Object()), v -> async.completed());
+
+    managed.start().join();
+    assertFalse(managed.doto(v -> async.completed(1)).isFailed());
+    managed.stop().join();
+  }
+
+  private void assertDeadlineExceeded(final Stage<?> stage) throws Exception {
+    try {
+      stage.join(5, TimeUnit.SECONDS);
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof DeadlineExceededException);
+    }
+
+    assertTrue(stage.isFailed());
+  }
+}
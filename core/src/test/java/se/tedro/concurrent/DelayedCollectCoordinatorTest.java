@@ -1,13 +1,16 @@
 package se.tedro.concurrent;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.function.Consumer;
@@ -121,4 +124,102 @@ public class DelayedCollectCoordinatorTest {
 
     verify(consumer, times(1)).accept(result);
   }
+
+  @Test
+  public void testParallelism() throws Exception {
+    final List<Callable<Stage<Object>>> callables =
+      ImmutableList.of(callable, callable2, callable3, callable4);
+
+    final DelayedCollectCoordinator<Object, Object> coordinator =
+      new DelayedCollectCoordinator<Object, Object>(caller, callables, consumer, supplier, future,
+        2);
+
+    final Object result = new Object();
+
+    coordinator.run();
+    verify(callable).call();
+    verify(callable2).call();
+    verify(callable3, never()).call();
+
+    coordinator.completed(result);
+    verify(callable3).call();
+
+    coordinator.completed(result);
+    coordinator.completed(result);
+    verify(callable4).call();
+    verify(supplier, never()).get();
+
+    coordinator.completed(result);
+    verify(supplier).get();
+    verify(future).complete(any());
+  }
+
+  @Test
+  public void testCallThrows() throws Exception {
+    final List<Callable<Stage<Object>>> callables = ImmutableList.of(callable, callable2);
+
+    when(callable.call()).thenThrow(new RuntimeException());
+
+    final DelayedCollectCoordinator<Object, Object> coordinator =
+      new DelayedCollectCoordinator<Object, Object>(caller, callables, consumer, supplier, future,
+        1);
+
+    coordinator.run();
+
+    verify(callable2, never()).call();
+    verify(supplier).get();
+  }
+
+  @Test
+  public void testIterator() throws Exception {
+    @SuppressWarnings("unchecked")
+    final Iterator<Callable<Stage<Object>>> callables = mock(Iterator.class);
+    when(callables.hasNext()).thenReturn(true, true, true, false);
+    when(callables.next()).thenReturn(callable, callable2, callable3);
+
+    final DelayedCollectCoordinator<Object, Object> coordinator =
+      new DelayedCollectCoordinator<Object, Object>(caller, callables, consumer, supplier, future,
+        1);
+
+    final Object result = new Object();
+
+    coordinator.run();
+    verify(callables, times(1)).next();
+    verify(callable2, never()).call();
+
+    coordinator.completed(result);
+    verify(callables, times(2)).next();
+
+    coordinator.completed(result);
+    coordinator.completed(result);
+    verify(callables, times(3)).next();
+    verify(supplier).get();
+    verify(consumer, times(3)).accept(result);
+  }
+
+  @Test
+  public void testIteratorThrows() throws Exception {
+    final RuntimeException error = new RuntimeException();
+
+    @SuppressWarnings("unchecked")
+    final Iterator<Callable<Stage<Object>>> callables = mock(Iterator.class);
+    when(callables.hasNext()).thenReturn(true);
+    when(callables.next()).thenReturn(callable).thenThrow(error);
+
+    final DelayedCollectCoordinator<Object, Object> coordinator =
+      new DelayedCollectCoordinator<Object, Object>(caller, callables, consumer, supplier, future,
+        2);
+
+    coordinator.run();
+    verify(callable).call();
+    verify(future).fail(error);
+
+    /* the failed pull closed its slot, so the collect is done once the pending task is */
+    when(future.isDone()).thenReturn(true);
+    coordinator.completed(new Object());
+    verify(callables, times(2)).next();
+    verify(supplier, never()).get();
+    verify(future, never()).complete(any());
+    assertEquals(0, coordinator.pending);
+  }
 }
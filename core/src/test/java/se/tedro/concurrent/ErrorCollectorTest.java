@@ -0,0 +1,84 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.junit.Test;
+
+public class ErrorCollectorTest {
+  @Test
+  public void testEmpty() {
+    final ErrorCollector errors = new ErrorCollector(ErrorAggregation.newDefault());
+
+    assertTrue(errors.isEmpty());
+    assertNull(errors.build());
+  }
+
+  @Test
+  public void testSuppressed() {
+    final ErrorCollector errors = new ErrorCollector(ErrorAggregation.newDefault());
+    final Exception a = new Exception("a");
+    final Exception b = new Exception("b");
+
+    errors.add(a);
+    errors.add(b);
+
+    assertSame(a, errors.build());
+    assertSame(b, a.getSuppressed()[0]);
+  }
+
+  @Test
+  public void testMaxSuppressed() {
+    final ErrorCollector errors =
+      new ErrorCollector(ErrorAggregation.builder().maxSuppressed(1).build());
+
+    final Exception first = new Exception("first");
+
+    errors.add(first);
+    errors.add(new Exception("retained"));
+    errors.add(new IOException("dropped"));
+    errors.add(new IOException("dropped"));
+    errors.add(new IllegalStateException("dropped"));
+
+    assertSame(first, errors.build());
+    assertEquals(2, first.getSuppressed().length);
+
+    final DroppedErrorsException dropped = (DroppedErrorsException) first.getSuppressed()[1];
+
+    assertEquals(3, dropped.getTotal());
+    assertEquals(Long.valueOf(2), dropped.getDropped().get(IOException.class));
+    assertEquals(Long.valueOf(1), dropped.getDropped().get(IllegalStateException.class));
+    assertEquals(0, dropped.getStackTrace().length);
+  }
+
+  @Test
+  public void testDropStackTraces() {
+    final ErrorCollector errors =
+      new ErrorCollector(ErrorAggregation.builder().dropStackTraces(true).build());
+
+    final Exception first = new Exception("first");
+    final Exception second = new Exception("second");
+
+    errors.add(first);
+    errors.add(second);
+    errors.build();
+
+    assertTrue(first.getStackTrace().length > 0);
+    assertTrue(second.getStackTrace().length > 0);
+
+    final DroppedStackTraceException stripped =
+      (DroppedStackTraceException) first.getSuppressed()[0];
+
+    assertEquals(Exception.class, stripped.getType());
+    assertEquals(second.toString(), stripped.getMessage());
+    assertEquals(0, stripped.getStackTrace().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMaxSuppressed() {
+    ErrorAggregation.builder().maxSuppressed(-1);
+  }
+}
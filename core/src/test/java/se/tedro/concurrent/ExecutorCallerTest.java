@@ -2,7 +2,10 @@ package se.tedro.concurrent;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.concurrent.ExecutorService;
@@ -48,6 +51,70 @@ public class ExecutorCallerTest {
     verify(runnable).run();
   }
 
+  @Test
+  public void testExecuteBatch() {
+    final ExecutorCaller batched = new ExecutorCaller(executor, caller, 2, 1);
+    final Runnable a = mock(Runnable.class);
+    final Runnable b = mock(Runnable.class);
+    final Runnable c = mock(Runnable.class);
+
+    batched.executeBatch(listeners(a, b, c));
+
+    /* two batches, [a, b] and [c], where the first is re-submitted once because of fairness */
+    verify(executor, times(3)).execute(any(Runnable.class));
+    verify(a).run();
+    verify(b).run();
+    verify(c).run();
+    verify(caller, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void testExecuteBatchThrows() {
+    final ExecutorCaller batched = new ExecutorCaller(executor, caller, 2, 2);
+    final Runnable a = mock(Runnable.class);
+    final Runnable b = mock(Runnable.class);
+    final RuntimeException error = new RuntimeException();
+    doThrow(error).when(a).run();
+
+    final Thread thread = Thread.currentThread();
+    final Thread.UncaughtExceptionHandler original = thread.getUncaughtExceptionHandler();
+    final Thread.UncaughtExceptionHandler handler = mock(Thread.UncaughtExceptionHandler.class);
+    thread.setUncaughtExceptionHandler(handler);
+
+    try {
+      batched.executeBatch(listeners(a, b));
+    } finally {
+      thread.setUncaughtExceptionHandler(original);
+    }
+
+    verify(handler).uncaughtException(thread, error);
+    verify(b).run();
+  }
+
+  @Test
+  public void testExecuteBatchDisabled() {
+    final Runnable a = mock(Runnable.class);
+    final Runnable b = mock(Runnable.class);
+
+    underTest.executeBatch(listeners(a, b));
+
+    verify(executor, times(2)).execute(any(Runnable.class));
+    verify(a).run();
+    verify(b).run();
+  }
+
+  private ConcurrentCompletable.Listener listeners(final Runnable... runnables) {
+    ConcurrentCompletable.Listener head = null;
+
+    for (int i = runnables.length - 1; i >= 0; i--) {
+      final ConcurrentCompletable.Listener l = ConcurrentCompletable.listener(runnables[i]);
+      l.next = head;
+      head = l;
+    }
+
+    return head;
+  }
+
   @Test
   public void testLeakedManagedReference() {
     underTest.referenceLeaked(result, stack);
@@ -0,0 +1,184 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FusedStageTest {
+  private static final RuntimeException cause = new RuntimeException();
+
+  private Caller caller;
+  private ConcurrentCompletable<Integer> source;
+
+  @Before
+  public void setup() {
+    caller = new DirectCaller() {
+      @Override
+      protected void internalError(final String what, final Throwable e) {
+        throw new AssertionError(what, e);
+      }
+    };
+
+    source = new ConcurrentCompletable<>(caller);
+  }
+
+  @Test
+  public void testChainIsFused() throws Exception {
+    final Stage<Integer> first = source.thenApply(v -> v + 1);
+    final Stage<Integer> second = first.thenCompose(v -> source.thenApply(w -> v * 2));
+    final Stage<Integer> third = second.thenApply(v -> v + 3);
+
+    assertTrue(first instanceof FusedStage);
+    assertSame(((FusedStage<?>) first).chain, ((FusedStage<?>) third).chain);
+
+    /* the chain is the only listener on the source */
+    assertTrue(source.state instanceof FusedStage.Chain);
+    assertNull(((ConcurrentCompletable.Listener) source.state).next);
+
+    source.complete(1);
+
+    assertEquals(Integer.valueOf(7), third.join());
+    assertEquals(Integer.valueOf(2), first.join());
+
+    /* only the steps that were observed were given a completable */
+    assertNull(((FusedStage<?>) second).target);
+    assertTrue(second.isCompleted());
+  }
+
+  @Test
+  public void testFailedStep() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+
+    final Stage<Integer> failed = source.thenApply(v -> {
+      throw cause;
+    });
+    final Stage<Integer> tail = failed.thenApply(v -> calls.incrementAndGet());
+
+    source.complete(1);
+
+    assertSame(cause, failed.cause());
+    assertSame(cause, tail.cause());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void testSourceFailedOrCancelled() throws Exception {
+    final Stage<Integer> failed = source.thenApply(v -> v + 1).thenApply(v -> v + 1);
+    source.fail(cause);
+    assertSame(cause, failed.cause());
+
+    final ConcurrentCompletable<Integer> other = new ConcurrentCompletable<>(caller);
+    final Stage<Integer> cancelled = other.thenApply(v -> v + 1).thenApply(v -> v + 1);
+    other.cancel();
+    assertTrue(cancelled.isCancelled());
+  }
+
+  @Test
+  public void testBranchRunsStepsOnce() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+
+    final Stage<Integer> shared = source.thenApply(v -> calls.incrementAndGet());
+    final Stage<Integer> a = shared.thenApply(v -> v + 10);
+    final Stage<Integer> b = shared.thenApply(v -> v + 20);
+
+    /* the second branch starts a new chain on the completable of the shared step */
+    assertSame(((FusedStage<?>) shared).target, ((FusedStage<?>) b).chain.source);
+
+    source.complete(0);
+
+    assertEquals(Integer.valueOf(11), a.join());
+    assertEquals(Integer.valueOf(21), b.join());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testAppendAfterPassed() throws Exception {
+    final Stage<Integer> first = source.thenApply(v -> v + 1);
+    source.complete(1);
+
+    final Stage<Integer> next = first.thenApply(v -> v + 1);
+
+    assertFalse(next instanceof FusedStage);
+    assertEquals(Integer.valueOf(3), next.join());
+  }
+
+  @Test
+  public void testCancelTailCancelsSource() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+
+    final Stage<Integer> first = source.thenApply(v -> calls.incrementAndGet());
+    final Stage<Integer> tail = first.thenApply(v -> calls.incrementAndGet());
+
+    assertTrue(tail.cancel());
+    assertTrue(tail.isCancelled());
+    assertTrue(source.isCancelled());
+    assertTrue(first.isCancelled());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void testCancelWhileComposing() throws Exception {
+    final ConcurrentCompletable<Integer> composed = new ConcurrentCompletable<>(caller);
+
+    final Stage<Integer> tail = source.thenCompose(v -> composed).thenApply(v -> v + 1);
+    source.complete(1);
+
+    assertTrue(tail.cancel());
+    assertTrue(composed.isCancelled());
+    assertTrue(tail.isCancelled());
+  }
+
+  @Test
+  public void testCancelPassedStep() throws Exception {
+    final ConcurrentCompletable<Integer> composed = new ConcurrentCompletable<>(caller);
+
+    final Stage<Integer> first = source.thenApply(v -> v + 1);
+    final Stage<Integer> tail = first.thenCompose(v -> composed);
+    source.complete(1);
+
+    assertFalse(first.cancel());
+    assertFalse(composed.isCancelled());
+
+    composed.complete(3);
+    assertEquals(Integer.valueOf(3), tail.join());
+  }
+
+  @Test
+  public void testComposeSkippedAfterDeadline() throws Exception {
+    final ConcurrentCompletable<Integer> source =
+      new ConcurrentCompletable<>(caller, TimingWheel.shared(),
+        Deadline.after(0, TimeUnit.MILLISECONDS));
+    final AtomicInteger calls = new AtomicInteger();
+
+    final Stage<Integer> tail = source.thenApply(v -> v + 1).thenCompose(v -> {
+      calls.incrementAndGet();
+      return source;
+    });
+
+    source.complete(1);
+
+    assertTrue(tail.cause() instanceof DeadlineExceededException);
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void testObservedBeforePassed() throws Exception {
+    final AtomicInteger seen = new AtomicInteger();
+
+    final Stage<Integer> first = source.thenApply(v -> v + 1);
+    first.whenComplete(seen::set);
+    final Stage<Integer> tail = first.thenApply(v -> v + 1);
+
+    source.complete(1);
+
+    assertEquals(2, seen.get());
+    assertEquals(Integer.valueOf(3), tail.joinNow());
+  }
+}
@@ -0,0 +1,88 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LeakDetectorTest {
+  private static final Object reference = new Object();
+  private static final StackTraceElement[] stack = new StackTraceElement[0];
+
+  private Caller caller;
+
+  @Before
+  public void setup() {
+    caller = mock(Caller.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeRate() {
+    new LeakDetector(caller, -1);
+  }
+
+  @Test
+  public void testDisabled() {
+    final LeakDetector detector = new LeakDetector(caller, 0);
+    assertNull(detector.track(new Object(), reference, stack));
+  }
+
+  @Test
+  public void testClosedIsNotReported() {
+    final LeakDetector detector = new LeakDetector(caller, 1);
+    final Object borrowed = new Object();
+
+    final LeakDetector.Tracker tracker = detector.track(borrowed, reference, stack);
+    assertNotNull(tracker);
+
+    tracker.close();
+    assertTrue(detector.trackers.isEmpty());
+    assertNull(tracker.get());
+
+    detector.reportLeaks();
+    verify(caller, never()).referenceLeaked(reference, stack);
+  }
+
+  @Test(timeout = 10000)
+  public void testReportLeak() throws Exception {
+    final LeakDetector detector = new LeakDetector(caller, 1);
+
+    detector.track(new Object(), reference, stack);
+
+    while (!detector.trackers.isEmpty()) {
+      System.gc();
+      Thread.sleep(10);
+      detector.reportLeaks();
+    }
+
+    verify(caller).referenceLeaked(reference, stack);
+  }
+
+  @Test(timeout = 10000)
+  public void testReportLeakFromTimer() throws Exception {
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(caller).execute(any(Runnable.class));
+
+    final LeakDetector detector = new LeakDetector(caller, 1, TimingWheel.shared(), 10);
+
+    detector.track(new Object(), reference, stack);
+
+    /* only the periodic drain reports the leak, since nothing else is borrowed or released */
+    while (!detector.trackers.isEmpty()) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    verify(caller, timeout(1000)).referenceLeaked(reference, stack);
+  }
+}
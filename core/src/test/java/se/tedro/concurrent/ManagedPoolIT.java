@@ -0,0 +1,365 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class ManagedPoolIT {
+  private AtomicInteger setups;
+  private AtomicInteger teardowns;
+
+  @Rule
+  public Timeout timeout = Timeout.millis(5000);
+
+  @Before
+  public void setup() {
+    setups = new AtomicInteger();
+    teardowns = new AtomicInteger();
+  }
+
+  private ManagedPool<Object> newPool(final int size, final ManagedOptions options) {
+    final Async async = CoreAsync.builder().managedOptions(options).build();
+
+    return async.managedPool(size, () -> {
+      setups.incrementAndGet();
+      return async.completed(new Object());
+    }, value -> {
+      teardowns.incrementAndGet();
+      return async.completed();
+    });
+  }
+
+  private ManagedPool<Object> newPool(final int size) {
+    return newPool(size, ManagedOptions.newDefault());
+  }
+
+  @Test
+  public void testStartSetsUpAllInstances() throws Exception {
+    final ManagedPool<Object> pool = newPool(3);
+
+    pool.start().join();
+
+    assertTrue(pool.isReady());
+    assertEquals(3, setups.get());
+    assertEquals(3, pool.available());
+  }
+
+  @Test
+  public void testBorrowIsExclusive() throws Exception {
+    final ManagedPool<Object> pool = newPool(2);
+    pool.start().join();
+
+    final Borrowed<Object> a = pool.borrow();
+    final Borrowed<Object> b = pool.borrow();
+
+    assertTrue(a.isValid());
+    assertTrue(b.isValid());
+    assertNotSame(a.get(), b.get());
+    assertFalse(pool.borrow().isValid());
+
+    a.release();
+    assertEquals(1, pool.available());
+
+    /* the most recently released instance is handed out first */
+    try (final Borrowed<Object> c = pool.borrow()) {
+      assertTrue(c.isValid());
+    }
+  }
+
+  @Test
+  public void testWaitersAreServedInOrder() throws Exception {
+    final ManagedPool<Object> pool = newPool(1);
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+    final Stage<Borrowed<Object>> first = pool.acquire();
+    final Stage<Borrowed<Object>> second = pool.acquire();
+
+    assertFalse(first.isDone());
+    assertFalse(second.isDone());
+    /* waiters can't be overtaken */
+    assertFalse(pool.borrow().isValid());
+
+    final Object instance = held.get();
+    held.release();
+
+    assertTrue(first.isDone());
+    assertFalse(second.isDone());
+
+    first.join().release();
+
+    assertTrue(second.isDone());
+    assertSame(instance, second.join().get());
+  }
+
+  @Test
+  public void testCancelledWaiterGivesUpPlace() throws Exception {
+    final ManagedPool<Object> pool = newPool(1);
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+    final Stage<Borrowed<Object>> first = pool.acquire();
+    final Stage<Borrowed<Object>> second = pool.acquire();
+
+    first.cancel();
+    held.release();
+
+    assertTrue(second.isDone());
+    second.join().release();
+    assertEquals(1, pool.available());
+  }
+
+  @Test
+  public void testCancelledWaitersAreRemoved() throws Exception {
+    final ManagedPool<Object> pool =
+      newPool(1, ManagedOptions.builder().poolMaxWaiters(1).build());
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+
+    /* each cancelled waiter frees its place, so it doesn't count against the max */
+    for (int i = 0; i < 10; i++) {
+      assertTrue(pool.acquire().cancel());
+    }
+
+    final ConcurrentManagedPool<Object> concurrent = (ConcurrentManagedPool<Object>) pool;
+    assertEquals(0, concurrent.waiting.get());
+    assertTrue(concurrent.waiters.isEmpty());
+
+    final Stage<Borrowed<Object>> waiting = pool.acquire();
+    assertEquals(0, pool.available());
+
+    held.release();
+    waiting.join().release();
+    assertEquals(1, pool.available());
+  }
+
+  @Test
+  public void testMaxWaiters() throws Exception {
+    final ManagedPool<Object> pool =
+      newPool(1, ManagedOptions.builder().poolMaxWaiters(1).build());
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+    final Stage<Borrowed<Object>> waiting = pool.acquire();
+
+    try {
+      pool.acquire().join();
+      fail("should be rejected");
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    held.release();
+    waiting.join().release();
+  }
+
+  @Test
+  public void testDiscard() throws Exception {
+    final ManagedPool<Object> pool = newPool(1);
+    pool.start().join();
+
+    final Borrowed<Object> b = pool.acquire().join();
+    final Object instance = b.get();
+
+    pool.discard(b);
+
+    assertEquals(1, teardowns.get());
+
+    /* a new instance is set up once it is needed */
+    try (final Borrowed<Object> next = pool.acquire().join()) {
+      assertNotSame(instance, next.get());
+      assertEquals(2, setups.get());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDiscardForeign() throws Exception {
+    final ManagedPool<Object> pool = newPool(1);
+    pool.start().join();
+
+    final ManagedPool<Object> other = newPool(1);
+    other.start().join();
+
+    pool.discard(other.borrow());
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception {
+    final ManagedPool<Object> pool =
+      newPool(2, ManagedOptions.builder().poolIdleTimeout(20, TimeUnit.MILLISECONDS).build());
+    pool.start().join();
+
+    while (teardowns.get() < 2) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(2, pool.available());
+
+    try (final Borrowed<Object> b = pool.acquire().join()) {
+      assertTrue(b.isValid());
+      assertEquals(3, setups.get());
+    }
+
+    pool.stop().join();
+  }
+
+  @Test
+  public void testStopWaitsForBorrowed() throws Exception {
+    final ManagedPool<Object> pool = newPool(2);
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+    pool.acquire().join();
+    final Stage<Borrowed<Object>> waiting = pool.acquire();
+
+    final Stage<Void> stopped = pool.stop();
+
+    assertTrue(waiting.isCancelled());
+    assertFalse(pool.isReady());
+    assertFalse(stopped.isDone());
+    assertTrue(pool.acquire().isCancelled());
+
+    held.release();
+    assertFalse(stopped.isDone());
+  }
+
+  @Test
+  public void testStop() throws Exception {
+    final ManagedPool<Object> pool = newPool(2);
+    pool.start().join();
+
+    final Borrowed<Object> held = pool.acquire().join();
+    final Stage<Void> stopped = pool.stop();
+
+    assertEquals(1, teardowns.get());
+    held.release();
+
+    stopped.join();
+    assertEquals(2, teardowns.get());
+  }
+
+  @Test
+  public void testStopWaitsForSetup() throws Exception {
+    final Async async = CoreAsync.builder().build();
+    final Completable<Object> setup = async.completable();
+
+    final ManagedPool<Object> pool = async.managedPool(1, () -> setup, value -> {
+      teardowns.incrementAndGet();
+      return async.completed();
+    });
+
+    final Stage<Void> started = pool.start();
+    final Stage<Void> stopped = pool.stop();
+
+    assertFalse(stopped.isDone());
+
+    /* the instance is torn down as soon as it is set up */
+    setup.complete(new Object());
+
+    assertTrue(started.isDone());
+    stopped.join();
+    assertEquals(1, teardowns.get());
+  }
+
+  @Test
+  public void testStopWaitsForDiscard() throws Exception {
+    final Async async = CoreAsync.builder().build();
+    final Completable<Void> teardown = async.completable();
+
+    final ManagedPool<Object> pool =
+      async.managedPool(1, () -> async.completed(new Object()), value -> teardown);
+    pool.start().join();
+
+    pool.discard(pool.acquire().join());
+
+    final Stage<Void> stopped = pool.stop();
+    assertFalse(stopped.isDone());
+
+    teardown.complete(null);
+    stopped.join();
+  }
+
+  @Test
+  public void testStopFailsWithTeardown() throws Exception {
+    final Async async = CoreAsync.builder().build();
+    final RuntimeException cause = new RuntimeException();
+
+    final ManagedPool<Object> pool = async.managedPool(1, () -> async.completed(new Object()),
+      value -> async.failed(cause));
+    pool.start().join();
+
+    try {
+      pool.stop().join();
+      fail("expected stop to fail");
+    } catch (final ExecutionException e) {
+      assertSame(cause, e.getCause());
+    }
+  }
+
+  /**
+   * Slots freed concurrently with waiters being added must always be handed to a waiter.
+   */
+  @Test
+  public void testConcurrentDoto() throws Exception {
+    final ManagedPool<Object> pool = newPool(2);
+    pool.start().join();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final Async async = CoreAsync.builder().executor(executor).build();
+    final AtomicInteger inUse = new AtomicInteger();
+
+    try {
+      final List<Stage<Object>> stages = new ArrayList<>();
+
+      for (int i = 0; i < 1000; i++) {
+        stages.add(async.call(() -> pool.doto(value -> {
+          if (inUse.incrementAndGet() > 2) {
+            throw new IllegalStateException("more instances in use than in the pool");
+          }
+
+          inUse.decrementAndGet();
+          return async.completed(value);
+        })).thenCompose(stage -> stage));
+      }
+
+      async.collect(stages).join();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(2, pool.available());
+    assertEquals(0, ((ConcurrentManagedPool<Object>) pool).waiting.get());
+  }
+
+  @Test
+  public void testDoto() throws Exception {
+    final ManagedPool<Object> pool = newPool(1);
+    pool.start().join();
+
+    final Completable<Object> inner = CoreAsync.builder().build().completable();
+    final Stage<Object> result = pool.doto(value -> inner);
+
+    assertEquals(0, pool.available());
+    inner.complete("done");
+
+    assertEquals("done", result.join());
+    assertEquals(1, pool.available());
+  }
+}
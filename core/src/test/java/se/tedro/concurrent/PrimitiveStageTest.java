@@ -0,0 +1,168 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class PrimitiveStageTest {
+  @Rule
+  public ExpectedException except = ExpectedException.none();
+
+  private Async async;
+
+  @Before
+  public void setup() {
+    async = CoreAsync.builder().build();
+  }
+
+  @Test
+  public void testLongComplete() throws Exception {
+    final LongCompletable c = async.longCompletable();
+    final LongStage next = c.thenApplyAsLong(v -> v * 2);
+
+    assertFalse(next.isDone());
+    assertTrue(c.complete(21));
+    assertFalse(c.complete(1));
+
+    assertEquals(21, c.join());
+    assertEquals(42, next.joinNow());
+    assertEquals(Long.valueOf(42), next.boxed().join());
+  }
+
+  @Test
+  public void testDoubleComplete() throws Exception {
+    final DoubleCompletable c = async.doubleCompletable();
+    final DoubleStage next = c.thenApplyAsDouble(v -> v / 2);
+
+    c.complete(3.0);
+
+    assertEquals(1.5, next.join(), 0.0);
+    assertEquals(1, c.thenApplyAsLong(v -> (long) (v / 2)).join());
+  }
+
+  @Test
+  public void testFailed() throws Exception {
+    final LongCompletable c = async.longCompletable();
+    final RuntimeException cause = new RuntimeException();
+
+    final LongStage next = c.thenApplyAsLong(v -> v);
+    c.fail(cause);
+
+    assertTrue(next.isFailed());
+    assertSame(cause, next.cause());
+
+    except.expect(ExecutionException.class);
+    next.joinNow();
+  }
+
+  @Test
+  public void testCancelPropagatesToSource() throws Exception {
+    final LongCompletable c = async.longCompletable();
+    final LongStage next = c.thenApplyAsDouble(v -> v).thenApplyAsLong(v -> (long) v);
+
+    next.cancel();
+
+    assertTrue(c.isCancelled());
+
+    except.expect(CancellationException.class);
+    c.joinNow();
+  }
+
+  @Test
+  public void testBoxedCancelPropagatesToSource() throws Exception {
+    final LongCompletable c = async.longCompletable();
+    final Stage<Long> next = c.thenApply(v -> v);
+
+    next.cancel();
+
+    assertTrue(c.isCancelled());
+  }
+
+  @Test
+  public void testStageCancelPropagatesToSource() throws Exception {
+    final Completable<String> c = async.completable();
+
+    c.thenApplyAsLong(String::length).cancel();
+    assertTrue(c.isCancelled());
+
+    final Completable<String> d = async.completable();
+
+    d.thenApplyAsDouble(String::length).cancel();
+    assertTrue(d.isCancelled());
+  }
+
+  @Test
+  public void testStageThenApplyAsLong() throws Exception {
+    final Completable<String> c = async.completable();
+    final LongStage length = c.thenApplyAsLong(String::length);
+
+    c.complete("hello");
+
+    assertEquals(5, length.join());
+  }
+
+  @Test
+  public void testCollectLongs() throws Exception {
+    final LongCompletable a = async.longCompletable();
+    final LongCompletable b = async.longCompletable();
+
+    final LongStage sum = async.collectLongs(ImmutableList.of(a, b), 0, Long::sum);
+
+    a.complete(1);
+    assertFalse(sum.isDone());
+    b.complete(2);
+
+    assertEquals(3, sum.join());
+  }
+
+  @Test
+  public void testCollectDoubles() throws Exception {
+    final DoubleCompletable a = async.doubleCompletable();
+    final DoubleCompletable b = async.doubleCompletable();
+
+    final DoubleStage max = async.collectDoubles(ImmutableList.of(a, b), 0.0, Math::max);
+
+    a.complete(1.5);
+    b.complete(0.5);
+
+    assertEquals(1.5, max.join(), 0.0);
+  }
+
+  @Test
+  public void testCollectLongsFailed() throws Exception {
+    final LongCompletable a = async.longCompletable();
+    final LongCompletable b = async.longCompletable();
+
+    final LongStage sum = async.collectLongs(ImmutableList.of(a, b), 0, Long::sum);
+
+    a.fail(new RuntimeException());
+
+    assertTrue(b.isCancelled());
+    assertTrue(sum.isFailed());
+  }
+
+  @Test
+  public void testDeadlineCarried() throws Exception {
+    final Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    final Async bound = async.withDeadline(deadline);
+
+    final LongCompletable c = bound.longCompletable();
+    assertSame(deadline, c.thenApply(v -> v).deadline());
+    assertSame(deadline, c.thenApplyAsDouble(v -> v).boxed().deadline());
+
+    final Completable<Integer> source = bound.completable();
+    assertSame(deadline, source.thenApplyAsLong(v -> v).boxed().deadline());
+    assertSame(deadline, source.thenApplyAsDouble(v -> v).boxed().deadline());
+    assertSame(deadline, bound.completed(1).thenApplyAsLong(v -> v).boxed().deadline());
+  }
+}
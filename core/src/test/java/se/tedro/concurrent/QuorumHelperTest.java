@@ -0,0 +1,127 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QuorumHelperTest {
+  @Mock
+  private Completable<List<Integer>> target;
+  @Mock
+  private Stage<Integer> f1;
+  @Mock
+  private Stage<Integer> f2;
+  @Mock
+  private Stage<Integer> f3;
+
+  private QuorumHelper<Integer, List<Integer>> helper;
+
+  @Before
+  public void setup() {
+    helper = new QuorumHelper<>(3, 2, ArrayList::new, ImmutableList.of(f1, f2, f3), target,
+      ErrorAggregation.newDefault());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyRequired() {
+    new QuorumHelper<Integer, List<Integer>>(1, 2, ArrayList::new, ImmutableList.of(),
+      target, ErrorAggregation.newDefault());
+  }
+
+  @Test
+  public void testCompleted() {
+    when(target.complete(any())).thenReturn(true);
+
+    helper.completed(2);
+    verify(target, never()).complete(any());
+
+    helper.completed(1);
+    verify(target).complete(ImmutableList.of(2, 1));
+    verify(f3).cancel();
+    assertNull(helper.sources);
+
+    /* losers are ignored */
+    helper.completed(3);
+    helper.cancelled();
+    verify(target).complete(any());
+    verify(target, never()).cancel();
+  }
+
+  @Test
+  public void testFailedToleratesMisses() {
+    final RuntimeException error = new RuntimeException();
+
+    helper.failed(error);
+    verify(target, never()).fail(any());
+
+    helper.completed(1);
+    helper.completed(2);
+    verify(target).complete(ImmutableList.of(1, 2));
+  }
+
+  @Test
+  public void testFailed() {
+    final RuntimeException a = new RuntimeException();
+    final RuntimeException b = new RuntimeException();
+
+    helper.completed(1);
+    helper.failed(a);
+    helper.failed(b);
+
+    verify(target).fail(a);
+    assertSame(b, a.getSuppressed()[0]);
+    verify(f1).cancel();
+    verify(target, never()).complete(any());
+  }
+
+  @Test
+  public void testFailedThenCancelled() {
+    final RuntimeException a = new RuntimeException();
+
+    helper.failed(a);
+    helper.cancelled();
+
+    verify(target).fail(a);
+    verify(target, never()).cancel();
+  }
+
+  @Test
+  public void testFailedAfterMissed() {
+    final RuntimeException a = new RuntimeException();
+    final RuntimeException b = new RuntimeException();
+    final RuntimeException c = new RuntimeException();
+
+    helper.failed(a);
+    helper.failed(b);
+    helper.failed(c);
+
+    verify(target).fail(a);
+    assertEquals(1, a.getSuppressed().length);
+    assertEquals(2, helper.errors.count);
+  }
+
+  @Test
+  public void testCancelled() {
+    helper.cancelled();
+    helper.cancelled();
+
+    verify(target).cancel();
+    verify(f1).cancel();
+    assertTrue(helper.errors.isEmpty());
+  }
+}
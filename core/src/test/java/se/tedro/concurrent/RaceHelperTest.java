@@ -0,0 +1,60 @@
+package se.tedro.concurrent;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RaceHelperTest {
+  @Mock
+  private Completable<Integer> target;
+  @Mock
+  private Stage<Integer> f1;
+  @Mock
+  private Stage<Integer> f2;
+
+  private RaceHelper<Integer> helper;
+
+  @Before
+  public void setup() {
+    helper = new RaceHelper<>(ImmutableList.of(f1, f2), target);
+  }
+
+  @Test
+  public void testCompleted() {
+    when(target.complete(1)).thenReturn(true);
+
+    helper.completed(1);
+
+    verify(target).complete(1);
+    verify(f1).cancel();
+    verify(f2).cancel();
+  }
+
+  @Test
+  public void testFailed() {
+    final RuntimeException error = new RuntimeException();
+    when(target.fail(error)).thenReturn(true);
+
+    helper.failed(error);
+
+    verify(target).fail(error);
+    verify(f2).cancel();
+  }
+
+  @Test
+  public void testLost() {
+    helper.completed(1);
+
+    verify(f1, never()).cancel();
+    verify(target, never()).fail(any());
+  }
+}
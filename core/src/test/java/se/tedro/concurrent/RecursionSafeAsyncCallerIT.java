@@ -8,9 +8,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -81,31 +79,14 @@ public class RecursionSafeAsyncCallerIT {
   @Test
   public void testBasic() throws Exception {
     final long MAX_RECURSION_DEPTH = 2;
-    ExecutorService executorServiceReal = Executors.newFixedThreadPool(10);
     Caller caller2 = Mockito.mock(Caller.class);
-    RecursionSafeCaller recursionCaller =
-      new RecursionSafeCaller(executorServiceReal, caller2, MAX_RECURSION_DEPTH);
+    RecursionSafeCaller recursionCaller = new RecursionSafeCaller(caller2, MAX_RECURSION_DEPTH);
     ConcurrentLinkedQueue<Integer> testData =
       new ConcurrentLinkedQueue<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
 
+    // Recursive calls beyond the max depth are drained by the outermost call before it returns.
     testBasicRecursionMethod(recursionCaller, testData);
 
-    // Wait for recursive calls in thread pool to create new work until done, or timeout.
-    // The executorServiceReal.shutdown() below is not enough since potentially some new work
-    // is still on the way in, due to recursive nature of the test.
-    long startTime = System.currentTimeMillis();
-    long maxTime = 1000;
-    while (testData.size() > 0) {
-      if (System.currentTimeMillis() - startTime > maxTime) {
-        // Timeout, test will fail in the assert below
-        break;
-      }
-      Thread.sleep(10);
-    }
-
-    executorServiceReal.shutdown();
-    executorServiceReal.awaitTermination(1000, TimeUnit.MILLISECONDS);
-
     assert (testData.size() == 0);
     assert (totIterations.get() == 10);
 
@@ -1,19 +1,21 @@
 package se.tedro.concurrent;
 
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.doAnswer;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
-import java.util.concurrent.ExecutorService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RecursionSafeCallerTest {
@@ -39,19 +41,8 @@ public class RecursionSafeCallerTest {
 
   @Before
   public void setup() {
-    ExecutorService executor = mock(ExecutorService.class);
-
-    doAnswer(new Answer<Void>() {
-      @Override
-      public Void answer(InvocationOnMock invocation) throws Throwable {
-        final Runnable runnable = (Runnable) invocation.getArguments()[0];
-        runnable.run();
-        return null;
-      }
-    }).when(executor).submit(any(Runnable.class));
-
     caller = mock(Caller.class);
-    underTest = new RecursionSafeCaller(executor, caller);
+    underTest = new RecursionSafeCaller(caller);
   }
 
   @Test
@@ -66,4 +57,51 @@ public class RecursionSafeCallerTest {
     underTest.execute(runnable);
     verify(runnable).run();
   }
+
+  @Test
+  public void testExecuteTrampolined() {
+    final RecursionSafeCaller caller = new RecursionSafeCaller(this.caller, 1);
+    final List<Integer> order = new ArrayList<>();
+
+    caller.execute(() -> {
+      caller.execute(() -> {
+        caller.execute(() -> order.add(3));
+        order.add(2);
+      });
+      order.add(1);
+    });
+
+    assertEquals(Arrays.asList(1, 2, 3), order);
+  }
+
+  @Test
+  public void testExecuteTrampolinedThrows() {
+    final RecursionSafeCaller caller = new RecursionSafeCaller(this.caller, 1);
+    final List<Integer> order = new ArrayList<>();
+    final RuntimeException first = new RuntimeException("first");
+    final RuntimeException second = new RuntimeException("second");
+
+    try {
+      caller.execute(() -> {
+        caller.execute(() -> {
+          throw first;
+        });
+        caller.execute(() -> order.add(2));
+        caller.execute(() -> {
+          throw second;
+        });
+        order.add(1);
+      });
+      fail("expected exception");
+    } catch (final RuntimeException e) {
+      assertSame(first, e);
+      assertArrayEquals(new Throwable[]{second}, e.getSuppressed());
+    }
+
+    assertEquals(Arrays.asList(1, 2), order);
+
+    /* nothing is left queued up for the next call on this thread */
+    caller.execute(() -> order.add(3));
+    assertEquals(Arrays.asList(1, 2, 3), order);
+  }
 }
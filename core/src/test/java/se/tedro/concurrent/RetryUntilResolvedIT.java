@@ -9,10 +9,12 @@ import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.junit.Test;
 
@@ -78,8 +80,191 @@ public class RetryUntilResolvedIT {
     fail("Retry should fail");
   }
 
+  @Test(timeout = TIMEOUT)
+  public void testBoundedErrors() throws Exception {
+    final Async async = CoreAsync
+      .builder()
+      .threaded(false)
+      .scheduler(scheduler)
+      .errorAggregation(ErrorAggregation.builder().maxSuppressed(2).build())
+      .build();
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    final RetryResult<Object> result = runRetry(async, calls, 10000).join();
+
+    assertEquals(RESULT, result.getResult());
+    assertEquals(2, result.getErrors().size());
+    assertEquals(6, calls.get());
+  }
+
+  @Test(timeout = TIMEOUT)
+  public void testBudgetExhausted() throws Exception {
+    final RetryBudget budget = RetryBudget.create(0.1D, 2);
+    final AtomicInteger calls = new AtomicInteger();
+
+    final Stage<RetryResult<Object>> f = async.retryUntilCompleted(() -> {
+      throw new RuntimeException("doCall " + calls.getAndIncrement());
+    }, RetryPolicy.budgeted(budget, RetryPolicy.fullJitter(
+      RetryPolicy.linear(10, TimeUnit.MILLISECONDS))));
+
+    try {
+      f.join();
+      fail("Retry should fail");
+    } catch (final Exception e) {
+      assertEquals("doCall 2", e.getCause().getMessage());
+      assertEquals(2, e.getCause().getSuppressed().length);
+    }
+
+    assertEquals(3, calls.get());
+    assertEquals(0, budget.available());
+  }
+
+  @Test(timeout = TIMEOUT)
+  public void testHedgeFirstCompletedWins() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final Completable<Object> slow = async.completable();
+    final CountDownLatch slowCancelled = new CountDownLatch(1);
+    slow.whenCancelled(slowCancelled::countDown);
+
+    final Stage<RetryResult<Object>> f = async.retryUntilCompleted(() -> {
+      if (calls.getAndIncrement() == 0) {
+        return slow;
+      }
+
+      return async.completed(RESULT);
+    }, RetryPolicy.linear(50, TimeUnit.MILLISECONDS),
+      HedgePolicy.fixed(10, TimeUnit.MILLISECONDS, 1));
+
+    assertEquals(RESULT, f.join().getResult());
+    assertEquals(2, calls.get());
+    /* other attempts are cancelled after the target has been completed */
+    slowCancelled.await();
+  }
+
+  @Test(timeout = TIMEOUT)
+  public void testHedgeRecordsLosersAsCensored() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final List<Long> completed = new ArrayList<>();
+    final List<Long> censored = new ArrayList<>();
+    final CountDownLatch slowCensored = new CountDownLatch(1);
+    final CountDownLatch slowCancelled = new CountDownLatch(1);
+    final Completable<Object> slow = async.completable();
+    slow.whenCancelled(slowCancelled::countDown);
+    final HedgePolicy fixed = HedgePolicy.fixed(10, TimeUnit.MILLISECONDS, 1);
+
+    final Stage<RetryResult<Object>> f = async.retryUntilCompleted(() -> {
+      if (calls.getAndIncrement() == 0) {
+        return slow;
+      }
+
+      return async.completed(RESULT);
+    }, RetryPolicy.linear(50, TimeUnit.MILLISECONDS), new HedgePolicy() {
+      @Override
+      public Supplier<RetryDecision> newInstance(final ClockSource clockSource) {
+        return fixed.newInstance(clockSource);
+      }
+
+      @Override
+      public int maxOutstanding() {
+        return fixed.maxOutstanding();
+      }
+
+      @Override
+      public synchronized void record(final long latency) {
+        completed.add(latency);
+      }
+
+      @Override
+      public synchronized void recordCensored(final long elapsed) {
+        censored.add(elapsed);
+        slowCensored.countDown();
+      }
+    });
+
+    assertEquals(RESULT, f.join().getResult());
+    /* other attempts are censored and then cancelled after the target has been completed */
+    slowCensored.await();
+    slowCancelled.await();
+
+    assertEquals(1, completed.size());
+    assertEquals(1, censored.size());
+    /* the slow attempt was running for at least the hedging delay when it was cancelled */
+    assertTrue(censored.get(0) >= TimeUnit.MILLISECONDS.toNanos(10));
+  }
+
+  @Test(timeout = TIMEOUT)
+  public void testHedgeOutstandingIsCapped() throws Exception {
+    final List<Completable<Object>> attempts = new ArrayList<>();
+
+    final Stage<RetryResult<Object>> f = async.retryUntilCompleted(() -> {
+      final Completable<Object> attempt = async.completable();
+
+      synchronized (attempts) {
+        attempts.add(attempt);
+      }
+
+      return attempt;
+    }, RetryPolicy.linear(50, TimeUnit.MILLISECONDS),
+      HedgePolicy.fixed(5, TimeUnit.MILLISECONDS, 2));
+
+    Thread.sleep(200);
+    f.cancel();
+
+    synchronized (attempts) {
+      assertEquals(3, attempts.size());
+    }
+
+    /* the cancellation happens synchronously in the cancelling thread */
+    for (final Completable<Object> attempt : attempts) {
+      assertTrue(attempt.isCancelled());
+    }
+  }
+
+  @Test(timeout = TIMEOUT)
+  public void testHedgeRetriesOnceAllAttemptsFailed() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final List<Completable<Object>> round = new ArrayList<>();
+
+    final Stage<RetryResult<Object>> f = async.retryUntilCompleted(() -> {
+      final int n = calls.getAndIncrement();
+
+      if (n >= 2) {
+        return async.completed(RESULT);
+      }
+
+      final Completable<Object> attempt = async.completable();
+
+      synchronized (round) {
+        round.add(attempt);
+
+        /* fail both attempts of the first round once the hedge has started */
+        if (round.size() == 2) {
+          for (final Completable<Object> a : round) {
+            a.fail(new RuntimeException("attempt"));
+          }
+        }
+      }
+
+      return attempt;
+    }, RetryPolicy.linear(10, TimeUnit.MILLISECONDS),
+      HedgePolicy.fixed(10, TimeUnit.MILLISECONDS, 1));
+
+    final RetryResult<Object> result = f.join();
+
+    assertEquals(RESULT, result.getResult());
+    assertEquals(3, calls.get());
+    assertEquals(2, result.getErrors().size());
+  }
+
   private Stage<RetryResult<Object>> runRetry(
     final AtomicInteger calls, final long timeout
+  ) {
+    return runRetry(async, calls, timeout);
+  }
+
+  private Stage<RetryResult<Object>> runRetry(
+    final Async async, final AtomicInteger calls, final long timeout
   ) {
     return async.retryUntilCompleted(() -> {
       final int n = calls.getAndIncrement();
@@ -0,0 +1,73 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SourceLinksTest {
+  private Async async;
+  private Completable<Integer> a;
+  private Completable<Integer> b;
+  private Handle<Integer> handle;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setup() {
+    async = CoreAsync.builder().build();
+    a = async.completable();
+    b = async.completable();
+    handle = mock(Handle.class);
+  }
+
+  @Test
+  public void testDropsDoneSources() {
+    final SourceLinks<Integer> links = new SourceLinks<>(ImmutableList.of(a, b));
+    links.bind(handle);
+
+    assertEquals(2, links.size());
+
+    a.complete(42);
+    verify(handle).completed(42);
+
+    assertNull(links.sources[0]);
+    assertEquals(1, links.size());
+
+    final List<Stage<? extends Integer>> pending = new ArrayList<>(links);
+    assertEquals(1, pending.size());
+    assertSame(b, pending.get(0));
+  }
+
+  @Test
+  public void testForwardsSignals() {
+    final SourceLinks<Integer> links = new SourceLinks<>(ImmutableList.of(a, b));
+    links.bind(handle);
+
+    final RuntimeException cause = new RuntimeException();
+
+    a.fail(cause);
+    b.cancel();
+
+    verify(handle).failed(cause);
+    verify(handle).cancelled();
+    assertEquals(0, links.size());
+  }
+
+  @Test
+  public void testBindDone() {
+    a.complete(1);
+
+    final SourceLinks<Integer> links = new SourceLinks<>(ImmutableList.of(a, b));
+    links.bind(handle);
+
+    verify(handle).completed(1);
+    assertEquals(1, links.size());
+  }
+}
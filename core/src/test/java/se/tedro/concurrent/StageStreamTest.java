@@ -0,0 +1,147 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class StageStreamTest {
+  @Rule
+  public ExpectedException except = ExpectedException.none();
+
+  private Async async;
+
+  @Before
+  public void setup() {
+    async = CoreAsync.builder().build();
+  }
+
+  @Test
+  public void testIterator() throws Exception {
+    final StageStream<Integer> stream = async.stream(ImmutableList.of(1, 2).iterator());
+
+    assertEquals(1, (int) stream.next().join());
+    assertEquals(2, (int) stream.next().join());
+    assertNull(stream.next().join());
+  }
+
+  @Test
+  public void testCollect() throws Exception {
+    final List<Integer> result =
+      async.stream(ImmutableList.of(1, 2, 3, 4).iterator())
+        .map(v -> v * 10)
+        .filter(v -> v != 20)
+        .collect(Collectors.toList())
+        .join();
+
+    assertEquals(ImmutableList.of(10, 30, 40), result);
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    final List<List<Integer>> result = async
+      .stream(ImmutableList.of(1, 2, 3, 4, 5).iterator())
+      .batch(2)
+      .collect(Collectors.toList())
+      .join();
+
+    assertEquals(
+      ImmutableList.of(ImmutableList.of(1, 2), ImmutableList.of(3, 4), ImmutableList.of(5)),
+      result);
+  }
+
+  @Test
+  public void testFlatMapOrderAndConcurrency() throws Exception {
+    final List<Completable<Integer>> pending = new ArrayList<>();
+
+    final StageStream<Integer> stream = async
+      .stream(ImmutableList.of(1, 2, 3, 4).iterator())
+      .flatMap(v -> {
+        final Completable<Integer> c = async.completable();
+        pending.add(c);
+        return c;
+      }, 2);
+
+    final Stage<Integer> first = stream.next();
+
+    /* one is waited for, another is prefetched */
+    assertEquals(2, pending.size());
+
+    pending.get(1).complete(2);
+    assertTrue(!first.isDone());
+
+    pending.get(0).complete(1);
+    assertEquals(1, (int) first.join());
+
+    final Stage<Integer> second = stream.next();
+    assertEquals(2, (int) second.join());
+    assertEquals(4, pending.size());
+  }
+
+  @Test
+  public void testBufferLimitsDemand() throws Exception {
+    final List<Integer> pulled = new ArrayList<>();
+    final int[] counter = {0};
+
+    final StageStream<Integer> stream = async.<Integer>stream(() -> {
+      final int next = ++counter[0];
+      pulled.add(next);
+      return async.completed(next > 10 ? null : next);
+    }).buffer(3);
+
+    assertEquals(1, (int) stream.next().join());
+    /* one consumed, three buffered */
+    assertEquals(4, pulled.size());
+  }
+
+  @Test
+  public void testCancelPropagatesUpstream() throws Exception {
+    final Completable<Integer> source = async.completable();
+
+    final StageStream<Integer> stream = async.<Integer>stream(() -> source).map(v -> v + 1);
+    final Stage<List<Integer>> result = stream.collect(Collectors.toList());
+
+    result.cancel();
+
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void testCancelWaitingPropagatesUpstream() throws Exception {
+    final Completable<Integer> source = async.completable();
+
+    final StageStream<Integer> stream =
+      async.<Integer>stream(() -> source).flatMap(async::completed, 2);
+
+    final Stage<Integer> next = stream.next();
+    assertTrue(!source.isDone());
+
+    next.cancel();
+
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    final RuntimeException error = new RuntimeException("error");
+
+    final Stage<List<Integer>> result = async
+      .stream(ImmutableList.of(1, 2).iterator())
+      .<Integer>map(v -> {
+        throw error;
+      })
+      .collect(Collectors.toList());
+
+    except.expect(ExecutionException.class);
+    result.join();
+  }
+}
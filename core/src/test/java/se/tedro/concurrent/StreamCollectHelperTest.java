@@ -43,13 +43,15 @@ public class StreamCollectHelperTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void testZeroSize() {
-    new StreamCollectHelper<>(caller, 0, consumer, supplier, target);
+    new StreamCollectHelper<>(caller, 0, consumer, supplier, target,
+        ErrorAggregation.newDefault());
   }
 
   @Test
   public void testOneFailed() throws Exception {
     final StreamCollectHelper<Object, Object> helper =
-      new StreamCollectHelper<>(caller, 2, consumer, supplier, target);
+      new StreamCollectHelper<>(caller, 2, consumer, supplier, target,
+        ErrorAggregation.newDefault());
 
     when(supplier.get()).thenReturn(transformed);
 
@@ -65,7 +67,8 @@ public class StreamCollectHelperTest {
   @Test
   public void testOneCancelled() throws Exception {
     final StreamCollectHelper<Object, Object> helper =
-      new StreamCollectHelper<>(caller, 2, consumer, supplier, target);
+      new StreamCollectHelper<>(caller, 2, consumer, supplier, target,
+        ErrorAggregation.newDefault());
 
     when(supplier.get()).thenReturn(transformed);
 
@@ -81,7 +84,8 @@ public class StreamCollectHelperTest {
   @Test
   public void testAllResolved() throws Exception {
     final StreamCollectHelper<Object, Object> helper =
-      new StreamCollectHelper<>(caller, 2, consumer, supplier, target);
+      new StreamCollectHelper<>(caller, 2, consumer, supplier, target,
+        ErrorAggregation.newDefault());
 
     when(supplier.get()).thenReturn(transformed);
 
@@ -97,7 +101,8 @@ public class StreamCollectHelperTest {
   @Test
   public void testEndThrows() throws Exception {
     final StreamCollectHelper<Object, Object> helper =
-      new StreamCollectHelper<Object, Object>(caller, 1, consumer, supplier, target);
+      new StreamCollectHelper<Object, Object>(caller, 1, consumer, supplier, target,
+        ErrorAggregation.newDefault());
 
     when(supplier.get()).thenThrow(e);
 
@@ -0,0 +1,151 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StripedCollectHelperTest {
+  @Mock
+  private Completable<Integer> target;
+  @Mock
+  private Stage<Integer> f1;
+  @Mock
+  private Stage<Integer> f2;
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroSize() {
+    new StripedCollectHelper<>(0, Collectors.summingInt((Integer v) -> v), ImmutableList.of(),
+      target, false, ErrorAggregation.newDefault());
+  }
+
+  @Test
+  public void testCompleted() {
+    final StripedCollectHelper<Integer, ?, Integer> helper =
+      new StripedCollectHelper<>(2, Collectors.summingInt((Integer v) -> v),
+        ImmutableList.of(f1, f2), target, false, ErrorAggregation.newDefault());
+
+    helper.completed(1);
+    verify(target, never()).complete(any());
+
+    helper.completed(2);
+    verify(target).complete(3);
+  }
+
+  @Test
+  public void testFailed() {
+    final StripedCollectHelper<Integer, ?, Integer> helper =
+      new StripedCollectHelper<>(2, Collectors.summingInt((Integer v) -> v),
+        ImmutableList.of(f1, f2), target, false, ErrorAggregation.newDefault());
+
+    helper.failed(new RuntimeException());
+    verify(f1).cancel();
+    verify(f2).cancel();
+
+    helper.cancelled();
+    verify(target).fail(any(Throwable.class));
+    verify(target, never()).complete(any());
+  }
+
+  @Test
+  public void testFailFast() {
+    final StripedCollectHelper<Integer, ?, Integer> helper =
+      new StripedCollectHelper<>(2, Collectors.summingInt((Integer v) -> v),
+        ImmutableList.of(f1, f2), target, true, ErrorAggregation.newDefault());
+
+    final RuntimeException cause = new RuntimeException();
+
+    helper.failed(cause);
+    verify(target).fail(cause);
+    verify(f2).cancel();
+
+    helper.completed(1);
+    verify(target, never()).complete(any());
+    assertTrue(helper.errors.isEmpty());
+  }
+
+  @Test
+  public void testStripes() {
+    assertEquals(1, StripedCollectHelper.stripes(1));
+    assertEquals(2, StripedCollectHelper.stripes(2));
+    assertEquals(4, StripedCollectHelper.stripes(3));
+    assertEquals(8, StripedCollectHelper.stripes(8));
+  }
+
+  @Test
+  public void testOrderedCollectorInCompletionOrder() throws Exception {
+    final Async async = CoreAsync.builder().build();
+    final Completable<Integer> a = async.completable();
+    final Completable<Integer> b = async.completable();
+    final Completable<Integer> c = async.completable();
+
+    final Stage<List<Integer>> result =
+      async.collect(ImmutableList.of(a, b, c), Collectors.toList());
+
+    c.complete(3);
+    a.complete(1);
+    b.complete(2);
+
+    assertEquals(ImmutableList.of(3, 1, 2), result.join());
+  }
+
+  @Test
+  public void testConcurrentAccumulation() throws Exception {
+    final int threads = 4;
+    final int perThread = 10000;
+
+    final Async async = CoreAsync.builder().build();
+    final List<Completable<Integer>> stages = new ArrayList<>();
+
+    for (int i = 0; i < threads * perThread; i++) {
+      stages.add(async.completable());
+    }
+
+    /* ArrayList is not thread-safe, so this fails if accumulation is not properly guarded */
+    final Stage<List<Integer>> result = async.collect(stages,
+      Collector.<Integer, List<Integer>>of(ArrayList::new, List::add, (a, b) -> {
+        a.addAll(b);
+        return a;
+      }, Collector.Characteristics.UNORDERED));
+    final Stage<Integer> sum = async.reduce(stages, 0, Integer::sum);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+
+      for (int t = 0; t < threads; t++) {
+        final Collection<Completable<Integer>> slice =
+          stages.subList(t * perThread, (t + 1) * perThread);
+
+        futures.add(executor.submit(() -> slice.forEach(c -> c.complete(1))));
+      }
+
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(threads * perThread, result.join().size());
+    assertEquals(threads * perThread, (int) sum.join());
+    assertTrue(result.isCompleted());
+  }
+}
@@ -0,0 +1,101 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class StripedCountdownTest {
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroSize() {
+    new StripedCountdown(0, 1);
+  }
+
+  @Test
+  public void testStripes() {
+    /* chunks of two, so only three stripes are needed */
+    final StripedCountdown countdown = new StripedCountdown(5, 4);
+
+    assertEquals(2, countdown.chunk);
+    assertEquals(3, countdown.stripes);
+  }
+
+  @Test
+  public void testClaimsAllPositions() {
+    final StripedCountdown countdown = new StripedCountdown(7, 4);
+    final BitSet claimed = new BitSet();
+
+    for (int i = 0; i < 7; i++) {
+      claimed.set(countdown.claim());
+    }
+
+    assertEquals(7, claimed.cardinality());
+    assertEquals(7, claimed.nextClearBit(0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testClaimWhenFinished() {
+    final StripedCountdown countdown = new StripedCountdown(2, 2);
+
+    countdown.claim();
+    countdown.claim();
+    countdown.claim();
+  }
+
+  @Test
+  public void testOnlyLastReleases() {
+    final StripedCountdown countdown = new StripedCountdown(5, 2);
+    final int[] positions = new int[5];
+
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = countdown.claim();
+    }
+
+    /* release out of order */
+    for (int i = positions.length - 1; i > 0; i--) {
+      assertFalse(countdown.release(positions[i]));
+    }
+
+    assertTrue(countdown.release(positions[0]));
+  }
+
+  @Test
+  public void testConcurrentCountDown() throws Exception {
+    final int threads = 8;
+    final int perThread = 10000;
+
+    final StripedCountdown countdown = new StripedCountdown(threads * perThread, 8);
+    final AtomicInteger last = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            if (countdown.countDown()) {
+              last.incrementAndGet();
+            }
+          }
+        }));
+      }
+
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(1, last.get());
+  }
+}
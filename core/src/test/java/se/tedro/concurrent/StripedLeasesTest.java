@@ -0,0 +1,107 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class StripedLeasesTest {
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroStripes() {
+    new StripedLeases(1, 0);
+  }
+
+  @Test
+  public void testNoZeroBeforeReconcile() {
+    final StripedLeases leases = new StripedLeases(1, 4);
+
+    assertFalse(leases.release());
+    assertEquals(0, leases.get());
+
+    leases.retain();
+    assertEquals(1, leases.get());
+
+    leases.reconcile();
+    assertEquals(1, leases.exact.get());
+    assertTrue(leases.release());
+  }
+
+  @Test
+  public void testUpdatesAfterReconcile() {
+    final StripedLeases leases = new StripedLeases(1, 4);
+
+    leases.retain();
+    leases.reconcile();
+
+    leases.retain();
+    assertEquals(3, leases.exact.get());
+
+    assertFalse(leases.release());
+    assertFalse(leases.release());
+    assertTrue(leases.release());
+  }
+
+  /**
+   * Leases retained and released concurrently with reconciling must be counted exactly once, and
+   * only the last release may observe zero.
+   */
+  @Test(timeout = 10000)
+  public void testConcurrentReconcile() throws Exception {
+    final int threads = 4;
+    final int iterations = 10000;
+
+    final StripedLeases leases = new StripedLeases(1, threads);
+    final AtomicInteger zeroes = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(threads);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          /* hold one lease while churning, so that zero can't be reached early */
+          leases.retain();
+          started.countDown();
+
+          for (int i = 0; i < iterations; i++) {
+            leases.retain();
+
+            if (leases.release()) {
+              zeroes.incrementAndGet();
+            }
+          }
+
+          if (leases.release()) {
+            zeroes.incrementAndGet();
+          }
+        }));
+      }
+
+      started.await();
+      leases.reconcile();
+
+      if (leases.release()) {
+        zeroes.incrementAndGet();
+      }
+
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(0, leases.get());
+    assertEquals(1, zeroes.get());
+  }
+}
@@ -0,0 +1,86 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeoutIT {
+  private Async async;
+
+  @Before
+  public void setup() {
+    async = CoreAsync.builder().timerTick(1, TimeUnit.MILLISECONDS).timerWheelSize(64).build();
+  }
+
+  @Test
+  public void testWithTimeoutExpires() throws Exception {
+    final Completable<Integer> source = async.completable();
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    source.whenCancelled(cancelled::countDown);
+
+    final Stage<Integer> stage = source.withTimeout(10, TimeUnit.MILLISECONDS);
+
+    try {
+      stage.join();
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    assertTrue(stage.isFailed());
+    /* the source is cancelled after the stage has failed */
+    assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testWithTimeoutCompletedFirst() throws Exception {
+    final Completable<Integer> source = async.completable();
+    final Stage<Integer> stage = source.withTimeout(1, TimeUnit.HOURS);
+
+    source.complete(42);
+
+    assertEquals(Integer.valueOf(42), stage.join());
+  }
+
+  @Test
+  public void testWithTimeoutCancelForwarding() {
+    final Completable<Integer> source = async.completable();
+    final Stage<Integer> stage = source.withTimeout(1, TimeUnit.HOURS);
+
+    stage.cancel();
+
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void testWithTimeoutDone() {
+    final Stage<Integer> stage = async.completed(42);
+    assertEquals(stage, stage.withTimeout(1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testDelay() throws Exception {
+    final long start = System.nanoTime();
+
+    async.delay(10, TimeUnit.MILLISECONDS).join();
+
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+  }
+
+  @Test
+  public void testDelayCancel() throws Exception {
+    final Stage<Void> delay = async.delay(10, TimeUnit.MILLISECONDS);
+
+    assertTrue(delay.cancel());
+    Thread.sleep(50);
+
+    assertTrue(delay.isCancelled());
+    assertFalse(delay.isCompleted());
+  }
+}
@@ -0,0 +1,112 @@
+package se.tedro.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTest {
+  private TimingWheel wheel;
+
+  @Before
+  public void setup() {
+    wheel = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 8);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWheelSizeNotPowerOfTwo() {
+    new TimingWheel(1, 6);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTickNotPositive() {
+    new TimingWheel(0, 8);
+  }
+
+  @Test
+  public void testExpire() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.nanoTime();
+
+    final TimingWheel.Timeout timeout = wheel.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+    assertTrue(timeout.isExpired());
+    assertFalse(timeout.cancel());
+  }
+
+  /**
+   * Timeouts further away than a revolution of the wheel must wait for their round.
+   */
+  @Test
+  public void testExpireAfterRounds() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.nanoTime();
+
+    wheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    final Runnable task = mock(Runnable.class);
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    final TimingWheel.Timeout timeout = wheel.schedule(task, 1, TimeUnit.HOURS);
+
+    assertTrue(timeout.cancel());
+    assertFalse(timeout.cancel());
+    assertTrue(timeout.isCancelled());
+    assertNull(timeout.task);
+
+    /* the cancelled timeout is unlinked before any later timeout expires */
+    wheel.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertNull(timeout.bucket);
+    verify(task, never()).run();
+  }
+
+  /**
+   * Drive the worker state directly, without starting the worker thread.
+   */
+  @Test
+  public void testTransferAndProcessCancelled() {
+    wheel.startTime = System.nanoTime();
+
+    final long deadline = wheel.startTime + TimeUnit.MILLISECONDS.toNanos(20);
+    final TimingWheel.Timeout a = new TimingWheel.Timeout(wheel, () -> { }, deadline);
+    final TimingWheel.Timeout b = new TimingWheel.Timeout(wheel, () -> { }, deadline);
+    final TimingWheel.Timeout c = new TimingWheel.Timeout(wheel, () -> { }, deadline);
+
+    wheel.added.add(a);
+    wheel.added.add(b);
+    wheel.added.add(c);
+    assertTrue(c.cancel());
+
+    wheel.transferAdded();
+
+    assertEquals(2, wheel.pending);
+    assertEquals(2, a.remainingRounds);
+    assertEquals(wheel.wheel[20 & 7], a.bucket);
+    assertNull(c.bucket);
+
+    assertTrue(a.cancel());
+    wheel.processCancelled();
+
+    assertEquals(1, wheel.pending);
+    assertNull(a.bucket);
+    assertEquals(b, b.bucket.head);
+    assertEquals(b, b.bucket.tail);
+  }
+}
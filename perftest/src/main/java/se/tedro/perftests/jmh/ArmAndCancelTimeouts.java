@@ -0,0 +1,98 @@
+package se.tedro.perftests.jmh;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Arms a timeout for each of a batch of operations, which all complete before their timeout
+ * expires.
+ *
+ * <p>Compares {@link Stage#withTimeout(long, TimeUnit)} against scheduling and cancelling a task
+ * on a {@link ScheduledExecutorService}:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar ArmAndCancelTimeouts
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArmAndCancelTimeouts {
+  private static final int SIZE = 100000;
+
+  private Async async;
+  private ScheduledExecutorService scheduler;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    async = CoreAsync.builder().build();
+
+    final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    /* don't let cancelled tasks pile up in the queue, that would only favor the wheel */
+    scheduler.setRemoveOnCancelPolicy(true);
+    this.scheduler = scheduler;
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    scheduler.shutdownNow();
+  }
+
+  @Benchmark
+  public Object withTimeout() throws Exception {
+    final Stage<?>[] stages = new Stage<?>[SIZE];
+    final Completable<?>[] sources = new Completable<?>[SIZE];
+
+    for (int i = 0; i < SIZE; i++) {
+      final Completable<Object> source = async.completable();
+      sources[i] = source;
+      stages[i] = source.withTimeout(1, TimeUnit.SECONDS);
+    }
+
+    for (int i = 0; i < SIZE; i++) {
+      sources[i].complete(null);
+    }
+
+    return stages;
+  }
+
+  @Benchmark
+  public Object scheduledExecutor() throws Exception {
+    final ScheduledFuture<?>[] timeouts = new ScheduledFuture<?>[SIZE];
+    final Completable<?>[] sources = new Completable<?>[SIZE];
+
+    for (int i = 0; i < SIZE; i++) {
+      final Completable<Object> source = async.completable();
+      sources[i] = source;
+      timeouts[i] = scheduler.schedule(() -> source.fail(new Exception()), 1, TimeUnit.SECONDS);
+    }
+
+    for (int i = 0; i < SIZE; i++) {
+      sources[i].complete(null);
+      timeouts[i].cancel(false);
+    }
+
+    return timeouts;
+  }
+}
@@ -0,0 +1,73 @@
+package se.tedro.perftests.jmh;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Builds a chain of transformations on a pending stage, then completes it.
+ *
+ * <p>Every third step is a compose, the rest are applies. Run with {@code -prof gc} to see the
+ * allocations per chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ChainDepth {
+  private final Async async = CoreAsync.builder().build();
+
+  @Param({"1", "5", "20"})
+  public int depth;
+
+  @Benchmark
+  public int async() throws Exception {
+    final Completable<Integer> source = async.completable();
+
+    Stage<Integer> tail = source;
+
+    for (int i = 0; i < depth; i++) {
+      if (i % 3 == 2) {
+        tail = tail.thenCompose(v -> async.completed(v + 1));
+      } else {
+        tail = tail.thenApply(v -> v + 1);
+      }
+    }
+
+    source.complete(0);
+    return tail.join();
+  }
+
+  @Benchmark
+  public int completable() throws Exception {
+    final CompletableFuture<Integer> source = new CompletableFuture<>();
+
+    CompletableFuture<Integer> tail = source;
+
+    for (int i = 0; i < depth; i++) {
+      if (i % 3 == 2) {
+        tail = tail.thenCompose(v -> CompletableFuture.completedFuture(v + 1));
+      } else {
+        tail = tail.thenApply(v -> v + 1);
+      }
+    }
+
+    source.complete(0);
+    return tail.join();
+  }
+}
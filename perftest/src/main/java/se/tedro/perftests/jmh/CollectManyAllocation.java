@@ -0,0 +1,70 @@
+package se.tedro.perftests.jmh;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Variant of {@link CollectMany} which collects pending stages, intended to measure the
+ * allocation cost of collecting a result.
+ *
+ * <p>The stages and their results are allocated during setup, so the measured allocations are the
+ * ones made by collecting. Run with the GC profiler and divide {@code gc.alloc.rate.norm} by the
+ * number of stages to get the number of bytes allocated per collected element:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar CollectManyAllocation -prof gc
+ * }</pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class CollectManyAllocation {
+  private final Async async = CoreAsync.builder().build();
+
+  @Param({"10000", "100000", "1000000"})
+  public int size;
+
+  private List<Completable<Object>> stages;
+  private final Object value = new Object();
+
+  @Setup(Level.Invocation)
+  public void setup() {
+    stages = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      stages.add(async.completable());
+    }
+  }
+
+  @Benchmark
+  public Collection<Object> collect() throws Exception {
+    final Stage<Collection<Object>> result = async.collect(stages);
+
+    for (final Completable<Object> stage : stages) {
+      stage.complete(value);
+    }
+
+    return result.join();
+  }
+}
@@ -0,0 +1,80 @@
+package se.tedro.perftests.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Managed;
+import se.tedro.concurrent.ManagedPool;
+
+/**
+ * Borrows a reference from all threads at once and does a little work with it.
+ *
+ * <p>Compares a {@link ManagedPool} with one instance per thread against a single shared
+ * {@link Managed} reference:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar ManagedPoolDoto
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(Threads.MAX)
+@Fork(value = 1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ManagedPoolDoto {
+  private static final int TOKENS = 100;
+
+  private Async async;
+  private Managed<Object> managed;
+  private ManagedPool<Object> pool;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    async = CoreAsync.builder().build();
+
+    managed = async.managed(() -> async.completed(new Object()), value -> async.completed());
+    managed.start().join();
+
+    pool = async.managedPool(Runtime.getRuntime().availableProcessors(),
+      () -> async.completed(new Object()), value -> async.completed());
+    pool.start().join();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws Exception {
+    managed.stop().join();
+    pool.stop().join();
+  }
+
+  @Benchmark
+  public Object shared() throws Exception {
+    return managed.doto(value -> {
+      Blackhole.consumeCPU(TOKENS);
+      return async.completed(value);
+    }).join();
+  }
+
+  @Benchmark
+  public Object pooled() throws Exception {
+    return pool.doto(value -> {
+      Blackhole.consumeCPU(TOKENS);
+      return async.completed(value);
+    }).join();
+  }
+}
@@ -0,0 +1,88 @@
+package se.tedro.perftests.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Variant of {@link ManyThreads} where every call blocks for a short while, comparing a fixed
+ * thread pool with a virtual thread per task.
+ *
+ * <p>Virtual threads require running the benchmark on Java 21 or later, on older runtimes the
+ * {@code virtualThreads} benchmark fails.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ManyBlockingCalls {
+  private static final long BLOCK_MILLIS = 1;
+
+  private static int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+  @Param({"10000", "100000"})
+  public int calls;
+
+  @Benchmark
+  public void fixedPool() throws Exception {
+    final ExecutorService executor = Executors.newWorkStealingPool(THREAD_COUNT);
+    final Async async = CoreAsync.builder().executor(executor).build();
+
+    try {
+      run(async);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Benchmark
+  public void virtualThreads() throws Exception {
+    final Async async = CoreAsync.builder().virtualThreads(true).build();
+
+    try {
+      run(async);
+    } finally {
+      ((CoreAsync) async).executor().shutdown();
+    }
+  }
+
+  private void run(final Async async) throws Exception {
+    final List<Stage<Integer>> futures = new ArrayList<>(calls);
+
+    for (int i = 0; i < calls; i++) {
+      final int current = i;
+
+      futures.add(async.call(() -> {
+        Thread.sleep(BLOCK_MILLIS);
+        return current;
+      }));
+    }
+
+    long sum = 0;
+
+    for (final Stage<Integer> future : futures) {
+      sum += future.join();
+    }
+
+    if (sum != ((long) calls * (calls - 1)) / 2) {
+      throw new IllegalStateException("did not properly collect all values");
+    }
+  }
+}
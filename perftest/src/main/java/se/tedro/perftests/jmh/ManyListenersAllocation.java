@@ -0,0 +1,68 @@
+package se.tedro.perftests.jmh;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+
+/**
+ * Variant of {@link ManyListeners} which registers listeners on a pending stage from a single
+ * thread, intended to measure the allocation cost of registering a listener.
+ *
+ * <p>Run with the GC profiler and divide {@code gc.alloc.rate.norm} by the number of listeners to
+ * get the number of bytes allocated per listener:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar ManyListenersAllocation -prof gc
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ManyListenersAllocation {
+  private final Async async = CoreAsync.builder().build();
+
+  @Param({"1", "2", "3", "1000"})
+  public int listeners;
+
+  @Benchmark
+  public void async(final Blackhole bh) {
+    final Completable<Integer> future = async.completable();
+    final Consumer<Integer> callback = bh::consume;
+
+    for (int i = 0; i < listeners; i++) {
+      future.whenComplete(callback);
+    }
+
+    future.complete(42);
+  }
+
+  @Benchmark
+  public void completable(final Blackhole bh) {
+    final CompletableFuture<Integer> future = new CompletableFuture<>();
+    final BiConsumer<Integer, Throwable> callback = (result, e) -> bh.consume(result);
+
+    for (int i = 0; i < listeners; i++) {
+      future.whenComplete(callback);
+    }
+
+    future.complete(42);
+  }
+}
@@ -0,0 +1,111 @@
+package se.tedro.perftests.jmh;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Measures how much heap a pending collect retains once all but one of its stages are done.
+ *
+ * <p>Every stage is completed with a {@value #VALUE_SIZE} byte result that the collect does not
+ * need, and the collection of stages is dropped by the caller. The retained heap of the last
+ * invocation in each iteration is reported as the {@code retainedBytes} secondary result:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar RetainedAfterCompletion
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RetainedAfterCompletion {
+  private static final int SIZE = 100000;
+  private static final int VALUE_SIZE = 1024;
+
+  private static final Async ASYNC = CoreAsync.builder().build();
+  private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+  /**
+   * Holds the retained heap of the most recent invocation.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Retained {
+    public long retainedBytes;
+  }
+
+  @Benchmark
+  public Object collectAndDiscard(final Retained retained) throws Exception {
+    final long before = usedHeap();
+
+    final List<Completable<byte[]>> stages = stages();
+    final Completable<byte[]> last = stages.get(SIZE - 1);
+    final Stage<Void> result = ASYNC.collectAndDiscard(new ArrayList<>(stages));
+
+    return measure(retained, before, stages, last, result);
+  }
+
+  @Benchmark
+  public Object streamCollect(final Retained retained) throws Exception {
+    final long before = usedHeap();
+
+    final List<Completable<byte[]>> stages = stages();
+    final Completable<byte[]> last = stages.get(SIZE - 1);
+    final Stage<Integer> result = ASYNC.streamCollect(new ArrayList<>(stages), value -> {
+    }, () -> 0);
+
+    return measure(retained, before, stages, last, result);
+  }
+
+  private Object measure(
+    final Retained retained, final long before, final List<Completable<byte[]>> stages,
+    final Completable<byte[]> last, final Stage<?> result
+  ) throws Exception {
+    for (int i = 0; i < SIZE - 1; i++) {
+      stages.get(i).complete(new byte[VALUE_SIZE]);
+    }
+
+    /* the collect got its own copy, after this only the result and the last stage are
+     * referenced by the caller */
+    stages.clear();
+
+    retained.retainedBytes = Math.max(0, usedHeap() - before);
+
+    last.complete(new byte[VALUE_SIZE]);
+    return result.join();
+  }
+
+  private static List<Completable<byte[]>> stages() {
+    final List<Completable<byte[]>> stages = new ArrayList<>(SIZE);
+
+    for (int i = 0; i < SIZE; i++) {
+      stages.add(ASYNC.completable());
+    }
+
+    return stages;
+  }
+
+  private static long usedHeap() {
+    System.gc();
+    System.gc();
+    return MEMORY.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,96 @@
+package se.tedro.perftests.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.LongCompletable;
+import se.tedro.concurrent.LongStage;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Sum one million asynchronously completed longs, comparing boxed stages with {@link LongStage}.
+ *
+ * <p>Run with the GC profiler to compare allocations:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar SumLongs -prof gc
+ * }</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SumLongs {
+  private static final int SIZE = 1_000_000;
+  private static final long EXPECTED_SUM = ((long) SIZE * (SIZE - 1)) / 2;
+
+  private final Async async = CoreAsync.builder().build();
+
+  @Benchmark
+  public long boxed() throws Exception {
+    final List<Completable<Long>> futures = new ArrayList<>(SIZE);
+
+    for (int i = 0; i < SIZE; i++) {
+      futures.add(async.completable());
+    }
+
+    final Stage<Long> sum = async.collect(futures, values -> {
+      long s = 0;
+
+      for (final long v : values) {
+        s += v;
+      }
+
+      return s;
+    });
+
+    long value = 0;
+
+    for (final Completable<Long> f : futures) {
+      f.complete(value++);
+    }
+
+    return check(sum.join());
+  }
+
+  @Benchmark
+  public long primitive() throws Exception {
+    final List<LongCompletable> futures = new ArrayList<>(SIZE);
+
+    for (int i = 0; i < SIZE; i++) {
+      futures.add(async.longCompletable());
+    }
+
+    final LongStage sum = async.collectLongs(futures, 0L, Long::sum);
+
+    long value = 0;
+
+    for (final LongCompletable f : futures) {
+      f.complete(value++);
+    }
+
+    return check(sum.join());
+  }
+
+  private static long check(final long sum) {
+    if (sum != EXPECTED_SUM) {
+      throw new IllegalStateException("did not properly sum all values");
+    }
+
+    return sum;
+  }
+}
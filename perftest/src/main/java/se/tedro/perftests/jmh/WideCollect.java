@@ -0,0 +1,158 @@
+package se.tedro.perftests.jmh;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.tedro.concurrent.Async;
+import se.tedro.concurrent.Completable;
+import se.tedro.concurrent.CoreAsync;
+import se.tedro.concurrent.Stage;
+
+/**
+ * Collects a single wide fan-out of stages, which are completed by a varying number of threads at
+ * the same time.
+ *
+ * <p>This measures how well the completion tracking of a collect scales with the number of
+ * completing threads, compare the results for each value of {@code threads}. {@code sharedCursor}
+ * is a reference which records values through one shared write cursor and one shared countdown,
+ * like a collect without striping would:
+ *
+ * <pre>{@code
+ *   java -jar target/benchmarks.jar WideCollect
+ * }</pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class WideCollect {
+  private static final int SIZE = 1000000;
+
+  private final Async async = CoreAsync.builder().build();
+
+  @Param({"1", "2", "4", "8", "16", "32", "64"})
+  public int threads;
+
+  private ExecutorService executor;
+  private List<Completable<Object>> stages;
+  private List<CompletableFuture<Object>> futures;
+  private final Object value = new Object();
+
+  @Setup(Level.Trial)
+  public void setupExecutor() {
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardownExecutor() {
+    executor.shutdown();
+  }
+
+  @Setup(Level.Invocation)
+  public void setup() {
+    stages = new ArrayList<>(SIZE);
+    futures = new ArrayList<>(SIZE);
+
+    for (int i = 0; i < SIZE; i++) {
+      stages.add(async.completable());
+      futures.add(new CompletableFuture<>());
+    }
+  }
+
+  @Benchmark
+  public Collection<Object> collect() throws Exception {
+    final Stage<Collection<Object>> result = async.collect(stages);
+    completeAll(stages, stage -> stage.complete(value));
+    return result.join();
+  }
+
+  @Benchmark
+  public Void collectAndDiscard() throws Exception {
+    final Stage<Void> result = async.collectAndDiscard(stages);
+    completeAll(stages, stage -> stage.complete(value));
+    return result.join();
+  }
+
+  @Benchmark
+  public Object[] sharedCursor() throws Exception {
+    final Object[] values = new Object[SIZE];
+    final AtomicInteger write = new AtomicInteger();
+    final AtomicInteger countdown = new AtomicInteger(SIZE);
+    final CompletableFuture<Object[]> result = new CompletableFuture<>();
+
+    for (final CompletableFuture<Object> future : futures) {
+      future.thenAccept(v -> {
+        values[write.getAndIncrement()] = v;
+
+        if (countdown.decrementAndGet() == 0) {
+          result.complete(values);
+        }
+      });
+    }
+
+    completeAll(futures, future -> future.complete(value));
+    return result.join();
+  }
+
+  @Benchmark
+  public Void completableAllOf() throws Exception {
+    final CompletableFuture<Void> result =
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    completeAll(futures, future -> future.complete(value));
+    return result.join();
+  }
+
+  /**
+   * Complete the given stages by splitting them between all threads, which are started at the same
+   * time.
+   */
+  private <T> void completeAll(final List<T> all, final Consumer<T> complete) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    final int slice = (all.size() + threads - 1) / threads;
+
+    for (int t = 0; t < threads; t++) {
+      final List<T> part = all.subList(Math.min(all.size(), t * slice),
+        Math.min(all.size(), (t + 1) * slice));
+
+      executor.execute(() -> {
+        try {
+          start.await();
+
+          for (final T stage : part) {
+            complete.accept(stage);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+
+    start.countDown();
+    done.await();
+  }
+}